@@ -0,0 +1,82 @@
+/**
+ * File: LamportMessageBenchmark.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the cost of a Lamport message on the wire: its encoding with
+ * the MessageCodec alone (as sent by the NioTransport) and its serialization
+ * through Object streams (as sent by RMI).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LamportMessageBenchmark {
+
+   private LamportMessage message;
+   private byte[] encoded;
+   private byte[] serialized;
+
+   @Setup
+   public void setUp() throws IOException {
+      message = new LamportMessage(LamportMessage.Type.RELEASE, 123456, 3, 1000);
+      encoded = encode();
+      serialized = serialize();
+   }
+
+   @Benchmark
+   public byte[] encode() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+      DataOutputStream out = new DataOutputStream(bytes);
+      MessageCodec.write(message, out);
+      out.flush();
+      return bytes.toByteArray();
+   }
+
+   @Benchmark
+   public LamportMessage decode() throws IOException {
+      return MessageCodec.read(new DataInputStream(new ByteArrayInputStream(encoded)));
+   }
+
+   @Benchmark
+   public byte[] serialize() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+         out.writeObject(message);
+      }
+      return bytes.toByteArray();
+   }
+
+   @Benchmark
+   public Object deserialize() throws IOException, ClassNotFoundException {
+      try (ObjectInputStream in = new ObjectInputStream(
+              new ByteArrayInputStream(serialized))) {
+         return in.readObject();
+      }
+   }
+}
@@ -0,0 +1,117 @@
+/**
+ * File: LamportImplBenchmark.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import java.rmi.RemoteException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the hot paths of the LamportImpl, without any network: the
+ * check of the permission to enter the critical section and the handling of
+ * the messages received, for N applications.
+ *
+ * The application 0 is benchmarked and never sends any message: its
+ * transport completes every message at once. A thread of the application
+ * waits for the critical section, held by the application 1, as a busy
+ * application would, while the other applications request and release it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LamportImplBenchmark {
+
+   @Param({"3", "8", "64", "256", "1024"})
+   public int numberOfApplications;
+
+   private LamportImpl lamport;
+
+   // The thread waiting for the critical section
+   private Thread waiter;
+
+   // The time stamp of the next message received and its sender
+   private long timeStamp;
+   private int sender;
+
+   @Setup
+   public void setUp() throws RemoteException {
+      lamport = new LamportImpl(numberOfApplications, 0,
+              (other, message) -> CompletableFuture.completedFuture(null),
+              Runnable::run, false);
+
+      // The application 1 requested the critical section first
+      lamport.receive(new LamportMessage(LamportMessage.Type.REQUEST, ++timeStamp, 1, 0));
+
+      // We wait for the critical section, so that every message received is
+      // counted for the permission and may wake the waiting thread up
+      waiter = new Thread(() -> {
+         try {
+            lamport.lock();
+            lamport.unlock();
+         } catch (RemoteException ex) {
+            Logger.getLogger(LamportImplBenchmark.class.getName()).log(Level.SEVERE, null, ex);
+         }
+      }, "waiter");
+      waiter.setDaemon(true);
+      waiter.start();
+      while (waiter.getState() != Thread.State.WAITING) {
+         Thread.yield();
+      }
+
+      // Every other application has released the critical section
+      timeStamp = lamport.clock.getTime();
+      for (int i = 2; i < numberOfApplications; ++i) {
+         lamport.receive(new LamportMessage(LamportMessage.Type.RELEASE, ++timeStamp, i, 0));
+      }
+      sender = 2;
+   }
+
+   @TearDown
+   public void tearDown() throws RemoteException, InterruptedException {
+      // The application 1 releases the critical section, we can enter it
+      lamport.receive(new LamportMessage(LamportMessage.Type.RELEASE, ++timeStamp, 1, 0));
+      waiter.join();
+   }
+
+   @Benchmark
+   public boolean criticalSectionPermission() {
+      return lamport.criticalSectionPermission();
+   }
+
+   @Benchmark
+   public LamportMessage receive() throws RemoteException {
+      // The applications request then release the critical section in turn
+      LamportMessage.Type type = timeStamp % 2 == 0
+              ? LamportMessage.Type.REQUEST
+              : LamportMessage.Type.RELEASE;
+      LamportMessage response = lamport.receive(
+              new LamportMessage(type, ++timeStamp, sender, (int) timeStamp));
+
+      if (type == LamportMessage.Type.RELEASE) {
+         sender = (sender - 1) % (numberOfApplications - 2) + 2;
+      }
+      return response;
+   }
+}
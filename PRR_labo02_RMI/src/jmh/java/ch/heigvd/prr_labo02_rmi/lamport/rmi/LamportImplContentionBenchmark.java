@@ -0,0 +1,133 @@
+/**
+ * File: LamportImplContentionBenchmark.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import java.rmi.RemoteException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the LamportImpl receiving messages from several applications
+ * at the same time, as it does when the RMI threads (or the channels of the
+ * NioTransport) of different applications deliver their messages.
+ *
+ * The application 0 waits for the critical section. In the "receipts" group,
+ * every thread delivers the RECEIPTs of its own applications, as after a
+ * REQUEST sent to all. In the "mixed" group, one thread delivers REQUEST and
+ * RELEASE messages of its applications at the same time.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class LamportImplContentionBenchmark {
+
+   // The number of threads delivering messages in each group
+   private static final int THREADS = 4;
+
+   @Param({"8", "64"})
+   public int numberOfApplications;
+
+   private LamportImpl lamport;
+
+   // Gives each thread its own applications
+   private final AtomicInteger threads = new AtomicInteger();
+
+   /**
+    * The applications whose messages a thread delivers, and the time stamp
+    * of its next message.
+    */
+   @State(Scope.Thread)
+   public static class Sender {
+
+      private int first;
+      private int step;
+      private int sender;
+      private long timeStamp;
+
+      @Setup
+      public void setUp(LamportImplContentionBenchmark benchmark) {
+         step = Math.min(THREADS, benchmark.numberOfApplications - 1);
+         first = benchmark.threads.getAndIncrement() % step + 1;
+         sender = first;
+         timeStamp = 1;
+      }
+
+      /**
+       * Get the next application whose message is delivered.
+       *
+       * @param numberOfApplications the number of applications
+       * @return the id of the application
+       */
+      int next(int numberOfApplications) {
+         int current = sender;
+         sender += step;
+         if (sender >= numberOfApplications) {
+            sender = first;
+         }
+         return current;
+      }
+   }
+
+   @Setup
+   public void setUp() throws RemoteException {
+      lamport = new LamportImpl(numberOfApplications, 0,
+              (other, message) -> CompletableFuture.completedFuture(null),
+              Runnable::run, false);
+
+      // We are waiting for the critical section, every other application
+      // has released it
+      lamport.requestCriticalSection();
+      for (int i = 1; i < numberOfApplications; ++i) {
+         lamport.receive(new LamportMessage(LamportMessage.Type.RELEASE, 1, i, 0));
+      }
+   }
+
+   @Benchmark
+   @Group("receipts")
+   @GroupThreads(THREADS)
+   public LamportMessage receipt(Sender sender) throws RemoteException {
+      return lamport.receive(new LamportMessage(LamportMessage.Type.RECEIPT,
+              ++sender.timeStamp, sender.next(numberOfApplications), 0));
+   }
+
+   @Benchmark
+   @Group("mixed")
+   @GroupThreads(THREADS - 1)
+   public LamportMessage mixedReceipt(Sender sender) throws RemoteException {
+      return receipt(sender);
+   }
+
+   @Benchmark
+   @Group("mixed")
+   @GroupThreads(1)
+   public LamportMessage mixedRequestRelease(Sender sender) throws RemoteException {
+      // The application requests then releases the critical section
+      LamportMessage.Type type = sender.timeStamp % 2 == 0
+              ? LamportMessage.Type.REQUEST
+              : LamportMessage.Type.RELEASE;
+      return lamport.receive(new LamportMessage(type, ++sender.timeStamp,
+              sender.next(numberOfApplications), 0));
+   }
+}
@@ -0,0 +1,69 @@
+/**
+ * File: LogicalClockBenchmark.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.time;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the LogicalClock, alone and under contention: the clock of a
+ * Lamport application is ticked by the thread of the user application and
+ * updated by the threads receiving the messages at the same time.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class LogicalClockBenchmark {
+
+   private final LogicalClock clock = new LogicalClock();
+
+   @Benchmark
+   @Group("alone")
+   public long tick() {
+      clock.tick();
+      return clock.getTime();
+   }
+
+   @Benchmark
+   @Group("contended")
+   @GroupThreads(1)
+   public long contendedTick() {
+      clock.tick();
+      return clock.getTime();
+   }
+
+   @Benchmark
+   @Group("contended")
+   @GroupThreads(3)
+   public long contendedUpdate() {
+      // A time stamp around the current time, as received from the others
+      clock.update(clock.getTime() + ThreadLocalRandom.current().nextInt(-2, 3));
+      return clock.getTime();
+   }
+
+   @Benchmark
+   @Group("updates")
+   @GroupThreads(4)
+   public long update() {
+      clock.update(clock.getTime() + ThreadLocalRandom.current().nextInt(-2, 3));
+      return clock.getTime();
+   }
+}
@@ -7,6 +7,7 @@
 package ch.heigvd.prr_labo02_rmi.application;
 
 import ch.heigvd.prr_labo02_rmi.lamport.rmi.Lamport;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.VersionedValue;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
@@ -22,7 +23,8 @@ import java.util.logging.Logger;
  * The application offers a command line interface to read and write to the 
  * shared value. It offers the four following commands:
  * 
- * get  : Read the value
+ * get  : Read the value as known by the Lamport application, with its
+ *        version, without locking the critical section (it may be outdated)
  * set  : Set the new value (you will then be asked to enter the new value)
  * test : Start n incrementations of the value (you will be asked to specify n)
  * quit : Quit the application
@@ -36,7 +38,9 @@ import java.util.logging.Logger;
  * The purpose is to start at least two Lamport applications and two user 
  * applications and start the test on each user application. If the last 
  * one of the applications to finish displays a value corresponding to the sum
- * of all tests, the Lamport application should work. 
+ * of all tests, the Lamport application should work. The value displayed is
+ * read without locking the critical section again: it is the value known by
+ * our Lamport application, at least as recent as our own last release.
  * 
  * Please refer the LamportApplication to read about the tests we made and 
  * our conclusion on our Lamport application.
@@ -88,7 +92,7 @@ public class UserApplication {
             case "get":
                try {
                   // Get the value and give feedback
-                  int value = lamport.getSharedValue();
+                  VersionedValue value = lamport.getVersionedValue();
                   System.out.println("The value is : " + value);
                } catch (RemoteException ex) {
                   System.out.println("An error occurred...");
@@ -130,19 +134,13 @@ public class UserApplication {
                   System.out.println("Please enter the number of tests: ");
                   int numberOfTests = in.nextInt();
                   
-                  // Do the tests
-                  for (int i = 0; i < numberOfTests; ++i) {
-                     lamport.lock();
-                     lamport.setSharedValue(lamport.getSharedValue() + 1);
-                     lamport.unlock();
-                  }
+                  // Do the tests, each incrementation in its own critical section
+                  lamport.addAndGet(1, numberOfTests);
                   
                   // Give the feedback
                   System.out.println("Tests finished...");
-                  lamport.lock();
                   System.out.println("The resulting value is: " 
-                          + lamport.getSharedValue());
-                  lamport.unlock();
+                          + lamport.getVersionedValue());
                   
                   in.nextLine();
                } catch (InputMismatchException ex) {
@@ -172,7 +170,8 @@ public class UserApplication {
    public static void displayCommands() {
       System.out.println("====================================");
       System.out.println("Commands");
-      System.out.println("'get' :   Get the value of the shared variable.");
+      System.out.println("'get' :   Get the value of the shared variable, "
+              + "with its version, as known here (it may be outdated).");
       System.out.println("'set' :   Set the value of the shared variable. You "
               + "will be asked to enter the new desired value.");
       System.out.println("'test' :  Start a test program. You will be asked the "
@@ -6,14 +6,39 @@
 
 package ch.heigvd.prr_labo02_rmi.lamport;
 
+import ch.heigvd.prr_labo02_rmi.lamport.journal.Journal;
+import ch.heigvd.prr_labo02_rmi.lamport.metrics.LamportMetrics;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.AbstractLamport;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.CombiningLamport;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.KeyedLamportImpl;
 import ch.heigvd.prr_labo02_rmi.lamport.rmi.Lamport;
 import ch.heigvd.prr_labo02_rmi.lamport.rmi.LamportImpl;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.MaekawaImpl;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.RicartAgrawalaImpl;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.SuzukiKasamiImpl;
+import ch.heigvd.prr_labo02_rmi.lamport.state.SharedState;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.DeadlineTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.NioTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.RmiTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.Transport;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.rmi.AlreadyBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import javax.management.JMException;
 
 /**
  * Main class for the Lamport application program. It creates the Lamport
@@ -26,57 +51,355 @@ import java.util.logging.Logger;
  * 
  * java -jar -Djava.rmi.server.codebase=file:<absolute path to the maven project>/target/classes/ 
  * target/lamport_application.jar <RMI registry address> <number of Lamport applications> 
- * <ID of the current application (starting at 0)>
+ * <ID of the current application (starting at 0)> [options]
+ * 
+ * The following options can be added after the three parameters:
+ * 
+ * --threads=<n>   : number of threads sending the messages to the other 
+ *                   Lamport applications (by default a thread per message in
+ *                   flight)
+ * --algorithm=<a> : mutual exclusion algorithm, either 'lamport' (default),
+ *                   'ricart-agrawala', 'maekawa' (quorum based, for large
+ *                   numbers of applications), 'suzuki-kasami' (token based,
+ *                   for low contention) or 'keyed' (the Lamport algorithm
+ *                   for each key of a KeyedLamport, the default key being
+ *                   used through the Lamport interface). Every Lamport
+ *                   application must use the same algorithm.
+ * --sticky=<b>    : with the 'lamport' or 'keyed' algorithm, 'true' to keep
+ *                   the ownership of the critical section after unlocking it
+ *                   until another application requests it (default 'false')
+ * --coalesce=<us> : with the 'lamport' algorithm, time in microseconds the
+ *                   RELEASE waits for the next REQUEST of the application,
+ *                   which then releases the critical section instead (a
+ *                   single message per application instead of two), the
+ *                   RELEASE being sent at once when another application
+ *                   requests the critical section (default 0: no waiting).
+ *                   Every Lamport application must use the same time
+ * --batch=<n>     : maximum number of critical sections of the local user
+ *                   applications in a row, before the critical section is
+ *                   released to the other Lamport applications (default 8)
+ * --pipeline=<n>  : with the 'lamport' algorithm and without coalescing,
+ *                   maximum number of local user applications requesting the
+ *                   critical section at once, each with its own REQUEST sent
+ *                   before the previous one is released, instead of sharing
+ *                   their requests (default 1: shared, see --batch)
+ * --transport=<t> : transport of the messages between the Lamport
+ *                   applications, either 'rmi' (default) or 'nio' (TCP
+ *                   connections without RMI). The user applications always
+ *                   use RMI. Every Lamport application must use the same
+ *                   transport.
+ * --port=<p>      : with the 'nio' transport, the port of the application 0,
+ *                   the application i listening on the port p + i on the
+ *                   host of the RMI registry (default 20000)
+ * --deadline=<ms> : time the other Lamport applications have to answer a
+ *                   message, after which it is considered as failed (default
+ *                   0: no deadline). Not supported by the 'maekawa' and
+ *                   'suzuki-kasami' algorithms
+ * --suspect-after=<ms> : time after which a Lamport application we haven't
+ *                   heard from is suspected to have failed, a HEARTBEAT being
+ *                   sent to the silent ones (default 0: no suspicion). With
+ *                   the 'lamport' algorithm, a suspected application is
+ *                   dropped from the members and must join them again, at
+ *                   the expense of the mutual exclusion if it was only
+ *                   slow. Not supported by the 'keyed', 'maekawa' and
+ *                   'suzuki-kasami' algorithms
+ * --journal=<dir> : with the 'lamport' algorithm, directory of the journal
+ *                   of the shared value and the logical clock (see Journal),
+ *                   'lamport-<ID>.journal' (default: no journal)
+ * --members=<k>   : with the 'lamport' algorithm, number of applications
+ *                   starting as members (the IDs 0 to k - 1, default: all of
+ *                   them). The others join the members once started, and
+ *                   every application leaves them when stopped
+ * --sponsor=<id>  : with --members, the member an application joining asks
+ *                   to admit it (default 0)
  * 
  * This command comes from the official RMI documentation: 
  * https://docs.oracle.com/javase/7/docs/technotes/guides/rmi/hello/hello-world.html
  * 
  * You should start every Lamport appliation to before starting any of the user
- * application. Because of lack of time and because it wasn't explicitly
- * asked, the Lamport application only supports the case where one user
- * application is run per Lamport application.
+ * application. With the 'rmi' transport, each Lamport application looks the
+ * others up at startup and displays 'Lamport application ready...' once all
+ * of them answer. Several user applications may use the same Lamport
+ * application: they take turns locally, the critical section being handed
+ * over from one to the next without any message (see CombiningLamport).
+ * 
+ * A user application may bound the time it waits for the critical section
+ * with lock(timeout), which returns false once the timeout has passed.
+ * 
+ * A Lamport application with a journal can be restarted alone: it recovers
+ * the shared value and its clock from the journal, then tells the others it
+ * restarted once they answer, and catches up with the release it missed
+ * through their RECEIPTs.
+ * 
+ * The members may change while running: the applications started with an
+ * ID above the initial members ask a member to admit them, and get the
+ * shared value and its version from it alone. An application leaving (when
+ * its process is stopped) releases the critical section for the last time.
+ * 
+ * The metrics of each Lamport application (messages sent and received by
+ * type, round trip times to the other applications, time waited for and
+ * spent in critical section, logical clock, queue depth and owner of the
+ * critical section) are shown by JMX, under the name
+ * ch.heigvd.prr_labo02_rmi:type=Lamport,id=<ID>: use jconsole on the process,
+ * or start it with the com.sun.management.jmxremote.* properties to reach it
+ * from another host.
  * 
  * Testing and results:
  * We used the test command available in the user application to test this 
- * Lamport application and we concluded that our Lamport implementation
- * doesn't work correctly. If we execute 10000 tests for example, the resulting
- * value doesn't equal 20000 but for example 19991. We see that we loose a few 
- * incrementations in the process and we haven't been able to locate the source
- * of the problem. 
- * 
- * On the other hand the values are shared across the network. We suppose it is 
- * a problem of mutual exclusion. 
+ * Lamport application. Our first implementation lost a few incrementations
+ * (19991 instead of 20000 for 10000 tests on two applications). The RECEIPT
+ * messages, which travel back on the RMI calls, could overtake the RELEASE
+ * of the same application and let the next application enter the critical
+ * section with an outdated value. The RECEIPT is now sent after the messages
+ * not delivered yet in that case, and the values are versioned by the
+ * time stamp of their RELEASE. The resulting value now equals the sum of all
+ * tests.
  * 
  */
 public class LamportApplication {
    
+   // The time an application stopped waits to leave the members, in
+   // milliseconds
+   static final long LEAVE_TIMEOUT = 5000;
+
    // The Lamport remote object created
    private final Lamport lamport;
    
    /**
     * Constructor. Create the remote object and register it to the RMI registry
     * 
-    * @param rmiAddress the address of the RMI registry
-    * @param numberOfApplications the number of application in use
+    * @param implementation the Lamport remote object to export
     * @param id the id of the current Lamport application
     * @throws RemoteException
     * @throws AlreadyBoundException 
     */
-   private LamportApplication(String rmiAddress, int numberOfApplications, int id) 
+   private LamportApplication(Lamport implementation, int id) 
            throws RemoteException, AlreadyBoundException {
       System.out.println("Starting the Lamport application...");
-      lamport = (Lamport) UnicastRemoteObject.exportObject(new LamportImpl(
-              rmiAddress,
-              numberOfApplications,
-              id
-      ), 0);
+      lamport = (Lamport) UnicastRemoteObject.exportObject(implementation, 0);
       LocateRegistry.getRegistry().bind("lamport-" + id, lamport);
-      System.out.println("Lamport application ready...");
+      System.out.println("Lamport application registered...");
+   }
+   
+   /**
+    * Read the options given as --name=value. Exits if an option is malformed.
+    * 
+    * @param args the arguments of the program
+    * @param first the index of the first option
+    * @return the value of each option by name
+    */
+   static Map<String, String> readOptions(String[] args, int first) {
+      Map<String, String> options = new HashMap<>();
+      for (int i = first; i < args.length; ++i) {
+         String[] option = args[i].split("=", 2);
+         if (!option[0].startsWith("--") || option.length != 2) {
+            System.out.println("Options must be given as --<name>=<value>.");
+            System.exit(0);
+         }
+         options.put(option[0].substring(2), option[1]);
+      }
+      return options;
+   }
+   
+   /**
+    * Create the transport of the messages between Lamport applications. A 
+    * NioTransport must then be started, and the applications of a 
+    * RmiTransport may be awaited.
+    * 
+    * @param name the name of the transport
+    * @param rmiAddress the address of the RMI registry
+    * @param numberOfApplications the number of application in use
+    * @param id the id of the current Lamport application
+    * @param port the port of the application 0 with the NIO transport
+    * @param executor the executor sending the messages to the other Lamport
+    * applications
+    * @return the transport, null if the name is unknown
+    * @throws IOException if the transport cannot be created
+    */
+   static Transport createTransport(String name, String rmiAddress,
+           int numberOfApplications, int id, int port, ExecutorService executor)
+           throws IOException {
+      switch (name) {
+         case "rmi":
+            return new RmiTransport(rmiAddress, numberOfApplications, executor);
+         case "nio":
+            return new NioTransport(id, 
+                    NioTransport.addresses(rmiAddress, port, numberOfApplications), 
+                    executor);
+         default:
+            return null;
+      }
+   }
+   
+   /**
+    * Create the Lamport remote object using the given algorithm.
+    * 
+    * @param algorithm the name of the mutual exclusion algorithm
+    * @param numberOfApplications the number of application in use
+    * @param id the id of the current Lamport application
+    * @param transport the transport of the messages to the other Lamport
+    * applications
+    * @param executor the executor sending the messages to the other Lamport
+    * applications
+    * @param options the options of the application
+    * @param state the shared state replicated along with the shared value,
+    * null if none. The keyed algorithm does not replicate any
+    * @return the Lamport remote object, shared by the local users, null if the
+    * algorithm is unknown
+    * @throws NumberFormatException if the batch, the coalescing time or the
+    * pipeline is not a number
+    */
+   static Lamport createLamport(String algorithm, int numberOfApplications,
+           int id, Transport transport, ExecutorService executor,
+           Map<String, String> options, SharedState state) {
+      boolean sticky = Boolean.parseBoolean(options.getOrDefault("sticky", "false"));
+      int batch = Integer.parseInt(options.getOrDefault("batch",
+              String.valueOf(CombiningLamport.DEFAULT_BATCH)));
+      long coalesce = Long.parseLong(options.getOrDefault("coalesce", "0"));
+      int pipeline = Integer.parseInt(options.getOrDefault("pipeline", "1"));
+
+      AbstractLamport lamport;
+      switch (algorithm) {
+         case "lamport":
+            LamportImpl lamportImpl = new LamportImpl(numberOfApplications, id, 
+                    transport, executor, sticky);
+            lamportImpl.setReleaseLinger(coalesce);
+            lamport = lamportImpl;
+            break;
+         case "ricart-agrawala":
+            lamport = new RicartAgrawalaImpl(numberOfApplications, id, transport, 
+                    executor);
+            break;
+         case "maekawa":
+            lamport = new MaekawaImpl(numberOfApplications, id, transport, executor);
+            break;
+         case "suzuki-kasami":
+            lamport = new SuzukiKasamiImpl(numberOfApplications, id, transport, 
+                    executor);
+            break;
+         case "keyed":
+            // Each key combines the requests of its own local users
+            return new KeyedLamportImpl(numberOfApplications, id, transport, 
+                    executor, sticky, batch);
+         default:
+            return null;
+      }
+
+      if (state != null) {
+         lamport.setSharedState(state);
+      }
+      return new CombiningLamport(lamport, batch, pipeline);
+   }
+   
+   /**
+    * Detect the failures of the other Lamport applications, see
+    * AbstractLamport.detectFailures.
+    * 
+    * @param lamport the Lamport object created by createLamport
+    * @param timeout the time after which a silent application is suspected,
+    * in milliseconds
+    * @return false if the Lamport object does not detect failures
+    */
+   static boolean detectFailures(Lamport lamport, long timeout) {
+      if (!(lamport instanceof CombiningLamport)) {
+         return false;
+      }
+      ((CombiningLamport) lamport).getLamport().detectFailures(timeout);
+      return true;
+   }
+   
+   /**
+    * Recover the state of a Lamport object created by createLamport from a
+    * journal, and journal it from now on, see AbstractLamport.setJournal.
+    * 
+    * @param lamport the Lamport object created by createLamport
+    * @param path the path of the journal
+    * @return the journal, null if the Lamport object does not support any
+    * @throws IOException if the journal cannot be opened or read
+    */
+   static Journal openJournal(Lamport lamport, Path path) throws IOException {
+      if (!(lamport instanceof CombiningLamport)) {
+         return null;
+      }
+
+      Files.createDirectories(path.getParent());
+      Journal journal = new Journal(path);
+      ((CombiningLamport) lamport).getLamport().setJournal(journal);
+      return journal;
+   }
+   
+   /**
+    * Tell the other Lamport applications that a Lamport object created by
+    * createLamport restarted, see AbstractLamport.rejoin.
+    * 
+    * @param lamport the Lamport object created by createLamport
+    */
+   static void rejoin(Lamport lamport) {
+      if (lamport instanceof CombiningLamport) {
+         ((CombiningLamport) lamport).getLamport().rejoin();
+      }
+   }
+   
+   /**
+    * Start a Lamport object created by createLamport with some of the
+    * applications only, see AbstractLamport.setMembers.
+    * 
+    * @param lamport the Lamport object created by createLamport
+    * @param numberOfMembers the number of initial members, the IDs 0 to
+    * numberOfMembers - 1
+    * @param id the id of the current Lamport application
+    * @return false if the Lamport object does not support dynamic members
+    */
+   static boolean setMembers(Lamport lamport, int numberOfMembers, int id) {
+      if (!(lamport instanceof CombiningLamport)) {
+         return false;
+      }
+      ((CombiningLamport) lamport).getLamport().setMembers(id < numberOfMembers
+              ? IntStream.range(0, numberOfMembers).toArray()
+              : new int[0]);
+      return true;
+   }
+   
+   /**
+    * Ask a member to admit a Lamport object created by createLamport, and
+    * wait until it is admitted, see AbstractLamport.join.
+    * 
+    * @param lamport the Lamport object created by createLamport
+    * @param sponsor the id of the member
+    * @throws RemoteException if the member could not be asked
+    * @throws InterruptedException if interrupted while waiting
+    */
+   static void join(Lamport lamport, int sponsor) 
+           throws RemoteException, InterruptedException {
+      try {
+         ((CombiningLamport) lamport).getLamport().join(sponsor).get();
+      } catch (ExecutionException ex) {
+         throw new RemoteException("The application could not join", ex.getCause());
+      }
+   }
+   
+   /**
+    * Get the metrics of a Lamport object created by createLamport.
+    * 
+    * @param lamport the Lamport object
+    * @return the metrics of the application, null if none
+    */
+   static LamportMetrics getMetrics(Lamport lamport) {
+      if (lamport instanceof CombiningLamport) {
+         lamport = ((CombiningLamport) lamport).getLamport();
+      }
+
+      if (lamport instanceof AbstractLamport) {
+         return ((AbstractLamport) lamport).getMetrics();
+      } else if (lamport instanceof KeyedLamportImpl) {
+         return ((KeyedLamportImpl) lamport).getMetrics();
+      }
+      return null;
    }
    
    public static void main(String[] args) {
 
-      if (args.length != 3) {
+      if (args.length < 3) {
          System.out.println("You must specify the RMI registry address, "
                  + "the number of Lamport applications running, and the ID "
                  + "of this Lamport application.");
@@ -84,31 +407,200 @@ public class LamportApplication {
          System.out.println(" <RMI registry address>");
          System.out.println(" <number of Lamport applications>");
          System.out.println(" <application ID (integer >= 0)>");
+         System.out.println("Options: ");
+         System.out.println(" --threads=<number of sender threads>");
+         System.out.println(" --algorithm=<lamport|ricart-agrawala|maekawa|suzuki-kasami|keyed>");
+         System.out.println(" --sticky=<true|false>");
+         System.out.println(" --coalesce=<us a RELEASE waits for the next REQUEST>");
+         System.out.println(" --batch=<local critical sections in a row>");
+         System.out.println(" --pipeline=<local requests at once>");
+         System.out.println(" --transport=<rmi|nio>");
+         System.out.println(" --port=<port of the application 0 with nio>");
+         System.out.println(" --deadline=<ms to answer a message, not with maekawa|suzuki-kasami>");
+         System.out.println(" --suspect-after=<ms before a silent application is suspected, "
+                 + "not with maekawa|suzuki-kasami>");
+         System.out.println(" --journal=<directory of the journal>");
+         System.out.println(" --members=<number of initial members>");
+         System.out.println(" --sponsor=<ID of the member admitting us>");
          System.exit(0);
       }
 
+      // Read the options following the three parameters
+      Map<String, String> options = readOptions(args, 3);
+
       String rmiAddress = args[0];
       int n = 0;
       int id = 0;
+      int threads = 0;
+      int port = 0;
+      int batch = 0;
+      long deadline = 0;
+      long suspectAfter = 0;
+      int members = 0;
+      int sponsor = 0;
+      long coalesce = 0;
+      int pipeline = 0;
       try {
          n = Integer.parseInt(args[1]);
          id = Integer.parseInt(args[2]);
+         threads = Integer.parseInt(options.getOrDefault("threads", "0"));
+         port = Integer.parseInt(options.getOrDefault("port", "20000"));
+         batch = Integer.parseInt(options.getOrDefault("batch",
+                 String.valueOf(CombiningLamport.DEFAULT_BATCH)));
+         deadline = Long.parseLong(options.getOrDefault("deadline", "0"));
+         suspectAfter = Long.parseLong(options.getOrDefault("suspect-after", "0"));
+         members = Integer.parseInt(options.getOrDefault("members", args[1]));
+         sponsor = Integer.parseInt(options.getOrDefault("sponsor", "0"));
+         coalesce = Long.parseLong(options.getOrDefault("coalesce", "0"));
+         pipeline = Integer.parseInt(options.getOrDefault("pipeline", "1"));
       } catch (NumberFormatException ex) {
-         System.out.println("An error occured reading the number of applications "
-                 + "or the application ID.");
+         System.out.println("An error occured reading the number of applications, "
+                 + "the application ID, the number of threads, the port, the batch, "
+                 + "the deadline, the suspicion time, the members, the sponsor, "
+                 + "the coalescing time or the pipeline.");
          System.exit(0);
       }
       
       // Check as much integrity as possible
-      if (n <= 0 || id < 0) {
-         System.out.println("The number of applications or the ID are not correct.");
+      if (n <= 0 || id < 0 || id >= n || threads < 0 
+              || port <= 0 || port + n > 65536 || batch < 1 
+              || deadline < 0 || suspectAfter < 0 
+              || members <= 0 || members > n || sponsor < 0 || sponsor >= members
+              || coalesce < 0 || pipeline < 1) {
+         System.out.println("The number of applications, the ID, the number "
+                 + "of threads, the port, the batch, the deadline, the "
+                 + "suspicion time, the members, the sponsor, the coalescing "
+                 + "time or the pipeline are not correct.");
+         System.exit(0);
+      }
+      if (pipeline > 1 && (coalesce > 0
+              || !options.getOrDefault("algorithm", "lamport").equals("lamport"))) {
+         System.out.println("The pipeline needs the 'lamport' algorithm, "
+                 + "without coalescing.");
+         System.exit(0);
+      }
+      if ((deadline > 0 || suspectAfter > 0)
+              && Arrays.asList("maekawa", "suzuki-kasami").contains(
+                      options.getOrDefault("algorithm", "lamport"))) {
+         System.out.println("The deadline and the suspicion are not supported "
+                 + "by the 'maekawa' and 'suzuki-kasami' algorithms.");
          System.exit(0);
       }
 
+      // Create the executor sending the messages
+      ExecutorService executor = threads == 0
+              ? Executors.newCachedThreadPool(AbstractLamport.senderThreadFactory(id))
+              : Executors.newFixedThreadPool(threads, AbstractLamport.senderThreadFactory(id));
+
       try {
+         // Create the transport of the messages between Lamport applications
+         Transport transport = createTransport(
+                 options.getOrDefault("transport", "rmi"), rmiAddress, n, id, port,
+                 executor);
+         if (transport == null) {
+            System.out.println("Unknown transport.");
+            System.exit(0);
+         }
+
+         // Create the Lamport remote object with the chosen algorithm, the
+         // messages being given a deadline if any
+         Lamport implementation = createLamport(
+                 options.getOrDefault("algorithm", "lamport"), n, id, 
+                 deadline == 0 ? transport : new DeadlineTransport(transport, deadline),
+                 executor, options, null);
+         if (implementation == null) {
+            System.out.println("Unknown algorithm.");
+            System.exit(0);
+         }
+         if (suspectAfter > 0 && !(implementation instanceof CombiningLamport)) {
+            System.out.println("The keyed algorithm does not detect failures.");
+            System.exit(0);
+         }
+
+         // Recover the state of a previous run, if any
+         String journalDirectory = options.get("journal");
+         if (journalDirectory != null) {
+            if (!options.getOrDefault("algorithm", "lamport").equals("lamport")) {
+               System.out.println("The journal needs the 'lamport' algorithm.");
+               System.exit(0);
+            }
+            long start = System.nanoTime();
+            Journal journal = openJournal(implementation, 
+                    Paths.get(journalDirectory, "lamport-" + id + ".journal"));
+            System.out.printf("Recovered the value %d (version %d/%d) in %.1f ms%n",
+                    journal.getValue(), journal.getValueTimeStamp(), 
+                    journal.getValueSender(), (System.nanoTime() - start) / 1e6);
+         }
+
+         // Start with the initial members only, if the members change
+         boolean dynamic = members < n;
+         if (dynamic) {
+            if (!options.getOrDefault("algorithm", "lamport").equals("lamport")) {
+               System.out.println("Dynamic members need the 'lamport' algorithm.");
+               System.exit(0);
+            }
+            setMembers(implementation, members, id);
+         }
+
+         // Show the metrics of the application with JMX
+         getMetrics(implementation).register(id);
+
+         // Listen to the other Lamport applications
+         if (transport instanceof NioTransport) {
+            ((NioTransport) transport).start(implementation);
+         }
+
          // Start the application
-         LamportApplication application = new LamportApplication(rmiAddress, n, id);
-      } catch (RemoteException | AlreadyBoundException ex) {
+         LamportApplication application = new LamportApplication(implementation, id);
+
+         // Look the other Lamport applications up before serving the users
+         if (transport instanceof RmiTransport) {
+            System.out.println("Waiting for the other Lamport applications...");
+            RmiTransport rmiTransport = (RmiTransport) transport;
+            if (!dynamic) {
+               rmiTransport.awaitApplications();
+            } else if (id < members) {
+               for (int i = 0; i < members; ++i) {
+                  rmiTransport.awaitApplication(i);
+               }
+            } else {
+               rmiTransport.awaitApplication(sponsor);
+            }
+         }
+
+         // Join the members, and leave them when stopped
+         if (dynamic) {
+            if (id >= members) {
+               System.out.println("Joining the members...");
+               join(implementation, sponsor);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+               try {
+                  if (!((CombiningLamport) implementation).leave(LEAVE_TIMEOUT)) {
+                     Logger.getLogger(LamportApplication.class.getName()).log(
+                             Level.WARNING, "The members could not be left within {0} ms",
+                             LEAVE_TIMEOUT);
+                  }
+               } catch (RemoteException ex) {
+                  Logger.getLogger(LamportApplication.class.getName()).log(Level.SEVERE, 
+                          null, ex);
+               }
+            }));
+         }
+
+         // The applications are only suspected once every one is started
+         if (suspectAfter > 0) {
+            detectFailures(implementation, suspectAfter);
+         }
+
+         // Replace our last message in the view of the others, we may have
+         // restarted
+         if (journalDirectory != null) {
+            rejoin(implementation);
+         }
+         System.out.println("Lamport application ready...");
+      } catch (IOException | AlreadyBoundException | InterruptedException
+              | JMException ex) {
          Logger.getLogger(LamportApplication.class.getName()).log(Level.SEVERE, null, ex);
       }
    }
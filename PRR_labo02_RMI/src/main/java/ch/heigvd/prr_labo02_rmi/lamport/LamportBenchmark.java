@@ -0,0 +1,594 @@
+/**
+ * File: LamportBenchmark.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport;
+
+import ch.heigvd.prr_labo02_rmi.lamport.journal.Journal;
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.metrics.LamportMetrics;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.AbstractLamport;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.CombiningLamport;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.KeyedLamport;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.Lamport;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.LockListener;
+import ch.heigvd.prr_labo02_rmi.lamport.state.ByteArrayState;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.CountingTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.DeadlineTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.DelayingTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.NioTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.RmiTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.Transport;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Main class of the benchmark of a whole set of Lamport applications. It
+ * starts an RMI registry and N Lamport applications in the same JVM, then
+ * runs client threads that use them through RMI exactly as the user
+ * application does: lock, get, set the value plus one, unlock.
+ *
+ * It reports the number of critical sections per second, the percentiles of
+ * the time to get the critical section (lock()), the number of messages and
+ * bytes exchanged between the Lamport applications per critical section
+ * (with the REQUESTs, RECEIPTs and RELEASEs sent, and those saved by the
+ * Lamport algorithm, see LamportImpl), the
+ * peak number of threads of the JVM while measuring, and checks that the final value equals the number of incrementations.
+ *
+ * Usage (from the maven project folder):
+ * java -cp target/classes ch.heigvd.prr_labo02_rmi.lamport.LamportBenchmark [options]
+ *
+ * Options:
+ * --nodes=<n>     : number of Lamport applications (default 4)
+ * --clients=<n>   : number of client threads per Lamport application
+ *                   (default 1)
+ * --locks=<n>     : number of measured critical sections per client
+ *                   (default 1000)
+ * --warmup=<n>    : number of critical sections per client before measuring
+ *                   (default 100)
+ * --keys=<n>      : with the 'keyed' algorithm, number of keys the clients
+ *                   use in turn, each client always using the same key
+ *                   (default 0: the Lamport interface, hence the default key)
+ * --state=<n>     : number of bytes of a shared state replicated along with
+ *                   the value (see ByteArrayState), whose first 4 bytes are
+ *                   incremented as well in critical section by the clients,
+ *                   directly since they run in the same JVM (default 0: no
+ *                   state, the keyed algorithm does not support any)
+ * --async=<b>     : 'true' for the clients to request the critical section
+ *                   with requestLock and be called back through a listener
+ *                   they exported, instead of waiting in lock() (default
+ *                   'false')
+ * --delay=<id>:<ms> : delay the messages sent to the Lamport application id
+ *                   by ms milliseconds (see DelayingTransport), to stand in
+ *                   for a slow application; 'stalled' holds them forever
+ *                   (default: no delay)
+ * --lock-timeout=<ms> : the clients wait at most ms milliseconds for the
+ *                   critical section with lock(timeout), and try again on
+ *                   timeout; the timeouts are counted and the latency
+ *                   includes the attempts (default 0: lock())
+ * --journal=<dir> : with the 'lamport' algorithm and the 'rmi' transport,
+ *                   journal each application in the directory (see
+ *                   Journal), then restart the last one from its journal
+ *                   after the measure, and check that it recovered the final
+ *                   value and that the applications still agree on it;
+ *                   the journals of a previous run are deleted first
+ *                   (default: no journal)
+ * --members=<k>   : with the 'lamport' algorithm, only the applications 0 to
+ *                   k - 1 start as members; the others join them through
+ *                   the application 0 once the measure started, their
+ *                   clients then doing their critical sections without
+ *                   warmup, and the last application leaves the members at
+ *                   the end (default: every application is a member)
+ * and the options of the LamportApplication (--algorithm, --sticky, --batch,
+ * --coalesce, --pipeline, --transport, --port, --threads, --deadline and
+ * --suspect-after).
+ *
+ * The clients of the same application (and key) take turns in the Lamport
+ * application itself (see CombiningLamport): the waiting time of a client
+ * includes the critical sections of the local clients before it. With
+ * --pipeline, that many clients of an application request the critical
+ * section at once instead.
+ *
+ * The registry is created on the port 1099, which must be free.
+ */
+public class LamportBenchmark {
+
+   public static void main(String[] args) throws Exception {
+      Map<String, String> options = LamportApplication.readOptions(args, 0);
+
+      int nodes = Integer.parseInt(options.getOrDefault("nodes", "4"));
+      int clients = Integer.parseInt(options.getOrDefault("clients", "1"));
+      int locks = Integer.parseInt(options.getOrDefault("locks", "1000"));
+      int warmup = Integer.parseInt(options.getOrDefault("warmup", "100"));
+      int keys = Integer.parseInt(options.getOrDefault("keys", "0"));
+      int stateSize = Integer.parseInt(options.getOrDefault("state", "0"));
+      int threads = Integer.parseInt(options.getOrDefault("threads", "0"));
+      int port = Integer.parseInt(options.getOrDefault("port", "20000"));
+      String algorithm = options.getOrDefault("algorithm", "lamport");
+      String transportName = options.getOrDefault("transport", "rmi");
+      boolean async = Boolean.parseBoolean(options.getOrDefault("async", "false"));
+      long lockTimeout = Long.parseLong(options.getOrDefault("lock-timeout", "0"));
+      long deadline = Long.parseLong(options.getOrDefault("deadline", "0"));
+      long suspectAfter = Long.parseLong(options.getOrDefault("suspect-after", "0"));
+      int members = Integer.parseInt(options.getOrDefault("members",
+              String.valueOf(nodes)));
+      String[] delay = options.containsKey("delay")
+              ? options.get("delay").split(":", 2) : null;
+      int delayed = delay == null ? -1 : Integer.parseInt(delay[0]);
+      long delayMillis = delay == null || delay.length < 2 ? 0
+              : delay[1].equals("stalled") ? DelayingTransport.STALLED
+              : Long.parseLong(delay[1]);
+
+      if (nodes <= 0 || clients <= 0 || locks <= 0 || warmup < 0 || threads < 0
+              || keys < 0 || (stateSize != 0 && stateSize < 4)) {
+         System.out.println("The numbers of nodes, clients, locks, warmup "
+                 + "locks, threads, keys or bytes of state are not correct.");
+         System.exit(1);
+      }
+      if (lockTimeout < 0 || deadline < 0 || suspectAfter < 0
+              || (delay != null && (delayed < 0 || delayed >= nodes || delayMillis <= 0))) {
+         System.out.println("The lock timeout, the deadline, the suspicion time "
+                 + "or the delay are not correct.");
+         System.exit(1);
+      }
+      if (async && lockTimeout > 0) {
+         System.out.println("The asynchronous clients do not time out.");
+         System.exit(1);
+      }
+      String journalDirectory = options.get("journal");
+      if (journalDirectory != null
+              && (!algorithm.equals("lamport") || !transportName.equals("rmi"))) {
+         System.out.println("The journal needs the 'lamport' algorithm and the "
+                 + "'rmi' transport.");
+         System.exit(1);
+      }
+      if ((deadline > 0 || suspectAfter > 0)
+              && (algorithm.equals("maekawa") || algorithm.equals("suzuki-kasami"))) {
+         System.out.println("The deadline and the suspicion are not supported "
+                 + "by the 'maekawa' and 'suzuki-kasami' algorithms.");
+         System.exit(1);
+      }
+      if (suspectAfter > 0 && algorithm.equals("keyed")) {
+         System.out.println("The keyed algorithm does not detect failures.");
+         System.exit(1);
+      }
+      if (stateSize > 0 && algorithm.equals("keyed")) {
+         System.out.println("The keyed algorithm does not replicate any state.");
+         System.exit(1);
+      }
+      if (keys > 0 && !algorithm.equals("keyed")) {
+         System.out.println("The keys need the 'keyed' algorithm.");
+         System.exit(1);
+      }
+      if (async && keys > 0) {
+         System.out.println("The asynchronous clients use the default key.");
+         System.exit(1);
+      }
+      boolean dynamic = members != nodes;
+      if (members <= 0 || members > nodes) {
+         System.out.println("The number of members is not correct.");
+         System.exit(1);
+      }
+      if (dynamic && (!algorithm.equals("lamport") || journalDirectory != null)) {
+         System.out.println("Dynamic members need the 'lamport' algorithm, "
+                 + "without journal.");
+         System.exit(1);
+      }
+      int pipeline = Integer.parseInt(options.getOrDefault("pipeline", "1"));
+      if (pipeline < 1 || (pipeline > 1 && (!algorithm.equals("lamport")
+              || Long.parseLong(options.getOrDefault("coalesce", "0")) > 0))) {
+         System.out.println("The pipeline needs the 'lamport' algorithm, "
+                 + "without coalescing.");
+         System.exit(1);
+      }
+
+      // Start the registry and the Lamport applications
+      Registry registry = LocateRegistry.createRegistry(Registry.REGISTRY_PORT);
+      CountingTransport[] transports = new CountingTransport[nodes];
+      Lamport[] lamports = new Lamport[nodes];
+      ExecutorService[] executors = new ExecutorService[nodes];
+      RmiTransport[] rmiTransports = new RmiTransport[nodes];
+      ByteArrayState[] states = new ByteArrayState[nodes];
+      LamportMetrics[] metrics = new LamportMetrics[nodes];
+      for (int id = 0; id < nodes; ++id) {
+         ExecutorService executor = threads == 0
+                 ? Executors.newCachedThreadPool(AbstractLamport.senderThreadFactory(id))
+                 : Executors.newFixedThreadPool(threads, AbstractLamport.senderThreadFactory(id));
+         executors[id] = executor;
+
+         Transport transport = LamportApplication.createTransport(transportName,
+                 "localhost", nodes, id, port, executor);
+         if (transport == null) {
+            System.out.println("Unknown transport.");
+            System.exit(1);
+         }
+
+         if (transport instanceof RmiTransport) {
+            rmiTransports[id] = (RmiTransport) transport;
+         }
+
+         // The messages to the delayed application are delayed, then given
+         // a deadline, then counted
+         Transport sent = transport;
+         if (delay != null) {
+            DelayingTransport delaying = new DelayingTransport(transport, nodes);
+            delaying.setDelay(delayed, delayMillis);
+            sent = delaying;
+         }
+         if (deadline > 0) {
+            sent = new DeadlineTransport(sent, deadline);
+         }
+         transports[id] = new CountingTransport(sent);
+         states[id] = stateSize == 0 ? null : new ByteArrayState(stateSize);
+
+         Lamport lamport = LamportApplication.createLamport(algorithm, nodes, id,
+                 transports[id], executor, options, states[id]);
+         if (lamport == null) {
+            System.out.println("Unknown algorithm.");
+            System.exit(1);
+         }
+         metrics[id] = LamportApplication.getMetrics(lamport);
+         lamports[id] = lamport;
+         if (dynamic) {
+            LamportApplication.setMembers(lamport, members, id);
+         }
+         if (journalDirectory != null) {
+            // Start from an empty journal
+            Path path = journalPath(journalDirectory, id);
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(path.resolveSibling(path.getFileName() + ".snapshot"));
+            LamportApplication.openJournal(lamport, path);
+         }
+
+         if (transport instanceof NioTransport) {
+            ((NioTransport) transport).start(lamport);
+         }
+         registry.bind("lamport-" + id, UnicastRemoteObject.exportObject(lamport, 0));
+      }
+      for (int id = 0; id < members; ++id) {
+         if (rmiTransports[id] != null) {
+            for (int other = 0; other < members; ++other) {
+               rmiTransports[id].awaitApplication(other);
+            }
+         }
+      }
+      if (suspectAfter > 0) {
+         for (Lamport lamport : lamports) {
+            LamportApplication.detectFailures(lamport, suspectAfter);
+         }
+      }
+
+      // The clients of the members wait for each other before and after the
+      // warmup, the clients of the others until their application joined
+      CyclicBarrier warmedUp = new CyclicBarrier(members * clients + 1);
+      CountDownLatch[] joined = new CountDownLatch[nodes];
+      long[][] latencies = new long[nodes * clients][locks];
+      Thread[] clientThreads = new Thread[nodes * clients];
+      LongAdder timeouts = new LongAdder();
+
+      for (int id = 0; id < nodes; ++id) {
+         Lamport lamport = (Lamport) registry.lookup("lamport-" + id);
+         ByteArrayState state = states[id];
+         CountDownLatch admitted = id < members ? null : new CountDownLatch(1);
+         joined[id] = admitted;
+
+         for (int c = 0; c < clients; ++c) {
+            long[] clientLatencies = latencies[id * clients + c];
+            String key = keys == 0 ? null : "key-" + (id * clients + c) % keys;
+            Grant grant = async ? new Grant() : null;
+
+            clientThreads[id * clients + c] = new Thread(() -> {
+               try {
+                  if (admitted != null) {
+                     admitted.await();
+                  } else {
+                     for (int i = 0; i < warmup; ++i) {
+                        increment(lamport, key, state, grant, lockTimeout, timeouts);
+                     }
+                     warmedUp.await();
+                  }
+                  for (int i = 0; i < locks; ++i) {
+                     clientLatencies[i] = increment(lamport, key, state, grant, lockTimeout, timeouts);
+                  }
+               } catch (Exception ex) {
+                  Logger.getLogger(LamportBenchmark.class.getName()).log(Level.SEVERE, null, ex);
+                  System.exit(1);
+               }
+            }, "client-" + id + "-" + c);
+            clientThreads[id * clients + c].start();
+         }
+      }
+
+      // Measure once every client is warmed up
+      warmedUp.await();
+      for (CountingTransport transport : transports) {
+         transport.reset();
+      }
+      for (LamportMetrics nodeMetrics : metrics) {
+         nodeMetrics.reset();
+      }
+      timeouts.reset();
+      ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+      long start = System.nanoTime();
+
+      // The other applications join while the members do their critical
+      // sections
+      long joins = 0;
+      for (int id = members; id < nodes; ++id) {
+         long joinStart = System.nanoTime();
+         LamportApplication.join(lamports[id], 0);
+         joins += System.nanoTime() - joinStart;
+         joined[id].countDown();
+      }
+
+      for (Thread client : clientThreads) {
+         client.join();
+      }
+      long elapsed = System.nanoTime() - start;
+      int peakThreads = ManagementFactory.getThreadMXBean().getPeakThreadCount();
+
+      // The last application leaves the members
+      int[] remaining = null;
+      if (dynamic && nodes > 1) {
+         ((CombiningLamport) lamports[nodes - 1]).leave(LamportApplication.LEAVE_TIMEOUT);
+         remaining = ((CombiningLamport) lamports[0]).getLamport().getMembers();
+      }
+      boolean membersOk = remaining == null || remaining.length == nodes - 1;
+
+      long messages = 0;
+      long bytes = 0;
+      for (CountingTransport transport : transports) {
+         messages += transport.getMessages();
+         bytes += transport.getBytes();
+      }
+      long requests = 0;
+      long receipts = 0;
+      long releases = 0;
+      long receiptsSuppressed = 0;
+      long releasesCoalesced = 0;
+      for (LamportMetrics nodeMetrics : metrics) {
+         requests += nodeMetrics.getSent(LamportMessage.Type.REQUEST);
+         receipts += nodeMetrics.getSent(LamportMessage.Type.RECEIPT);
+         releases += nodeMetrics.getSent(LamportMessage.Type.RELEASE);
+         receiptsSuppressed += nodeMetrics.getReceiptsSuppressed();
+         releasesCoalesced += nodeMetrics.getReleasesCoalesced();
+      }
+
+      // Read the final values in critical section
+      Lamport lamport = (Lamport) registry.lookup("lamport-0");
+      int value = 0;
+      if (keys == 0) {
+         value = lamport.addAndGet(0);
+      } else {
+         for (int k = 0; k < keys; ++k) {
+            value += ((KeyedLamport) lamport).addAndGet("key-" + k, 0);
+         }
+      }
+      int expected = members * clients * (warmup + locks)
+              + (nodes - members) * clients * locks;
+
+      // The state of the application 0 is the latest after its critical section
+      boolean stateOk = true;
+      if (stateSize > 0) {
+         int stateValue = states[0].getInt(0);
+         stateOk = stateValue == expected;
+         if (!stateOk) {
+            System.out.println("final state   : " + stateValue + " WRONG");
+         }
+      }
+
+      long[] all = new long[nodes * clients * locks];
+      for (int i = 0; i < latencies.length; ++i) {
+         System.arraycopy(latencies[i], 0, all, i * locks, locks);
+      }
+      Arrays.sort(all);
+      long total = all.length;
+
+      System.out.println("algorithm=" + algorithm + " transport=" + transportName
+              + " nodes=" + nodes + " clients/node=" + clients
+              + " keys=" + keys + " state=" + stateSize + " async=" + async
+              + " delay=" + options.getOrDefault("delay", "none")
+              + " lock-timeout=" + lockTimeout + " deadline=" + deadline
+              + " suspect-after=" + suspectAfter + " members=" + members
+              + " pipeline=" + pipeline
+              + " locks=" + total);
+      System.out.printf("locks/s       : %.1f%n", total * 1e9 / elapsed);
+      System.out.printf("lock latency  : p50=%.3f ms p99=%.3f ms p999=%.3f ms max=%.3f ms%n",
+              percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6,
+              percentile(all, 0.999) / 1e6, all[all.length - 1] / 1e6);
+      System.out.printf("messages/lock : %.2f%n", (double) messages / total);
+      System.out.printf("bytes/lock    : %.1f%n", (double) bytes / total);
+      System.out.printf("sent/lock     : REQUEST=%.2f RECEIPT=%.2f RELEASE=%.2f%n",
+              (double) requests / total, (double) receipts / total,
+              (double) releases / total);
+      System.out.printf("saved/lock    : RECEIPT=%.2f suppressed, RELEASE=%.2f coalesced%n",
+              (double) receiptsSuppressed / total, (double) releasesCoalesced / total);
+      System.out.println("peak threads  : " + peakThreads);
+      if (lockTimeout > 0) {
+         System.out.println("lock timeouts : " + timeouts.sum());
+      }
+      System.out.println("node 0 wait   : " + metrics[0].getLockWait());
+      System.out.println("node 0 hold   : " + metrics[0].getLockHold());
+      if (nodes > 1) {
+         System.out.println("node 0 to 1   : " + metrics[0].getRoundTrips().get(1));
+      }
+      System.out.println("final value   : " + value + " (expected " + expected + ") "
+              + (value == expected ? "OK" : "WRONG"));
+      if (remaining != null) {
+         System.out.printf("members       : %d joined in %.3f ms each, then %s after "
+                 + "a leave %s%n", nodes - members, joins / 1e6 / (nodes - members),
+                 Arrays.toString(remaining), membersOk ? "OK" : "WRONG");
+      }
+
+      // Restart the last application from its journal
+      boolean restartOk = true;
+      if (journalDirectory != null) {
+         int last = nodes - 1;
+         UnicastRemoteObject.unexportObject(lamports[last], true);
+         Lamport restarted = LamportApplication.createLamport(algorithm, nodes, last,
+                 transports[last], executors[last], options, null);
+
+         long recoveryStart = System.nanoTime();
+         Journal journal = LamportApplication.openJournal(restarted,
+                 journalPath(journalDirectory, last));
+         long recovery = System.nanoTime() - recoveryStart;
+         int recovered = journal.getValue();
+
+         registry.rebind("lamport-" + last, UnicastRemoteObject.exportObject(restarted, 0));
+         for (RmiTransport transport : rmiTransports) {
+            transport.awaitApplications();
+         }
+         LamportApplication.rejoin(restarted);
+
+         // The restarted application increments the value once more
+         ((Lamport) registry.lookup("lamport-" + last)).addAndGet(1);
+         int after = lamport.addAndGet(0);
+         restartOk = recovered == value && after == expected + 1;
+         System.out.printf("restart       : recovered %d in %.3f ms, then %d (expected %d) %s%n",
+                 recovered, recovery / 1e6, after, expected + 1,
+                 restartOk ? "OK" : "WRONG");
+      }
+
+      System.exit(value == expected && stateOk && restartOk && membersOk ? 0 : 1);
+   }
+
+   /**
+    * Get the path of the journal of an application.
+    */
+   private static Path journalPath(String directory, int id) {
+      return Paths.get(directory, "lamport-" + id + ".journal");
+   }
+
+   /**
+    * Increment the shared value in critical section.
+    *
+    * @param lamport the Lamport application to use
+    * @param key the key of the value, null to use the Lamport interface
+    * @param state the shared state of the Lamport application, null if none
+    * @param grant the listener of the client, null to wait in lock()
+    * @param lockTimeout the time to wait for the critical section before
+    * trying again, in milliseconds, 0 to wait in lock()
+    * @param timeouts the number of times the critical section was not
+    * obtained in time
+    * @return the time needed to get the critical section, in nanoseconds
+    * @throws Exception if the Lamport application fails
+    */
+   private static long increment(Lamport lamport, String key, ByteArrayState state,
+           Grant grant, long lockTimeout, LongAdder timeouts) throws Exception {
+      long start = System.nanoTime();
+      if (key == null) {
+         if (lockTimeout > 0) {
+            while (!lamport.lock(lockTimeout)) {
+               timeouts.increment();
+            }
+         } else if (grant == null) {
+            lamport.lock();
+         } else {
+            grant.await(lamport);
+         }
+         long latency = System.nanoTime() - start;
+         try {
+            lamport.setSharedValue(lamport.getSharedValue() + 1);
+            if (state != null) {
+               state.putInt(0, state.getInt(0) + 1);
+            }
+         } finally {
+            lamport.unlock();
+         }
+         return latency;
+      }
+
+      KeyedLamport keyed = (KeyedLamport) lamport;
+      if (lockTimeout > 0) {
+         while (!keyed.lock(key, lockTimeout)) {
+            timeouts.increment();
+         }
+      } else {
+         keyed.lock(key);
+      }
+      long latency = System.nanoTime() - start;
+      try {
+         keyed.set(key, keyed.get(key) + 1);
+      } finally {
+         keyed.unlock(key);
+      }
+      return latency;
+   }
+
+   /**
+    * The listener a client exports to be called back once it has the
+    * critical section.
+    */
+   private static class Grant implements LockListener {
+
+      // The exported listener, as given to the Lamport application
+      private final LockListener stub;
+
+      // The critical section requested, null if none
+      private CompletableFuture<Void> granted;
+
+      Grant() throws RemoteException {
+         stub = (LockListener) UnicastRemoteObject.exportObject(this, 0);
+      }
+
+      /**
+       * Request the critical section and wait until we are called back.
+       *
+       * @param lamport the Lamport application to use
+       * @throws Exception if the critical section could not be obtained
+       */
+      void await(Lamport lamport) throws Exception {
+         CompletableFuture<Void> lock = new CompletableFuture<>();
+         synchronized(this) {
+            granted = lock;
+         }
+         lamport.requestLock(stub);
+         try {
+            lock.get();
+         } catch (ExecutionException ex) {
+            throw (Exception) ex.getCause();
+         }
+      }
+
+      @Override
+      public synchronized void lockGranted() {
+         granted.complete(null);
+      }
+
+      @Override
+      public synchronized void lockFailed(RemoteException cause) {
+         granted.completeExceptionally(cause);
+      }
+   }
+
+   /**
+    * Get a percentile of sorted values.
+    *
+    * @param sorted the values, sorted
+    * @param p the percentile, between 0 and 1
+    * @return the value
+    */
+   private static long percentile(long[] sorted, double p) {
+      int index = (int) Math.ceil(p * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+   }
+}
@@ -0,0 +1,341 @@
+/**
+ * File: LamportSimulator.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.metrics.LamportMetrics;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.CombiningLamport;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.LamportImpl;
+import ch.heigvd.prr_labo02_rmi.lamport.simulation.DelayDistribution;
+import ch.heigvd.prr_labo02_rmi.lamport.simulation.SimulatedNetwork;
+import ch.heigvd.prr_labo02_rmi.lamport.simulation.Simulation;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.CountingTransport;
+import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Main class of the simulation of a whole set of Lamport applications. It
+ * runs N Lamport applications in the same JVM, in virtual time, on a single
+ * thread (see Simulation): their messages travel through a simulated network
+ * (see SimulatedNetwork) with delays drawn from distributions, and their
+ * clients lock, get, set the value plus one, and unlock, as the user
+ * application does. Thousands of applications are therefore simulated in
+ * seconds, without any registry, socket or thread of their own, and a
+ * simulation run again with the same seed gives exactly the same results.
+ *
+ * It reports the virtual time taken and the number of critical sections per
+ * virtual second, the percentiles of the virtual time to get the critical
+ * section, the number of messages and bytes exchanged per critical section
+ * (with the messages sent by type, and those saved by the Lamport
+ * algorithm, see LamportImpl), and checks the mutual exclusion: at most one
+ * client in critical section at any virtual time, each reading the value
+ * written by the previous one.
+ *
+ * Usage (from the maven project folder):
+ * java -cp target/classes ch.heigvd.prr_labo02_rmi.lamport.LamportSimulator [options]
+ *
+ * Options:
+ * --nodes=<n>     : number of Lamport applications (default 1000)
+ * --clients=<n>   : number of clients per Lamport application (default 1)
+ * --locks=<n>     : number of critical sections per client (default 2)
+ * --seed=<n>      : seed of the random generator of the simulation
+ *                   (default 1)
+ * --delay=<d>     : distribution of the time a message, or its response,
+ *                   travels (default uniform:50:150)
+ * --hold=<d>      : distribution of the time a client stays in critical
+ *                   section (default constant:10)
+ * --think=<d>     : distribution of the time a client waits before asking
+ *                   for the critical section, including the first time
+ *                   (default exponential:1000)
+ * and the options of the LamportApplication choosing the algorithm and its
+ * optimizations (--algorithm, --sticky, --batch, --coalesce and --pipeline).
+ * The keyed algorithm is not simulated. The distributions are written as
+ * described in DelayDistribution, in microseconds.
+ */
+public class LamportSimulator {
+
+   public static void main(String[] args) {
+      Map<String, String> options = LamportApplication.readOptions(args, 0);
+
+      int nodes = Integer.parseInt(options.getOrDefault("nodes", "1000"));
+      int clients = Integer.parseInt(options.getOrDefault("clients", "1"));
+      int locks = Integer.parseInt(options.getOrDefault("locks", "2"));
+      long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+      String algorithm = options.getOrDefault("algorithm", "lamport");
+      long coalesce = Long.parseLong(options.getOrDefault("coalesce", "0"));
+      int pipeline = Integer.parseInt(options.getOrDefault("pipeline", "1"));
+
+      if (nodes <= 0 || clients <= 0 || locks <= 0) {
+         System.out.println("The numbers of nodes, clients or locks are not correct.");
+         System.exit(1);
+      }
+      if (algorithm.equals("keyed")) {
+         System.out.println("The keyed algorithm is not simulated.");
+         System.exit(1);
+      }
+      if (pipeline < 1 || (pipeline > 1 && (!algorithm.equals("lamport") || coalesce > 0))) {
+         System.out.println("The pipeline needs the 'lamport' algorithm, "
+                 + "without coalescing.");
+         System.exit(1);
+      }
+
+      DelayDistribution delay = null;
+      DelayDistribution hold = null;
+      DelayDistribution think = null;
+      try {
+         delay = DelayDistribution.parse(options.getOrDefault("delay", "uniform:50:150"));
+         hold = DelayDistribution.parse(options.getOrDefault("hold", "constant:10"));
+         think = DelayDistribution.parse(options.getOrDefault("think", "exponential:1000"));
+      } catch (IllegalArgumentException ex) {
+         System.out.println(ex.getMessage());
+         System.exit(1);
+      }
+
+      long wallStart = System.nanoTime();
+
+      // Create the Lamport applications on the simulated network
+      Simulation simulation = new Simulation(seed);
+      SimulatedNetwork network = new SimulatedNetwork(simulation, nodes, delay);
+      CountingTransport[] transports = new CountingTransport[nodes];
+      CombiningLamport[] lamports = new CombiningLamport[nodes];
+      LamportMetrics[] metrics = new LamportMetrics[nodes];
+      for (int id = 0; id < nodes; ++id) {
+         transports[id] = new CountingTransport(network.createTransport());
+         CombiningLamport lamport = (CombiningLamport) LamportApplication.createLamport(
+                 algorithm, nodes, id, transports[id], simulation, options, null);
+         if (lamport == null) {
+            System.out.println("Unknown algorithm.");
+            System.exit(1);
+         }
+
+         // The RELEASEs waiting for our next REQUEST wait in virtual time
+         if (lamport.getLamport() instanceof LamportImpl) {
+            ((LamportImpl) lamport.getLamport()).setReleaseTimers(simulation);
+         }
+
+         // The round trips are in real time, and would cost a histogram per
+         // pair of applications
+         metrics[id] = lamport.getLamport().getMetrics();
+         metrics[id].setRoundTripsKept(false);
+
+         lamports[id] = lamport;
+         network.attach(id, lamport);
+      }
+
+      // Start the clients, then run the simulation until nothing happens
+      Critical critical = new Critical(nodes * clients * locks);
+      for (int id = 0; id < nodes; ++id) {
+         for (int c = 0; c < clients; ++c) {
+            new Client(simulation, lamports[id], locks, hold, think, critical).think();
+         }
+      }
+      simulation.run();
+      long virtual = simulation.now();
+      long wall = System.nanoTime() - wallStart;
+
+      long messages = 0;
+      long bytes = 0;
+      for (CountingTransport transport : transports) {
+         messages += transport.getMessages();
+         bytes += transport.getBytes();
+      }
+      StringBuilder sent = new StringBuilder();
+      for (LamportMessage.Type type : LamportMessage.Type.values()) {
+         long count = 0;
+         for (LamportMetrics nodeMetrics : metrics) {
+            count += nodeMetrics.getSent(type);
+         }
+         if (count > 0) {
+            sent.append(String.format(" %s=%.2f", type, (double) count / critical.done));
+         }
+      }
+      long receiptsSuppressed = 0;
+      long releasesCoalesced = 0;
+      for (LamportMetrics nodeMetrics : metrics) {
+         receiptsSuppressed += nodeMetrics.getReceiptsSuppressed();
+         releasesCoalesced += nodeMetrics.getReleasesCoalesced();
+      }
+
+      long[] latencies = Arrays.copyOf(critical.latencies, critical.done);
+      Arrays.sort(latencies);
+      long total = latencies.length;
+      long expected = critical.latencies.length;
+
+      System.out.println("algorithm=" + algorithm + " nodes=" + nodes
+              + " clients/node=" + clients + " delay=" + delay + " hold=" + hold
+              + " think=" + think + " sticky=" + options.getOrDefault("sticky", "false")
+              + " batch=" + options.getOrDefault("batch",
+                      String.valueOf(CombiningLamport.DEFAULT_BATCH))
+              + " coalesce=" + coalesce + " pipeline=" + pipeline + " seed=" + seed
+              + " locks=" + total);
+      if (total == 0) {
+         System.out.println("no critical section done");
+         System.exit(1);
+      }
+      System.out.printf("virtual time  : %.3f ms, %.1f locks/s%n", virtual / 1e6,
+              total * 1e9 / virtual);
+      System.out.printf("lock latency  : p50=%.3f ms p99=%.3f ms p999=%.3f ms max=%.3f ms%n",
+              percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+              percentile(latencies, 0.999) / 1e6, latencies[latencies.length - 1] / 1e6);
+      System.out.printf("messages/lock : %.2f%n", (double) messages / total);
+      System.out.printf("bytes/lock    : %.1f%n", (double) bytes / total);
+      System.out.println("sent/lock     :" + sent);
+      System.out.printf("saved/lock    : RECEIPT=%.2f suppressed, RELEASE=%.2f coalesced%n",
+              (double) receiptsSuppressed / total, (double) releasesCoalesced / total);
+      System.out.println("exclusion     : " + critical.overlaps + " overlaps, "
+              + critical.staleReads + " stale reads, " + critical.failures + " failures "
+              + (critical.isCorrect() ? "OK" : "WRONG"));
+      System.out.println("final value   : " + critical.value + " (expected " + expected
+              + ") " + (critical.value == expected ? "OK" : "WRONG"));
+      System.out.printf("simulation    : %d events in %.3f s%n",
+              simulation.getEventsRun(), wall / 1e9);
+
+      System.exit(critical.isCorrect() && critical.value == expected ? 0 : 1);
+   }
+
+   /**
+    * What the clients do in critical section, checked as it happens.
+    */
+   private static class Critical {
+
+      // The virtual time each critical section took to get, in nanoseconds,
+      // and the number of critical sections done
+      private final long[] latencies;
+      private int done;
+
+      // The number of clients in critical section, and the value the last
+      // one wrote
+      private int inside;
+      private long value;
+
+      // The number of times a client entered the critical section while
+      // another one was inside, read a value not written by the previous
+      // one, or failed to get it
+      private long overlaps;
+      private long staleReads;
+      private long failures;
+
+      Critical(int locks) {
+         latencies = new long[locks];
+      }
+
+      boolean isCorrect() {
+         return overlaps == 0 && staleReads == 0 && failures == 0;
+      }
+   }
+
+   /**
+    * A client of a Lamport application: it thinks, then asks for the
+    * critical section, increments the value in it for some time, and starts
+    * again.
+    */
+   private static class Client {
+
+      private final Simulation simulation;
+      private final CombiningLamport lamport;
+      private final DelayDistribution hold;
+      private final DelayDistribution think;
+      private final Critical critical;
+
+      // The number of critical sections left to do, and the virtual time the
+      // current one was asked for at
+      private int remaining;
+      private long requestedAt;
+
+      Client(Simulation simulation, CombiningLamport lamport, int locks,
+              DelayDistribution hold, DelayDistribution think, Critical critical) {
+         this.simulation = simulation;
+         this.lamport = lamport;
+         this.remaining = locks;
+         this.hold = hold;
+         this.think = think;
+         this.critical = critical;
+      }
+
+      /**
+       * Wait before asking for the critical section.
+       */
+      void think() {
+         simulation.schedule(this::request, think.sample(simulation.random()),
+                 TimeUnit.NANOSECONDS);
+      }
+
+      /**
+       * Ask for the critical section, without waiting for it.
+       */
+      private void request() {
+         requestedAt = simulation.now();
+         lamport.lockAsync().whenComplete((result, ex) -> {
+            if (ex != null) {
+               Logger.getLogger(LamportSimulator.class.getName()).log(Level.SEVERE, null, ex);
+               ++critical.failures;
+            } else {
+               enter();
+            }
+         });
+      }
+
+      /**
+       * Increment the value once in critical section, and leave it later.
+       */
+      private void enter() {
+         critical.latencies[critical.done++] = simulation.now() - requestedAt;
+         if (++critical.inside > 1) {
+            ++critical.overlaps;
+         }
+
+         try {
+            int value = lamport.getSharedValue();
+            if (value != critical.value) {
+               ++critical.staleReads;
+            }
+            lamport.setSharedValue(value + 1);
+            critical.value = value + 1;
+         } catch (RemoteException ex) {
+            Logger.getLogger(LamportSimulator.class.getName()).log(Level.SEVERE, null, ex);
+            ++critical.failures;
+         }
+
+         simulation.schedule(this::leave, hold.sample(simulation.random()),
+                 TimeUnit.NANOSECONDS);
+      }
+
+      /**
+       * Leave the critical section, and think again if there are critical
+       * sections left to do.
+       */
+      private void leave() {
+         --critical.inside;
+         try {
+            lamport.unlock();
+         } catch (RemoteException ex) {
+            Logger.getLogger(LamportSimulator.class.getName()).log(Level.SEVERE, null, ex);
+            ++critical.failures;
+         }
+
+         if (--remaining > 0) {
+            think();
+         }
+      }
+   }
+
+   /**
+    * Get a percentile of sorted values.
+    *
+    * @param sorted the values, sorted
+    * @param p the percentile, between 0 and 1
+    * @return the value
+    */
+   private static long percentile(long[] sorted, double p) {
+      int index = (int) Math.ceil(p * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+   }
+}
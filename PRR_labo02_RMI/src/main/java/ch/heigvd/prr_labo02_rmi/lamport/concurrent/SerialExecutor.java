@@ -0,0 +1,111 @@
+/**
+ * File: SerialExecutor.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The SerialExecutor class runs the submitted tasks one after the other, in
+ * the order they were submitted, on top of another (possibly multi-threaded)
+ * executor.
+ *
+ * The Lamport applications use one SerialExecutor per distant application so
+ * that the messages sent to a given application keep their emission order
+ * (a RELEASE must never overtake the REQUEST that precedes it), while the
+ * messages sent to different applications are delivered in parallel.
+ */
+public class SerialExecutor implements Executor {
+
+   // The tasks waiting to be run
+   private final Queue<Runnable> tasks;
+
+   // The executor that actually runs the tasks
+   private final Executor executor;
+
+   // The task currently running, null if none
+   private Runnable active;
+
+   /**
+    * Constructor.
+    *
+    * @param executor the executor that will run the tasks
+    */
+   public SerialExecutor(Executor executor) {
+      this.tasks = new ArrayDeque<>();
+      this.executor = executor;
+   }
+
+   /**
+    * Run a task after the tasks submitted before it.
+    *
+    * @param task the task
+    * @throws RejectedExecutionException if nothing is running and the
+    * executor rejects the task: it is dropped, and the caller must handle it
+    * (CompletableFuture.supplyAsync() then throws it as well)
+    */
+   @Override
+   public synchronized void execute(final Runnable task) {
+      tasks.add(task);
+
+      // Start running if nothing is running yet
+      if (active == null) {
+         active = tasks.poll();
+         try {
+            executor.execute(() -> run(task));
+         } catch (RejectedExecutionException ex) {
+            active = null;
+            throw ex;
+         }
+      }
+   }
+
+   /**
+    * Run a task, then the tasks waiting after it. A task throwing an
+    * exception doesn't stop the next ones.
+    *
+    * @param task the first task
+    */
+   private void run(Runnable task) {
+      while (task != null) {
+         try {
+            task.run();
+         } catch (RuntimeException ex) {
+            Logger.getLogger(SerialExecutor.class.getName()).log(Level.SEVERE, null, ex);
+         }
+         task = next();
+      }
+   }
+
+   /**
+    * Give the next waiting task to the underlying executor. If the executor
+    * rejects it (for example once saturated or shut down), it is returned to
+    * be run by the thread of the task that just finished, so that no task
+    * submitted is ever dropped nor overtaken.
+    *
+    * @return the next task if the thread of the finished task must run it,
+    * null otherwise
+    */
+   private synchronized Runnable next() {
+      active = tasks.poll();
+      if (active == null) {
+         return null;
+      }
+
+      Runnable next = active;
+      try {
+         executor.execute(() -> run(next));
+         return null;
+      } catch (RejectedExecutionException ex) {
+         return next;
+      }
+   }
+}
@@ -0,0 +1,281 @@
+/**
+ * File: Journal.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.journal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The Journal class keeps on local disk what a Lamport application needs to
+ * restart without the other applications: the shared value as last
+ * released, with its version, and a high-water mark of its logical clock,
+ * so that a restarted application never sends a time stamp it already used
+ * (the other applications would ignore its messages).
+ *
+ * The journal is an append-only file mapped in memory: appending a record
+ * only writes to memory, the operating system writing it to disk on its own.
+ * The records survive a crash of the application, not a crash of the
+ * machine. The records have a fixed size of RECORD_SIZE bytes. Once the
+ * file is full, it is compacted: the recovered state is written to a
+ * snapshot file (synced to disk and renamed over the previous one), and the
+ * journal starts over. The records carry the epoch of the snapshot they
+ * follow, so that the records of a previous epoch, and a record cut by a
+ * crash (its header is written last), are never replayed.
+ *
+ * The clock is only journaled every CLOCK_STEP ticks: a restarted
+ * application starts its clock at the last mark, above every time stamp it
+ * sent. Recovering therefore reads a small snapshot and at most one file of
+ * records, whatever the history.
+ *
+ * A journal is used by a single Lamport application, see
+ * AbstractLamport.setJournal.
+ */
+public class Journal {
+
+   // The default size of the journal file, in bytes
+   public static final int DEFAULT_CAPACITY = 1 << 20;
+
+   // The size of a record: a header (epoch and type) and a payload
+   public static final int RECORD_SIZE = 24;
+
+   // The number of ticks of the clock between two journaled marks
+   public static final long CLOCK_STEP = 1024;
+
+   // The types of records
+   private static final byte VALUE = 1;
+   private static final byte CLOCK = 2;
+
+   // The files of the journal and of the snapshot
+   private final Path path;
+   private final Path snapshotPath;
+
+   // The journal file mapped in memory, and the position of the next record
+   private final MappedByteBuffer records;
+   private int position;
+
+   // The epoch of the records, incremented by each snapshot
+   private int epoch;
+
+   // The state recovered, then kept up to date by the records appended
+   private int value;
+   private long valueTimeStamp;
+   private int valueSender;
+   private volatile long clockLimit;
+
+   /**
+    * Constructor. Open the journal at a path with the default capacity, and
+    * recover its state. The files are created if they don't exist.
+    *
+    * @param path the path of the journal file, the snapshot being written
+    * next to it with the extension .snapshot
+    * @throws IOException if the journal cannot be opened or read
+    */
+   public Journal(Path path) throws IOException {
+      this(path, DEFAULT_CAPACITY);
+   }
+
+   /**
+    * Constructor. Open the journal at a path, and recover its state. The
+    * files are created if they don't exist.
+    *
+    * @param path the path of the journal file, the snapshot being written
+    * next to it with the extension .snapshot
+    * @param capacity the size of the journal file, in bytes
+    * @throws IOException if the journal cannot be opened or read
+    */
+   public Journal(Path path, int capacity) throws IOException {
+      if (capacity < RECORD_SIZE) {
+         throw new IllegalArgumentException("The capacity must hold a record");
+      }
+      this.path = path;
+      snapshotPath = path.resolveSibling(path.getFileName() + ".snapshot");
+
+      readSnapshot();
+
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+              StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+         records = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                 capacity - capacity % RECORD_SIZE);
+      }
+      replay();
+   }
+
+   /**
+    * @return the shared value as last released
+    */
+   public synchronized int getValue() {
+      return value;
+   }
+
+   /**
+    * @return the time stamp of the release of the shared value, 0 if none
+    */
+   public synchronized long getValueTimeStamp() {
+      return valueTimeStamp;
+   }
+
+   /**
+    * @return the id of the application of the release of the shared value
+    */
+   public synchronized int getValueSender() {
+      return valueSender;
+   }
+
+   /**
+    * @return the time the logical clock must start at, above every time
+    * stamp already used
+    */
+   public long getClockLimit() {
+      return clockLimit;
+   }
+
+   /**
+    * Journal a new version of the shared value.
+    *
+    * @param value the shared value
+    * @param timeStamp the time stamp of its release
+    * @param sender the id of the application of its release
+    */
+   public synchronized void released(int value, long timeStamp, int sender) {
+      this.value = value;
+      valueTimeStamp = timeStamp;
+      valueSender = sender;
+
+      int offset = reserve();
+      records.putLong(offset + 8, timeStamp);
+      records.putInt(offset + 16, sender);
+      records.putInt(offset + 20, value);
+      commit(offset, VALUE);
+   }
+
+   /**
+    * Journal that a time of the logical clock is used, if it reaches the
+    * last mark. Costs a single read otherwise.
+    *
+    * @param time the time used
+    */
+   public void clockUsed(long time) {
+      if (time < clockLimit) {
+         return;
+      }
+
+      synchronized(this) {
+         if (time >= clockLimit) {
+            clockLimit = time + CLOCK_STEP;
+            int offset = reserve();
+            records.putLong(offset + 8, clockLimit);
+            commit(offset, CLOCK);
+         }
+      }
+   }
+
+   /**
+    * Write the state to the snapshot and start the journal over.
+    *
+    * @throws UncheckedIOException if the snapshot cannot be written
+    */
+   public synchronized void compact() {
+      try {
+         Path temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+         try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(
+                         Channels.newOutputStream(channel))) {
+            out.writeInt(epoch + 1);
+            out.writeLong(clockLimit);
+            out.writeInt(value);
+            out.writeLong(valueTimeStamp);
+            out.writeInt(valueSender);
+            out.flush();
+            channel.force(true);
+         }
+         Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING,
+                 StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException ex) {
+         throw new UncheckedIOException(ex);
+      }
+
+      // The records of the previous epoch are no longer replayed
+      ++epoch;
+      position = 0;
+   }
+
+   /**
+    * Get the offset of the next record, compacting the journal if it is
+    * full. Must be called while holding the lock on this object.
+    */
+   private int reserve() {
+      if (position + RECORD_SIZE > records.capacity()) {
+         compact();
+      }
+      int offset = position;
+      position += RECORD_SIZE;
+      return offset;
+   }
+
+   /**
+    * Write the header of a record, once its payload is written.
+    */
+   private void commit(int offset, byte type) {
+      records.putLong(offset, header(type));
+   }
+
+   private long header(byte type) {
+      return ((long) epoch << 8) | type;
+   }
+
+   /**
+    * Read the snapshot, if any.
+    */
+   private void readSnapshot() throws IOException {
+      if (!Files.exists(snapshotPath)) {
+         return;
+      }
+
+      try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshotPath))) {
+         epoch = in.readInt();
+         clockLimit = in.readLong();
+         value = in.readInt();
+         valueTimeStamp = in.readLong();
+         valueSender = in.readInt();
+      }
+   }
+
+   /**
+    * Replay the records of the current epoch, up to the first record of
+    * another epoch, never written or cut by a crash.
+    */
+   private void replay() {
+      while (position + RECORD_SIZE <= records.capacity()) {
+         long header = records.getLong(position);
+         if (header == header(VALUE)) {
+            long timeStamp = records.getLong(position + 8);
+            int sender = records.getInt(position + 16);
+            if (timeStamp > valueTimeStamp
+                    || (timeStamp == valueTimeStamp && sender > valueSender)) {
+               valueTimeStamp = timeStamp;
+               valueSender = sender;
+               value = records.getInt(position + 20);
+            }
+         } else if (header == header(CLOCK)) {
+            clockLimit = Math.max(clockLimit, records.getLong(position + 8));
+         } else {
+            break;
+         }
+         position += RECORD_SIZE;
+      }
+   }
+}
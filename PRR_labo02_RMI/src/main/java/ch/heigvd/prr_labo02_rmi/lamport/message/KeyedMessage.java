@@ -0,0 +1,58 @@
+/**
+ * File: KeyedMessage.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.message;
+
+/**
+ * The KeyedMessage class represents a message of the keyed Lamport
+ * applications (see KeyedLamport), which manage a critical section and a
+ * shared value per key. It is a message of the Lamport algorithm, tagged
+ * with the key whose critical section it is about.
+ *
+ * The keys use the Lamport algorithm only: a TOKEN is never keyed.
+ */
+public class KeyedMessage extends LamportMessage {
+
+   private static final long serialVersionUID = 1L;
+
+   // The key of the critical section and shared value
+   private final String key;
+
+   /**
+    * Constructor.
+    * @param key the key of the critical section
+    * @param message the message giving the type, the time stamp, the sender
+    * and the shared value with its version (and the shared state, if any)
+    */
+   public KeyedMessage(String key, LamportMessage message) {
+      super(message.getType(), message.getTimeStamp(), message.getSender(),
+              message.getSharedValue(), message.getValueTimeStamp(),
+              message.getValueSender(), message.getState());
+      if (key == null) {
+         throw new IllegalArgumentException("The key cannot be null");
+      }
+      if (message.getType() == Type.TOKEN) {
+         throw new IllegalArgumentException("A TOKEN cannot be keyed");
+      }
+      this.key = key;
+   }
+
+   /**
+    * @return the key of the critical section
+    */
+   public String getKey() {
+      return key;
+   }
+
+   @Override
+   public LamportMessage withState(StateUpdate state) {
+      if (state == null) {
+         return this;
+      }
+      return new KeyedMessage(key, super.withState(state));
+   }
+
+}
@@ -6,6 +6,9 @@
 
 package ch.heigvd.prr_labo02_rmi.lamport.message;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 
 /**
@@ -17,29 +20,73 @@ import java.io.Serializable;
  *    RECEIPT (QUITTANCE dans le cours)
  *    RELEASE (LIBERE dans le cours)
  * 
+ * The quorum based algorithm (Maekawa) also uses the RECEIPT as the vote of
+ * an application, and needs three more types of messages :
+ *    FAILED  (the vote is given to an older request)
+ *    INQUIRE (the vote is asked back for an older request)
+ *    YIELD   (the vote is given back)
+ * 
+ * The token based algorithm (Suzuki-Kasami) sends the token as a message of
+ * type TOKEN (see TokenMessage).
+ * 
+ * The Ricart and Agrawala and the Maekawa algorithms send RECEIPTs telling
+ * which REQUEST they answer, and Maekawa its FAILED and INQUIRE as well (see
+ * ReceiptMessage).
+ * 
+ * The applications detecting the failures of the others (see
+ * FailureDetector) send a HEARTBEAT to the applications they haven't heard
+ * from for a while. It is ignored by the algorithms.
+ * 
+ * The Lamport algorithm lets the applications join and leave while running:
+ *    JOIN    (an application asks a member to join)
+ *    MEMBERS (the new members, see MembershipMessage)
+ *    LEAVE   (a RELEASE of an application that leaves)
+ * 
+ * A REJOIN is the RELEASE of a Lamport application that restarted from its
+ * journal, which lost the messages it received before.
+ * 
  * The LamportMessage class stores the type of message, the time stamp of the 
  * message, the sender application id, and the shared value. 
  * 
  * The shared value should only be significant when the message is of type
- * RELEASE (we have modified the value in critical section).
+ * RELEASE (we have modified the value in critical section), or when an
+ * algorithm sends it along with a RECEIPT. It is versioned by the time stamp
+ * and the sender id of the release that produced it, so that the most recent
+ * of two values can always be told apart. For a RELEASE, the version is the
+ * message time stamp and sender.
+ * 
+ * A message carrying the shared value may also carry the shared state of
+ * the applications that replicate one (see StateUpdate), at the same version.
+ * 
+ * A message is immutable, so that the same instance can be sent to several
+ * applications at once. It is serialized in a compact binary format (see
+ * MessageCodec) instead of the default Java serialization.
  *    
  */
 public class LamportMessage implements Serializable {
    
-   // The three types of lamport messages
-   public static enum Type {REQUEST, RELEASE, RECEIPT};
+   // The types of lamport messages
+   public static enum Type {REQUEST, RELEASE, RECEIPT, FAILED, INQUIRE, YIELD, TOKEN,
+      HEARTBEAT, JOIN, MEMBERS, LEAVE, REJOIN};
    
    // The type of message
-   private Type type;
+   private final Type type;
    
    // The time stamp of the message
-   private long timeStamp;
+   private final long timeStamp;
    
    // The sender ID
-   private int sender;
+   private final int sender;
    
    // The shared value passed along with the message
-   private int sharedValue;
+   private final int sharedValue;
+   
+   // The version of the shared value (time stamp and sender of its release)
+   private final long valueTimeStamp;
+   private final int valueSender;
+   
+   // The shared state passed along with the message, null if none
+   private final StateUpdate state;
    
    /**
     * Default constructor.
@@ -47,49 +94,116 @@ public class LamportMessage implements Serializable {
    public void LamportMessage() {}
    
    /**
-    * Full constructor.
+    * Constructor. The version of the shared value is the time stamp and the
+    * sender of the message.
     * @param type the type of the message
     * @param timeStamp the time stamp of the message
     * @param sender the sender ID
     * @param sharedValue the shared value
     */
    public LamportMessage(Type type, long timeStamp, int sender, int sharedValue) {
+      this(type, timeStamp, sender, sharedValue, timeStamp, sender);
+   }
+   
+   /**
+    * Full constructor.
+    * @param type the type of the message
+    * @param timeStamp the time stamp of the message
+    * @param sender the sender ID
+    * @param sharedValue the shared value
+    * @param valueTimeStamp the time stamp of the release of the shared value
+    * @param valueSender the sender of the release of the shared value
+    */
+   public LamportMessage(Type type, long timeStamp, int sender, int sharedValue,
+           long valueTimeStamp, int valueSender) {
+      this(type, timeStamp, sender, sharedValue, valueTimeStamp, valueSender, null);
+   }
+   
+   /**
+    * Full constructor with the shared state.
+    * @param type the type of the message
+    * @param timeStamp the time stamp of the message
+    * @param sender the sender ID
+    * @param sharedValue the shared value
+    * @param valueTimeStamp the time stamp of the release of the shared value
+    * @param valueSender the sender of the release of the shared value
+    * @param state the shared state at the version of the shared value, null
+    * if none
+    */
+   public LamportMessage(Type type, long timeStamp, int sender, int sharedValue,
+           long valueTimeStamp, int valueSender, StateUpdate state) {
       this.type = type;
       this.timeStamp = timeStamp;
       this.sender = sender;
       this.sharedValue = sharedValue;
+      this.valueTimeStamp = valueTimeStamp;
+      this.valueSender = valueSender;
+      this.state = state;
    }
 
    public Type getType() {
       return type;
    }
 
-   public void setType(Type type) {
-      this.type = type;
-   }
-
    public long getTimeStamp() {
       return timeStamp;
    }
 
-   public void setTimeStamp(long timeStamp) {
-      this.timeStamp = timeStamp;
-   }
-
    public int getSender() {
       return sender;
    }
 
-   public void setSender(int sender) {
-      this.sender = sender;
-   }
-
    public int getSharedValue() {
       return sharedValue;
    }
 
-   public void setSharedValue(int sharedValue) {
-      this.sharedValue = sharedValue;
+   public long getValueTimeStamp() {
+      return valueTimeStamp;
+   }
+
+   public int getValueSender() {
+      return valueSender;
+   }
+
+   /**
+    * @return the shared state carried by the message, null if none
+    */
+   public StateUpdate getState() {
+      return state;
+   }
+
+   /**
+    * Create a copy of this message carrying a shared state.
+    *
+    * @param state the shared state at the version of the shared value
+    * @return the copy, or this message if the state is null
+    */
+   public LamportMessage withState(StateUpdate state) {
+      if (state == null) {
+         return this;
+      }
+      return new LamportMessage(type, timeStamp, sender, sharedValue,
+              valueTimeStamp, valueSender, state);
+   }
+
+   /**
+    * Serialize the message in the compact format of the MessageCodec.
+    *
+    * @return the object to serialize instead of the message
+    * @throws ObjectStreamException
+    */
+   protected Object writeReplace() throws ObjectStreamException {
+      return new SerializedMessage(this);
+   }
+
+   /**
+    * A message is only ever read through a SerializedMessage.
+    *
+    * @param in the stream
+    * @throws InvalidObjectException always
+    */
+   private void readObject(ObjectInputStream in) throws InvalidObjectException {
+      throw new InvalidObjectException("A SerializedMessage is required");
    }
    
 }
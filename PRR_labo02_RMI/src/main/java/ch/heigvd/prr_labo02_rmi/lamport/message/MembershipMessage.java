@@ -0,0 +1,53 @@
+/**
+ * File: MembershipMessage.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.message;
+
+/**
+ * The MembershipMessage class represents the members of the Lamport
+ * applications, sent in critical section by the member that admitted a new
+ * one (see LamportImpl.admit). The new member gets it last, with the shared
+ * value, its version and the shared state, if any: it is the snapshot it
+ * starts from, its time stamp the time its clock starts at.
+ *
+ * The array is copied so that the message stays immutable.
+ */
+public class MembershipMessage extends LamportMessage {
+
+   private static final long serialVersionUID = 1L;
+
+   // The ids of the members, in increasing order
+   private final int[] members;
+
+   /**
+    * Constructor.
+    * @param message the message giving the time stamp, the sender and the
+    * shared value with its version (and the shared state, if any)
+    * @param members the ids of the members, in increasing order
+    */
+   public MembershipMessage(LamportMessage message, int[] members) {
+      super(Type.MEMBERS, message.getTimeStamp(), message.getSender(),
+              message.getSharedValue(), message.getValueTimeStamp(),
+              message.getValueSender(), message.getState());
+      this.members = members.clone();
+   }
+
+   /**
+    * @return a copy of the ids of the members
+    */
+   public int[] getMembers() {
+      return members.clone();
+   }
+
+   @Override
+   public LamportMessage withState(StateUpdate state) {
+      if (state == null) {
+         return this;
+      }
+      return new MembershipMessage(super.withState(state), members);
+   }
+
+}
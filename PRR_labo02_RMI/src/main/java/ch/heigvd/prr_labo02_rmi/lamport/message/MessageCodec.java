@@ -0,0 +1,320 @@
+/**
+ * File: MessageCodec.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.message;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+
+/**
+ * The MessageCodec class encodes the Lamport messages in a compact binary
+ * format, used instead of the default Java serialization.
+ *
+ * A message is written as:
+ *    type     : one byte, the ordinal of the type. The highest bit is set
+ *               when the version of the shared value is the time stamp and
+ *               the sender of the message (a RELEASE), the next one when
+ *               the message is keyed, the third one when it carries a
+ *               shared state and the fourth one when it answers a given
+ *               REQUEST (a ReceiptMessage)
+ *    key      : for a KeyedMessage only, the key in modified UTF-8 (see
+ *               DataOutput.writeUTF)
+ *    timeStamp: varint
+ *    sender   : varint
+ *    value    : zigzag varint
+ *    version  : zigzag varint of (timeStamp - valueTimeStamp), then the
+ *               valueSender as varint, unless the highest bit of the type
+ *               is set
+ *    state    : for a message carrying a shared state only, the length of
+ *               its data shifted left by one as varint, the lowest bit set
+ *               for a snapshot, followed by the data
+ *    token    : for a TOKEN only, the number of applications as varint
+ *               followed by the last served requests as varints, then the
+ *               length of the queue as varint followed by the ids as varints,
+ *               and the sequence number of the token as varint
+ *    members  : for MEMBERS only, the number of members as varint followed
+ *               by their ids as varints
+ *    request  : for a ReceiptMessage only, zigzag varint of
+ *               (timeStamp - requestTimeStamp)
+ *
+ * The arrays of the TOKEN and MEMBERS hold at most 65536 entries: a longer
+ * one is malformed.
+ *
+ * A varint stores 7 bits per byte, the lowest first, the highest bit telling
+ * if another byte follows. Small time stamps and ids therefore take a single
+ * byte or two, and a usual message about 5 to 10 bytes.
+ */
+public final class MessageCodec {
+
+   // The flag set on the type byte when the version is the message itself
+   private static final int SELF_VERSION = 0x80;
+
+   // The flag set on the type byte when a key follows
+   private static final int KEYED = 0x40;
+
+   // The flag set on the type byte when a shared state follows the version
+   private static final int STATE = 0x20;
+
+   // The flag set on the type byte when the time stamp of the REQUEST
+   // answered follows
+   private static final int ANSWER = 0x10;
+
+   // The longest array of application ids or request time stamps read, so
+   // that a malformed length doesn't allocate gigabytes
+   private static final int MAX_LENGTH = 1 << 16;
+
+   private static final LamportMessage.Type[] TYPES = LamportMessage.Type.values();
+
+   private MessageCodec() {}
+
+   /**
+    * Write a message.
+    *
+    * @param message the message to write
+    * @param out the output to write to
+    * @throws IOException if the message cannot be written
+    */
+   public static void write(LamportMessage message, DataOutput out) throws IOException {
+      boolean selfVersion = message.getValueTimeStamp() == message.getTimeStamp()
+              && message.getValueSender() == message.getSender();
+
+      boolean keyed = message instanceof KeyedMessage;
+      boolean answer = message instanceof ReceiptMessage;
+      StateUpdate state = message.getState();
+
+      out.writeByte(message.getType().ordinal() | (selfVersion ? SELF_VERSION : 0)
+              | (keyed ? KEYED : 0) | (state != null ? STATE : 0)
+              | (answer ? ANSWER : 0));
+      if (keyed) {
+         out.writeUTF(((KeyedMessage) message).getKey());
+      }
+      writeVarLong(out, message.getTimeStamp());
+      writeVarLong(out, message.getSender());
+      writeVarLong(out, zigzag(message.getSharedValue()));
+
+      if (!selfVersion) {
+         writeVarLong(out, zigzag(message.getTimeStamp() - message.getValueTimeStamp()));
+         writeVarLong(out, message.getValueSender());
+      }
+
+      if (state != null) {
+         writeVarLong(out, ((long) state.getData().length << 1) | (state.isSnapshot() ? 1 : 0));
+         out.write(state.getData());
+      }
+
+      if (answer) {
+         writeVarLong(out, zigzag(message.getTimeStamp()
+                 - ((ReceiptMessage) message).getRequestTimeStamp()));
+      }
+
+      if (message.getType() == LamportMessage.Type.MEMBERS) {
+         int[] members = message instanceof MembershipMessage
+                 ? ((MembershipMessage) message).getMembers()
+                 : new int[0];
+         writeVarLong(out, members.length);
+         for (int member : members) {
+            writeVarLong(out, member);
+         }
+      }
+
+      if (message.getType() == LamportMessage.Type.TOKEN) {
+         long[] lastServedRequests = new long[0];
+         int[] queue = new int[0];
+         long sequence = 0;
+         if (message instanceof TokenMessage) {
+            lastServedRequests = ((TokenMessage) message).getLastServedRequests();
+            queue = ((TokenMessage) message).getQueue();
+            sequence = ((TokenMessage) message).getSequence();
+         }
+
+         writeVarLong(out, lastServedRequests.length);
+         for (long lastServedRequest : lastServedRequests) {
+            writeVarLong(out, lastServedRequest);
+         }
+         writeVarLong(out, queue.length);
+         for (int waiting : queue) {
+            writeVarLong(out, waiting);
+         }
+         writeVarLong(out, sequence);
+      }
+   }
+
+   /**
+    * Get the number of bytes of a message once written.
+    *
+    * @param message the message
+    * @return the number of bytes
+    */
+   public static int size(LamportMessage message) {
+      DataOutputStream out = new DataOutputStream(new OutputStream() {
+         @Override
+         public void write(int b) {
+         }
+
+         @Override
+         public void write(byte[] b, int off, int len) {
+         }
+      });
+      try {
+         write(message, out);
+      } catch (IOException ex) {
+         // The bytes are discarded, nothing can fail
+         throw new AssertionError(ex);
+      }
+      return out.size();
+   }
+
+   /**
+    * Read a message.
+    *
+    * @param in the input to read from
+    * @return the message
+    * @throws IOException if the message cannot be read or is malformed
+    */
+   public static LamportMessage read(DataInput in) throws IOException {
+      int header = in.readUnsignedByte();
+      int ordinal = header & ~(SELF_VERSION | KEYED | STATE | ANSWER);
+      if (ordinal >= TYPES.length) {
+         throw new StreamCorruptedException("Unknown message type " + ordinal);
+      }
+      LamportMessage.Type type = TYPES[ordinal];
+
+      String key = (header & KEYED) != 0 ? in.readUTF() : null;
+      if (key != null && (type == LamportMessage.Type.TOKEN
+              || type == LamportMessage.Type.MEMBERS)) {
+         throw new StreamCorruptedException("Keyed " + type);
+      }
+      if ((header & ANSWER) != 0 && (key != null || (type != LamportMessage.Type.RECEIPT
+              && type != LamportMessage.Type.FAILED
+              && type != LamportMessage.Type.INQUIRE))) {
+         throw new StreamCorruptedException("Answering " + type);
+      }
+
+      long timeStamp = readVarLong(in);
+      int sender = (int) readVarLong(in);
+      int sharedValue = (int) unzigzag(readVarLong(in));
+
+      long valueTimeStamp = timeStamp;
+      int valueSender = sender;
+      if ((header & SELF_VERSION) == 0) {
+         valueTimeStamp = timeStamp - unzigzag(readVarLong(in));
+         valueSender = (int) readVarLong(in);
+      }
+
+      StateUpdate state = null;
+      if ((header & STATE) != 0) {
+         long length = readVarLong(in);
+         if (length < 0 || length >>> 1 > Integer.MAX_VALUE) {
+            throw new StreamCorruptedException("Malformed state length " + length);
+         }
+         byte[] data = new byte[(int) (length >>> 1)];
+         in.readFully(data);
+         state = new StateUpdate((length & 1) != 0, data);
+      }
+
+      LamportMessage message = new LamportMessage(type, timeStamp, sender,
+              sharedValue, valueTimeStamp, valueSender, state);
+
+      if (key != null) {
+         return new KeyedMessage(key, message);
+      }
+      if ((header & ANSWER) != 0) {
+         return new ReceiptMessage(message, timeStamp - unzigzag(readVarLong(in)));
+      }
+      if (type == LamportMessage.Type.MEMBERS) {
+         int[] members = new int[readLength(in)];
+         for (int i = 0; i < members.length; ++i) {
+            members[i] = (int) readVarLong(in);
+         }
+         return new MembershipMessage(message, members);
+      }
+      if (type != LamportMessage.Type.TOKEN) {
+         return message;
+      }
+
+      long[] lastServedRequests = new long[readLength(in)];
+      for (int i = 0; i < lastServedRequests.length; ++i) {
+         lastServedRequests[i] = readVarLong(in);
+      }
+      int[] queue = new int[readLength(in)];
+      for (int i = 0; i < queue.length; ++i) {
+         queue[i] = (int) readVarLong(in);
+      }
+
+      return new TokenMessage(message, lastServedRequests, queue, readVarLong(in));
+   }
+
+   /**
+    * Write a positive number as a varint.
+    *
+    * @param out the output to write to
+    * @param value the number
+    * @throws IOException if the number cannot be written
+    */
+   public static void writeVarLong(DataOutput out, long value) throws IOException {
+      while ((value & ~0x7FL) != 0) {
+         out.writeByte((int) ((value & 0x7F) | 0x80));
+         value >>>= 7;
+      }
+      out.writeByte((int) value);
+   }
+
+   /**
+    * Read a number written as a varint.
+    *
+    * @param in the input to read from
+    * @return the number
+    * @throws IOException if the number cannot be read or is too long
+    */
+   public static long readVarLong(DataInput in) throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+         int b = in.readUnsignedByte();
+         value |= (long) (b & 0x7F) << shift;
+         if ((b & 0x80) == 0) {
+            return value;
+         }
+      }
+      throw new StreamCorruptedException("Malformed varint");
+   }
+
+   /**
+    * Read the length of an array of application ids or request time stamps,
+    * which cannot be larger than MAX_LENGTH.
+    */
+   private static int readLength(DataInput in) throws IOException {
+      long length = readVarLong(in);
+      if (length < 0 || length > MAX_LENGTH) {
+         throw new StreamCorruptedException("Malformed length " + length);
+      }
+      return (int) length;
+   }
+
+   /**
+    * Map a signed number to a positive one so that small negative numbers
+    * stay small varints.
+    *
+    * @param value the signed number
+    * @return the positive number
+    */
+   public static long zigzag(long value) {
+      return (value << 1) ^ (value >> 63);
+   }
+
+   /**
+    * Map a number given by zigzag() back to the signed number.
+    *
+    * @param value the positive number
+    * @return the signed number
+    */
+   public static long unzigzag(long value) {
+      return (value >>> 1) ^ -(value & 1);
+   }
+}
@@ -0,0 +1,52 @@
+/**
+ * File: ReceiptMessage.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.message;
+
+/**
+ * The ReceiptMessage class represents a RECEIPT answering a given REQUEST,
+ * for the algorithms counting the RECEIPTs of their pending request
+ * (Ricart-Agrawala, Maekawa), or a FAILED or INQUIRE about it (Maekawa). It
+ * carries the time stamp of the REQUEST it answers, so that a late answer to
+ * a request given up is never counted for the next one.
+ */
+public class ReceiptMessage extends LamportMessage {
+
+   private static final long serialVersionUID = 1L;
+
+   // The time stamp of the REQUEST answered
+   private final long requestTimeStamp;
+
+   /**
+    * Constructor.
+    * @param message the message giving the type (RECEIPT, FAILED or INQUIRE),
+    * the time stamp, the sender and the shared value with its version (and
+    * the shared state, if any)
+    * @param requestTimeStamp the time stamp of the REQUEST answered
+    */
+   public ReceiptMessage(LamportMessage message, long requestTimeStamp) {
+      super(message.getType(), message.getTimeStamp(), message.getSender(),
+              message.getSharedValue(), message.getValueTimeStamp(),
+              message.getValueSender(), message.getState());
+      this.requestTimeStamp = requestTimeStamp;
+   }
+
+   /**
+    * @return the time stamp of the REQUEST answered
+    */
+   public long getRequestTimeStamp() {
+      return requestTimeStamp;
+   }
+
+   @Override
+   public LamportMessage withState(StateUpdate state) {
+      if (state == null) {
+         return this;
+      }
+      return new ReceiptMessage(super.withState(state), requestTimeStamp);
+   }
+
+}
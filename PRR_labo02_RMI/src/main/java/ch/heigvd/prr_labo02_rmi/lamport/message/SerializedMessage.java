@@ -0,0 +1,58 @@
+/**
+ * File: SerializedMessage.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.message;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * The SerializedMessage class is what is actually serialized in place of a
+ * Lamport message (see LamportMessage.writeReplace()). It writes the message
+ * with the MessageCodec, so that the stream only holds a short class
+ * descriptor and a few bytes, and gives the message back when it is read.
+ */
+final class SerializedMessage implements Externalizable {
+
+   private static final long serialVersionUID = 1L;
+
+   // The message written or read
+   private LamportMessage message;
+
+   /**
+    * Constructor used by the serialization.
+    */
+   public SerializedMessage() {}
+
+   /**
+    * Constructor.
+    * @param message the message to serialize
+    */
+   SerializedMessage(LamportMessage message) {
+      this.message = message;
+   }
+
+   @Override
+   public void writeExternal(ObjectOutput out) throws IOException {
+      MessageCodec.write(message, out);
+   }
+
+   @Override
+   public void readExternal(ObjectInput in) throws IOException {
+      message = MessageCodec.read(in);
+   }
+
+   /**
+    * Give the message read instead of this object.
+    *
+    * @return the message
+    */
+   private Object readResolve() {
+      return message;
+   }
+}
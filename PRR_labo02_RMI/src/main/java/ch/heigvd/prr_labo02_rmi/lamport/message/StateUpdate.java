@@ -0,0 +1,53 @@
+/**
+ * File: StateUpdate.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.message;
+
+import java.io.Serializable;
+
+/**
+ * The StateUpdate class represents the shared state (see SharedState)
+ * carried by a message along with the shared value: either a snapshot of the
+ * whole state, or the changes of the releases the receiver is known to miss.
+ * Its content is written and read by the StateReplica of the applications.
+ *
+ * A StateUpdate is immutable: its data must not be changed once created.
+ */
+public class StateUpdate implements Serializable {
+
+   private static final long serialVersionUID = 1L;
+
+   // Whether the data is a snapshot of the whole state
+   private final boolean snapshot;
+
+   // The snapshot or the changes
+   private final byte[] data;
+
+   /**
+    * Constructor.
+    * @param snapshot true if the data is a snapshot of the whole state, false
+    * if it holds changes
+    * @param data the snapshot or the changes, not copied
+    */
+   public StateUpdate(boolean snapshot, byte[] data) {
+      this.snapshot = snapshot;
+      this.data = data;
+   }
+
+   /**
+    * @return true if the data is a snapshot of the whole state
+    */
+   public boolean isSnapshot() {
+      return snapshot;
+   }
+
+   /**
+    * @return the snapshot or the changes, which must not be changed
+    */
+   public byte[] getData() {
+      return data;
+   }
+}
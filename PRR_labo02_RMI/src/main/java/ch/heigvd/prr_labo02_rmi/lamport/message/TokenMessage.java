@@ -0,0 +1,84 @@
+/**
+ * File: TokenMessage.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.message;
+
+/**
+ * The TokenMessage class represents the token of the token based algorithm
+ * (Suzuki-Kasami). Only the application holding the token may enter the
+ * critical section.
+ *
+ * Besides the shared value and its version, the token stores the time stamp
+ * of the last request of each application that has been served, and the
+ * queue of the applications waiting for the token. The arrays are copied so
+ * that the token stays immutable.
+ *
+ * Each token sent has a new sequence number, so that a token sent again
+ * after it was delivered is recognized and ignored.
+ */
+public class TokenMessage extends LamportMessage {
+
+   private static final long serialVersionUID = 1L;
+
+   // The time stamp of the last served request of each application
+   private final long[] lastServedRequests;
+
+   // The ids of the applications waiting for the token, in order
+   private final int[] queue;
+
+   // The number of times the token has been sent
+   private final long sequence;
+
+   /**
+    * Constructor.
+    * @param message the message giving the time stamp, the sender and the
+    * shared value with its version (and the shared state, if any)
+    * @param lastServedRequests the time stamp of the last served request of
+    * each application
+    * @param queue the ids of the applications waiting for the token
+    * @param sequence the number of times the token has been sent
+    */
+   public TokenMessage(LamportMessage message, long[] lastServedRequests,
+           int[] queue, long sequence) {
+      super(Type.TOKEN, message.getTimeStamp(), message.getSender(),
+              message.getSharedValue(), message.getValueTimeStamp(),
+              message.getValueSender(), message.getState());
+      this.lastServedRequests = lastServedRequests.clone();
+      this.queue = queue.clone();
+      this.sequence = sequence;
+   }
+
+   /**
+    * @return a copy of the time stamps of the last served requests
+    */
+   public long[] getLastServedRequests() {
+      return lastServedRequests.clone();
+   }
+
+   /**
+    * @return a copy of the ids of the applications waiting for the token
+    */
+   public int[] getQueue() {
+      return queue.clone();
+   }
+
+   /**
+    * @return the number of times the token has been sent
+    */
+   public long getSequence() {
+      return sequence;
+   }
+
+   @Override
+   public LamportMessage withState(StateUpdate state) {
+      if (state == null) {
+         return this;
+      }
+      return new TokenMessage(super.withState(state), lastServedRequests, queue,
+              sequence);
+   }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * File: HistogramSnapshot.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The HistogramSnapshot class represents the statistics of the durations
+ * recorded by a LatencyHistogram, in microseconds. The percentiles are the
+ * upper bounds of the ranges holding them. It is shown by JMX as a composite
+ * value.
+ */
+public class HistogramSnapshot {
+
+   private final long count;
+   private final double mean;
+   private final double p50;
+   private final double p90;
+   private final double p99;
+   private final double max;
+
+   /**
+    * Constructor.
+    * @param count the number of durations
+    * @param mean the mean duration
+    * @param p50 the median duration
+    * @param p90 the 90th percentile
+    * @param p99 the 99th percentile
+    * @param max the longest duration
+    */
+   @ConstructorProperties({"count", "mean", "p50", "p90", "p99", "max"})
+   public HistogramSnapshot(long count, double mean, double p50, double p90,
+           double p99, double max) {
+      this.count = count;
+      this.mean = mean;
+      this.p50 = p50;
+      this.p90 = p90;
+      this.p99 = p99;
+      this.max = max;
+   }
+
+   public long getCount() {
+      return count;
+   }
+
+   public double getMean() {
+      return mean;
+   }
+
+   public double getP50() {
+      return p50;
+   }
+
+   public double getP90() {
+      return p90;
+   }
+
+   public double getP99() {
+      return p99;
+   }
+
+   public double getMax() {
+      return max;
+   }
+
+   @Override
+   public String toString() {
+      return String.format("count=%d mean=%.1f p50=%.1f p90=%.1f p99=%.1f max=%.1f us",
+              count, mean, p50, p90, p99, max);
+   }
+}
@@ -0,0 +1,291 @@
+/**
+ * File: LamportMetrics.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.metrics;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The LamportMetrics class counts what a Lamport application does: the
+ * messages sent and received by type, the messages saved by the
+ * implementation (a RECEIPT suppressed, a RELEASE coalesced with the next
+ * REQUEST), the round trip time of the messages to
+ * each other application, and the time waited for and spent in the critical
+ * section. The counters take no lock and allocate nothing, so that they are
+ * always kept, even on the path of the messages received. The state of the
+ * algorithm (clock, queue, owner) is only read when asked for.
+ *
+ * The round trips take a histogram per application they were measured to:
+ * with many applications (see LamportSimulator), they may be left out.
+ *
+ * The metrics are shown by JMX once registered (see register).
+ */
+public class LamportMetrics implements LamportMetricsMXBean {
+
+   // The domain of the names of the metrics registered to JMX
+   public static final String DOMAIN = "ch.heigvd.prr_labo02_rmi";
+
+   private static final LamportMessage.Type[] TYPES = LamportMessage.Type.values();
+
+   // The number of messages sent and received, by type
+   private final LongAdder[] sent;
+   private final LongAdder[] received;
+
+   // The number of messages saved
+   private final LongAdder receiptsSuppressed;
+   private final LongAdder releasesCoalesced;
+
+   // The round trip times to each application, created on first use, and
+   // whether they are kept
+   private final AtomicReferenceArray<LatencyHistogram> roundTrips;
+   private volatile boolean roundTripsKept;
+
+   // The time waited for and spent in the critical section
+   private final LatencyHistogram lockWait;
+   private final LatencyHistogram lockHold;
+
+   // The state of the algorithm
+   private final LongSupplier clock;
+   private final IntSupplier queueDepth;
+   private final IntSupplier owner;
+
+   /**
+    * Constructor.
+    *
+    * @param numberOfApplications the number of Lamport applications
+    * @param clock the current time of the logical clock
+    * @param queueDepth the number of requests waiting to be served
+    * @param owner the id of the owner of the critical section, -1 if unknown
+    */
+   public LamportMetrics(int numberOfApplications, LongSupplier clock,
+           IntSupplier queueDepth, IntSupplier owner) {
+      sent = new LongAdder[TYPES.length];
+      received = new LongAdder[TYPES.length];
+      for (int i = 0; i < TYPES.length; ++i) {
+         sent[i] = new LongAdder();
+         received[i] = new LongAdder();
+      }
+
+      receiptsSuppressed = new LongAdder();
+      releasesCoalesced = new LongAdder();
+
+      roundTrips = new AtomicReferenceArray<>(numberOfApplications);
+      roundTripsKept = true;
+      lockWait = new LatencyHistogram();
+      lockHold = new LatencyHistogram();
+
+      this.clock = clock;
+      this.queueDepth = queueDepth;
+      this.owner = owner;
+   }
+
+   /**
+    * Register the metrics to the platform MBean server, so that they are
+    * shown by JMX, under the name ch.heigvd.prr_labo02_rmi:type=Lamport,id=id.
+    *
+    * @param id the id of the Lamport application
+    * @throws JMException if the metrics could not be registered
+    */
+   public void register(int id) throws JMException {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+              new ObjectName(DOMAIN + ":type=Lamport,id=" + id));
+   }
+
+   /**
+    * Keep the round trip times to each application or not. They are kept by
+    * default.
+    *
+    * @param kept whether the round trip times are kept
+    */
+   public void setRoundTripsKept(boolean kept) {
+      roundTripsKept = kept;
+   }
+
+   /**
+    * Count a message sent.
+    *
+    * @param type the type of the message
+    */
+   public void sent(LamportMessage.Type type) {
+      sent[type.ordinal()].increment();
+   }
+
+   /**
+    * Count a message received.
+    *
+    * @param type the type of the message
+    */
+   public void received(LamportMessage.Type type) {
+      received[type.ordinal()].increment();
+   }
+
+   /**
+    * Count a RECEIPT not sent, our own newer REQUEST standing for it.
+    */
+   public void receiptSuppressed() {
+      receiptsSuppressed.increment();
+   }
+
+   /**
+    * Count a RELEASE not sent, our next REQUEST standing for it.
+    */
+   public void releaseCoalesced() {
+      releasesCoalesced.increment();
+   }
+
+   /**
+    * Record the round trip time of a message to another application.
+    *
+    * @param other the id of the application
+    * @param nanos the time from the emission of the message to its delivery
+    */
+   public void roundTrip(int other, long nanos) {
+      if (!roundTripsKept) {
+         return;
+      }
+
+      LatencyHistogram histogram = roundTrips.get(other);
+      if (histogram == null) {
+         roundTrips.compareAndSet(other, null, new LatencyHistogram());
+         histogram = roundTrips.get(other);
+      }
+      histogram.record(nanos);
+   }
+
+   /**
+    * Record the time waited to get the critical section.
+    *
+    * @param nanos the time in nanoseconds
+    */
+   public void lockWait(long nanos) {
+      lockWait.record(nanos);
+   }
+
+   /**
+    * Record the time the critical section was held.
+    *
+    * @param nanos the time in nanoseconds
+    */
+   public void lockHold(long nanos) {
+      lockHold.record(nanos);
+   }
+
+   /**
+    * Get the number of messages sent of a type.
+    *
+    * @param type the type of the messages
+    * @return the number of messages
+    */
+   public long getSent(LamportMessage.Type type) {
+      return sent[type.ordinal()].sum();
+   }
+
+   /**
+    * Get the number of messages received of a type.
+    *
+    * @param type the type of the messages
+    * @return the number of messages
+    */
+   public long getReceived(LamportMessage.Type type) {
+      return received[type.ordinal()].sum();
+   }
+
+   @Override
+   public long getLogicalClock() {
+      return clock.getAsLong();
+   }
+
+   @Override
+   public int getQueueDepth() {
+      return queueDepth.getAsInt();
+   }
+
+   @Override
+   public int getOwner() {
+      return owner.getAsInt();
+   }
+
+   @Override
+   public Map<String, Long> getMessagesSent() {
+      return byType(sent);
+   }
+
+   @Override
+   public Map<String, Long> getMessagesReceived() {
+      return byType(received);
+   }
+
+   @Override
+   public long getReceiptsSuppressed() {
+      return receiptsSuppressed.sum();
+   }
+
+   @Override
+   public long getReleasesCoalesced() {
+      return releasesCoalesced.sum();
+   }
+
+   @Override
+   public Map<Integer, HistogramSnapshot> getRoundTrips() {
+      Map<Integer, HistogramSnapshot> snapshots = new TreeMap<>();
+      for (int i = 0; i < roundTrips.length(); ++i) {
+         LatencyHistogram histogram = roundTrips.get(i);
+         if (histogram != null) {
+            snapshots.put(i, histogram.snapshot());
+         }
+      }
+      return snapshots;
+   }
+
+   @Override
+   public HistogramSnapshot getLockWait() {
+      return lockWait.snapshot();
+   }
+
+   @Override
+   public HistogramSnapshot getLockHold() {
+      return lockHold.snapshot();
+   }
+
+   @Override
+   public void reset() {
+      for (int i = 0; i < TYPES.length; ++i) {
+         sent[i].reset();
+         received[i].reset();
+      }
+      receiptsSuppressed.reset();
+      releasesCoalesced.reset();
+      for (int i = 0; i < roundTrips.length(); ++i) {
+         LatencyHistogram histogram = roundTrips.get(i);
+         if (histogram != null) {
+            histogram.reset();
+         }
+      }
+      lockWait.reset();
+      lockHold.reset();
+   }
+
+   /**
+    * Get the counters of each type of message, in the order of the types.
+    */
+   private static Map<String, Long> byType(LongAdder[] counters) {
+      Map<String, Long> counts = new LinkedHashMap<>();
+      for (LamportMessage.Type type : TYPES) {
+         counts.put(type.name(), counters[type.ordinal()].sum());
+      }
+      return counts;
+   }
+}
@@ -0,0 +1,77 @@
+/**
+ * File: LamportMetricsMXBean.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.metrics;
+
+import java.util.Map;
+
+/**
+ * The LamportMetricsMXBean interface is the management interface of the
+ * metrics of a Lamport application, as shown by JMX (jconsole for instance).
+ * The durations are in microseconds.
+ */
+public interface LamportMetricsMXBean {
+
+   /**
+    * @return the current time of the logical clock
+    */
+   public long getLogicalClock();
+
+   /**
+    * @return the number of requests of the critical section waiting to be
+    * served, as known by this application
+    */
+   public int getQueueDepth();
+
+   /**
+    * @return the id of the application owning the critical section (or next
+    * to own it), as known by this application, -1 if unknown
+    */
+   public int getOwner();
+
+   /**
+    * @return the number of messages sent by type
+    */
+   public Map<String, Long> getMessagesSent();
+
+   /**
+    * @return the number of messages received by type
+    */
+   public Map<String, Long> getMessagesReceived();
+
+   /**
+    * @return the number of RECEIPTs not sent, our own newer REQUEST standing
+    * for them
+    */
+   public long getReceiptsSuppressed();
+
+   /**
+    * @return the number of RELEASEs not sent, our next REQUEST standing for
+    * them
+    */
+   public long getReleasesCoalesced();
+
+   /**
+    * @return the round trip time of the messages to each other application,
+    * until delivered, by application id
+    */
+   public Map<Integer, HistogramSnapshot> getRoundTrips();
+
+   /**
+    * @return the time waited to get the critical section
+    */
+   public HistogramSnapshot getLockWait();
+
+   /**
+    * @return the time the critical section was held
+    */
+   public HistogramSnapshot getLockHold();
+
+   /**
+    * Start counting from 0 again.
+    */
+   public void reset();
+}
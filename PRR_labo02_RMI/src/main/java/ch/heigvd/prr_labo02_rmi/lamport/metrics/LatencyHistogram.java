@@ -0,0 +1,130 @@
+/**
+ * File: LatencyHistogram.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class counts durations, in nanoseconds, by ranges
+ * growing exponentially: each power of two is split in four ranges, so that
+ * a percentile is known within 25%. Recording a duration allocates nothing
+ * and takes no lock, so that the histograms can always be kept.
+ */
+public class LatencyHistogram {
+
+   // The number of ranges: 4 for the durations below 4 ns, then 4 for each
+   // power of two up to Long.MAX_VALUE
+   private static final int BUCKETS = 4 + 61 * 4;
+
+   // The number of durations recorded in each range
+   private final AtomicLongArray buckets;
+
+   // The sum of the durations and the longest one
+   private final LongAdder sum;
+   private final AtomicLong max;
+
+   /**
+    * Constructor.
+    */
+   public LatencyHistogram() {
+      buckets = new AtomicLongArray(BUCKETS);
+      sum = new LongAdder();
+      max = new AtomicLong();
+   }
+
+   /**
+    * Record a duration.
+    *
+    * @param nanos the duration in nanoseconds, 0 if negative
+    */
+   public void record(long nanos) {
+      nanos = Math.max(0, nanos);
+      buckets.incrementAndGet(bucket(nanos));
+      sum.add(nanos);
+
+      long longest = max.get();
+      while (nanos > longest && !max.compareAndSet(longest, nanos)) {
+         longest = max.get();
+      }
+   }
+
+   /**
+    * Get the statistics of the durations recorded so far. The durations
+    * recorded meanwhile may or may not be taken into account.
+    *
+    * @return the statistics
+    */
+   public HistogramSnapshot snapshot() {
+      long[] counts = new long[BUCKETS];
+      long total = 0;
+      for (int i = 0; i < BUCKETS; ++i) {
+         counts[i] = buckets.get(i);
+         total += counts[i];
+      }
+
+      long longest = max.get();
+      return new HistogramSnapshot(total,
+              total == 0 ? 0 : sum.sum() / total / 1e3,
+              percentile(counts, total, 0.50, longest) / 1e3,
+              percentile(counts, total, 0.90, longest) / 1e3,
+              percentile(counts, total, 0.99, longest) / 1e3,
+              longest / 1e3);
+   }
+
+   /**
+    * Forget the durations recorded so far.
+    */
+   public void reset() {
+      for (int i = 0; i < BUCKETS; ++i) {
+         buckets.set(i, 0);
+      }
+      sum.reset();
+      max.set(0);
+   }
+
+   /**
+    * Get the upper bound of the range holding a percentile of the durations.
+    *
+    * @return the duration in nanoseconds, at most the longest one
+    */
+   private static long percentile(long[] counts, long total, double p, long longest) {
+      long rank = (long) Math.ceil(p * total);
+      long seen = 0;
+      for (int i = 0; i < counts.length; ++i) {
+         seen += counts[i];
+         if (seen >= rank && seen > 0) {
+            return Math.min(upperBound(i), longest);
+         }
+      }
+      return longest;
+   }
+
+   /**
+    * Get the range of a duration.
+    */
+   private static int bucket(long nanos) {
+      if (nanos < 4) {
+         return (int) nanos;
+      }
+      int power = 63 - Long.numberOfLeadingZeros(nanos);
+      return 4 + (power - 2) * 4 + (int) ((nanos >>> (power - 2)) & 3);
+   }
+
+   /**
+    * Get the longest duration of a range.
+    */
+   private static long upperBound(int bucket) {
+      if (bucket < 4) {
+         return bucket;
+      }
+      int power = (bucket - 4) / 4 + 2;
+      long lowerBound = (long) (4 + (bucket - 4) % 4) << (power - 2);
+      return lowerBound + (1L << (power - 2)) - 1;
+   }
+}
@@ -0,0 +1,913 @@
+/**
+ * File: AbstractLamport.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import ch.heigvd.prr_labo02_rmi.lamport.concurrent.SerialExecutor;
+import ch.heigvd.prr_labo02_rmi.lamport.journal.Journal;
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.metrics.LamportMetrics;
+import ch.heigvd.prr_labo02_rmi.lamport.state.SharedState;
+import ch.heigvd.prr_labo02_rmi.lamport.state.StateReplica;
+import ch.heigvd.prr_labo02_rmi.lamport.time.LogicalClock;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.FailureDetector;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.RmiTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.Transport;
+import java.rmi.RemoteException;
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The AbstractLamport class holds what every implementation of the Lamport
+ * remote object needs, whatever the mutual exclusion algorithm it uses: the
+ * logical clock, the versioned shared value and the transport of the messages
+ * to the other Lamport applications (RMI by default, see Transport).
+ *
+ * The messages sent to ourself do not go through the transport, but through
+ * a channel of their own (a SerialExecutor) that keeps their emission order.
+ *
+ * The shared value is changed in critical section, but only published with
+ * its version when the critical section is released (or when a more recent
+ * value is received): the versioned reads (getVersionedValue, awaitVersion)
+ * never see a value being changed, and need neither the lock on this object
+ * nor any message.
+ *
+ * A shared state of any kind (see SharedState) may be replicated along with
+ * the shared value, with the same versions. The messages carrying the value
+ * then carry what each application misses of the state: the changes of the
+ * last releases, or a snapshot (see StateReplica).
+ *
+ * The shared value, its version and the logical clock may be journaled on
+ * local disk (see Journal), so that a restarted application recovers them
+ * without the other applications, and rejoins them (see rejoin).
+ *
+ * The applications taking part in the mutual exclusion (the members) may
+ * change while running: numberOfApplications is then the number of ids an
+ * application may have, and the implementations that support it let an
+ * application join (see join and admit) or leave (see leave). Only the
+ * members are sent the messages of the algorithm.
+ *
+ * The metrics of the application (messages, round trips, time waited for and
+ * spent in critical section) are always counted, see LamportMetrics.
+ *
+ * The critical section may be requested without waiting for it (lockAsync,
+ * requestLock). By default, a thread of our own waits in lock() instead of
+ * the caller: the implementations that can be told when the permission
+ * arrives override lockAsync so that no thread waits at all.
+ *
+ * The time waited for the critical section may be bounded (lock(long)). The
+ * applications that stopped answering may also be suspected (see
+ * detectFailures), so that the implementations can go on without them.
+ *
+ * The atomic operations (addAndGet, compareAndSet) lock and unlock the
+ * critical section around the change of the value, so that a user
+ * application needs a single call instead of four.
+ *
+ * The implementations synchronize on the object itself to protect their
+ * state. The messages in flight are counted per application without any
+ * lock, so that the deliveries to different applications never wait for each
+ * other or for the implementation, and so that they cost a single number per
+ * application even with many of them. Please refer to the Lamport interface
+ * definition for information regarding overriden methods.
+ */
+public abstract class AbstractLamport implements Lamport {
+
+   // The threads waiting in lock() for lockAsync, only alive while in use
+   private static final ExecutorService LOCKERS = Executors.newCachedThreadPool(
+           runnable -> {
+              Thread thread = new Thread(runnable, "lamport-locker");
+              thread.setDaemon(true);
+              return thread;
+           });
+
+   // The thread checking the other applications, for every application
+   private static final ScheduledExecutorService DETECTORS =
+           Executors.newSingleThreadScheduledExecutor(runnable -> {
+              Thread thread = new Thread(runnable, "lamport-detector");
+              thread.setDaemon(true);
+              return thread;
+           });
+
+   // The number of Lamport applications and the id of the current one
+   private final int numberOfApplications;
+   protected final int id;
+
+   // The logical clock the Lamport application will use
+   protected final LogicalClock clock;
+
+   // The transport of the messages to the other Lamport applications
+   private final Transport transport;
+
+   // The ordered channel of the messages sent to ourself
+   private final SerialExecutor selfChannel;
+
+   // The number of messages sent to each application and not delivered yet
+   private final AtomicIntegerArray inFlight;
+
+   // The shared value, as changed in critical section
+   private int sharedValue;
+
+   // The shared value as last released, with its version (time stamp and
+   // sender of the release)
+   private volatile VersionedValue releasedValue;
+
+   // The lock the threads waiting for a version wait on
+   private final Object versionLock;
+
+   // The replica of the shared state, null if none is replicated
+   private volatile StateReplica replica;
+
+   // The journal of the shared value and the clock, null if none
+   private volatile Journal journal;
+
+   // The metrics of the application, and when it got the critical section
+   private final LamportMetrics metrics;
+   private volatile long lockedAt;
+
+   // The detector of the failures of the other applications, null if their
+   // failures are not detected
+   private volatile FailureDetector detector;
+
+   // The periodic checks of the detector, null until detectFailures is called
+   private ScheduledFuture<?> checks;
+
+   // The ids of the members, replaced and never changed once published
+   private volatile BitSet members;
+
+   /**
+    * Constructor. The messages are sent with RMI.
+    *
+    * @param rmiAddress the RMI registry address
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param executor the executor used to send the messages to the other
+    * Lamport applications
+    */
+   protected AbstractLamport(String rmiAddress, int numberOfApplications, int id,
+           ExecutorService executor) {
+      this(numberOfApplications, id,
+              new RmiTransport(rmiAddress, numberOfApplications, executor), executor);
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param transport the transport of the messages to the other Lamport
+    * applications
+    * @param executor the executor delivering the messages sent to ourself
+    */
+   protected AbstractLamport(int numberOfApplications, int id, Transport transport,
+           Executor executor) {
+      this(numberOfApplications, id, new LogicalClock(), transport, executor, null);
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param clock the logical clock, which may be shared with other Lamport
+    * objects of the same application
+    * @param transport the transport of the messages to the other Lamport
+    * applications
+    * @param executor the executor delivering the messages sent to ourself
+    * @param metrics the metrics, which may be shared with other Lamport
+    * objects of the same application, null to count our own
+    */
+   protected AbstractLamport(int numberOfApplications, int id, LogicalClock clock,
+           Transport transport, Executor executor, LamportMetrics metrics) {
+      // Save the number of applications and our application id
+      this.numberOfApplications = numberOfApplications;
+      this.id = id;
+
+      this.clock = clock;
+
+      this.transport = transport;
+      selfChannel = new SerialExecutor(executor);
+
+      inFlight = new AtomicIntegerArray(numberOfApplications);
+
+      releasedValue = VersionedValue.INITIAL;
+      versionLock = new Object();
+
+      // Every application is a member until told otherwise
+      members = new BitSet(numberOfApplications);
+      members.set(0, numberOfApplications);
+
+      this.metrics = metrics != null ? metrics
+              : new LamportMetrics(numberOfApplications, clock::getTime,
+                      this::queueDepth, this::owner);
+   }
+
+   /**
+    * Create a thread factory for the threads sending the messages. The
+    * threads are daemons so that they never keep the JVM alive.
+    *
+    * @param id the id of the Lamport application
+    * @return the thread factory
+    */
+   public static ThreadFactory senderThreadFactory(int id) {
+      return runnable -> {
+         Thread thread = new Thread(runnable, "lamport-" + id + "-sender");
+         thread.setDaemon(true);
+         return thread;
+      };
+   }
+
+   /**
+    * Request the critical section without waiting for it. By default, lock()
+    * is called on a thread of our own.
+    *
+    * @return the future completed once the critical section is obtained, or
+    * completed with the RemoteException lock() would throw
+    */
+   public CompletableFuture<Void> lockAsync() {
+      return CompletableFuture.runAsync(() -> {
+         try {
+            lock();
+         } catch (RemoteException ex) {
+            throw new CompletionException(ex);
+         }
+      }, LOCKERS);
+   }
+
+   @Override
+   public boolean lock(long timeout) throws RemoteException {
+      return LockCallbacks.await(this, lockAsync(), timeout);
+   }
+
+   @Override
+   public void requestLock(LockListener listener) throws RemoteException {
+      LockCallbacks.notify(this, lockAsync(), listener);
+   }
+
+   @Override
+   public synchronized int getSharedValue() throws RemoteException {
+      return sharedValue;
+   }
+
+   @Override
+   public synchronized void setSharedValue(int sharedValue) throws RemoteException {
+      // Update the value
+      this.sharedValue = sharedValue;
+   }
+
+   @Override
+   public int addAndGet(int delta) throws RemoteException {
+      lock();
+      try {
+         synchronized(this) {
+            sharedValue += delta;
+            return sharedValue;
+         }
+      } finally {
+         unlock();
+      }
+   }
+
+   @Override
+   public int addAndGet(int delta, int times) throws RemoteException {
+      // Without any addition, the value is still read in critical section
+      int value = addAndGet(times > 0 ? delta : 0);
+      for (int i = 1; i < times; ++i) {
+         value = addAndGet(delta);
+      }
+      return value;
+   }
+
+   @Override
+   public boolean compareAndSet(int expected, int newValue) throws RemoteException {
+      lock();
+      try {
+         synchronized(this) {
+            if (sharedValue != expected) {
+               return false;
+            }
+            sharedValue = newValue;
+            return true;
+         }
+      } finally {
+         unlock();
+      }
+   }
+
+   /**
+    * Replicate a shared state along with the shared value. Every Lamport
+    * application must replicate the same kind of state, set before any
+    * critical section. The state must then only be used in critical section.
+    *
+    * @param state the shared state, as in every application
+    */
+   public void setSharedState(SharedState state) {
+      if (journal != null) {
+         throw new IllegalStateException("The shared state is not journaled");
+      }
+      replica = new StateReplica(state, numberOfApplications);
+   }
+
+   /**
+    * Journal the shared value, its version and the logical clock, after
+    * recovering them from the journal: the value as last released and a
+    * clock above every time stamp sent before. Must be called before any
+    * critical section, and the shared state is not journaled.
+    *
+    * @param journal the journal, used by this application only
+    */
+   public synchronized void setJournal(Journal journal) {
+      if (replica != null) {
+         throw new IllegalStateException("The shared state is not journaled");
+      }
+
+      clock.update(journal.getClockLimit());
+      VersionedValue value = new VersionedValue(journal.getValue(),
+              journal.getValueTimeStamp(), journal.getValueSender());
+      if (value.isNewerThan(releasedValue.getTimeStamp(), releasedValue.getSender())) {
+         sharedValue = value.getValue();
+         publish(value);
+      }
+      this.journal = journal;
+   }
+
+   /**
+    * Tell the other applications that we restarted, once they are reachable.
+    * Nothing by default.
+    */
+   public void rejoin() {
+   }
+
+   /**
+    * Start with some of the applications only, the others may join later
+    * (see join). Must be called before any critical section, with the same
+    * members in every member. An application that will join starts without
+    * any member.
+    *
+    * @param members the ids of the members
+    */
+   public synchronized void setMembers(int[] members) {
+      updateMembers(members);
+   }
+
+   /**
+    * Check if an application is a member.
+    *
+    * @param other the id of the application
+    * @return true if it takes part in the mutual exclusion
+    */
+   public boolean isMember(int other) {
+      return members.get(other);
+   }
+
+   /**
+    * Get the ids of the members.
+    *
+    * @return the ids, in increasing order
+    */
+   public int[] getMembers() {
+      return members.stream().toArray();
+   }
+
+   /**
+    * Get the number of members, including this application if it is one.
+    *
+    * @return the number of members
+    */
+   protected int getNumberOfMembers() {
+      return members.cardinality();
+   }
+
+   /**
+    * Replace the members. A new member may have missed any version of the
+    * shared state, it is sent a snapshot unless the changes of every version
+    * are still kept. Must be called while holding the lock on this object.
+    *
+    * @param members the ids of the members
+    */
+   protected void updateMembers(int[] members) {
+      BitSet updated = new BitSet(numberOfApplications);
+      for (int member : members) {
+         if (member < 0 || member >= numberOfApplications) {
+            throw new IllegalArgumentException("No application has the id " + member);
+         }
+         updated.set(member);
+      }
+
+      StateReplica replica = this.replica;
+      if (replica != null) {
+         for (int i = updated.nextSetBit(0); i >= 0; i = updated.nextSetBit(i + 1)) {
+            if (i != this.id && !this.members.get(i)) {
+               replica.forget(i);
+            }
+         }
+      }
+      this.members = updated;
+   }
+
+   /**
+    * Ask a member to admit this application (see admit), once every member
+    * is reachable. Not supported by default.
+    *
+    * @param sponsor the id of the member
+    * @return the future completed once we are a member, with the snapshot
+    * of the shared value, its version and the logical clock of the sponsor
+    */
+   public CompletableFuture<Void> join(int sponsor) {
+      return unsupported("join");
+   }
+
+   /**
+    * Admit an application asking to join. Must be called in critical
+    * section. Not supported by default.
+    *
+    * @param other the id of the application
+    * @return the future completed once every member knows the new member,
+    * and the new member knows every member
+    */
+   public CompletableFuture<Void> admit(int other) {
+      return unsupported("admit");
+   }
+
+   /**
+    * Leave the members, releasing the critical section. Must be called in
+    * critical section. Not supported by default.
+    *
+    * @return the future completed once every member knows we left
+    */
+   public CompletableFuture<Void> leave() {
+      return unsupported("leave");
+   }
+
+   /**
+    * Create a future failed because an operation is not supported by the
+    * algorithm.
+    */
+   private CompletableFuture<Void> unsupported(String operation) {
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      future.completeExceptionally(new UnsupportedOperationException(
+              getClass().getSimpleName() + " does not support " + operation));
+      return future;
+   }
+
+   /**
+    * Get the shared state replicated along with the shared value. It must
+    * only be used in critical section.
+    *
+    * @return the shared state, null if none is replicated
+    */
+   public SharedState getSharedState() {
+      StateReplica replica = this.replica;
+      return replica == null ? null : replica.getState();
+   }
+
+   @Override
+   public VersionedValue getVersionedValue() throws RemoteException {
+      return releasedValue;
+   }
+
+   @Override
+   public VersionedValue awaitVersion(VersionedValue version, long timeout)
+           throws RemoteException {
+      VersionedValue value = releasedValue;
+      if (value.isAtLeast(version)) {
+         return value;
+      }
+
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+      synchronized(versionLock) {
+         value = releasedValue;
+         while (!value.isAtLeast(version)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+               break;
+            }
+
+            try {
+               TimeUnit.NANOSECONDS.timedWait(versionLock, remaining);
+            } catch (InterruptedException ex) {
+               Logger.getLogger(getClass().getName()).log(Level.SEVERE, null, ex);
+               break;
+            }
+            value = releasedValue;
+         }
+      }
+      return value;
+   }
+
+   /**
+    * Detect the failures of the other applications: an application we
+    * haven't heard from for longer than the timeout, or that a message could
+    * not be sent to, is suspected (see peerSuspected). A HEARTBEAT is sent to
+    * the applications we haven't heard from for a while, so that the idle
+    * ones are heard from as well. Should be called once every application
+    * is started. Calling it again replaces the detector and its checks.
+    *
+    * A suspicion may be wrong, see FailureDetector: the timeout must be well
+    * above the usual round trip time.
+    *
+    * @param timeout the time after which a silent application is suspected,
+    * in milliseconds
+    */
+   public void detectFailures(long timeout) {
+      FailureDetector detector = new FailureDetector(numberOfApplications, id, timeout);
+      synchronized(this) {
+         this.detector = detector;
+         if (checks != null) {
+            checks.cancel(false);
+         }
+         checks = DETECTORS.scheduleWithFixedDelay(() -> checkPeers(detector),
+                 detector.getPeriod(), detector.getPeriod(), TimeUnit.MILLISECONDS);
+      }
+   }
+
+   /**
+    * Send a HEARTBEAT to the applications we haven't heard from for a while,
+    * and report the applications suspected, at every check: a request made
+    * since the last check must not wait for them either.
+    *
+    * @param detector the failure detector
+    */
+   private void checkPeers(FailureDetector detector) {
+      for (int i = 0; i < numberOfApplications; ++i) {
+         // The other applications are not waited for
+         if (!isMember(i)) {
+            continue;
+         }
+
+         if (detector.newlySuspected(i)) {
+            Logger.getLogger(getClass().getName()).log(Level.WARNING,
+                    "The application {0} is suspected to have failed", i);
+         }
+         if (detector.isSuspected(i)) {
+            peerSuspected(i);
+         }
+
+         if (detector.needsHeartbeat(i)) {
+            int other = i;
+            LamportMessage heartbeat;
+            synchronized(this) {
+               heartbeat = createMessage(LamportMessage.Type.HEARTBEAT);
+            }
+            metrics.sent(heartbeat.getType());
+            transport.send(other, heartbeat).whenComplete((response, ex) -> {
+               if (ex == null) {
+                  detector.heard(other);
+               }
+            });
+         }
+      }
+   }
+
+   /**
+    * Check if the failures of the other applications are detected.
+    *
+    * @return true if detectFailures was called
+    */
+   protected boolean detectsFailures() {
+      return detector != null;
+   }
+
+   /**
+    * Called while an application is suspected to have failed, so that the
+    * implementation may go on without it: at every check of the
+    * applications, and whenever a message could not be sent to it. Nothing
+    * by default: the application is only waited for.
+    *
+    * @param other the id of the application
+    */
+   protected void peerSuspected(int other) {
+   }
+
+   /**
+    * Get the metrics of the application.
+    *
+    * @return the metrics
+    */
+   public LamportMetrics getMetrics() {
+      return metrics;
+   }
+
+   /**
+    * Get the number of requests of the critical section waiting to be
+    * served, as known by this application. None by default.
+    *
+    * @return the number of requests
+    */
+   protected int queueDepth() {
+      return 0;
+   }
+
+   /**
+    * Get the id of the application owning the critical section, or next to
+    * own it, as known by this application. Unknown by default.
+    *
+    * @return the id of the application, -1 if unknown
+    */
+   protected int owner() {
+      return -1;
+   }
+
+   /**
+    * Record that we got the critical section.
+    *
+    * @param since the time lock() was called at, from System.nanoTime()
+    */
+   protected void lockAcquired(long since) {
+      lockedAt = System.nanoTime();
+      metrics.lockWait(lockedAt - since);
+   }
+
+   /**
+    * Record that we released the critical section.
+    */
+   protected void lockReleased() {
+      metrics.lockHold(System.nanoTime() - lockedAt);
+   }
+
+   /**
+    * Get the number of Lamport applications, including this one.
+    *
+    * @return the number of applications
+    */
+   protected int getNumberOfApplications() {
+      return numberOfApplications;
+   }
+
+   /**
+    * Check if the messages of a type carry the shared value to the
+    * application receiving them, hence the shared state. By default, only the
+    * RELEASE.
+    *
+    * @param type the type of the messages
+    * @return true if the shared value of the messages is used
+    */
+   protected boolean carriesSharedValue(LamportMessage.Type type) {
+      return type == LamportMessage.Type.RELEASE;
+   }
+
+   /**
+    * Create a message carrying the current time, our id and the shared value
+    * as last released, with its version. Must be called while holding the
+    * lock on this object.
+    *
+    * @param type the type of the message
+    * @return the message
+    */
+   protected LamportMessage createMessage(LamportMessage.Type type) {
+      VersionedValue value = releasedValue;
+      long time = clock.getTime();
+
+      // A restarted application must never send this time stamp again
+      Journal journal = this.journal;
+      if (journal != null) {
+         journal.clockUsed(time);
+      }
+
+      return new LamportMessage(
+              type,
+              time,
+              this.id,
+              value.getValue(),
+              value.getTimeStamp(),
+              value.getSender()
+      );
+   }
+
+   /**
+    * Update the shared value with the value carried by a message, unless we
+    * already have a more recent value. The messages of different applications
+    * travel on different channels and may arrive out of order, the versions
+    * tell which value is the latest. The shared state, if any, is updated as
+    * well. Must be called while holding the lock on this object.
+    *
+    * @param message the message carrying the value
+    */
+   protected void updateSharedValue(LamportMessage message) {
+      VersionedValue value = new VersionedValue(message.getSharedValue(),
+              message.getValueTimeStamp(), message.getValueSender());
+
+      StateReplica replica = this.replica;
+      if (value.isNewerThan(releasedValue.getTimeStamp(), releasedValue.getSender())) {
+         // The value and the state always have the same version
+         if (replica != null && !replica.apply(message.getState(),
+                 value.getTimeStamp(), value.getSender())) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                    "The shared state of the version {0}/{1} is missing",
+                    new Object[]{value.getTimeStamp(), value.getSender()});
+            return;
+         }
+         sharedValue = value.getValue();
+         publish(value);
+      }
+   }
+
+   /**
+    * Update the shared value with the value carried by a message that
+    * doesn't usually carry it, in case it is more recent than ours: we may
+    * have missed its release while we were down. Costs a single comparison
+    * otherwise, without the lock on this object. Not done if a shared state
+    * is replicated: the message doesn't carry it, and the state is not
+    * journaled anyway.
+    *
+    * @param message the message carrying the value
+    */
+   protected void catchUp(LamportMessage message) {
+      if (replica != null
+              || releasedValue.isAtLeast(message.getValueTimeStamp(), message.getValueSender())) {
+         return;
+      }
+
+      synchronized(this) {
+         updateSharedValue(message);
+      }
+   }
+
+   /**
+    * Count a message received, hear from its sender if the failures are
+    * detected, and learn the version of the shared state of its sender if a
+    * state is replicated, so that it is only sent the changes it misses. Must
+    * be called for every message received.
+    *
+    * @param message the message received
+    * @return false if the message is only a HEARTBEAT, which the algorithm
+    * must ignore
+    */
+   protected boolean messageReceived(LamportMessage message) {
+      metrics.received(message.getType());
+
+      FailureDetector detector = this.detector;
+      if (detector != null) {
+         detector.heard(message.getSender());
+      }
+      if (message.getType() == LamportMessage.Type.HEARTBEAT) {
+         return false;
+      }
+
+      StateReplica replica = this.replica;
+      if (replica != null && message.getSender() != this.id) {
+         replica.heard(message.getSender(), message.getValueTimeStamp(),
+                 message.getValueSender());
+      }
+      return true;
+   }
+
+   /**
+    * Give the shared value a new version when we release the critical
+    * section, and publish it. Must be called while holding the lock on this
+    * object.
+    *
+    * @param releaseTimeStamp the time stamp of the release
+    */
+   protected void releaseSharedValue(long releaseTimeStamp) {
+      // The release may be kept without any message (sticky, coalescing):
+      // its time stamp is used all the same
+      Journal journal = this.journal;
+      if (journal != null) {
+         journal.clockUsed(releaseTimeStamp);
+      }
+
+      StateReplica replica = this.replica;
+      if (replica != null) {
+         replica.release(releaseTimeStamp, id);
+      }
+      publish(new VersionedValue(sharedValue, releaseTimeStamp, id));
+   }
+
+   /**
+    * Publish a new released value and wake the threads waiting for a version
+    * up.
+    *
+    * @param value the value with its version
+    */
+   private void publish(VersionedValue value) {
+      Journal journal = this.journal;
+      if (journal != null) {
+         journal.released(value.getValue(), value.getTimeStamp(), value.getSender());
+      }
+
+      releasedValue = value;
+      synchronized(versionLock) {
+         versionLock.notifyAll();
+      }
+   }
+
+   /**
+    * Check if messages sent to an application are not delivered yet. Must be
+    * called while holding the lock on this object.
+    *
+    * @param other the id of the application
+    * @return true if messages are in flight to the application
+    */
+   protected boolean hasInFlight(int other) {
+      return inFlight.get(other) != 0;
+   }
+
+   /**
+    * Send a message to another Lamport application through the transport.
+    * Must be called while holding the lock on this object so that the
+    * message is known to be in flight as soon as it is emitted. A message
+    * sent to ourself goes through our own channel. A message carrying the
+    * shared value to another application also carries what it misses of the
+    * shared state, if any.
+    *
+    * @param other the id of the application to send the message to
+    * @param message the message to send
+    * @return the future response of the application
+    */
+   protected CompletableFuture<LamportMessage> send(int other, LamportMessage message) {
+      StateReplica replica = this.replica;
+      LamportMessage sent = message;
+      if (replica != null && other != this.id && carriesSharedValue(message.getType())) {
+         sent = message.withState(replica.updateFor(other));
+      }
+
+      inFlight.incrementAndGet(other);
+      metrics.sent(message.getType());
+      long sentAt = System.nanoTime();
+
+      CompletableFuture<LamportMessage> response;
+      if (other == this.id) {
+         response = CompletableFuture.supplyAsync(() -> {
+            try {
+               return receive(message);
+            } catch (RemoteException ex) {
+               throw new CompletionException(ex);
+            }
+         }, selfChannel);
+      } else {
+         response = transport.send(other, sent);
+      }
+
+      // The message is delivered once the application has handled it
+      return response.whenComplete((result, ex) -> {
+         inFlight.decrementAndGet(other);
+
+         if (other != this.id) {
+            metrics.roundTrip(other, System.nanoTime() - sentAt);
+            if (result != null) {
+               metrics.received(result.getType());
+            }
+
+            // An application that could not be reached is suspected right away
+            FailureDetector detector = this.detector;
+            if (detector != null) {
+               if (ex == null) {
+                  detector.heard(other);
+               } else {
+                  detector.suspect(other);
+                  peerSuspected(other);
+               }
+            }
+         }
+
+         // Follow the version of the state of the application
+         if (replica != null && other != this.id) {
+            if (ex != null) {
+               replica.forget(other);
+            } else if (result != null) {
+               replica.heard(other, result.getValueTimeStamp(), result.getValueSender());
+            }
+         }
+      });
+   }
+
+   /**
+    * Send a message that expects no response to another Lamport application.
+    * A failure is only logged. Must be called while holding the lock on this
+    * object.
+    *
+    * @param other the id of the application to send the message to
+    * @param message the message to send
+    */
+   protected void post(int other, LamportMessage message) {
+      send(other, message).whenComplete((response, ex) -> {
+         if (ex != null) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE, null, ex);
+         }
+      });
+   }
+
+   /**
+    * Get the cause of a failed send.
+    *
+    * @param ex the error a future completed with
+    * @return the error that occurred while sending
+    */
+   protected static Throwable sendFailure(Throwable ex) {
+      return ex instanceof CompletionException ? ex.getCause() : ex;
+   }
+}
@@ -0,0 +1,392 @@
+/**
+ * File: CombiningLamport.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The CombiningLamport class lets several user applications share a Lamport
+ * application, whatever its algorithm: the algorithms only support one
+ * request of the application at a time, unless pipelined (see below).
+ *
+ * The local users take turns in arrival order. The first one gets the
+ * critical section from the other applications, then each user leaving it
+ * hands it over to the next local user directly, without any message. The
+ * critical section is only released to the other applications when no local
+ * user waits anymore, or after a batch of local critical sections in a row,
+ * so that the other applications get their turn. A single REQUEST and a
+ * single RELEASE are therefore shared by the local users of a batch.
+ *
+ * With the Lamport algorithm, several local users may instead request the
+ * critical section at once, each with its own REQUEST (see LamportImpl): a
+ * pipeline of requests, served in arrival order, whose REQUESTs take their
+ * place in the order of the other applications without waiting for the
+ * RELEASE of the previous one. The critical section is then never handed
+ * over: each user releases it with its own RELEASE.
+ *
+ * A user may also request the critical section without waiting for it
+ * (lockAsync, requestLock): it then waits for its turn in the queue without
+ * any thread, and the critical section is requested to the other
+ * applications asynchronously as well (see AbstractLamport.lockAsync).
+ *
+ * An application asking to join the members (see AbstractLamport.join) is
+ * admitted once we have our turn and the critical section, like a local
+ * user, and an application leaves the same way (see leave).
+ *
+ * The messages of the other applications are handed to the Lamport object
+ * doing the algorithm. Please refer to the Lamport interface definition for
+ * information regarding overriden methods.
+ */
+public class CombiningLamport implements Lamport {
+
+   // The default maximum number of local critical sections in a row
+   public static final int DEFAULT_BATCH = 8;
+
+   // The Lamport object doing the mutual exclusion with the other applications
+   private final AbstractLamport lamport;
+
+   // The maximum number of local critical sections in a row
+   private final int batch;
+
+   // The maximum number of local users requesting the critical section at
+   // once, 1 if they share their requests
+   private final int pipeline;
+
+   // The number of local users having the turn, and the turns of the users
+   // waiting, in arrival order. A user may lock and unlock from different
+   // threads (RMI calls), hence the turns are not owned by threads
+   private int busy;
+   private final ArrayDeque<CompletableFuture<Void>> waiting;
+
+   // Whether we hold the critical section of the other applications, and the
+   // number of local critical sections since we got it. Only changed by the
+   // user in critical section
+   private boolean held;
+   private int combined;
+
+   /**
+    * Constructor.
+    *
+    * @param lamport the Lamport object doing the mutual exclusion with the
+    * other applications
+    * @param batch the maximum number of local critical sections in a row,
+    * before the critical section is released to the other applications
+    */
+   public CombiningLamport(AbstractLamport lamport, int batch) {
+      this(lamport, batch, 1);
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param lamport the Lamport object doing the mutual exclusion with the
+    * other applications
+    * @param batch the maximum number of local critical sections in a row,
+    * before the critical section is released to the other applications
+    * @param pipeline the maximum number of local users requesting the
+    * critical section at once, each with its own request; 1 for the users
+    * to share their requests (batch). Only a LamportImpl, which does not
+    * coalesce its RELEASEs, supports more
+    */
+   public CombiningLamport(AbstractLamport lamport, int batch, int pipeline) {
+      if (batch < 1) {
+         throw new IllegalArgumentException("The batch must be at least 1");
+      }
+      if (pipeline < 1 || (pipeline > 1 && !(lamport instanceof LamportImpl))) {
+         throw new IllegalArgumentException(
+                 "The pipeline must be at least 1, and 1 without LamportImpl");
+      }
+      this.lamport = lamport;
+      this.batch = batch;
+      this.pipeline = pipeline;
+      waiting = new ArrayDeque<>();
+   }
+
+   /**
+    * Get the Lamport object doing the mutual exclusion with the other
+    * applications.
+    *
+    * @return the Lamport object
+    */
+   public AbstractLamport getLamport() {
+      return lamport;
+   }
+
+   @Override
+   public LamportMessage receive(LamportMessage message) throws RemoteException {
+      if (message.getType() == LamportMessage.Type.JOIN) {
+         lamport.messageReceived(message);
+         admit(message.getSender());
+         return null;
+      }
+      return lamport.receive(message);
+   }
+
+   /**
+    * Admit an application asking to join once we have the critical section,
+    * without any thread waiting for it. A failure is only logged.
+    *
+    * @param other the id of the application
+    */
+   private void admit(int other) {
+      lockAsync().thenCompose(v -> lamport.admit(other).whenComplete((result, ex) -> {
+         try {
+            unlock();
+         } catch (RemoteException unlockFailure) {
+            Logger.getLogger(CombiningLamport.class.getName()).log(Level.SEVERE, null,
+                    unlockFailure);
+         }
+      })).whenComplete((result, ex) -> {
+         if (ex != null) {
+            Logger.getLogger(CombiningLamport.class.getName()).log(Level.SEVERE,
+                    "The application " + other + " could not be admitted", ex);
+         }
+      });
+   }
+
+   /**
+    * Leave the members once we have our turn and the critical section (see
+    * AbstractLamport.leave), waiting at most for a timeout. The local users
+    * waiting then fail to lock. If the critical section is not obtained in
+    * time, the lock is abandoned (see lock(long)) and we stay a member; if
+    * the members are not told in time, we left them anyway.
+    *
+    * @param timeout the maximum time to wait, in milliseconds
+    * @return true if the members were told in time, false if the timeout
+    * has passed or if we were interrupted
+    * @throws RemoteException if the members could not be told
+    */
+   public boolean leave(long timeout) throws RemoteException {
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+      if (!lock(timeout)) {
+         return false;
+      }
+      synchronized(this) {
+         held = false;
+      }
+
+      try {
+         lamport.leave().get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+         return true;
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         return false;
+      } catch (ExecutionException ex) {
+         throw new RemoteException("The members could not be told", ex.getCause());
+      } catch (TimeoutException ex) {
+         return false;
+      } finally {
+         nextUser();
+      }
+   }
+
+   @Override
+   public void lock() throws RemoteException {
+      // Wait for our turn
+      CompletableFuture<Void> turn = turn();
+      while (true) {
+         try {
+            turn.get();
+            break;
+         } catch (InterruptedException ex) {
+            Logger.getLogger(CombiningLamport.class.getName()).log(Level.SEVERE, null, ex);
+         } catch (ExecutionException ex) {
+            // A turn is never failed
+            throw new AssertionError(ex);
+         }
+      }
+
+      synchronized(this) {
+         // The previous local user handed the critical section over
+         if (held) {
+            ++combined;
+            return;
+         }
+      }
+
+      try {
+         lamport.lock();
+      } catch (RemoteException | RuntimeException ex) {
+         nextUser();
+         throw ex;
+      }
+
+      synchronized(this) {
+         held = pipeline == 1;
+         combined = 1;
+      }
+   }
+
+   /**
+    * Request the critical section without any thread waiting for it, neither
+    * for our turn nor for the other applications.
+    *
+    * @return the future completed once the critical section is obtained, or
+    * completed with the RemoteException lock() would throw
+    */
+   public CompletableFuture<Void> lockAsync() {
+      return turn().thenCompose(v -> {
+         synchronized(this) {
+            // The previous local user handed the critical section over
+            if (held) {
+               ++combined;
+               return CompletableFuture.completedFuture(null);
+            }
+         }
+
+         CompletableFuture<Void> lock;
+         try {
+            lock = lamport.lockAsync();
+         } catch (RuntimeException ex) {
+            nextUser();
+            throw ex;
+         }
+         return lock.whenComplete((result, ex) -> {
+            if (ex != null) {
+               nextUser();
+            } else {
+               synchronized(this) {
+                  held = pipeline == 1;
+                  combined = 1;
+               }
+            }
+         });
+      });
+   }
+
+   @Override
+   public boolean lock(long timeout) throws RemoteException {
+      return LockCallbacks.await(this, lockAsync(), timeout);
+   }
+
+   @Override
+   public void requestLock(LockListener listener) throws RemoteException {
+      LockCallbacks.notify(this, lockAsync(), listener);
+   }
+
+   @Override
+   public void unlock() throws RemoteException {
+      boolean release;
+      synchronized(this) {
+         if (busy == 0) {
+            throw new IllegalMonitorStateException("The critical section is not locked");
+         }
+
+         // Hand the critical section over to the next local user, if any
+         release = !held || waiting.isEmpty() || combined >= batch;
+         if (release) {
+            held = false;
+         }
+      }
+
+      try {
+         if (release) {
+            lamport.unlock();
+         }
+      } finally {
+         nextUser();
+      }
+   }
+
+   /**
+    * Take a turn.
+    *
+    * @return the future completed once it is our turn
+    */
+   private synchronized CompletableFuture<Void> turn() {
+      if (busy < pipeline) {
+         ++busy;
+         return CompletableFuture.completedFuture(null);
+      }
+
+      CompletableFuture<Void> turn = new CompletableFuture<>();
+      waiting.addLast(turn);
+      return turn;
+   }
+
+   /**
+    * Give the turn to the next local user, if any.
+    */
+   private void nextUser() {
+      CompletableFuture<Void> next;
+      synchronized(this) {
+         next = waiting.pollFirst();
+         if (next == null) {
+            --busy;
+         }
+      }
+
+      if (next != null) {
+         next.complete(null);
+      }
+   }
+
+   @Override
+   public int getSharedValue() throws RemoteException {
+      return lamport.getSharedValue();
+   }
+
+   @Override
+   public void setSharedValue(int sharedValue) throws RemoteException {
+      lamport.setSharedValue(sharedValue);
+   }
+
+   @Override
+   public int addAndGet(int delta) throws RemoteException {
+      lock();
+      try {
+         int value = lamport.getSharedValue() + delta;
+         lamport.setSharedValue(value);
+         return value;
+      } finally {
+         unlock();
+      }
+   }
+
+   @Override
+   public int addAndGet(int delta, int times) throws RemoteException {
+      // Without any addition, the value is still read in critical section
+      int value = addAndGet(times > 0 ? delta : 0);
+      for (int i = 1; i < times; ++i) {
+         value = addAndGet(delta);
+      }
+      return value;
+   }
+
+   @Override
+   public boolean compareAndSet(int expected, int newValue) throws RemoteException {
+      lock();
+      try {
+         if (lamport.getSharedValue() != expected) {
+            return false;
+         }
+         lamport.setSharedValue(newValue);
+         return true;
+      } finally {
+         unlock();
+      }
+   }
+
+   @Override
+   public VersionedValue getVersionedValue() throws RemoteException {
+      return lamport.getVersionedValue();
+   }
+
+   @Override
+   public VersionedValue awaitVersion(VersionedValue version, long timeout)
+           throws RemoteException {
+      return lamport.awaitVersion(version, timeout);
+   }
+}
@@ -0,0 +1,131 @@
+/**
+ * File: KeyedLamport.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import java.rmi.RemoteException;
+
+/**
+ * The KeyedLamport interface represents remote Lamport objects that manage a
+ * critical section and a shared integer value per key. The critical sections
+ * of different keys are independent: the user applications working on
+ * different keys do not wait for each other.
+ *
+ * The methods of the Lamport interface use the critical section and the
+ * value of the default key (the empty string).
+ *
+ * A key lives as long as the application once it has been used, here or by
+ * another application: the number of keys in use must stay bounded.
+ */
+public interface KeyedLamport extends Lamport {
+
+   // The key used by the methods of the Lamport interface
+   public static final String DEFAULT_KEY = "";
+
+   /**
+    * Lock the critical section of a key. Stops the thread until the critical
+    * section has been obtained.
+    * This method should be called by the user application.
+    *
+    * @param key the key
+    * @throws RemoteException
+    */
+   public void lock(String key) throws RemoteException;
+
+   /**
+    * Lock the critical section of a key, unless it could not be obtained in
+    * time. On timeout, the request is abandoned: the critical section is
+    * released as soon as it is obtained.
+    * This method should be called by the user application.
+    *
+    * @param key the key
+    * @param timeout the maximum time to wait, in milliseconds
+    * @return true if the critical section has been obtained and must be
+    * unlocked, false if the timeout has passed
+    * @throws RemoteException
+    */
+   public boolean lock(String key, long timeout) throws RemoteException;
+
+   /**
+    * Request the critical section of a key without waiting for it: the
+    * listener is called back once the critical section has been obtained,
+    * and must then unlock it.
+    * This method should be called by the user application, with a listener
+    * it exported.
+    *
+    * @param key the key
+    * @param listener the listener to call back
+    * @throws RemoteException
+    */
+   public void requestLock(String key, LockListener listener) throws RemoteException;
+
+   /**
+    * Unlock the critical section of a key.
+    * This method should be called by the user application.
+    *
+    * @param key the key
+    * @throws RemoteException
+    */
+   public void unlock(String key) throws RemoteException;
+
+   /**
+    * Get the shared value of a key. This method should be called by the user
+    * application.
+    *
+    * @param key the key
+    * @return the value, 0 if it was never set
+    * @throws RemoteException
+    */
+   public int get(String key) throws RemoteException;
+
+   /**
+    * Set the shared value of a key. The user of this method should use the
+    * lock method with the same key before and the unlock method after
+    * calling it.
+    *
+    * @param key the key
+    * @param value the value
+    * @throws RemoteException
+    */
+   public void set(String key, int value) throws RemoteException;
+
+   /**
+    * Add a value to the shared value of a key inside its critical section,
+    * which is locked and unlocked by the Lamport application itself.
+    * This method should be called by the user application.
+    *
+    * @param key the key
+    * @param delta the value to add
+    * @return the new value
+    * @throws RemoteException
+    */
+   public int addAndGet(String key, int delta) throws RemoteException;
+
+   /**
+    * Get the shared value of a key as last released and known by this
+    * Lamport application, with its version, without locking the critical
+    * section nor sending any message (see Lamport.getVersionedValue()).
+    *
+    * @param key the key
+    * @return the value with its version
+    * @throws RemoteException
+    */
+   public VersionedValue getVersionedValue(String key) throws RemoteException;
+
+   /**
+    * Wait until the value of a key known by this Lamport application is at
+    * least as recent as a version, then get it (see Lamport.awaitVersion()).
+    *
+    * @param key the key
+    * @param version the version to wait for
+    * @param timeout the maximum time to wait, in milliseconds
+    * @return the value with its version, older than the given version if the
+    * time ran out
+    * @throws RemoteException
+    */
+   public VersionedValue awaitVersion(String key, VersionedValue version, long timeout)
+           throws RemoteException;
+}
@@ -0,0 +1,297 @@
+/**
+ * File: KeyedLamportImpl.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.KeyedMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.metrics.LamportMetrics;
+import ch.heigvd.prr_labo02_rmi.lamport.time.LogicalClock;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.RmiTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.Transport;
+import java.rmi.RemoteException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The KeyedLamportImpl is an implementation of the KeyedLamport remote object
+ * using the Lamport algorithm for each key.
+ *
+ * Each key has its own LamportImpl, created the first time the key is used
+ * here or by another application: its own queue of requests, its own shared
+ * value and its own messages in flight. The keys share the logical clock and
+ * the transport, hence the connections to the other applications. The keys
+ * are hashed into a fixed number of lanes (see Transport.lane()): only the
+ * messages of a key need to stay ordered, and the keys of different lanes do
+ * not wait for each other's messages. The messages are tagged with the
+ * key (see KeyedMessage), and a message without a key belongs to the default
+ * key.
+ *
+ * The local users of a key take turns and share its requests (see
+ * CombiningLamport), so that several user applications can use the same key
+ * of a KeyedLamportImpl.
+ *
+ * The keys share the metrics of the application: the messages and times of
+ * every key are counted together, and the queue depth is the sum of the
+ * queues of the keys. The owner is not known, since each key has its own.
+ *
+ * The keys are never forgotten: each of them keeps its queue of requests and
+ * its value, a few objects per application in use. The channels of the
+ * transport are bounded by the number of lanes, whatever the number of keys.
+ *
+ * Please refer to the KeyedLamport and Lamport interface definitions for
+ * information regarding overriden methods.
+ */
+public class KeyedLamportImpl implements KeyedLamport {
+
+   // The number of lanes the keys are hashed into
+   private static final int LANES = 16;
+
+   // The number of Lamport applications and the id of the current one
+   private final int numberOfApplications;
+   private final int id;
+
+   // The logical clock shared by the keys
+   private final LogicalClock clock;
+
+   // The lanes of the transport to the other Lamport applications, shared by
+   // the keys hashed into them
+   private final Transport[] lanes;
+
+   // The executor delivering the messages sent to ourself
+   private final Executor executor;
+
+   // Whether the keys keep the ownership of their critical section
+   private final boolean sticky;
+
+   // The maximum number of local critical sections of a key in a row
+   private final int batch;
+
+   // The critical section and shared value of each key
+   private final ConcurrentHashMap<String, CombiningLamport> keys;
+
+   // The metrics shared by the keys
+   private final LamportMetrics metrics;
+
+   /**
+    * Constructor. The messages are sent using a cached thread pool.
+    *
+    * @param rmiAddress the RMI registry address
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    */
+   public KeyedLamportImpl(String rmiAddress, int numberOfApplications, int id) {
+      this(rmiAddress, numberOfApplications, id,
+              Executors.newCachedThreadPool(AbstractLamport.senderThreadFactory(id)));
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param rmiAddress the RMI registry address
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param executor the executor used to send the messages to the other
+    * Lamport applications
+    */
+   public KeyedLamportImpl(String rmiAddress, int numberOfApplications, int id,
+           ExecutorService executor) {
+      this(numberOfApplications, id,
+              new RmiTransport(rmiAddress, numberOfApplications, executor), executor,
+              false, CombiningLamport.DEFAULT_BATCH);
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param transport the transport of the messages to the other Lamport
+    * applications
+    * @param executor the executor delivering the messages sent to ourself
+    * @param sticky whether each key keeps the ownership of its critical
+    * section after unlock() until another application requests it
+    * @param batch the maximum number of local critical sections of a key in a
+    * row, before it is released to the other applications
+    */
+   public KeyedLamportImpl(int numberOfApplications, int id, Transport transport,
+           Executor executor, boolean sticky, int batch) {
+      if (batch < 1) {
+         throw new IllegalArgumentException("The batch must be at least 1");
+      }
+      this.numberOfApplications = numberOfApplications;
+      this.id = id;
+      this.clock = new LogicalClock();
+      lanes = new Transport[LANES];
+      for (int i = 0; i < lanes.length; ++i) {
+         lanes[i] = transport.lane();
+      }
+      this.executor = executor;
+      this.sticky = sticky;
+      this.batch = batch;
+      keys = new ConcurrentHashMap<>();
+      metrics = new LamportMetrics(numberOfApplications, clock::getTime,
+              this::queueDepth, () -> -1);
+   }
+
+   @Override
+   public LamportMessage receive(LamportMessage message) throws RemoteException {
+      String key = message instanceof KeyedMessage
+              ? ((KeyedMessage) message).getKey()
+              : DEFAULT_KEY;
+      return lamport(key).receive(message);
+   }
+
+   @Override
+   public void lock(String key) throws RemoteException {
+      lamport(key).lock();
+   }
+
+   @Override
+   public boolean lock(String key, long timeout) throws RemoteException {
+      return lamport(key).lock(timeout);
+   }
+
+   @Override
+   public void requestLock(String key, LockListener listener) throws RemoteException {
+      lamport(key).requestLock(listener);
+   }
+
+   @Override
+   public void unlock(String key) throws RemoteException {
+      lamport(key).unlock();
+   }
+
+   @Override
+   public int get(String key) throws RemoteException {
+      return lamport(key).getSharedValue();
+   }
+
+   @Override
+   public void set(String key, int value) throws RemoteException {
+      lamport(key).setSharedValue(value);
+   }
+
+   @Override
+   public int addAndGet(String key, int delta) throws RemoteException {
+      return lamport(key).addAndGet(delta);
+   }
+
+   @Override
+   public VersionedValue getVersionedValue(String key) throws RemoteException {
+      return lamport(key).getVersionedValue();
+   }
+
+   @Override
+   public VersionedValue awaitVersion(String key, VersionedValue version, long timeout)
+           throws RemoteException {
+      return lamport(key).awaitVersion(version, timeout);
+   }
+
+   @Override
+   public void lock() throws RemoteException {
+      lock(DEFAULT_KEY);
+   }
+
+   @Override
+   public boolean lock(long timeout) throws RemoteException {
+      return lock(DEFAULT_KEY, timeout);
+   }
+
+   @Override
+   public void requestLock(LockListener listener) throws RemoteException {
+      requestLock(DEFAULT_KEY, listener);
+   }
+
+   @Override
+   public void unlock() throws RemoteException {
+      unlock(DEFAULT_KEY);
+   }
+
+   @Override
+   public int getSharedValue() throws RemoteException {
+      return get(DEFAULT_KEY);
+   }
+
+   @Override
+   public void setSharedValue(int sharedValue) throws RemoteException {
+      set(DEFAULT_KEY, sharedValue);
+   }
+
+   @Override
+   public int addAndGet(int delta) throws RemoteException {
+      return addAndGet(DEFAULT_KEY, delta);
+   }
+
+   @Override
+   public int addAndGet(int delta, int times) throws RemoteException {
+      return lamport(DEFAULT_KEY).addAndGet(delta, times);
+   }
+
+   @Override
+   public boolean compareAndSet(int expected, int newValue) throws RemoteException {
+      return lamport(DEFAULT_KEY).compareAndSet(expected, newValue);
+   }
+
+   @Override
+   public VersionedValue getVersionedValue() throws RemoteException {
+      return getVersionedValue(DEFAULT_KEY);
+   }
+
+   @Override
+   public VersionedValue awaitVersion(VersionedValue version, long timeout)
+           throws RemoteException {
+      return awaitVersion(DEFAULT_KEY, version, timeout);
+   }
+
+   /**
+    * Get the metrics of the application, shared by the keys.
+    *
+    * @return the metrics
+    */
+   public LamportMetrics getMetrics() {
+      return metrics;
+   }
+
+   /**
+    * Get the number of requests waiting to be served, for every key.
+    *
+    * @return the number of requests
+    */
+   private int queueDepth() {
+      int requests = 0;
+      for (CombiningLamport lamport : keys.values()) {
+         requests += ((LamportImpl) lamport.getLamport()).queueDepth();
+      }
+      return requests;
+   }
+
+   /**
+    * Get the Lamport object of a key, created the first time the key is used.
+    * Its messages are tagged with the key and sent on the lane of its hash.
+    *
+    * @param key the key
+    * @return the Lamport object of the key
+    */
+   private CombiningLamport lamport(String key) {
+      if (key == null) {
+         throw new IllegalArgumentException("The key cannot be null");
+      }
+
+      CombiningLamport lamport = keys.get(key);
+      if (lamport != null) {
+         return lamport;
+      }
+      return keys.computeIfAbsent(key, k -> {
+         Transport lane = lanes[Math.floorMod(k.hashCode(), lanes.length)];
+         return new CombiningLamport(new LamportImpl(numberOfApplications, id, clock,
+                 (other, message) -> lane.send(other, new KeyedMessage(k, message)),
+                 executor, sticky, metrics), batch);
+      });
+   }
+}
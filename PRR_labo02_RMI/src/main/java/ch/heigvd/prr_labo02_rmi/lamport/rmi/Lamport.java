@@ -30,6 +30,15 @@ public interface Lamport extends Remote {
     */
    public LamportMessage receive(LamportMessage message) throws RemoteException;
    
+   /**
+    * Do nothing: the transports call it to check that the application
+    * answers, without taking its lock nor counting a message.
+    * 
+    * @throws RemoteException 
+    */
+   public default void ping() throws RemoteException {
+   }
+   
    /**
     * Lock the critical section. Stops the thread until the critical section
     * has been obtained.
@@ -39,6 +48,32 @@ public interface Lamport extends Remote {
     */
    public void lock() throws RemoteException;
    
+   /**
+    * Lock the critical section, unless it could not be obtained in time.
+    * Stops the thread until the critical section has been obtained or the
+    * timeout has passed. On timeout, the request is abandoned: the critical
+    * section is released as soon as it is obtained.
+    * This method should be called by the user application.
+    * 
+    * @param timeout the maximum time to wait, in milliseconds
+    * @return true if the critical section has been obtained and must be
+    * unlocked, false if the timeout has passed
+    * @throws java.rmi.RemoteException
+    */
+   public boolean lock(long timeout) throws RemoteException;
+   
+   /**
+    * Request the critical section without waiting for it: the listener is
+    * called back once the critical section has been obtained, and must then
+    * unlock it. No thread of the Lamport application waits meanwhile.
+    * This method should be called by the user application, with a listener
+    * it exported.
+    * 
+    * @param listener the listener to call back
+    * @throws java.rmi.RemoteException
+    */
+   public void requestLock(LockListener listener) throws RemoteException;
+   
    /**
     * Unlock the critical section. This method sends a message to all other 
     * Lamport applications to notify them from the release of the critical 
@@ -66,4 +101,78 @@ public interface Lamport extends Remote {
     * @throws RemoteException 
     */
    public void setSharedValue(int sharedValue) throws RemoteException;
+   
+   /**
+    * Add a value to the shared variable inside the critical section, which
+    * is locked and unlocked by the Lamport application itself.
+    * This method should be called by the user application.
+    * 
+    * @param delta the value to add
+    * @return the new value
+    * @throws RemoteException 
+    */
+   public int addAndGet(int delta) throws RemoteException;
+   
+   /**
+    * Add a value to the shared variable several times, each time in its own
+    * critical section, which is locked and unlocked by the Lamport
+    * application itself.
+    * This method should be called by the user application.
+    * 
+    * @param delta the value to add
+    * @param times the number of additions
+    * @return the value after the last addition, or the value read in a
+    * critical section of its own if there is none
+    * @throws RemoteException 
+    */
+   public int addAndGet(int delta, int times) throws RemoteException;
+   
+   /**
+    * Set the value of the shared variable inside the critical section if it
+    * is the expected one. The critical section is locked and unlocked by the
+    * Lamport application itself.
+    * This method should be called by the user application.
+    * 
+    * @param expected the expected value
+    * @param newValue the new value
+    * @return true if the value was set
+    * @throws RemoteException 
+    */
+   public boolean compareAndSet(int expected, int newValue) throws RemoteException;
+   
+   /**
+    * Get the shared value as last released and known by this Lamport
+    * application, with its version, without locking the critical section nor
+    * sending any message. The value may be outdated: a more recent release of
+    * another application may not have reached us yet, or never reach us
+    * before we enter the critical section ourself, when the algorithm does
+    * not send the RELEASE to every application (see awaitVersion).
+    * This method should be called by the user application.
+    * 
+    * @return the value with its version
+    * @throws RemoteException 
+    */
+   public VersionedValue getVersionedValue() throws RemoteException;
+   
+   /**
+    * Wait until the value known by this Lamport application is at least as
+    * recent as a version, then get it, without locking the critical section
+    * nor sending any message. The version is usually the one a user
+    * application got after its own release, on another Lamport application.
+    * The values reach the other applications with the RELEASE messages. The
+    * Ricart and Agrawala algorithm, the token based algorithm and the sticky
+    * mode do not send any, and the quorum based algorithm (Maekawa) only
+    * sends them to the quorum of the releasing application: a value then
+    * only reaches the other applications when they enter the critical
+    * section, and the time may run out.
+    * This method should be called by the user application.
+    * 
+    * @param version the version to wait for
+    * @param timeout the maximum time to wait, in milliseconds
+    * @return the value with its version, older than the given version if the
+    * time ran out
+    * @throws RemoteException 
+    */
+   public VersionedValue awaitVersion(VersionedValue version, long timeout)
+           throws RemoteException;
 }
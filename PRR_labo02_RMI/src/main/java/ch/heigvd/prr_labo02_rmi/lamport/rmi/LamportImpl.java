@@ -7,265 +7,1277 @@
 package ch.heigvd.prr_labo02_rmi.lamport.rmi;
 
 import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.message.MembershipMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.metrics.LamportMetrics;
 import ch.heigvd.prr_labo02_rmi.lamport.time.LogicalClock;
-import java.rmi.NotBoundException;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.RmiTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.Transport;
 import java.rmi.RemoteException;
-import java.rmi.registry.LocateRegistry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * The LamportImpl is the implementation of the Lamport remote object. Its 
+ * The LamportImpl is the implementation of the Lamport remote object. Its
  * purpose is to store the shared integer value, and use the Lamport algorithm
- * to manage the critical section and to share the value across the different 
- * Lamport applications. 
- * 
+ * to manage the critical section and to share the value across the different
+ * Lamport applications.
+ *
+ * The messages are sent to every other Lamport application at once and the
+ * RECEIPT responses are handled as soon as they arrive. Getting the critical
+ * section therefore costs about one round-trip whatever the number of
+ * applications.
+ *
+ * The Lamport algorithm needs FIFO channels, but a RECEIPT travels back on the
+ * RMI call and could overtake the messages still waiting in our channel to the
+ * requesting application. While such messages exist, the RECEIPT is sent
+ * through the channel after them instead, and a stored message is only ever
+ * replaced by a more recent one.
+ *
+ * The RECEIPTs, which are most of the messages received, are handled without
+ * the lock on this object: the stored messages are replaced atomically and
+ * the thread waiting for the critical section is only woken up (on its own,
+ * with LockSupport) once it has the permission. The REQUEST and RELEASE
+ * messages still take the lock: a RECEIPT must be created and returned
+ * atomically with our own messages to its application to keep the channel
+ * FIFO.
+ *
+ * The permission to enter the critical section is not checked by going
+ * through the messages of every application: while we request the critical
+ * section, we count the applications we haven't heard from since our REQUEST
+ * (whose stored message is not more recent than it). Each message stored
+ * lowers the count at most once, and we have the permission when it reaches
+ * zero. A message received therefore costs O(1), and a REQUEST O(N) once.
+ *
+ * The critical section may also be requested without any thread waiting
+ * for it (lockAsync): the future is completed by the thread handling the
+ * message that gives the permission, instead of waking a thread up.
+ *
+ * If the failures of the other applications are detected (see
+ * detectFailures), a suspected application no longer holds our requests
+ * back: it is dropped from the members as if it had left, and a request it
+ * could not be sent is not a failure (it is suspected instead). Its messages
+ * are refused from then on, so that a release it made while we went on
+ * without it never overwrites ours: an application wrongly suspected must
+ * join the members again. The mutual exclusion is still only kept as long
+ * as the suspicions are right.
+ *
+ * A REQUEST is not answered while we request the critical section: our
+ * own REQUEST was sent to the requesting application already. If it is
+ * newer, it tells the application that we heard from it, and the RECEIPT
+ * is not needed. If it is older, the application waits for our RELEASE
+ * anyway. An application that restarted (see rejoin) lost our REQUEST, it
+ * is sent again. A RECEIPT carrying a more recent
+ * shared value than ours updates it as well, so that a restarted
+ * application catches up with the last release it missed, and only it.
+ *
+ * The members may change while running (see AbstractLamport). A member is
+ * admitted in critical section by a member it asked to join (its sponsor),
+ * which sends the new members to every other member first, then to the new
+ * member only once they all know it: the new member gets the shared value,
+ * its version and the logical clock of its sponsor, and no member answers
+ * it before knowing it. A member requesting the critical section when it
+ * learns of a new member sends it its REQUEST and waits for it as well, so
+ * that the new member knows every older request. A member leaves in critical
+ * section, with a LEAVE that releases it: it is no longer waited for, even
+ * by the requests it did not answer.
+ *
+ * Several requests of the application may be pending at once (pipelined
+ * requests, see CombiningLamport): a REQUEST sent while our previous one is
+ * pending takes its place in the order of every application right away,
+ * without waiting for the RELEASE of the previous one. The requests of an
+ * application are served in the order it sent them, so a RELEASE always
+ * releases the oldest one: the next REQUEST of the application then becomes
+ * its last message, the newer ones waiting behind it. Our own next REQUEST
+ * likewise becomes our pending request once we released the previous one,
+ * and is only counted from then on.
+ *
+ * The RELEASE may also wait a little (see setReleaseLinger), so that our
+ * next REQUEST, if it comes by then, releases the critical section instead:
+ * a newer REQUEST replaces our last one in the view of every application,
+ * and carries the shared value. A single message per application is then
+ * sent per critical section instead of two. The RELEASE is sent once the
+ * time has passed, or as soon as another application requests the critical
+ * section.
+ *
+ * In sticky mode, the application keeps the ownership of the critical
+ * section after unlock() as long as no other application has a pending
+ * REQUEST: our REQUEST stays the oldest one, so we can enter the critical
+ * section again without any message. The RELEASE, with the shared value, is
+ * only sent when a REQUEST arrives. The values of the other applications are
+ * therefore only updated when they ask for the critical section.
+ *
  * Please refer to the Lamport interface definition for information
  * regarding overriden methods.
  */
-public class LamportImpl implements Lamport {
+public class LamportImpl extends AbstractLamport {
 
-   // RMI registry address and the id of the current Lamport application
-   private final String rmiAddress;
-   private final int id;
+   // The thread sending the RELEASEs that waited for our next REQUEST in
+   // vain, only alive while in use
+   private static final ScheduledThreadPoolExecutor RELEASES;
 
-   // The logical clock the Lamport application will use
-   private final LogicalClock clock;
-
-   // Array of Lamport applications to communicate with
-   private final Lamport[] lamportApplications;
+   static {
+      RELEASES = new ScheduledThreadPoolExecutor(1, runnable -> {
+         Thread thread = new Thread(runnable, "lamport-releases");
+         thread.setDaemon(true);
+         return thread;
+      });
+      RELEASES.setKeepAliveTime(1, TimeUnit.SECONDS);
+      RELEASES.allowCoreThreadTimeOut(true);
+      RELEASES.setRemoveOnCancelPolicy(true);
+   }
 
    // Array of LamporMessage instances received (or emitted)
-   private final LamportMessage[] lamportMessages;
+   private final AtomicReferenceArray<LamportMessage> lamportMessages;
+
+   // Our pending REQUEST, null when we don't request the critical section
+   private volatile PendingRequest pendingRequest;
+
+   // Our REQUESTs sent while an older one is pending, and the REQUESTs each
+   // application sent while an older one is pending (null until the first
+   // one), the oldest first
+   private final ArrayDeque<PendingRequest> queuedRequests;
+   private final List<ArrayDeque<LamportMessage>> queuedMessages;
+
+   // The time stamp of the last REQUEST each application was counted for
+   private final AtomicLongArray heardSince;
+
+   // The applications dropped from the members once suspected
+   private final BitSet dropped;
 
-   // The shared value
-   private int sharedValue;
+   // The threads waiting for the critical section
+   private final ConcurrentLinkedQueue<Thread> waiters;
+
+   // Whether we keep the ownership of the critical section after unlock()
+   private final boolean sticky;
+
+   // Whether we are in critical section, or kept its ownership after it
+   private boolean inCriticalSection;
+   private boolean ownershipKept;
+
+   // The future completed once we are admitted, null if we never joined
+   private volatile CompletableFuture<Void> joining;
+
+   // The time a RELEASE waits for our next REQUEST in microseconds, 0 if it
+   // is sent at once, whether a RELEASE waits, and the timer sending it
+   private volatile long releaseLinger;
+   private boolean releaseDeferred;
+   private ScheduledFuture<?> releaseTimer;
+
+   // The executor of the timers of the RELEASEs waiting
+   private volatile ScheduledExecutorService releaseTimers;
 
    /**
-    * Constructor.
+    * Constructor. The messages are sent using a cached thread pool.
     *
     * @param rmiAddress the RMI registry address
     * @param numberOfApplications the number of Lamport application in use
     * @param id the id of this specific Lamport application
     */
    public LamportImpl(String rmiAddress, int numberOfApplications, int id) {
-      // Save the RMI registry address and our application id
-      this.rmiAddress = rmiAddress;
-      this.id = id;
-      
-      // Create a clock
-      clock = new LogicalClock();
-      
-      // Create the array of RMI distant Lamport objects
-      lamportApplications = new Lamport[numberOfApplications];
-      
+      this(rmiAddress, numberOfApplications, id,
+              Executors.newCachedThreadPool(senderThreadFactory(id)));
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param rmiAddress the RMI registry address
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param executor the executor used to send the messages to the other
+    * Lamport applications
+    */
+   public LamportImpl(String rmiAddress, int numberOfApplications, int id,
+           ExecutorService executor) {
+      this(rmiAddress, numberOfApplications, id, executor, false);
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param rmiAddress the RMI registry address
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param executor the executor used to send the messages to the other
+    * Lamport applications
+    * @param sticky whether to keep the ownership of the critical section
+    * after unlock() until another application requests it
+    */
+   public LamportImpl(String rmiAddress, int numberOfApplications, int id,
+           ExecutorService executor, boolean sticky) {
+      this(numberOfApplications, id,
+              new RmiTransport(rmiAddress, numberOfApplications, executor), executor,
+              sticky);
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param transport the transport of the messages to the other Lamport
+    * applications
+    * @param executor the executor delivering the messages sent to ourself
+    * @param sticky whether to keep the ownership of the critical section
+    * after unlock() until another application requests it
+    */
+   public LamportImpl(int numberOfApplications, int id, Transport transport,
+           Executor executor, boolean sticky) {
+      this(numberOfApplications, id, new LogicalClock(), transport, executor, sticky,
+              null);
+   }
+
+   /**
+    * Constructor for the critical section of a key (see KeyedLamportImpl).
+    *
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param clock the logical clock shared by the keys of the application
+    * @param transport the transport of the messages of the key to the other
+    * Lamport applications
+    * @param executor the executor delivering the messages sent to ourself
+    * @param sticky whether to keep the ownership of the critical section
+    * after unlock() until another application requests it
+    * @param metrics the metrics shared by the keys of the application, null
+    * to count our own
+    */
+   LamportImpl(int numberOfApplications, int id, LogicalClock clock,
+           Transport transport, Executor executor, boolean sticky,
+           LamportMetrics metrics) {
+      super(numberOfApplications, id, clock, transport, executor, metrics);
+      this.sticky = sticky;
+
       // Create the array of received  messages
-      lamportMessages = new LamportMessage[numberOfApplications];
-      
-      // Initialize the array to an array of RELEASE messages
-      for (int i = 0; i < lamportMessages.length; ++i) {
-         lamportMessages[i] = new LamportMessage(
-                 LamportMessage.Type.RELEASE, 
-                 0, 
-                 this.id, 
-                 sharedValue
-         );
+      lamportMessages = new AtomicReferenceArray<>(numberOfApplications);
+
+      // Initialize the array to an array of RELEASE messages, which are
+      // immutable and therefore shared
+      LamportMessage initial = new LamportMessage(
+              LamportMessage.Type.RELEASE,
+              0,
+              this.id,
+              0
+      );
+      for (int i = 0; i < lamportMessages.length(); ++i) {
+         lamportMessages.set(i, initial);
       }
+
+      queuedRequests = new ArrayDeque<>();
+      queuedMessages = new ArrayList<>(Collections.nCopies(numberOfApplications,
+              (ArrayDeque<LamportMessage>) null));
+      heardSince = new AtomicLongArray(numberOfApplications);
+      dropped = new BitSet(numberOfApplications);
+      waiters = new ConcurrentLinkedQueue<>();
+      releaseTimers = RELEASES;
    }
 
    @Override
-   public synchronized LamportMessage receive(LamportMessage message) throws RemoteException {
+   public LamportMessage receive(LamportMessage message) throws RemoteException {
+      if (!messageReceived(message)) {
+         return null;
+      }
+
+      // Admitting needs the critical section while the application is in
+      // use, see CombiningLamport
+      if (message.getType() == LamportMessage.Type.JOIN) {
+         Logger.getLogger(LamportImpl.class.getName()).log(Level.WARNING,
+                 "The application {0} cannot be admitted without a CombiningLamport",
+                 message.getSender());
+         return null;
+      }
+
+      // A RECEIPT sent through the channel, handled without the lock
+      if (message.getType() == LamportMessage.Type.RECEIPT) {
+         receiveReceipt(message);
+         return null;
+      }
+
+      synchronized(this) {
+         return receiveInLock(message);
+      }
+   }
+
+   /**
+    * Handle a REQUEST, a RELEASE, a LEAVE or the new members. Must be called
+    * while holding the lock on this object.
+    *
+    * @param message the message received
+    * @return the response to the message
+    * @throws RemoteException if the sender was dropped from the members
+    */
+   private LamportMessage receiveInLock(LamportMessage message) throws RemoteException {
+      // An application dropped once suspected must join the members again
+      if (dropped.get(message.getSender()) && !isMember(message.getSender())) {
+         throw new RemoteException("The application " + message.getSender()
+                 + " was dropped from the members");
+      }
+
       // Update our clock
       clock.update(message.getTimeStamp());
-      
-      // Store the message (Which is either a RELEASE or a REQUEST)
-      lamportMessages[message.getSender()] = message;
-      
+
+      // The new members are not the last message of their sender, which
+      // sends them in critical section
+      if (message.getType() == LamportMessage.Type.MEMBERS) {
+         receiveMembers((MembershipMessage) message);
+         return null;
+      }
+
+      // Store the message, or queue a REQUEST behind the older one
+      if (message.getType() == LamportMessage.Type.REQUEST) {
+         storeRequest(message);
+      } else {
+         storeRelease(message);
+      }
+
       // The response we will return
       LamportMessage response = null;
 
       // Answer according to the type of message
       if (message.getType() == LamportMessage.Type.REQUEST) {
-         // Create a RECEIPT
-         response = new LamportMessage(
-                 LamportMessage.Type.RECEIPT,
-                 clock.getTime(),
-                 this.id,
-                 sharedValue
-         );
-      } else if (message.getType() == LamportMessage.Type.RELEASE) {
+         // A REQUEST that released the critical section carries the value
+         if (message.getState() != null) {
+            updateSharedValue(message);
+         } else {
+            catchUp(message);
+         }
+
+         // Hand the ownership we kept over, the RELEASE goes first
+         if (ownershipKept) {
+            ownershipKept = false;
+            releaseCriticalSection();
+         }
+         if (releaseDeferred) {
+            sendDeferredRelease();
+         }
+
+         // Create a RECEIPT, unless we have a REQUEST: it was sent to the
+         // application already, and stands for the RECEIPT if it is newer
+         if (lamportMessages.get(this.id).getType() == LamportMessage.Type.REQUEST) {
+            getMetrics().receiptSuppressed();
+         } else {
+            LamportMessage receipt = createMessage(LamportMessage.Type.RECEIPT);
+
+            // A returned RECEIPT would overtake the messages not delivered yet
+            if (hasInFlight(message.getSender())) {
+               post(message.getSender(), receipt);
+            } else {
+               getMetrics().sent(receipt.getType());
+               response = receipt;
+            }
+         }
+      } else if (message.getType() == LamportMessage.Type.RELEASE
+              || message.getType() == LamportMessage.Type.LEAVE
+              || message.getType() == LamportMessage.Type.REJOIN) {
          // Update the shared value
-         setSharedValue(message.getSharedValue());
+         updateSharedValue(message);
+      }
+
+      // The application restarted and lost our pending REQUESTs, which the
+      // RECEIPTs we don't send stand for
+      PendingRequest pending = pendingRequest;
+      if (message.getType() == LamportMessage.Type.REJOIN && pending != null) {
+         sendRequest(message.getSender(), pending);
+         for (PendingRequest queued : queuedRequests) {
+            sendRequest(message.getSender(), queued);
+         }
       }
 
-      // If we are waiting for a critical section and have permission
-      LamportMessage myLastMessage = lamportMessages[this.id];
-      
-      // Notify the application if it is waiting for critical section
-      if (myLastMessage.getType() == LamportMessage.Type.REQUEST
-              && criticalSectionPermission()) {
-         this.notify();
+      // The application that left is no longer waited for
+      if (message.getType() == LamportMessage.Type.LEAVE) {
+         memberLeft(message.getSender());
       }
-      
+
+      // Wake the application up if it is waiting for critical section
+      wakeIfPermission();
+
       return response;
    }
-   
+
    @Override
    public void lock() throws RemoteException{
-      // Request the critical section
-      requestCriticalSection();
+      long since = System.nanoTime();
+
+      if (!isMember(this.id)) {
+         throw new RemoteException("The application is not a member");
+      }
 
-      // If we don't have the permission, we wait
       synchronized(this) {
-         if (!criticalSectionPermission()) {
-            try {
-               this.wait();
-            } catch (InterruptedException ex) {
-               Logger.getLogger(LamportImpl.class.getName()).log(Level.SEVERE, null, ex);
+         // Enter right away if we kept the ownership of the critical section
+         if (ownershipKept) {
+            ownershipKept = false;
+            inCriticalSection = true;
+            lockAcquired(since);
+            return;
+         }
+      }
+
+      // Request the critical section
+      PendingRequest pending = requestCriticalSection(since, null);
+
+      // If we don't have the permission, we wait to be woken up
+      Thread current = Thread.currentThread();
+      waiters.add(current);
+      try {
+         while (!(pendingRequest == pending && criticalSectionPermission())
+                 && pending.failure == null) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+               Logger.getLogger(LamportImpl.class.getName()).log(Level.SEVERE, null,
+                       new InterruptedException());
             }
          }
+      } finally {
+         waiters.remove(current);
+      }
+
+      Throwable failure;
+      synchronized(this) {
+         failure = pending.failure;
+         inCriticalSection = failure == null;
+      }
+
+      // If an application could not be reached, report it like a failed call
+      if (failure != null) {
+         throw new RemoteException("The critical section could not be requested",
+                 failure);
       }
+      lockAcquired(since);
    }
 
+   /**
+    * Request the critical section without any thread waiting for it. The
+    * future is completed by the thread handling the message that gives us
+    * the permission: its dependents must not wait.
+    */
    @Override
-   public void unlock() throws RemoteException {
-      // Release the critical section and notify the other applications of the change
-      releaseCriticalSection();  
+   public CompletableFuture<Void> lockAsync() {
+      long since = System.nanoTime();
+
+      if (!isMember(this.id)) {
+         CompletableFuture<Void> lock = new CompletableFuture<>();
+         lock.completeExceptionally(new RemoteException("The application is not a member"));
+         return lock;
+      }
+
+      synchronized(this) {
+         // Enter right away if we kept the ownership of the critical section
+         if (ownershipKept) {
+            ownershipKept = false;
+            inCriticalSection = true;
+            lockAcquired(since);
+            return CompletableFuture.completedFuture(null);
+         }
+      }
+
+      // Request the critical section, we may already have the permission
+      CompletableFuture<Void> lock = new CompletableFuture<>();
+      requestCriticalSection(since, lock);
+      grantIfPermission();
+
+      return lock;
    }
 
    @Override
-   public synchronized int getSharedValue() throws RemoteException {
-      return sharedValue;
+   public synchronized void unlock() throws RemoteException {
+      inCriticalSection = false;
+      lockReleased();
+
+      if (!queuedRequests.isEmpty()) {
+         // Our next REQUEST is in the order of every application already
+         releaseCriticalSection();
+      } else if (sticky && !requestPending()) {
+         // Keep the ownership until another application requests it, our
+         // value is released here already
+         releaseSharedValue(clock.tick());
+         ownershipKept = true;
+      } else if (releaseLinger > 0) {
+         // Wait a little for our next REQUEST, which would release the
+         // critical section as well. Our value is released here already
+         releaseSharedValue(clock.tick());
+         pendingRequest = null;
+         releaseDeferred = true;
+         releaseTimer = releaseTimers.schedule(this::sendDeferredReleaseInLock,
+                 releaseLinger, TimeUnit.MICROSECONDS);
+      } else {
+         // Release the critical section and notify the other applications of the change
+         releaseCriticalSection();
+      }
    }
 
    @Override
-   public synchronized void setSharedValue(int sharedValue) throws RemoteException {
-      // Update the value
-      this.sharedValue = sharedValue;
+   protected synchronized int queueDepth() {
+      int requests = queuedRequests.size();
+      for (int i = 0; i < lamportMessages.length(); ++i) {
+         if (lamportMessages.get(i).getType() == LamportMessage.Type.REQUEST) {
+            ++requests;
+         }
+         if (queuedMessages.get(i) != null) {
+            requests += queuedMessages.get(i).size();
+         }
+      }
+      return requests;
+   }
+
+   /**
+    * The owner is the application with the oldest REQUEST: it is in critical
+    * section, or it will be once it has heard from everyone.
+    */
+   @Override
+   protected synchronized int owner() {
+      if (ownershipKept) {
+         return this.id;
+      }
+
+      LamportMessage oldest = null;
+      for (int i = 0; i < lamportMessages.length(); ++i) {
+         LamportMessage message = lamportMessages.get(i);
+         if (message.getType() == LamportMessage.Type.REQUEST
+                 && (oldest == null
+                     || message.getTimeStamp() < oldest.getTimeStamp()
+                     || (message.getTimeStamp() == oldest.getTimeStamp()
+                         && message.getSender() < oldest.getSender()))) {
+            oldest = message;
+         }
+      }
+      return oldest == null ? -1 : oldest.getSender();
+   }
+
+   /**
+    * Request the critical section, without any thread waiting for it
+    * (package private for the benchmarks).
+    */
+   void requestCriticalSection() {
+      requestCriticalSection(System.nanoTime(), null);
    }
 
    /**
     * Request the critical section. This method sends a message of type REQUEST
-    * to every other Lamport application. It also takes advantage of the RMI
-    * return values to receive the RECEIPT responses from each of the other
-    * Lamport applications.
+    * to every other Lamport application at once. It also takes advantage of
+    * the RMI return values to receive the RECEIPT responses from each of the
+    * other Lamport applications, which are handled as they arrive. If our
+    * previous request is still pending, the new one waits behind it.
     *
-    * @throws RemoteException
+    * @param since the time the critical section was asked for
+    * @param lock the future to complete once we have the critical section,
+    * null if a thread waits for it
+    * @return our request
     */
-   private void requestCriticalSection() throws RemoteException {
+   private synchronized PendingRequest requestCriticalSection(long since,
+           CompletableFuture<Void> lock) {
+      // Our previous REQUEST would be released by this one
+      boolean queued = pendingRequest != null;
+      if (queued && releaseLinger > 0) {
+         throw new IllegalStateException(
+                 "The requests cannot be pipelined while the RELEASEs are coalesced");
+      }
+
+      // Our REQUEST releases the critical section instead of the RELEASE
+      // that waited for it
+      if (releaseDeferred) {
+         releaseDeferred = false;
+         releaseTimer.cancel(false);
+         getMetrics().releaseCoalesced();
+      }
+
       // Tick the clock
       clock.tick();
 
       // Create a message of type request
-      LamportMessage request = new LamportMessage(
-              LamportMessage.Type.REQUEST,
-              clock.getTime(),
-              this.id,
-              sharedValue
-      );
+      LamportMessage request = createMessage(LamportMessage.Type.REQUEST);
+      PendingRequest pending = new PendingRequest(request, since, lock);
 
-      // Store the request
-      synchronized(this) {
-         lamportMessages[id] = request;
+      // Store the request, or queue it behind our pending one
+      if (queued) {
+         queuedRequests.addLast(pending);
+      } else {
+         lamportMessages.set(id, request);
+         countNotHeardFrom(pending);
       }
 
-      // Send the request to all the other Lamport applications
-      for (int i = 0; i < lamportApplications.length; ++i) {
+      // Send the request to all the other members
+      for (int i = 0; i < getNumberOfApplications(); ++i) {
          // Do not send a request to ourself
-         if (i != this.id) {
-            // If we haven't asked the RMI registry for this Lamport application
-            if (lamportApplications[i] == null) {
-               try {
-                  lamportApplications[i] = getLamportRmi(i);
-               } catch (NotBoundException ex) {
-                  Logger.getLogger(LamportImpl.class.getName()).log(Level.SEVERE, null, ex);
-               }
+         if (i != this.id && isMember(i)) {
+            sendRequest(i, pending);
+         }
+      }
+      return pending;
+   }
+
+   /**
+    * Make a request our pending one, counting the applications we haven't
+    * heard from since. The messages stored from now on are counted as they
+    * are stored, the others by going through them once. Must be called while
+    * holding the lock on this object.
+    *
+    * @param pending our request, which is our last message
+    */
+   private void countNotHeardFrom(PendingRequest pending) {
+      pending.notHeardFrom.set(getNumberOfMembers() - 1);
+      pendingRequest = pending;
+      for (int i = 0; i < lamportMessages.length(); ++i) {
+         if (!isMember(i)) {
+            continue;
+         }
+         hearFrom(i, lamportMessages.get(i), pending);
+      }
+   }
+
+   /**
+    * Send our REQUEST to an application and handle the receipt when it
+    * arrives. Must be called while holding the lock on this object.
+    *
+    * @param other the id of the application
+    * @param pending our request
+    */
+   private void sendRequest(int other, PendingRequest pending) {
+      send(other, pending.request).whenComplete((receipt, ex) -> {
+         if (ex != null) {
+            // The application is then suspected and dropped from the
+            // members instead, if the failures are detected. An application
+            // that left is not waited for anymore
+            if (!detectsFailures() && isMember(other)) {
+               requestFailed(pending, ex);
             }
+         } else {
+            receiveReceipt(receipt);
+         }
+      });
+   }
+
+   /**
+    * Join the members: the sponsor admits us in critical section, then sends
+    * us the members, the shared value and its version.
+    */
+   @Override
+   public synchronized CompletableFuture<Void> join(int sponsor) {
+      if (isMember(this.id)) {
+         return CompletableFuture.completedFuture(null);
+      }
+
+      CompletableFuture<Void> joined = new CompletableFuture<>();
+      joining = joined;
 
-            // Send the request and receive the receipt
-            LamportMessage receipt = lamportApplications[i].receive(request);
+      clock.tick();
+      send(sponsor, createMessage(LamportMessage.Type.JOIN)).whenComplete((response, ex) -> {
+         if (ex != null) {
+            joined.completeExceptionally(sendFailure(ex));
+         }
+      });
+      return joined;
+   }
 
-            // Update our logical clock
-            clock.update(receipt.getTimeStamp());
+   /**
+    * Admit an application: the other members are sent the new members
+    * first, and the new member last, once they all know it. It is only a
+    * member for us from then on, so that our messages to it start with the
+    * new members. Our pending request follows, so that the new member knows
+    * which request our RELEASE releases, then the requests waiting behind
+    * it.
+    */
+   @Override
+   public CompletableFuture<Void> admit(int other) {
+      MembershipMessage admission;
+      List<CompletableFuture<LamportMessage>> sent = new ArrayList<>();
+
+      synchronized(this) {
+         if (!inCriticalSection) {
+            throw new IllegalMonitorStateException("The critical section is not locked");
+         }
+
+         int[] members = getMembers();
+         if (!isMember(other)) {
+            members = Arrays.copyOf(members, members.length + 1);
+            members[members.length - 1] = other;
+            Arrays.sort(members);
+         }
 
-            // Store the receipt
-            synchronized(this) {
-               if (lamportMessages[i].getType() != LamportMessage.Type.REQUEST) {
-                  lamportMessages[i] = receipt;
-               }
+         clock.tick();
+         admission = new MembershipMessage(createMessage(LamportMessage.Type.MEMBERS),
+                 members);
+         for (int member : members) {
+            if (member != this.id && member != other) {
+               sent.add(send(member, admission));
             }
+         }
+      }
+
+      return CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0]))
+              .thenCompose(v -> {
+                 synchronized(this) {
+                    if (!isMember(other)) {
+                       updateMembers(admission.getMembers());
+
+                       // We have the permission, the new member is heard
+                       // from already
+                       heardSince.set(other, pendingRequest.request.getTimeStamp());
+                    }
+
+                    CompletableFuture<LamportMessage> admitted = send(other, admission);
+                    sendRequest(other, pendingRequest);
+                    for (PendingRequest queued : queuedRequests) {
+                       sendRequest(other, queued);
+                    }
+                    return admitted;
+                 }
+              })
+              .thenApply(response -> null);
+   }
+
+   /**
+    * Handle the new members. A new member is sent our pending REQUESTs, and
+    * we wait for it as well if we don't have the permission yet. Must be
+    * called while holding the lock on this object.
+    *
+    * @param message the new members, with the shared value of the sponsor
+    */
+   private void receiveMembers(MembershipMessage message) {
+      updateSharedValue(message);
+
+      boolean wasMember = isMember(this.id);
+      int[] before = getMembers();
+      updateMembers(message.getMembers());
 
+      PendingRequest pending = pendingRequest;
+      for (int member : message.getMembers()) {
+         if (member == this.id || Arrays.binarySearch(before, member) >= 0) {
+            continue;
+         }
+
+         heardSince.set(member, 0);
+         if (pending != null) {
+            if (!criticalSectionPermission()) {
+               pending.notHeardFrom.incrementAndGet();
+            }
+            sendRequest(member, pending);
+            for (PendingRequest queued : queuedRequests) {
+               sendRequest(member, queued);
+            }
+         }
+      }
+
+      // The members that left are not waited for anymore
+      for (int member : before) {
+         if (!isMember(member)) {
+            memberLeft(member);
+         }
+      }
+
+      CompletableFuture<Void> joined = joining;
+      if (!wasMember && isMember(this.id) && joined != null) {
+         joined.complete(null);
+      }
+      wakeIfPermission();
+   }
+
+   /**
+    * Leave the members, releasing the critical section with a LEAVE. Our
+    * requests waiting behind it fail. The messages of the other applications
+    * are still answered, so that their pending requests go on.
+    */
+   @Override
+   public synchronized CompletableFuture<Void> leave() {
+      if (!inCriticalSection) {
+         throw new IllegalMonitorStateException("The critical section is not locked");
+      }
+      inCriticalSection = false;
+      lockReleased();
+
+      // The LEAVE carries our value like a RELEASE
+      releaseSharedValue(clock.tick());
+      LamportMessage leave = createMessage(LamportMessage.Type.LEAVE);
+      lamportMessages.set(this.id, leave);
+      pendingRequest = null;
+      for (PendingRequest queued : queuedRequests) {
+         queued.failure = new RemoteException("The application left the members");
+         failLock(queued);
+      }
+      queuedRequests.clear();
+      wakeWaiters();
+
+      int[] members = getMembers();
+      updateMembers(new int[0]);
+
+      List<CompletableFuture<LamportMessage>> sent = new ArrayList<>();
+      for (int member : members) {
+         if (member != this.id) {
+            sent.add(send(member, leave));
+         }
+      }
+      return CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0]));
+   }
+
+   /**
+    * Stop waiting for an application that left the members. Must be called
+    * while holding the lock on this object.
+    *
+    * @param other the id of the application
+    */
+   private void memberLeft(int other) {
+      updateMembers(Arrays.stream(getMembers()).filter(member -> member != other)
+              .toArray());
+      if (queuedMessages.get(other) != null) {
+         queuedMessages.get(other).clear();
+      }
+
+      PendingRequest pending = pendingRequest;
+      if (pending != null) {
+         countHeard(other, pending);
+      }
+   }
+
+   /**
+    * Tell the other applications that we restarted: a REJOIN, which is a
+    * RELEASE more recent than every message we sent before, replaces our
+    * last message in their view, which may be a REQUEST we lost. It carries
+    * our shared value without any new version: it only updates the
+    * applications that missed it. The applications requesting the critical
+    * section send us their REQUEST again.
+    */
+   @Override
+   public synchronized void rejoin() {
+      clock.tick();
+      LamportMessage release = createMessage(LamportMessage.Type.REJOIN);
+      lamportMessages.set(this.id, release);
+
+      for (int i = 0; i < getNumberOfApplications(); ++i) {
+         if (i != this.id && isMember(i)) {
+            post(i, release);
          }
       }
    }
 
    /**
     * Release the critical section. This method sends a message of type RELEASE
-    * to all the other Lamport applications.
+    * to all the other Lamport applications at once. It does not wait for the
+    * messages to be delivered: each channel keeps them ordered with our next
+    * REQUEST.
+    */
+   public synchronized void releaseCriticalSection() {
+      // Tick the clock so that our messages have increasing time stamps, our
+      // value is now the most recent one
+      releaseSharedValue(clock.tick());
+      sendRelease();
+   }
+
+   /**
+    * Wait at most a time for our next REQUEST before sending the RELEASE, so
+    * that the REQUEST releases the critical section instead (coalescing). A
+    * REQUEST of another application sends the RELEASE at once. Every
+    * application must coalesce or not, set before any critical section.
     *
-    * @throws RemoteException
+    * @param linger the time the RELEASE waits, in microseconds, 0 to send it
+    * at once (default)
     */
-   public void releaseCriticalSection() throws RemoteException {
+   public void setReleaseLinger(long linger) {
+      if (linger < 0) {
+         throw new IllegalArgumentException("The linger time cannot be negative");
+      }
+      releaseLinger = linger;
+   }
+
+   /**
+    * Set the executor of the timers sending the RELEASEs that waited for our
+    * next REQUEST in vain (see setReleaseLinger), so that they follow the
+    * clock of a simulation (see LamportSimulator). A thread shared by every
+    * application by default.
+    *
+    * @param timers the executor of the timers
+    */
+   public void setReleaseTimers(ScheduledExecutorService timers) {
+      releaseTimers = timers;
+   }
+
+   /**
+    * Send the RELEASE that waited for our next REQUEST in vain, if it still
+    * waits.
+    */
+   private synchronized void sendDeferredReleaseInLock() {
+      if (releaseDeferred) {
+         sendDeferredRelease();
+      }
+   }
+
+   /**
+    * Send the RELEASE that waited for our next REQUEST, with the value
+    * released at unlock(). Must be called while holding the lock on this
+    * object.
+    */
+   private void sendDeferredRelease() {
+      releaseDeferred = false;
+      releaseTimer.cancel(false);
+
+      // The RECEIPTs sent since unlock() may have the time of the release
+      clock.tick();
+      sendRelease();
+   }
+
+   /**
+    * Send our RELEASE to every other member, our next request becoming the
+    * pending one, if any. Must be called while holding the lock on this
+    * object.
+    */
+   private void sendRelease() {
       // Create the RELEASE message to send
-      LamportMessage release = new LamportMessage(
-              LamportMessage.Type.RELEASE,
-              clock.getTime(),
-              id,
-              getSharedValue()
-      );
-      
-      synchronized(this) {
-         lamportMessages[this.id] = release;
+      LamportMessage release = createMessage(LamportMessage.Type.RELEASE);
+
+      lamportMessages.set(this.id, release);
+      pendingRequest = null;
+
+      // Send the RELEASE to every other member
+      for (int i = 0; i < getNumberOfApplications(); ++i) {
+         if (i != this.id && isMember(i)) {
+            post(i, release);
+         }
+      }
+
+      // Our next REQUEST was sent already
+      PendingRequest next = queuedRequests.pollFirst();
+      if (next == null) {
+         return;
+      }
+      lamportMessages.set(this.id, next.request);
+      if (next.failure != null) {
+         // It could not be sent to every application, it is released at once
+         clock.tick();
+         sendRelease();
+      } else {
+         countNotHeardFrom(next);
+         wakeIfPermission();
+      }
+   }
+
+   /**
+    * Handle the response an application gave to our REQUEST. It is null when
+    * the RECEIPT is sent through the channel of the application instead, or
+    * when the application requests the critical section as well.
+    * Does not need the lock on this object.
+    *
+    * @param receipt the response
+    */
+   private void receiveReceipt(LamportMessage receipt) {
+      if (receipt == null) {
+         return;
       }
 
-      // Send the RELEASE to every other application
-      for (int i = 0; i < lamportApplications.length; ++i) {
-         if (i != this.id) {
-            lamportApplications[i].receive(release);
+      // Update our logical clock
+      clock.update(receipt.getTimeStamp());
+
+      // Catch up with a release we missed, if any
+      catchUp(receipt);
+
+      // Store the receipt, it may give us the permission
+      if (storeMessage(receipt)) {
+         wakeIfPermission();
+      }
+   }
+
+   /**
+    * Store the REQUEST of an application. A REQUEST sent while its previous
+    * one is pending waits behind it (pipelined requests), unless the
+    * REQUESTs release the critical section (see setReleaseLinger). Must be
+    * called while holding the lock on this object.
+    *
+    * @param request the REQUEST received
+    */
+   private void storeRequest(LamportMessage request) {
+      int sender = request.getSender();
+      if (releaseLinger > 0
+              || lamportMessages.get(sender).getType() != LamportMessage.Type.REQUEST) {
+         storeMessage(request);
+         return;
+      }
+
+      if (queuedMessages.get(sender) == null) {
+         queuedMessages.set(sender, new ArrayDeque<>());
+      }
+      queuedMessages.get(sender).addLast(request);
+   }
+
+   /**
+    * Store a message ending the pending request of an application. A RELEASE
+    * only releases its oldest REQUEST: the next one, if any, becomes its last
+    * message instead. A REJOIN or a LEAVE ends them all. Must be called while
+    * holding the lock on this object.
+    *
+    * @param message the message received
+    */
+   private void storeRelease(LamportMessage message) {
+      ArrayDeque<LamportMessage> queued = queuedMessages.get(message.getSender());
+      if (queued != null && !queued.isEmpty()) {
+         if (message.getType() == LamportMessage.Type.RELEASE) {
+            storeMessage(queued.pollFirst());
+            return;
          }
+         queued.clear();
       }
+      storeMessage(message);
    }
 
    /**
-    * Checks if the Lamport application has the right to enter the critical
-    * section by checking the time stamps of all stored messages from other
-    * application.
+    * Store the last message of an application, unless we already know a more
+    * recent message of this application. A RECEIPT never replaces a REQUEST:
+    * the application is still waiting for the critical section. The message
+    * is replaced atomically, without the lock on this object.
     *
-    * @return true if the current Lamport application last time stamp is older
-    * than all the other time stamps.
+    * @param message the message to store
+    * @return true if the message was stored
+    */
+   private boolean storeMessage(LamportMessage message) {
+      int sender = message.getSender();
+      LamportMessage stored;
+
+      do {
+         stored = lamportMessages.get(sender);
+         if (message.getTimeStamp() <= stored.getTimeStamp()
+                 || (message.getType() == LamportMessage.Type.RECEIPT
+                     && stored.getType() == LamportMessage.Type.REQUEST)) {
+            return false;
+         }
+      } while (!lamportMessages.compareAndSet(sender, stored, message));
+
+      hearFrom(sender, message, pendingRequest);
+      return true;
+   }
+
+   /**
+    * Count an application as heard from since our pending request if its
+    * message is more recent than the request. An application is counted once
+    * per request, whichever thread sees its message first. Does not need the
+    * lock on this object.
+    *
+    * @param other the id of the application
+    * @param message the message stored for the application
+    * @param pending our pending request, or null
+    */
+   private void hearFrom(int other, LamportMessage message, PendingRequest pending) {
+      if (pending == null || other == this.id || !isMember(other)) {
+         return;
+      }
+
+      long requestTimeStamp = pending.request.getTimeStamp();
+      if (requestTimeStamp > message.getTimeStamp()
+              || (requestTimeStamp == message.getTimeStamp() && other < this.id)) {
+         return;
+      }
+
+      countHeard(other, pending);
+   }
+
+   /**
+    * Count an application as heard from since our pending request, once per
+    * request. Does not need the lock on this object.
+    *
+    * @param other the id of the application
+    * @param pending our pending request
     */
-   private boolean criticalSectionPermission() {
-      boolean permission = true;
-      long myLastTimeStamp = lamportMessages[this.id].getTimeStamp();
+   private void countHeard(int other, PendingRequest pending) {
+      long requestTimeStamp = pending.request.getTimeStamp();
 
-      // Go through every stored message from other applications
-      for (int i = 0; i < lamportMessages.length; ++i) {
-         // Ignore our own message
-         if (i != this.id) {
-            // Get the other message time stamp
-            long otherTimeStamp = lamportMessages[i].getTimeStamp();
+      // The time stamps of our requests increase, an older request never
+      // takes the place of a newer one
+      long heard;
+      do {
+         heard = heardSince.get(other);
+         if (heard >= requestTimeStamp) {
+            return;
+         }
+      } while (!heardSince.compareAndSet(other, heard, requestTimeStamp));
+
+      pending.notHeardFrom.decrementAndGet();
+   }
+
+   /**
+    * A suspected application is dropped from the members as if it had left,
+    * which may give us the permission, and its messages are refused until it
+    * joins the members again.
+    */
+   @Override
+   protected synchronized void peerSuspected(int other) {
+      if (isMember(other) && other != this.id) {
+         Logger.getLogger(LamportImpl.class.getName()).log(Level.WARNING,
+                 "The application {0} is dropped from the members", other);
+         dropped.set(other);
+         memberLeft(other);
+         wakeIfPermission();
+      }
+   }
 
-            // Decide if we have permission to enter the critical section so far
-            permission = permission && ((myLastTimeStamp < otherTimeStamp)
-                    || (myLastTimeStamp == otherTimeStamp && this.id < i));
+   /**
+    * The new members, the LEAVE and the REQUESTs that may release the
+    * critical section (see setReleaseLinger) carry the shared value as well.
+    */
+   @Override
+   protected boolean carriesSharedValue(LamportMessage.Type type) {
+      return type == LamportMessage.Type.RELEASE
+              || type == LamportMessage.Type.MEMBERS
+              || type == LamportMessage.Type.LEAVE
+              || (type == LamportMessage.Type.REQUEST && releaseLinger > 0);
+   }
 
+   /**
+    * Check if another application has a pending REQUEST. Must be called while
+    * holding the lock on this object.
+    *
+    * @return true if an application is waiting for the critical section
+    */
+   private boolean requestPending() {
+      for (int i = 0; i < lamportMessages.length(); ++i) {
+         if (i != this.id
+                 && lamportMessages.get(i).getType() == LamportMessage.Type.REQUEST) {
+            return true;
          }
       }
-      
-      // Return the resulting permission
-      return permission;
+      return false;
+   }
+
+   /**
+    * Remember that a request could not be sent to an application and wake
+    * the application waiting for the critical section up. The request is
+    * released at once if it is our pending one, once it would become so
+    * otherwise, unless we are in critical section already.
+    *
+    * @param pending our request
+    * @param ex the error that occurred
+    */
+   private synchronized void requestFailed(PendingRequest pending, Throwable ex) {
+      Logger.getLogger(LamportImpl.class.getName()).log(Level.SEVERE, null, ex);
+      if (pending.failure != null || (pending == pendingRequest && inCriticalSection)) {
+         return;
+      }
+
+      pending.failure = sendFailure(ex);
+      if (pending == pendingRequest) {
+         clock.tick();
+         sendRelease();
+      }
+      wakeWaiters();
+      failLock(pending);
+   }
+
+   /**
+    * Complete the asynchronous lock of a failed request, if any.
+    *
+    * @param pending our request
+    */
+   private void failLock(PendingRequest pending) {
+      CompletableFuture<Void> lock = pending.lock.getAndSet(null);
+      if (lock != null) {
+         lock.completeExceptionally(new RemoteException(
+                 "The critical section could not be requested", pending.failure));
+      }
+   }
+
+   /**
+    * Wake the application waiting for the critical section up if we are
+    * requesting it and have the permission. A waiting thread registers before
+    * checking the permission, so it either sees the stored message or is
+    * woken up.
+    */
+   private void wakeIfPermission() {
+      if (!waiters.isEmpty() && criticalSectionPermission()) {
+         wakeWaiters();
+      }
+      grantIfPermission();
+   }
+
+   /**
+    * Complete the asynchronous lock of our pending request, if any, once we
+    * have the permission. The lock is completed once, whichever thread sees
+    * the permission first.
+    */
+   private void grantIfPermission() {
+      PendingRequest pending = pendingRequest;
+      if (pending == null || pending.lock.get() == null
+              || pending.notHeardFrom.get() != 0) {
+         return;
+      }
+
+      CompletableFuture<Void> lock = pending.lock.getAndSet(null);
+      if (lock == null) {
+         return;
+      }
+
+      Throwable failure;
+      synchronized(this) {
+         failure = pending.failure;
+         inCriticalSection = failure == null;
+      }
+
+      if (failure != null) {
+         lock.completeExceptionally(new RemoteException(
+                 "The critical section could not be requested", failure));
+      } else {
+         lockAcquired(pending.since);
+         lock.complete(null);
+      }
+   }
+
+   /**
+    * Wake every thread waiting for the critical section up.
+    */
+   private void wakeWaiters() {
+      for (Thread waiter : waiters) {
+         LockSupport.unpark(waiter);
+      }
    }
 
    /**
-    * Get a Lamport RMI by id
+    * Checks if the Lamport application has the right to enter the critical
+    * section: we request it and have heard from every other application since
+    * our REQUEST. Once given, the permission stays until we release the
+    * critical section, so it does not need the lock on this object (package
+    * private for the benchmarks).
     *
-    * @param id the id of the Lamport application we want to get RMI for
-    * @return the corresponding Lamport
-    * @throws RemoteException
-    * @throws NotBoundException
-    */
-   private Lamport getLamportRmi(int id) throws RemoteException, NotBoundException {
-      return (Lamport) LocateRegistry.getRegistry(rmiAddress)
-              .lookup("lamport-" + id);
+    * @return true if the current Lamport application last time stamp is older
+    * than all the other time stamps.
+    */
+   boolean criticalSectionPermission() {
+      PendingRequest pending = pendingRequest;
+      return pending != null && pending.notHeardFrom.get() == 0;
+   }
+
+   /**
+    * Our REQUEST and the number of applications we haven't heard from since,
+    * counted once it is our pending request. A thread counting a message for
+    * an older request only changes the count of that request. The request
+    * also knows the time the critical section was asked for, the
+    * asynchronous lock waiting for it, if any, and the error that occurred
+    * while sending it, if any.
+    */
+   private static class PendingRequest {
+
+      private final LamportMessage request;
+      private final AtomicInteger notHeardFrom;
+      private final long since;
+      private final AtomicReference<CompletableFuture<Void>> lock;
+      private volatile Throwable failure;
+
+      PendingRequest(LamportMessage request, long since, CompletableFuture<Void> lock) {
+         this.request = request;
+         this.notHeardFrom = new AtomicInteger();
+         this.since = since;
+         this.lock = new AtomicReference<>(lock);
+      }
    }
 }
@@ -0,0 +1,122 @@
+/**
+ * File: LockCallbacks.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The LockCallbacks class calls the LockListener of the user applications
+ * back once their asynchronous lock completes. The calls go through threads
+ * of their own: a user application may be slow to answer, and the lock
+ * usually completes on a thread delivering a message. It also bounds the
+ * time waited for a lock (see Lamport.lock(long)).
+ */
+final class LockCallbacks {
+
+   // The threads calling the listeners back, only alive while in use
+   private static final ExecutorService CALLBACKS = Executors.newCachedThreadPool(
+           runnable -> {
+              Thread thread = new Thread(runnable, "lamport-callback");
+              thread.setDaemon(true);
+              return thread;
+           });
+
+   private LockCallbacks() {
+   }
+
+   /**
+    * Call a listener back once a lock completes. If the listener cannot be
+    * told that the lock is granted, the critical section is unlocked so that
+    * the other applications can get it.
+    *
+    * @param lamport the Lamport object the lock was requested to
+    * @param lock the lock, completed once the critical section is obtained
+    * @param listener the listener to call back
+    */
+   static void notify(Lamport lamport, CompletableFuture<Void> lock,
+           LockListener listener) {
+      lock.whenCompleteAsync((result, ex) -> {
+         try {
+            if (ex == null) {
+               listener.lockGranted();
+            } else {
+               listener.lockFailed(remoteFailure(ex));
+            }
+         } catch (RemoteException failure) {
+            Logger.getLogger(LockCallbacks.class.getName()).log(Level.SEVERE, null, failure);
+            if (ex == null) {
+               unlock(lamport);
+            }
+         }
+      }, CALLBACKS);
+   }
+
+   /**
+    * Wait for a lock, at most for a timeout. If the timeout passes first, the
+    * lock is abandoned: the critical section is unlocked as soon as it is
+    * obtained, so that the other applications can get it.
+    *
+    * @param lamport the Lamport object the lock was requested to
+    * @param lock the lock, completed once the critical section is obtained
+    * @param timeout the maximum time to wait, in milliseconds
+    * @return true if the critical section has been obtained, false if the
+    * timeout has passed
+    * @throws RemoteException if the critical section could not be requested
+    */
+   static boolean await(Lamport lamport, CompletableFuture<Void> lock, long timeout)
+           throws RemoteException {
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+      while (true) {
+         try {
+            lock.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            return true;
+         } catch (InterruptedException ex) {
+            Logger.getLogger(LockCallbacks.class.getName()).log(Level.SEVERE, null, ex);
+         } catch (ExecutionException ex) {
+            throw remoteFailure(ex.getCause());
+         } catch (TimeoutException ex) {
+            // Release the critical section nobody waits for anymore
+            lock.thenRunAsync(() -> unlock(lamport), CALLBACKS);
+            return false;
+         }
+      }
+   }
+
+   /**
+    * Get the failure of a lock as a RemoteException, as lock() would throw
+    * it.
+    *
+    * @param ex the error the lock completed with
+    * @return the failure
+    */
+   static RemoteException remoteFailure(Throwable ex) {
+      Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+      return cause instanceof RemoteException
+              ? (RemoteException) cause
+              : new RemoteException("The critical section could not be requested", cause);
+   }
+
+   /**
+    * Unlock a critical section nobody uses.
+    */
+   private static void unlock(Lamport lamport) {
+      try {
+         lamport.unlock();
+      } catch (RemoteException | RuntimeException ex) {
+         Logger.getLogger(LockCallbacks.class.getName()).log(Level.SEVERE, null, ex);
+      }
+   }
+}
@@ -0,0 +1,37 @@
+/**
+ * File: LockListener.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * The LockListener interface represents the remote objects a user
+ * application exports to be called back once the critical section it
+ * requested with Lamport.requestLock is obtained, so that no thread of the
+ * Lamport application waits for it meanwhile.
+ */
+public interface LockListener extends Remote {
+
+   /**
+    * Called once the critical section is obtained. The user application must
+    * then unlock it. If the user application cannot be reached, the Lamport
+    * application unlocks the critical section itself.
+    *
+    * @throws RemoteException
+    */
+   public void lockGranted() throws RemoteException;
+
+   /**
+    * Called if the critical section could not be obtained, instead of
+    * lockGranted.
+    *
+    * @param cause the reason of the failure
+    * @throws RemoteException
+    */
+   public void lockFailed(RemoteException cause) throws RemoteException;
+}
@@ -0,0 +1,574 @@
+/**
+ * File: MaekawaImpl.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.message.ReceiptMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.RmiTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.Transport;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The MaekawaImpl is an implementation of the Lamport remote object using
+ * the quorum based algorithm of Maekawa, for large numbers of applications.
+ *
+ * The applications are placed on a square grid, and the quorum of an
+ * application is made of the applications on its row and on its column
+ * (about 2 * sqrt(N) applications, including itself). Two quorums always have
+ * an application in common. To enter the critical section, an application
+ * needs the vote (a RECEIPT) of every application of its quorum, and each
+ * application gives its vote to one request at a time. A critical section
+ * therefore costs about 6 * sqrt(N) messages instead of 3(N-1).
+ *
+ * The deadlocks are resolved with the INQUIRE, FAILED and YIELD messages: an
+ * application that has given its vote asks it back (INQUIRE) when an older
+ * request arrives. The requesting application gives it back (YIELD) if it
+ * knows it cannot get all the votes for now (it received a FAILED). The
+ * RECEIPT, FAILED and INQUIRE carry the time stamp of the REQUEST they are
+ * about (see ReceiptMessage), so that the late ones about a request given up
+ * are ignored by the next request.
+ *
+ * The RELEASE carries the shared value to the quorum, and every vote carries
+ * the value of the voting application. The quorum of the next application to
+ * enter the critical section contains an application that only gave its vote
+ * after receiving the last RELEASE, so the most recent version among the
+ * votes is the current value. The value of an application that does not ask
+ * for the critical section may therefore be outdated, as well as the value
+ * given by getVersionedValue(), and awaitVersion() may run out of time
+ * outside the quorum of the releasing application: the value must be read
+ * between lock() and unlock().
+ *
+ * All the messages are sent as calls to receive(), which always returns null.
+ *
+ * The critical section may also be requested without any thread waiting
+ * for it (lockAsync): the future is completed by the thread handling the
+ * last vote, instead of waking a thread up.
+ *
+ * Please refer to the Lamport interface definition for information
+ * regarding overriden methods.
+ */
+public class MaekawaImpl extends AbstractLamport {
+
+   // The applications whose vote we need, including ourself
+   private final int[] quorum;
+
+   // Voter side: the request we gave our vote to, null if none
+   private LamportMessage votedRequest;
+
+   // Voter side: whether we have already asked our vote back
+   private boolean voteInquired;
+
+   // Voter side: the requests waiting for our vote, oldest first
+   private final PriorityQueue<LamportMessage> waitingRequests;
+
+   // Requester side: our pending request, null if we don't want the section
+   private LamportMessage request;
+
+   // Requester side: whether we are in critical section
+   private boolean inCriticalSection;
+
+   // Requester side: the votes we have for our request and how many there are
+   private final boolean[] votes;
+   private int numberOfVotes;
+
+   // Requester side: whether an application has refused us its vote
+   private boolean failed;
+
+   // Requester side: the applications that asked their vote back
+   private final boolean[] inquiries;
+
+   // The error that occurred while sending our pending request, if any
+   private Throwable requestFailure;
+
+   // Requester side: the future of our request if requested without waiting
+   // for it, and the time it was requested at
+   private CompletableFuture<Void> asyncLock;
+   private long asyncLockSince;
+
+   /**
+    * Constructor. The messages are sent using a cached thread pool.
+    *
+    * @param rmiAddress the RMI registry address
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    */
+   public MaekawaImpl(String rmiAddress, int numberOfApplications, int id) {
+      this(rmiAddress, numberOfApplications, id,
+              Executors.newCachedThreadPool(senderThreadFactory(id)));
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param rmiAddress the RMI registry address
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param executor the executor used to send the messages to the other
+    * Lamport applications
+    */
+   public MaekawaImpl(String rmiAddress, int numberOfApplications, int id,
+           ExecutorService executor) {
+      this(numberOfApplications, id,
+              new RmiTransport(rmiAddress, numberOfApplications, executor), executor);
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param transport the transport of the messages to the other Lamport
+    * applications
+    * @param executor the executor delivering the messages sent to ourself
+    */
+   public MaekawaImpl(int numberOfApplications, int id, Transport transport,
+           Executor executor) {
+      super(numberOfApplications, id, transport, executor);
+      quorum = gridQuorum(numberOfApplications, id);
+      waitingRequests = new PriorityQueue<>(MaekawaImpl::compare);
+      votes = new boolean[numberOfApplications];
+      inquiries = new boolean[numberOfApplications];
+   }
+
+   /**
+    * Compute the quorum of an application. The applications are placed row
+    * by row on a grid of ceil(sqrt(N)) columns, the last row being possibly
+    * incomplete, and the quorum is made of the row and the column of the
+    * application. The row of one application and the column of the other
+    * always meet, or both are on the last row.
+    *
+    * @param numberOfApplications the number of applications
+    * @param id the id of the application
+    * @return the ids of the applications of the quorum
+    */
+   public static int[] gridQuorum(int numberOfApplications, int id) {
+      int columns = (int) Math.ceil(Math.sqrt(numberOfApplications));
+      int row = id / columns;
+      int column = id % columns;
+
+      List<Integer> members = new ArrayList<>();
+
+      // The row of the application
+      for (int i = row * columns;
+              i < Math.min((row + 1) * columns, numberOfApplications); ++i) {
+         members.add(i);
+      }
+
+      // The column of the application, without itself
+      for (int i = column; i < numberOfApplications; i += columns) {
+         if (i != id) {
+            members.add(i);
+         }
+      }
+
+      int[] quorum = new int[members.size()];
+      for (int i = 0; i < quorum.length; ++i) {
+         quorum[i] = members.get(i);
+      }
+      return quorum;
+   }
+
+   @Override
+   public LamportMessage receive(LamportMessage message) throws RemoteException {
+      LamportMessage response = receiveInLock(message);
+      grantIfPermission();
+      return response;
+   }
+
+   /**
+    * Handle a message while holding the lock on this object.
+    *
+    * @param message the message
+    * @return the response, always null
+    */
+   private synchronized LamportMessage receiveInLock(LamportMessage message) {
+      // Update our clock
+      clock.update(message.getTimeStamp());
+      if (!messageReceived(message)) {
+         return null;
+      }
+
+      int sender = message.getSender();
+
+      switch (message.getType()) {
+         // Messages received as a voter
+         case REQUEST:
+            receiveRequest(message);
+            break;
+
+         case YIELD:
+            // Give our vote to the oldest request, which asked for it
+            if (votedRequest != null && votedRequest.getSender() == sender) {
+               waitingRequests.add(votedRequest);
+               vote(waitingRequests.poll());
+            }
+            break;
+
+         case RELEASE:
+            updateSharedValue(message);
+            if (votedRequest != null && votedRequest.getSender() == sender) {
+               vote(waitingRequests.poll());
+            } else {
+               // The request was given up before getting our vote
+               waitingRequests.removeIf(r -> r.getSender() == sender);
+            }
+            break;
+
+         // Messages received as a requester
+         case RECEIPT:
+            updateSharedValue(message);
+            if (answers(message) && !votes[sender]) {
+               votes[sender] = true;
+               ++numberOfVotes;
+               if (hasPermission()) {
+                  this.notifyAll();
+               }
+            }
+            break;
+
+         case FAILED:
+            if (answers(message)) {
+               failed = true;
+
+               // We won't get all the votes soon, give back the ones asked
+               for (int i = 0; i < inquiries.length; ++i) {
+                  if (inquiries[i]) {
+                     yieldVote(i);
+                  }
+               }
+            }
+            break;
+
+         case INQUIRE:
+            // Ignore an inquiry about a vote we no longer have or still need
+            if (answers(message) && votes[sender] && !hasPermission()) {
+               if (failed) {
+                  yieldVote(sender);
+               } else {
+                  inquiries[sender] = true;
+               }
+            }
+            break;
+
+         default:
+            break;
+      }
+
+      return null;
+   }
+
+   @Override
+   public void lock() throws RemoteException {
+      long since = System.nanoTime();
+      Throwable failure;
+
+      synchronized(this) {
+         requestCriticalSection();
+
+         // Wait for all the votes
+         while (!hasPermission() && requestFailure == null) {
+            try {
+               this.wait();
+            } catch (InterruptedException ex) {
+               Logger.getLogger(MaekawaImpl.class.getName()).log(Level.SEVERE, null, ex);
+            }
+         }
+
+         failure = enterCriticalSection(since);
+      }
+
+      // If an application could not be reached, report it like a failed call
+      if (failure != null) {
+         throw new RemoteException("The critical section could not be requested",
+                 failure);
+      }
+   }
+
+   /**
+    * Request the critical section without any thread waiting for it. The
+    * future is completed by the thread handling the last vote: its
+    * dependents must not wait.
+    */
+   @Override
+   public CompletableFuture<Void> lockAsync() {
+      CompletableFuture<Void> lock = new CompletableFuture<>();
+      synchronized(this) {
+         asyncLock = lock;
+         asyncLockSince = System.nanoTime();
+         requestCriticalSection();
+      }
+
+      // We may already have every vote, alone in our quorum
+      grantIfPermission();
+      return lock;
+   }
+
+   @Override
+   public synchronized void unlock() throws RemoteException {
+      lockReleased();
+
+      // Tick the clock and give the shared value its new version
+      clock.tick();
+      releaseSharedValue(clock.getTime());
+
+      release();
+   }
+
+   /**
+    * The RELEASEs and the votes (RECEIPT) carry the shared value.
+    */
+   @Override
+   protected boolean carriesSharedValue(LamportMessage.Type type) {
+      return type == LamportMessage.Type.RELEASE
+              || type == LamportMessage.Type.RECEIPT;
+   }
+
+   /**
+    * The requests waiting are the ones waiting for our vote, and the one we
+    * gave it to.
+    */
+   @Override
+   protected synchronized int queueDepth() {
+      return waitingRequests.size() + (votedRequest != null ? 1 : 0);
+   }
+
+   /**
+    * The owner is us in critical section, or else the application we gave
+    * our vote to.
+    */
+   @Override
+   protected synchronized int owner() {
+      if (inCriticalSection) {
+         return this.id;
+      }
+      return votedRequest != null ? votedRequest.getSender() : -1;
+   }
+
+   /**
+    * Ask the vote of every application of our quorum for a new request. Must
+    * be called while holding the lock on this object.
+    */
+   private void requestCriticalSection() {
+      // Tick the clock and create our request
+      clock.tick();
+      LamportMessage sent = createMessage(LamportMessage.Type.REQUEST);
+      request = sent;
+      numberOfVotes = 0;
+      failed = false;
+      requestFailure = null;
+      for (int i = 0; i < votes.length; ++i) {
+         votes[i] = false;
+         inquiries[i] = false;
+      }
+
+      for (int member : quorum) {
+         send(member, sent).whenComplete((response, ex) -> {
+            if (ex != null) {
+               requestFailed(sent, ex);
+            }
+         });
+      }
+   }
+
+   /**
+    * Enter the critical section once we have every vote, or give our request
+    * up if it could not be sent, so that we don't block the others. Must be
+    * called while holding the lock on this object.
+    *
+    * @param since the time the critical section was requested at, from
+    * System.nanoTime()
+    * @return the error that occurred while sending our request, null if we
+    * entered the critical section
+    */
+   private Throwable enterCriticalSection(long since) {
+      Throwable failure = requestFailure;
+      if (failure == null) {
+         inCriticalSection = true;
+         lockAcquired(since);
+      } else {
+         release();
+      }
+      return failure;
+   }
+
+   /**
+    * Complete the future of our request, if requested without waiting for
+    * it, once we have every vote or the request failed. The future is
+    * completed without holding the lock on this object.
+    */
+   private void grantIfPermission() {
+      CompletableFuture<Void> lock;
+      Throwable failure;
+      synchronized(this) {
+         if (asyncLock == null || (!hasPermission() && requestFailure == null)) {
+            return;
+         }
+         lock = asyncLock;
+         asyncLock = null;
+         failure = enterCriticalSection(asyncLockSince);
+      }
+
+      if (failure != null) {
+         lock.completeExceptionally(new RemoteException(
+                 "The critical section could not be requested", failure));
+      } else {
+         lock.complete(null);
+      }
+   }
+
+   /**
+    * Handle a REQUEST as a voter. Must be called while holding the lock on
+    * this object.
+    *
+    * @param message the request
+    */
+   private void receiveRequest(LamportMessage message) {
+      if (votedRequest == null) {
+         vote(message);
+      } else {
+         // Refuse our vote if an older request is waiting for it
+         boolean refuse = compare(votedRequest, message) < 0
+                 || (!waitingRequests.isEmpty()
+                     && compare(waitingRequests.peek(), message) < 0);
+
+         waitingRequests.add(message);
+
+         if (refuse) {
+            post(message.getSender(), answer(LamportMessage.Type.FAILED, message));
+         } else if (!voteInquired) {
+            // Ask our vote back for the older request
+            voteInquired = true;
+            post(votedRequest.getSender(),
+                    answer(LamportMessage.Type.INQUIRE, votedRequest));
+         }
+      }
+   }
+
+   /**
+    * Give our vote to a request. Must be called while holding the lock on
+    * this object.
+    *
+    * @param message the request to vote for, null to keep our vote
+    */
+   private void vote(LamportMessage message) {
+      votedRequest = message;
+      voteInquired = false;
+
+      if (message != null) {
+         post(message.getSender(), answer(LamportMessage.Type.RECEIPT, message));
+      }
+   }
+
+   /**
+    * Create a message about a request. Must be called while holding the lock
+    * on this object.
+    *
+    * @param type the type of the message
+    * @param request the request
+    * @return the message
+    */
+   private LamportMessage answer(LamportMessage.Type type, LamportMessage request) {
+      return new ReceiptMessage(createMessage(type), request.getTimeStamp());
+   }
+
+   /**
+    * Give a vote back to the application that asked for it. Must be called
+    * while holding the lock on this object.
+    *
+    * @param other the application that gave us its vote
+    */
+   private void yieldVote(int other) {
+      votes[other] = false;
+      --numberOfVotes;
+      inquiries[other] = false;
+      post(other, createMessage(LamportMessage.Type.YIELD));
+   }
+
+   /**
+    * Leave the critical section, or give up our request, by sending a RELEASE
+    * to every application of our quorum. Must be called while holding the
+    * lock on this object.
+    */
+   private void release() {
+      LamportMessage release = createMessage(LamportMessage.Type.RELEASE);
+
+      request = null;
+      inCriticalSection = false;
+
+      for (int member : quorum) {
+         post(member, release);
+      }
+   }
+
+   /**
+    * Check if we have the vote of every application of our quorum. Must be
+    * called while holding the lock on this object.
+    *
+    * @return true if we can enter the critical section
+    */
+   private boolean hasPermission() {
+      return request != null && numberOfVotes == quorum.length;
+   }
+
+   /**
+    * Check if a RECEIPT, FAILED or INQUIRE is about our pending request. Must
+    * be called while holding the lock on this object.
+    *
+    * @param message the message
+    * @return true if the message is about our pending request
+    */
+   private boolean answers(LamportMessage message) {
+      return request != null && message instanceof ReceiptMessage
+              && ((ReceiptMessage) message).getRequestTimeStamp() == request.getTimeStamp();
+   }
+
+   /**
+    * Remember that our request could not be sent to an application and wake
+    * the application waiting for the critical section up, or fail the future
+    * of our request. The failures of a request given up are ignored.
+    *
+    * @param sent the request that could not be sent
+    * @param ex the error that occurred
+    */
+   private void requestFailed(LamportMessage sent, Throwable ex) {
+      Logger.getLogger(MaekawaImpl.class.getName()).log(Level.SEVERE, null, ex);
+      synchronized(this) {
+         if (request != sent) {
+            return;
+         }
+         if (requestFailure == null) {
+            requestFailure = sendFailure(ex);
+         }
+         this.notifyAll();
+      }
+      grantIfPermission();
+   }
+
+   /**
+    * Compare two requests by priority: the oldest one first, the one sent by
+    * the application with the smallest id if they are as old.
+    *
+    * @param request the first request
+    * @param other the second request
+    * @return a negative number if the first request has priority
+    */
+   private static int compare(LamportMessage request, LamportMessage other) {
+      if (request.getTimeStamp() != other.getTimeStamp()) {
+         return Long.compare(request.getTimeStamp(), other.getTimeStamp());
+      }
+      return Integer.compare(request.getSender(), other.getSender());
+   }
+}
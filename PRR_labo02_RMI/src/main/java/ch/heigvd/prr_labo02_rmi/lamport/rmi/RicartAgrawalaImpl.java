@@ -0,0 +1,411 @@
+/**
+ * File: RicartAgrawalaImpl.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.message.ReceiptMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.RmiTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.Transport;
+import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The RicartAgrawalaImpl is an implementation of the Lamport remote object
+ * using the Ricart and Agrawala algorithm instead of the Lamport one.
+ *
+ * An application requesting the critical section sends a REQUEST to every
+ * other application and enters the critical section once it has received a
+ * RECEIPT from each of them. An application receiving a REQUEST older than
+ * its own pending request (or while it is in critical section) defers its
+ * RECEIPT until it releases the critical section. There is no RELEASE
+ * message: a critical section costs 2(N-1) messages instead of 3(N-1).
+ *
+ * Every RECEIPT carries the shared value and its version. The application
+ * that used the critical section last has either deferred our REQUEST or
+ * answered it after its release, so the most recent version among the
+ * RECEIPTs is the current value. The value of an application that does not
+ * ask for the critical section is therefore not updated: it must be read
+ * between lock() and unlock().
+ *
+ * The REQUEST and the RECEIPT are both sent as calls to receive(), which
+ * always returns null. A RECEIPT carries the time stamp of the REQUEST it
+ * answers (see ReceiptMessage): a request given up because an application
+ * could not be reached leaves RECEIPTs on their way, which must not count
+ * for the next request.
+ *
+ * The critical section may also be requested without any thread waiting
+ * for it (lockAsync): the future is completed by the thread handling the
+ * last RECEIPT, instead of waking a thread up.
+ *
+ * Please refer to the Lamport interface definition for information
+ * regarding overriden methods.
+ */
+public class RicartAgrawalaImpl extends AbstractLamport {
+
+   // The time stamp of the deferred REQUEST of an application whose RECEIPT
+   // is not deferred
+   private static final long NOT_DEFERRED = -1;
+
+   // Our pending request, null if we are not requesting the critical section
+   private LamportMessage request;
+
+   // Whether we are in critical section
+   private boolean inCriticalSection;
+
+   // The time stamp of the REQUEST of each application whose RECEIPT is
+   // deferred until we release, NOT_DEFERRED if none
+   private final long[] deferred;
+
+   // The number of RECEIPT received for our pending request
+   private int receipts;
+
+   // The error that occurred while sending our pending request, if any
+   private Throwable requestFailure;
+
+   // The future of our pending request if requested without waiting for
+   // it, and the time it was requested at
+   private CompletableFuture<Void> asyncLock;
+   private long asyncLockSince;
+
+   /**
+    * Constructor. The messages are sent using a cached thread pool.
+    *
+    * @param rmiAddress the RMI registry address
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    */
+   public RicartAgrawalaImpl(String rmiAddress, int numberOfApplications, int id) {
+      this(rmiAddress, numberOfApplications, id,
+              Executors.newCachedThreadPool(senderThreadFactory(id)));
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param rmiAddress the RMI registry address
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param executor the executor used to send the messages to the other
+    * Lamport applications
+    */
+   public RicartAgrawalaImpl(String rmiAddress, int numberOfApplications, int id,
+           ExecutorService executor) {
+      this(numberOfApplications, id,
+              new RmiTransport(rmiAddress, numberOfApplications, executor), executor);
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param transport the transport of the messages to the other Lamport
+    * applications
+    * @param executor the executor delivering the messages sent to ourself
+    */
+   public RicartAgrawalaImpl(int numberOfApplications, int id, Transport transport,
+           Executor executor) {
+      super(numberOfApplications, id, transport, executor);
+      deferred = new long[numberOfApplications];
+      Arrays.fill(deferred, NOT_DEFERRED);
+   }
+
+   @Override
+   public LamportMessage receive(LamportMessage message) throws RemoteException {
+      LamportMessage response = receiveInLock(message);
+      grantIfPermission();
+      return response;
+   }
+
+   /**
+    * Handle a message while holding the lock on this object.
+    *
+    * @param message the message
+    * @return the response, always null
+    */
+   private synchronized LamportMessage receiveInLock(LamportMessage message) {
+      // Update our clock
+      clock.update(message.getTimeStamp());
+      if (!messageReceived(message)) {
+         return null;
+      }
+
+      if (message.getType() == LamportMessage.Type.REQUEST) {
+         // Defer the receipt if we are in critical section or have priority
+         if (inCriticalSection || (request != null && precedes(request, message))) {
+            deferred[message.getSender()] = message.getTimeStamp();
+         } else {
+            sendReceipt(message.getSender(), message.getTimeStamp());
+         }
+      } else if (message.getType() == LamportMessage.Type.RECEIPT) {
+         // Keep the most recent value, and count the receipt if it answers
+         // our pending request
+         updateSharedValue(message);
+         if (answers(message)) {
+            ++receipts;
+            if (hasPermission()) {
+               this.notifyAll();
+            }
+         }
+      }
+
+      return null;
+   }
+
+   @Override
+   public void lock() throws RemoteException {
+      long since = System.nanoTime();
+      Throwable failure;
+
+      synchronized(this) {
+         requestCriticalSection();
+
+         // Wait for all the receipts
+         while (!hasPermission() && requestFailure == null) {
+            try {
+               this.wait();
+            } catch (InterruptedException ex) {
+               Logger.getLogger(RicartAgrawalaImpl.class.getName()).log(Level.SEVERE, null, ex);
+            }
+         }
+
+         failure = enterCriticalSection(since);
+      }
+
+      // If an application could not be reached, report it like a failed call
+      if (failure != null) {
+         throw new RemoteException("The critical section could not be requested",
+                 failure);
+      }
+   }
+
+   /**
+    * Request the critical section without any thread waiting for it. The
+    * future is completed by the thread handling the last RECEIPT: its
+    * dependents must not wait.
+    */
+   @Override
+   public CompletableFuture<Void> lockAsync() {
+      CompletableFuture<Void> lock = new CompletableFuture<>();
+      synchronized(this) {
+         asyncLock = lock;
+         asyncLockSince = System.nanoTime();
+         requestCriticalSection();
+      }
+
+      // We may already have the permission, alone
+      grantIfPermission();
+      return lock;
+   }
+
+   @Override
+   public synchronized void unlock() throws RemoteException {
+      lockReleased();
+
+      // Tick the clock and give the shared value its new version
+      clock.tick();
+      releaseSharedValue(clock.getTime());
+
+      inCriticalSection = false;
+      request = null;
+
+      // The deferred receipts carry the new value
+      sendDeferredReceipts();
+   }
+
+   /**
+    * The RECEIPTs carry the shared value of the applications leaving the
+    * critical section.
+    */
+   @Override
+   protected boolean carriesSharedValue(LamportMessage.Type type) {
+      return type == LamportMessage.Type.RECEIPT;
+   }
+
+   /**
+    * The requests waiting are ours and the ones we have deferred.
+    */
+   @Override
+   protected synchronized int queueDepth() {
+      int requests = request != null ? 1 : 0;
+      for (long deferredRequest : deferred) {
+         if (deferredRequest != NOT_DEFERRED) {
+            ++requests;
+         }
+      }
+      return requests;
+   }
+
+   /**
+    * The owner is only known when it is us.
+    */
+   @Override
+   protected synchronized int owner() {
+      return inCriticalSection ? this.id : -1;
+   }
+
+   /**
+    * Check if we have received a RECEIPT from every other application for our
+    * pending request. Must be called while holding the lock on this object.
+    *
+    * @return true if we can enter the critical section
+    */
+   private boolean hasPermission() {
+      return request != null && receipts == getNumberOfApplications() - 1;
+   }
+
+   /**
+    * Check if a RECEIPT answers our pending request. Must be called while
+    * holding the lock on this object.
+    *
+    * @param message the RECEIPT
+    * @return true if the RECEIPT counts for our pending request
+    */
+   private boolean answers(LamportMessage message) {
+      return request != null && message instanceof ReceiptMessage
+              && ((ReceiptMessage) message).getRequestTimeStamp() == request.getTimeStamp();
+   }
+
+   /**
+    * Send our REQUEST to all the other Lamport applications. Must be called
+    * while holding the lock on this object.
+    */
+   private void requestCriticalSection() {
+      // Tick the clock and create our request
+      clock.tick();
+      LamportMessage sent = createMessage(LamportMessage.Type.REQUEST);
+      request = sent;
+      receipts = 0;
+      requestFailure = null;
+
+      // Send the request to all the other Lamport applications
+      for (int i = 0; i < getNumberOfApplications(); ++i) {
+         if (i != this.id) {
+            send(i, sent).whenComplete((response, ex) -> {
+               if (ex != null) {
+                  requestFailed(sent, ex);
+               }
+            });
+         }
+      }
+   }
+
+   /**
+    * Enter the critical section once we have the permission, or give our
+    * request up if it could not be sent, so that we don't block the others.
+    * Must be called while holding the lock on this object.
+    *
+    * @param since the time the critical section was requested at, from
+    * System.nanoTime()
+    * @return the error that occurred while sending our request, null if we
+    * entered the critical section
+    */
+   private Throwable enterCriticalSection(long since) {
+      Throwable failure = requestFailure;
+      if (failure == null) {
+         inCriticalSection = true;
+         lockAcquired(since);
+      } else {
+         request = null;
+         sendDeferredReceipts();
+      }
+      return failure;
+   }
+
+   /**
+    * Complete the future of our pending request, if requested without
+    * waiting for it, once we have the permission or the request failed. The
+    * future is completed without holding the lock on this object.
+    */
+   private void grantIfPermission() {
+      CompletableFuture<Void> lock;
+      Throwable failure;
+      synchronized(this) {
+         if (asyncLock == null || (!hasPermission() && requestFailure == null)) {
+            return;
+         }
+         lock = asyncLock;
+         asyncLock = null;
+         failure = enterCriticalSection(asyncLockSince);
+      }
+
+      if (failure != null) {
+         lock.completeExceptionally(new RemoteException(
+                 "The critical section could not be requested", failure));
+      } else {
+         lock.complete(null);
+      }
+   }
+
+   /**
+    * Send the RECEIPT of every application we have deferred. Must be called
+    * while holding the lock on this object.
+    */
+   private void sendDeferredReceipts() {
+      for (int i = 0; i < deferred.length; ++i) {
+         if (deferred[i] != NOT_DEFERRED) {
+            long requestTimeStamp = deferred[i];
+            deferred[i] = NOT_DEFERRED;
+            sendReceipt(i, requestTimeStamp);
+         }
+      }
+   }
+
+   /**
+    * Send a RECEIPT with the shared value to an application. Must be called
+    * while holding the lock on this object.
+    *
+    * @param other the application to send the receipt to
+    * @param requestTimeStamp the time stamp of the REQUEST answered
+    */
+   private void sendReceipt(int other, long requestTimeStamp) {
+      post(other, new ReceiptMessage(createMessage(LamportMessage.Type.RECEIPT),
+              requestTimeStamp));
+   }
+
+   /**
+    * Remember that our request could not be sent to an application and wake
+    * the application waiting for the critical section up, or fail the future
+    * of our request. A failure of a request already given up is ignored.
+    *
+    * @param sent the request that could not be sent
+    * @param ex the error that occurred
+    */
+   private void requestFailed(LamportMessage sent, Throwable ex) {
+      Logger.getLogger(RicartAgrawalaImpl.class.getName()).log(Level.SEVERE, null, ex);
+      synchronized(this) {
+         if (request != sent) {
+            return;
+         }
+         if (requestFailure == null) {
+            requestFailure = sendFailure(ex);
+         }
+         this.notifyAll();
+      }
+      grantIfPermission();
+   }
+
+   /**
+    * Check if a request has priority over another one: it is older, or as
+    * old and sent by an application with a smaller id.
+    *
+    * @param request the first request
+    * @param other the second request
+    * @return true if the first request has priority
+    */
+   private static boolean precedes(LamportMessage request, LamportMessage other) {
+      return request.getTimeStamp() < other.getTimeStamp()
+              || (request.getTimeStamp() == other.getTimeStamp()
+                  && request.getSender() < other.getSender());
+   }
+}
@@ -0,0 +1,426 @@
+/**
+ * File: SuzukiKasamiImpl.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.message.TokenMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.RmiTransport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.Transport;
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The SuzukiKasamiImpl is an implementation of the Lamport remote object
+ * using the token based algorithm of Suzuki and Kasami.
+ *
+ * Only the application holding the token may enter the critical section. The
+ * application 0 holds it at start. An application without the token sends a
+ * REQUEST to every other application and waits for the token, which costs at
+ * most N messages. The application holding the token keeps it until another
+ * application asks for it, so it can enter the critical section again
+ * without sending any message.
+ *
+ * The time stamps of the requests are used as request numbers: each
+ * application remembers the time stamp of the last request of every other
+ * application, and the token stores the time stamp of the last served
+ * request of each of them. An application is waiting for the token when its
+ * last request hasn't been served yet.
+ *
+ * A token that could not be sent is sent again and again until the call
+ * succeeds, and is never taken back: the call may have failed after the token
+ * was delivered (or timed out while still running), and taking it back would
+ * let two applications hold it. Each token sent has a new sequence number,
+ * so the receiver ignores a token sent again after it was delivered. An
+ * application that doesn't come back therefore keeps the others waiting.
+ *
+ * The shared value and its version travel in the token, there is no RELEASE
+ * message. The value of an application that does not hold the token may
+ * therefore be outdated: it must be read between lock() and unlock().
+ *
+ * The critical section may also be requested without any thread waiting
+ * for it (lockAsync): the future is completed by the thread handling the
+ * token, or releasing the critical section, instead of waking a thread up.
+ *
+ * Please refer to the Lamport interface definition for information
+ * regarding overriden methods.
+ */
+public class SuzukiKasamiImpl extends AbstractLamport {
+
+   // The thread sending again the tokens that could not be sent, for every
+   // application
+   private static final ScheduledExecutorService RETRIES =
+           Executors.newSingleThreadScheduledExecutor(runnable -> {
+              Thread thread = new Thread(runnable, "lamport-token-retry");
+              thread.setDaemon(true);
+              return thread;
+           });
+
+   // The delays between two sendings of a token that could not be sent
+   private static final long FIRST_RETRY_DELAY = 50;
+   private static final long MAX_RETRY_DELAY = 2000;
+
+   // The time stamp of the last request received from each application
+   private final long[] lastRequests;
+
+   // Whether we hold the token, and its content when we do
+   private boolean hasToken;
+   private long[] lastServedRequests;
+   private final ArrayDeque<Integer> queue;
+
+   // The sequence number of the last token we held
+   private long tokenSequence;
+
+   // Whether we are in critical section
+   private boolean inCriticalSection;
+
+   // Whether we asked for the token and haven't entered the critical
+   // section yet: the token is kept until we do
+   private boolean requesting;
+
+   // The local users waiting for the critical section without any thread,
+   // in arrival order
+   private final ArrayDeque<AsyncLock> asyncLocks;
+
+   /**
+    * Constructor. The messages are sent using a cached thread pool.
+    *
+    * @param rmiAddress the RMI registry address
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    */
+   public SuzukiKasamiImpl(String rmiAddress, int numberOfApplications, int id) {
+      this(rmiAddress, numberOfApplications, id,
+              Executors.newCachedThreadPool(senderThreadFactory(id)));
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param rmiAddress the RMI registry address
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param executor the executor used to send the messages to the other
+    * Lamport applications
+    */
+   public SuzukiKasamiImpl(String rmiAddress, int numberOfApplications, int id,
+           ExecutorService executor) {
+      this(numberOfApplications, id,
+              new RmiTransport(rmiAddress, numberOfApplications, executor), executor);
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param numberOfApplications the number of Lamport application in use
+    * @param id the id of this specific Lamport application
+    * @param transport the transport of the messages to the other Lamport
+    * applications
+    * @param executor the executor delivering the messages sent to ourself
+    */
+   public SuzukiKasamiImpl(int numberOfApplications, int id, Transport transport,
+           Executor executor) {
+      super(numberOfApplications, id, transport, executor);
+      lastRequests = new long[numberOfApplications];
+      queue = new ArrayDeque<>();
+      asyncLocks = new ArrayDeque<>();
+
+      // The first application starts with the token
+      hasToken = id == 0;
+      lastServedRequests = new long[numberOfApplications];
+   }
+
+   @Override
+   public LamportMessage receive(LamportMessage message) throws RemoteException {
+      LamportMessage response = receiveInLock(message);
+      grantIfToken();
+      return response;
+   }
+
+   /**
+    * Handle a message while holding the lock on this object.
+    *
+    * @param message the message
+    * @return the response, always null
+    */
+   private synchronized LamportMessage receiveInLock(LamportMessage message) {
+      // Update our clock
+      clock.update(message.getTimeStamp());
+      if (!messageReceived(message)) {
+         return null;
+      }
+
+      int sender = message.getSender();
+
+      if (message.getType() == LamportMessage.Type.REQUEST) {
+         // Remember the request (an old one may arrive late)
+         lastRequests[sender] = Math.max(lastRequests[sender], message.getTimeStamp());
+
+         // Give the token right away if we don't use it and nobody is
+         // waiting for it here
+         if (hasToken && !inCriticalSection && !requesting
+                 && lastRequests[sender] > lastServedRequests[sender]) {
+            if (!queue.contains(sender)) {
+               queue.add(sender);
+            }
+            sendToken();
+         }
+      } else if (message.getType() == LamportMessage.Type.TOKEN) {
+         // Ignore a token sent again after it was delivered
+         TokenMessage token = (TokenMessage) message;
+         if (token.getSequence() > tokenSequence) {
+            receiveToken(token);
+         }
+      }
+
+      return null;
+   }
+
+   @Override
+   public synchronized void lock() throws RemoteException {
+      long since = System.nanoTime();
+
+      // Wait for the token, unless we already have it. The token may come
+      // back while it is requested, if the messages are delivered at once
+      while (!hasToken || inCriticalSection) {
+         if (!hasToken && !requesting) {
+            requestToken();
+            continue;
+         }
+
+         try {
+            this.wait();
+         } catch (InterruptedException ex) {
+            Logger.getLogger(SuzukiKasamiImpl.class.getName()).log(Level.SEVERE, null, ex);
+         }
+      }
+
+      inCriticalSection = true;
+      requesting = false;
+      lockAcquired(since);
+   }
+
+   /**
+    * Request the critical section without any thread waiting for it. The
+    * future is completed by the thread handling the token, or releasing the
+    * critical section: its dependents must not wait.
+    */
+   @Override
+   public CompletableFuture<Void> lockAsync() {
+      AsyncLock lock = new AsyncLock(System.nanoTime());
+      synchronized(this) {
+         asyncLocks.addLast(lock);
+      }
+
+      // We may already have the token
+      grantIfToken();
+      return lock.future;
+   }
+
+   @Override
+   public void unlock() throws RemoteException {
+      synchronized(this) {
+         lockReleased();
+
+         // Tick the clock and give the shared value its new version
+         clock.tick();
+         releaseSharedValue(clock.getTime());
+
+         inCriticalSection = false;
+
+         // Our last request is served
+         lastServedRequests[id] = lastRequests[id];
+
+         // Add the applications waiting for the token to its queue
+         for (int i = 0; i < lastRequests.length; ++i) {
+            if (i != this.id && lastRequests[i] > lastServedRequests[i]
+                    && !queue.contains(i)) {
+               queue.add(i);
+            }
+         }
+
+         // Give the token to the next application, if any
+         if (!queue.isEmpty()) {
+            sendToken();
+         }
+
+         // Wake the other local users of the critical section up
+         this.notifyAll();
+      }
+      grantIfToken();
+   }
+
+   /**
+    * The requests waiting are only known by the holder of the token: the
+    * requests not served yet. Otherwise, only our own request is known.
+    */
+   @Override
+   protected synchronized int queueDepth() {
+      if (!hasToken) {
+         return requesting ? 1 : 0;
+      }
+
+      int requests = 0;
+      for (int i = 0; i < lastRequests.length; ++i) {
+         if (lastRequests[i] > lastServedRequests[i]) {
+            ++requests;
+         }
+      }
+      return requests;
+   }
+
+   /**
+    * The owner is only known when it is us: we hold the token.
+    */
+   @Override
+   protected synchronized int owner() {
+      return hasToken ? this.id : -1;
+   }
+
+   /**
+    * The token carries the shared value.
+    */
+   @Override
+   protected boolean carriesSharedValue(LamportMessage.Type type) {
+      return type == LamportMessage.Type.TOKEN;
+   }
+
+   /**
+    * Send a REQUEST for the token to every other application. Must be called
+    * while holding the lock on this object.
+    */
+   private void requestToken() {
+      clock.tick();
+      LamportMessage request = createMessage(LamportMessage.Type.REQUEST);
+      lastRequests[id] = request.getTimeStamp();
+      requesting = true;
+
+      for (int i = 0; i < getNumberOfApplications(); ++i) {
+         if (i != this.id) {
+            post(i, request);
+         }
+      }
+   }
+
+   /**
+    * Take the token and wake the application waiting for it up. Must be
+    * called while holding the lock on this object.
+    *
+    * @param token the token
+    */
+   private void receiveToken(TokenMessage token) {
+      tokenSequence = token.getSequence();
+      updateSharedValue(token);
+      lastServedRequests = token.getLastServedRequests();
+      queue.clear();
+      for (int waiting : token.getQueue()) {
+         queue.add(waiting);
+      }
+
+      hasToken = true;
+      this.notifyAll();
+   }
+
+   /**
+    * Send the token, with the shared value, to the first application of its
+    * queue. Must be called while holding the lock on this object.
+    */
+   private void sendToken() {
+      int next = queue.poll();
+
+      int[] waiting = new int[queue.size()];
+      int i = 0;
+      for (int other : queue) {
+         waiting[i++] = other;
+      }
+
+      TokenMessage token = new TokenMessage(
+              createMessage(LamportMessage.Type.TOKEN),
+              lastServedRequests,
+              waiting,
+              tokenSequence + 1
+      );
+
+      hasToken = false;
+      queue.clear();
+
+      deliverToken(next, token, FIRST_RETRY_DELAY);
+   }
+
+   /**
+    * Send the token to an application, again and again until the call
+    * succeeds: a failed call may have delivered it, so it is never taken
+    * back. Must be called while holding the lock on this object.
+    *
+    * @param next the id of the application
+    * @param token the token
+    * @param delay the delay before sending it again if the call fails, in
+    * milliseconds
+    */
+   private void deliverToken(int next, TokenMessage token, long delay) {
+      send(next, token).whenComplete((response, ex) -> {
+         if (ex != null) {
+            Logger.getLogger(SuzukiKasamiImpl.class.getName()).log(Level.SEVERE, null, ex);
+            RETRIES.schedule(() -> {
+               synchronized(this) {
+                  deliverToken(next, token, Math.min(delay * 2, MAX_RETRY_DELAY));
+               }
+            }, delay, TimeUnit.MILLISECONDS);
+         }
+      });
+   }
+
+   /**
+    * Give the critical section to the first local user waiting without any
+    * thread, if we hold the token and don't use it, or else ask for the
+    * token. The future is completed without holding the lock on this object.
+    */
+   private void grantIfToken() {
+      AsyncLock lock;
+      synchronized(this) {
+         if (asyncLocks.isEmpty()) {
+            return;
+         }
+         if (!hasToken || inCriticalSection) {
+            if (!hasToken && !requesting) {
+               requestToken();
+            }
+            return;
+         }
+
+         lock = asyncLocks.pollFirst();
+         inCriticalSection = true;
+         requesting = false;
+         lockAcquired(lock.since);
+      }
+      lock.future.complete(null);
+   }
+
+   /**
+    * A local user waiting for the critical section without any thread.
+    */
+   private static class AsyncLock {
+
+      // The future completed once the user has the critical section
+      private final CompletableFuture<Void> future;
+
+      // The time the critical section was requested at
+      private final long since;
+
+      AsyncLock(long since) {
+         this.future = new CompletableFuture<>();
+         this.since = since;
+      }
+   }
+}
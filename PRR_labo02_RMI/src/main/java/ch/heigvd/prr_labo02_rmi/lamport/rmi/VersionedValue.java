@@ -0,0 +1,105 @@
+/**
+ * File: VersionedValue.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import java.io.Serializable;
+
+/**
+ * The VersionedValue class represents the shared value as released by an
+ * application, with its version: the time stamp and the id of the
+ * application of the release. Of two versions, the one with the greatest
+ * time stamp (then sender) is the most recent, and the versions of the
+ * successive releases always increase.
+ *
+ * A VersionedValue is immutable.
+ */
+public class VersionedValue implements Serializable {
+
+   private static final long serialVersionUID = 1L;
+
+   // The value of an application that hasn't received any release yet
+   public static final VersionedValue INITIAL = new VersionedValue(0, 0, 0);
+
+   // The shared value
+   private final int value;
+
+   // The version (time stamp and sender of the release)
+   private final long timeStamp;
+   private final int sender;
+
+   /**
+    * Constructor.
+    * @param value the shared value
+    * @param timeStamp the time stamp of the release
+    * @param sender the id of the application that released the value
+    */
+   public VersionedValue(int value, long timeStamp, int sender) {
+      this.value = value;
+      this.timeStamp = timeStamp;
+      this.sender = sender;
+   }
+
+   /**
+    * @return the shared value
+    */
+   public int getValue() {
+      return value;
+   }
+
+   /**
+    * @return the time stamp of the release
+    */
+   public long getTimeStamp() {
+      return timeStamp;
+   }
+
+   /**
+    * @return the id of the application that released the value
+    */
+   public int getSender() {
+      return sender;
+   }
+
+   /**
+    * Check if this version is more recent than another one.
+    *
+    * @param timeStamp the time stamp of the other version
+    * @param sender the sender of the other version
+    * @return true if this version is strictly more recent
+    */
+   public boolean isNewerThan(long timeStamp, int sender) {
+      return this.timeStamp > timeStamp
+              || (this.timeStamp == timeStamp && this.sender > sender);
+   }
+
+   /**
+    * Check if this version is at least as recent as another one.
+    *
+    * @param other the other version
+    * @return true if this version is the same or more recent
+    */
+   public boolean isAtLeast(VersionedValue other) {
+      return !other.isNewerThan(timeStamp, sender);
+   }
+
+   /**
+    * Check if this version is at least as recent as another one.
+    *
+    * @param timeStamp the time stamp of the other version
+    * @param sender the sender of the other version
+    * @return true if this version is the same or more recent
+    */
+   public boolean isAtLeast(long timeStamp, int sender) {
+      return this.timeStamp > timeStamp
+              || (this.timeStamp == timeStamp && this.sender >= sender);
+   }
+
+   @Override
+   public String toString() {
+      return value + " (version " + timeStamp + "/" + sender + ")";
+   }
+}
@@ -0,0 +1,211 @@
+/**
+ * File: DelayDistribution.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.simulation;
+
+import java.util.Random;
+
+/**
+ * The DelayDistribution class draws the delays of a simulation (see
+ * Simulation): the time a message takes to reach an application, or the time
+ * a client spends in or out of the critical section. The delays are drawn
+ * from the random generator of the simulation only, so that they are the
+ * same from a run to the other with the same seed.
+ *
+ * A distribution is written as its name followed by its parameters in
+ * microseconds, separated by colons (see parse):
+ * - constant:d        : always d
+ * - uniform:min:max   : uniformly between min and max
+ * - exponential:mean  : exponentially, mean on average (memoryless arrivals)
+ * - normal:mean:sd    : normally around mean with the standard deviation sd,
+ *                       never below 0
+ * - pareto:min:alpha  : at least min, with a heavy tail of shape alpha
+ *                       (the lower alpha, the longer the tail), never
+ *                       above an hour
+ */
+public class DelayDistribution {
+
+   // The longest delay of the heavy tailed distributions, in nanoseconds
+   private static final long LONGEST = 3_600_000_000_000L;
+
+   private enum Kind {
+      CONSTANT, UNIFORM, EXPONENTIAL, NORMAL, PARETO
+   }
+
+   // The kind of the distribution and its two parameters in nanoseconds
+   // (the shape of the pareto distribution is not a time)
+   private final Kind kind;
+   private final double first;
+   private final double second;
+
+   // The distribution as written
+   private final String description;
+
+   /**
+    * Constructor.
+    */
+   private DelayDistribution(Kind kind, double first, double second,
+           String description) {
+      this.kind = kind;
+      this.first = first;
+      this.second = second;
+      this.description = description;
+   }
+
+   /**
+    * Create a distribution always giving the same delay.
+    *
+    * @param micros the delay in microseconds
+    * @return the distribution
+    */
+   public static DelayDistribution constant(long micros) {
+      checkNotNegative(micros);
+      return new DelayDistribution(Kind.CONSTANT, micros * 1e3, 0,
+              "constant:" + micros);
+   }
+
+   /**
+    * Create a distribution giving delays uniformly between two bounds.
+    *
+    * @param min the shortest delay in microseconds
+    * @param max the longest delay in microseconds
+    * @return the distribution
+    */
+   public static DelayDistribution uniform(long min, long max) {
+      checkNotNegative(min);
+      if (max < min) {
+         throw new IllegalArgumentException("The maximum cannot be below the minimum");
+      }
+      return new DelayDistribution(Kind.UNIFORM, min * 1e3, max * 1e3,
+              "uniform:" + min + ":" + max);
+   }
+
+   /**
+    * Create a distribution giving delays exponentially distributed.
+    *
+    * @param mean the mean delay in microseconds
+    * @return the distribution
+    */
+   public static DelayDistribution exponential(long mean) {
+      checkNotNegative(mean);
+      return new DelayDistribution(Kind.EXPONENTIAL, mean * 1e3, 0,
+              "exponential:" + mean);
+   }
+
+   /**
+    * Create a distribution giving delays normally distributed, never below 0.
+    *
+    * @param mean the mean delay in microseconds
+    * @param deviation the standard deviation in microseconds
+    * @return the distribution
+    */
+   public static DelayDistribution normal(long mean, long deviation) {
+      checkNotNegative(mean);
+      checkNotNegative(deviation);
+      return new DelayDistribution(Kind.NORMAL, mean * 1e3, deviation * 1e3,
+              "normal:" + mean + ":" + deviation);
+   }
+
+   /**
+    * Create a distribution giving delays with a heavy tail: most delays are
+    * close to the minimum, a few are much longer.
+    *
+    * @param min the shortest delay in microseconds
+    * @param alpha the shape of the distribution, positive
+    * @return the distribution
+    */
+   public static DelayDistribution pareto(long min, double alpha) {
+      checkNotNegative(min);
+      if (!(alpha > 0)) {
+         throw new IllegalArgumentException("The shape must be positive");
+      }
+      return new DelayDistribution(Kind.PARETO, min * 1e3, alpha,
+              "pareto:" + min + ":" + alpha);
+   }
+
+   /**
+    * Read a distribution as written in the class description, for example
+    * "uniform:50:150".
+    *
+    * @param distribution the distribution as written
+    * @return the distribution
+    * @throws IllegalArgumentException if the distribution is not correct
+    */
+   public static DelayDistribution parse(String distribution) {
+      String[] parts = distribution.split(":");
+      try {
+         switch (parts[0]) {
+            case "constant":
+               checkParameters(parts, 1);
+               return constant(Long.parseLong(parts[1]));
+            case "uniform":
+               checkParameters(parts, 2);
+               return uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            case "exponential":
+               checkParameters(parts, 1);
+               return exponential(Long.parseLong(parts[1]));
+            case "normal":
+               checkParameters(parts, 2);
+               return normal(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            case "pareto":
+               checkParameters(parts, 2);
+               return pareto(Long.parseLong(parts[1]), Double.parseDouble(parts[2]));
+            default:
+               throw new IllegalArgumentException("Unknown distribution: " + distribution);
+         }
+      } catch (NumberFormatException ex) {
+         throw new IllegalArgumentException("Wrong distribution: " + distribution, ex);
+      }
+   }
+
+   /**
+    * Draw a delay.
+    *
+    * @param random the random generator of the simulation
+    * @return the delay in nanoseconds
+    */
+   public long sample(Random random) {
+      switch (kind) {
+         case CONSTANT:
+            return (long) first;
+         case UNIFORM:
+            return (long) (first + random.nextDouble() * (second - first));
+         case EXPONENTIAL:
+            return (long) (-first * Math.log(1 - random.nextDouble()));
+         case NORMAL:
+            return Math.max(0, (long) (first + random.nextGaussian() * second));
+         case PARETO:
+            return (long) Math.min(LONGEST,
+                    first / Math.pow(1 - random.nextDouble(), 1 / second));
+         default:
+            throw new AssertionError(kind);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return description;
+   }
+
+   /**
+    * Check that a parameter of a distribution is not negative.
+    */
+   private static void checkNotNegative(long micros) {
+      if (micros < 0) {
+         throw new IllegalArgumentException("A delay cannot be negative");
+      }
+   }
+
+   /**
+    * Check the number of parameters of a distribution as written.
+    */
+   private static void checkParameters(String[] parts, int count) {
+      if (parts.length != count + 1) {
+         throw new IllegalArgumentException("The distribution " + parts[0]
+                 + " takes " + count + " parameter(s)");
+      }
+   }
+}
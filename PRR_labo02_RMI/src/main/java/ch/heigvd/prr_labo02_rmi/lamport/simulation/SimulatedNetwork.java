@@ -0,0 +1,131 @@
+/**
+ * File: SimulatedNetwork.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.simulation;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.Lamport;
+import ch.heigvd.prr_labo02_rmi.lamport.transport.Transport;
+import java.rmi.RemoteException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The SimulatedNetwork class carries the messages between Lamport
+ * applications running in the same simulation (see Simulation), in virtual
+ * time: the transport of each application (see createTransport) hands its
+ * messages to the receive() method of the other application after a delay
+ * drawn from a distribution, then gives the response back after another one.
+ *
+ * The messages from an application to another one are delivered in the
+ * order they were sent, as with a real transport: a message never overtakes
+ * the previous one, it arrives at the same time at the earliest. The
+ * responses come back in order as well.
+ *
+ * The messages are not copied, the messages being immutable.
+ */
+public class SimulatedNetwork {
+
+   // The simulation the messages travel in
+   private final Simulation simulation;
+
+   // The distribution of the time a message or a response travels
+   private final DelayDistribution delays;
+
+   // The applications receiving the messages, by id
+   private final Lamport[] applications;
+
+   /**
+    * Constructor.
+    *
+    * @param simulation the simulation the messages travel in
+    * @param numberOfApplications the number of Lamport applications
+    * @param delays the distribution of the time a message or a response
+    * travels
+    */
+   public SimulatedNetwork(Simulation simulation, int numberOfApplications,
+           DelayDistribution delays) {
+      this.simulation = simulation;
+      this.delays = delays;
+      applications = new Lamport[numberOfApplications];
+   }
+
+   /**
+    * Plug an application in, so that it receives the messages sent to its id.
+    *
+    * @param id the id of the application
+    * @param application the Lamport application
+    */
+   public void attach(int id, Lamport application) {
+      applications[id] = application;
+   }
+
+   /**
+    * Create the transport of an application, sending its messages through
+    * the network. Each application needs its own, which keeps the order of
+    * its messages.
+    *
+    * @return the transport
+    */
+   public Transport createTransport() {
+      return new SimulatedTransport();
+   }
+
+   /**
+    * The transport of an application.
+    */
+   private class SimulatedTransport implements Transport {
+
+      // The virtual time the last message to each application is delivered
+      // at, and its response given back at
+      private final long[] lastDelivery;
+      private final long[] lastResponse;
+
+      SimulatedTransport() {
+         lastDelivery = new long[applications.length];
+         lastResponse = new long[applications.length];
+      }
+
+      @Override
+      public CompletableFuture<LamportMessage> send(int other, LamportMessage message) {
+         CompletableFuture<LamportMessage> response = new CompletableFuture<>();
+         if (applications[other] == null) {
+            response.completeExceptionally(
+                    new RemoteException("The application " + other + " is not started"));
+            return response;
+         }
+
+         long delivery = Math.max(simulation.now() + delays.sample(simulation.random()),
+                 lastDelivery[other]);
+         lastDelivery[other] = delivery;
+
+         simulation.scheduleAt(() -> {
+            LamportMessage result = null;
+            RemoteException failure = null;
+            try {
+               result = applications[other].receive(message);
+            } catch (RemoteException ex) {
+               failure = ex;
+            }
+
+            long back = Math.max(simulation.now() + delays.sample(simulation.random()),
+                    lastResponse[other]);
+            lastResponse[other] = back;
+
+            LamportMessage received = result;
+            RemoteException failed = failure;
+            simulation.scheduleAt(() -> {
+               if (failed != null) {
+                  response.completeExceptionally(failed);
+               } else {
+                  response.complete(received);
+               }
+            }, back);
+         }, delivery);
+
+         return response;
+      }
+   }
+}
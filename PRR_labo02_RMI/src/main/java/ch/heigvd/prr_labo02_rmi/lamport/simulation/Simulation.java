@@ -0,0 +1,402 @@
+/**
+ * File: Simulation.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The Simulation class runs events in the order of a virtual clock, on the
+ * thread calling run(): a discrete-event simulation. The events scheduled for
+ * the same time run in the order they were scheduled in, and the randomness
+ * of the simulation comes from a single seeded generator, so that a
+ * simulation run twice with the same seed does exactly the same.
+ *
+ * The simulation is an executor, so that the Lamport objects deliver the
+ * messages sent to themselves and run their timers in virtual time as well:
+ * a task executed runs at the current virtual time, once the tasks already
+ * scheduled for it have run. The tasks must never wait, since nothing
+ * happens while they run. A task failing is logged, the simulation goes on.
+ *
+ * The simulation is not thread safe: it must only be used from the thread
+ * running it.
+ */
+public class Simulation extends AbstractExecutorService
+        implements ScheduledExecutorService {
+
+   // The events to run, by time then by order of scheduling
+   private final EventQueue events;
+
+   // The random generator of the simulation
+   private final Random random;
+
+   // The current virtual time in nanoseconds, and the number of events
+   // scheduled and run so far
+   private long now;
+   private long scheduled;
+   private long run;
+
+   // Whether no more events are accepted
+   private boolean shutdown;
+
+   /**
+    * Constructor.
+    *
+    * @param seed the seed of the random generator of the simulation
+    */
+   public Simulation(long seed) {
+      events = new EventQueue();
+      random = new Random(seed);
+   }
+
+   /**
+    * Get the current virtual time.
+    *
+    * @return the time in nanoseconds since the start of the simulation
+    */
+   public long now() {
+      return now;
+   }
+
+   /**
+    * Get the random generator of the simulation.
+    *
+    * @return the random generator
+    */
+   public Random random() {
+      return random;
+   }
+
+   /**
+    * Get the number of events run so far.
+    *
+    * @return the number of events
+    */
+   public long getEventsRun() {
+      return run;
+   }
+
+   /**
+    * Schedule a task at a virtual time.
+    *
+    * @param task the task
+    * @param time the time in nanoseconds since the start of the simulation,
+    * now if in the past
+    */
+   public void scheduleAt(Runnable task, long time) {
+      schedule(new Event<Void>(task, Math.max(time, now), 0));
+   }
+
+   /**
+    * Run the events in time order until there is none left or a time is
+    * reached. The virtual time is then the time of the last event run.
+    *
+    * @param until the time in nanoseconds since the start of the simulation
+    * after which the events are not run
+    * @return true if there is no event left
+    */
+   public boolean run(long until) {
+      while (!events.isEmpty()) {
+         if (events.firstTime() > until) {
+            return false;
+         }
+         Event<?> event = events.poll();
+         if (event.isCancelled()) {
+            continue;
+         }
+
+         now = event.time;
+         ++run;
+         event.run();
+      }
+      return true;
+   }
+
+   /**
+    * Run the events in time order until there is none left.
+    */
+   public void run() {
+      run(Long.MAX_VALUE);
+   }
+
+   @Override
+   public void execute(Runnable command) {
+      schedule(new Event<Void>(command, now, 0));
+   }
+
+   @Override
+   public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+      return schedule(new Event<Void>(command, at(delay, unit), 0));
+   }
+
+   @Override
+   public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+      return schedule(new Event<>(callable, at(delay, unit)));
+   }
+
+   /**
+    * The period is kept in virtual time from the start of each run, the
+    * events taking no time.
+    */
+   @Override
+   public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay,
+           long period, TimeUnit unit) {
+      return scheduleWithFixedDelay(command, initialDelay, period, unit);
+   }
+
+   @Override
+   public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay,
+           long delay, TimeUnit unit) {
+      if (delay <= 0) {
+         throw new IllegalArgumentException("The period must be positive");
+      }
+      return schedule(new Event<Void>(command, at(initialDelay, unit),
+              unit.toNanos(delay)));
+   }
+
+   /**
+    * Stop accepting events. The events scheduled already still run.
+    */
+   @Override
+   public void shutdown() {
+      shutdown = true;
+   }
+
+   @Override
+   public List<Runnable> shutdownNow() {
+      shutdown = true;
+      List<Runnable> pending = new ArrayList<>();
+      while (!events.isEmpty()) {
+         pending.add(events.poll());
+      }
+      return pending;
+   }
+
+   @Override
+   public boolean isShutdown() {
+      return shutdown;
+   }
+
+   @Override
+   public boolean isTerminated() {
+      return shutdown && events.isEmpty();
+   }
+
+   /**
+    * Nothing happens while waiting: the events only run in run().
+    */
+   @Override
+   public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return isTerminated();
+   }
+
+   /**
+    * Get the virtual time in a delay from now.
+    */
+   private long at(long delay, TimeUnit unit) {
+      return now + Math.max(0, unit.toNanos(delay));
+   }
+
+   /**
+    * Add an event to the events to run.
+    */
+   private <V> Event<V> schedule(Event<V> event) {
+      if (shutdown) {
+         throw new RejectedExecutionException("The simulation is shut down");
+      }
+      event.sequence = scheduled++;
+      events.add(event);
+      return event;
+   }
+
+   /**
+    * A binary heap of events, by time then by order of scheduling. The times
+    * and orders are kept apart from the events, so that ordering them only
+    * reads arrays of numbers: with millions of events waiting, following
+    * each event to compare it would cost a cache miss each time.
+    */
+   private static class EventQueue {
+
+      // The events, their times and their orders of scheduling, at the same
+      // index in the heap
+      private Event<?>[] events;
+      private long[] times;
+      private long[] sequences;
+      private int size;
+
+      EventQueue() {
+         events = new Event<?>[64];
+         times = new long[64];
+         sequences = new long[64];
+      }
+
+      boolean isEmpty() {
+         return size == 0;
+      }
+
+      /**
+       * Get the time of the first event, the queue not being empty.
+       */
+      long firstTime() {
+         return times[0];
+      }
+
+      /**
+       * Add an event, at the time and with the order it has.
+       */
+      void add(Event<?> event) {
+         if (size == events.length) {
+            events = Arrays.copyOf(events, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+            sequences = Arrays.copyOf(sequences, size * 2);
+         }
+
+         // Move the later parents down until the event finds its place
+         int i = size++;
+         while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(event.time, event.sequence, parent)) {
+               break;
+            }
+            move(parent, i);
+            i = parent;
+         }
+         set(i, event, event.time, event.sequence);
+      }
+
+      /**
+       * Remove the first event, the queue not being empty.
+       */
+      Event<?> poll() {
+         Event<?> first = events[0];
+         int last = --size;
+         Event<?> event = events[last];
+         long time = times[last];
+         long sequence = sequences[last];
+         events[last] = null;
+
+         // Move the earlier children up until the last event finds its place
+         int i = 0;
+         int half = size >>> 1;
+         while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size
+                    && before(times[child + 1], sequences[child + 1], child)) {
+               ++child;
+            }
+            if (before(time, sequence, child)) {
+               break;
+            }
+            move(child, i);
+            i = child;
+         }
+         if (size > 0) {
+            set(i, event, time, sequence);
+         }
+         return first;
+      }
+
+      /**
+       * Check if a time and an order come before the event at an index.
+       */
+      private boolean before(long time, long sequence, int index) {
+         return time < times[index] || (time == times[index] && sequence < sequences[index]);
+      }
+
+      private void move(int from, int to) {
+         set(to, events[from], times[from], sequences[from]);
+      }
+
+      private void set(int index, Event<?> event, long time, long sequence) {
+         events[index] = event;
+         times[index] = time;
+         sequences[index] = sequence;
+      }
+   }
+
+   /**
+    * A task to run at a virtual time, periodically if it has a period.
+    */
+   private class Event<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+      // The time of the next run, the period in nanoseconds (0 if none) and
+      // the order of scheduling
+      private long time;
+      private final long period;
+      private long sequence;
+
+      Event(Runnable task, long time, long period) {
+         super(task, null);
+         this.time = time;
+         this.period = period;
+      }
+
+      Event(Callable<V> task, long time) {
+         super(task);
+         this.time = time;
+         this.period = 0;
+      }
+
+      @Override
+      public boolean isPeriodic() {
+         return period != 0;
+      }
+
+      @Override
+      public void run() {
+         if (!isPeriodic()) {
+            super.run();
+         } else if (runAndReset() && !shutdown) {
+            time = now + period;
+            schedule(this);
+         }
+      }
+
+      @Override
+      protected void done() {
+         if (isCancelled()) {
+            return;
+         }
+         try {
+            get();
+         } catch (ExecutionException ex) {
+            Logger.getLogger(Simulation.class.getName()).log(Level.SEVERE, null,
+                    ex.getCause());
+         } catch (InterruptedException ex) {
+            Logger.getLogger(Simulation.class.getName()).log(Level.SEVERE, null, ex);
+         }
+      }
+
+      @Override
+      public long getDelay(TimeUnit unit) {
+         return unit.convert(time - now, TimeUnit.NANOSECONDS);
+      }
+
+      @Override
+      public int compareTo(Delayed other) {
+         Event<?> event = (Event<?>) other;
+         if (time != event.time) {
+            return Long.compare(time, event.time);
+         }
+         return Long.compare(sequence, event.sequence);
+      }
+   }
+}
@@ -0,0 +1,187 @@
+/**
+ * File: ByteArrayState.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.state;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.MessageCodec;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.BitSet;
+
+/**
+ * The ByteArrayState class is a shared state made of a fixed number of bytes.
+ *
+ * The changes are tracked by blocks of 64 bytes: the changes of a release are
+ * the changed blocks, the consecutive ones being written as a single range
+ * (offset and length as varints, then the bytes).
+ */
+public class ByteArrayState implements SharedState {
+
+   // The number of bytes of the blocks whose changes are tracked
+   private static final int BLOCK_SIZE = 64;
+
+   // The bytes of the state
+   private final byte[] bytes;
+
+   // The blocks changed since the last release
+   private final BitSet changedBlocks;
+
+   /**
+    * Constructor. The bytes are all 0.
+    *
+    * @param length the number of bytes of the state
+    */
+   public ByteArrayState(int length) {
+      bytes = new byte[length];
+      changedBlocks = new BitSet();
+   }
+
+   /**
+    * @return the number of bytes of the state
+    */
+   public int length() {
+      return bytes.length;
+   }
+
+   /**
+    * Get a byte.
+    *
+    * @param index the index of the byte
+    * @return the byte
+    */
+   public byte get(int index) {
+      return bytes[index];
+   }
+
+   /**
+    * Set a byte.
+    *
+    * @param index the index of the byte
+    * @param value the byte
+    */
+   public void put(int index, byte value) {
+      bytes[index] = value;
+      changed(index, 1);
+   }
+
+   /**
+    * Copy bytes of the state.
+    *
+    * @param index the index of the first byte
+    * @param destination the array the bytes are copied to, filled
+    */
+   public void get(int index, byte[] destination) {
+      System.arraycopy(bytes, index, destination, 0, destination.length);
+   }
+
+   /**
+    * Set bytes of the state.
+    *
+    * @param index the index of the first byte
+    * @param source the bytes
+    */
+   public void put(int index, byte[] source) {
+      System.arraycopy(source, 0, bytes, index, source.length);
+      changed(index, source.length);
+   }
+
+   /**
+    * Get the integer stored at an index (big-endian).
+    *
+    * @param index the index of the first byte of the integer
+    * @return the integer
+    */
+   public int getInt(int index) {
+      if (index < 0 || index > bytes.length - 4) {
+         throw new IndexOutOfBoundsException("Index " + index);
+      }
+      return (bytes[index] & 0xFF) << 24 | (bytes[index + 1] & 0xFF) << 16
+              | (bytes[index + 2] & 0xFF) << 8 | (bytes[index + 3] & 0xFF);
+   }
+
+   /**
+    * Store an integer at an index (big-endian).
+    *
+    * @param index the index of the first byte of the integer
+    * @param value the integer
+    */
+   public void putInt(int index, int value) {
+      if (index < 0 || index > bytes.length - 4) {
+         throw new IndexOutOfBoundsException("Index " + index);
+      }
+      bytes[index] = (byte) (value >>> 24);
+      bytes[index + 1] = (byte) (value >>> 16);
+      bytes[index + 2] = (byte) (value >>> 8);
+      bytes[index + 3] = (byte) value;
+      changed(index, 4);
+   }
+
+   @Override
+   public void writeSnapshot(DataOutput out) throws IOException {
+      MessageCodec.writeVarLong(out, bytes.length);
+      out.write(bytes);
+   }
+
+   @Override
+   public void readSnapshot(DataInput in) throws IOException {
+      if (MessageCodec.readVarLong(in) != bytes.length) {
+         throw new StreamCorruptedException("Snapshot of another length");
+      }
+      in.readFully(bytes);
+      changedBlocks.clear();
+   }
+
+   @Override
+   public void writeChanges(DataOutput out) throws IOException {
+      int ranges = 0;
+      for (int block = changedBlocks.nextSetBit(0); block >= 0;
+              block = changedBlocks.nextSetBit(changedBlocks.nextClearBit(block))) {
+         ++ranges;
+      }
+      MessageCodec.writeVarLong(out, ranges);
+
+      for (int block = changedBlocks.nextSetBit(0); block >= 0;
+              block = changedBlocks.nextSetBit(block)) {
+         int end = changedBlocks.nextClearBit(block);
+         int offset = block * BLOCK_SIZE;
+         int length = Math.min(end * BLOCK_SIZE, bytes.length) - offset;
+
+         MessageCodec.writeVarLong(out, offset);
+         MessageCodec.writeVarLong(out, length);
+         out.write(bytes, offset, length);
+         block = end;
+      }
+      changedBlocks.clear();
+   }
+
+   @Override
+   public void readChanges(DataInput in) throws IOException {
+      long ranges = MessageCodec.readVarLong(in);
+      for (long i = 0; i < ranges; ++i) {
+         long offset = MessageCodec.readVarLong(in);
+         long length = MessageCodec.readVarLong(in);
+         if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new StreamCorruptedException("Malformed range " + offset
+                    + "+" + length);
+         }
+         in.readFully(bytes, (int) offset, (int) length);
+      }
+   }
+
+   /**
+    * Track a change of bytes.
+    *
+    * @param index the index of the first byte changed
+    * @param length the number of bytes changed
+    */
+   private void changed(int index, int length) {
+      if (length > 0) {
+         changedBlocks.set(index / BLOCK_SIZE, (index + length - 1) / BLOCK_SIZE + 1);
+      }
+   }
+}
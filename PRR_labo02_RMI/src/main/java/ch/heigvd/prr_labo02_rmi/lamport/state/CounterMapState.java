@@ -0,0 +1,141 @@
+/**
+ * File: CounterMapState.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.state;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.MessageCodec;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The CounterMapState class is a shared state made of counters by name.
+ * A counter that was never set is 0.
+ *
+ * The changes of a release are the counters set or removed: their name (see
+ * DataOutput.writeUTF), whether they are still there, and their value as a
+ * zigzag varint.
+ */
+public class CounterMapState implements SharedState {
+
+   // The counters by name
+   private final Map<String, Long> counters;
+
+   // The names of the counters changed since the last release
+   private final Set<String> changed;
+
+   /**
+    * Constructor. There is no counter.
+    */
+   public CounterMapState() {
+      counters = new HashMap<>();
+      changed = new HashSet<>();
+   }
+
+   /**
+    * Get a counter.
+    *
+    * @param name the name of the counter
+    * @return the value of the counter, 0 if it is not set
+    */
+   public long get(String name) {
+      return counters.getOrDefault(name, 0L);
+   }
+
+   /**
+    * Set a counter.
+    *
+    * @param name the name of the counter
+    * @param value the value
+    */
+   public void set(String name, long value) {
+      counters.put(name, value);
+      changed.add(name);
+   }
+
+   /**
+    * Add a value to a counter.
+    *
+    * @param name the name of the counter
+    * @param delta the value to add
+    * @return the new value of the counter
+    */
+   public long addAndGet(String name, long delta) {
+      long value = get(name) + delta;
+      set(name, value);
+      return value;
+   }
+
+   /**
+    * Remove a counter.
+    *
+    * @param name the name of the counter
+    */
+   public void remove(String name) {
+      if (counters.remove(name) != null) {
+         changed.add(name);
+      }
+   }
+
+   /**
+    * @return the names of the counters set
+    */
+   public Set<String> names() {
+      return Collections.unmodifiableSet(counters.keySet());
+   }
+
+   @Override
+   public void writeSnapshot(DataOutput out) throws IOException {
+      MessageCodec.writeVarLong(out, counters.size());
+      for (Map.Entry<String, Long> counter : counters.entrySet()) {
+         out.writeUTF(counter.getKey());
+         MessageCodec.writeVarLong(out, MessageCodec.zigzag(counter.getValue()));
+      }
+   }
+
+   @Override
+   public void readSnapshot(DataInput in) throws IOException {
+      counters.clear();
+      changed.clear();
+      long size = MessageCodec.readVarLong(in);
+      for (long i = 0; i < size; ++i) {
+         String name = in.readUTF();
+         counters.put(name, MessageCodec.unzigzag(MessageCodec.readVarLong(in)));
+      }
+   }
+
+   @Override
+   public void writeChanges(DataOutput out) throws IOException {
+      MessageCodec.writeVarLong(out, changed.size());
+      for (String name : changed) {
+         Long value = counters.get(name);
+         out.writeUTF(name);
+         out.writeBoolean(value != null);
+         if (value != null) {
+            MessageCodec.writeVarLong(out, MessageCodec.zigzag(value));
+         }
+      }
+      changed.clear();
+   }
+
+   @Override
+   public void readChanges(DataInput in) throws IOException {
+      long size = MessageCodec.readVarLong(in);
+      for (long i = 0; i < size; ++i) {
+         String name = in.readUTF();
+         if (in.readBoolean()) {
+            counters.put(name, MessageCodec.unzigzag(MessageCodec.readVarLong(in)));
+         } else {
+            counters.remove(name);
+         }
+      }
+   }
+}
@@ -0,0 +1,58 @@
+/**
+ * File: SharedState.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.state;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The SharedState interface represents a state replicated by the Lamport
+ * applications along with the shared value, and protected by the same
+ * critical section: it must only be read and changed in critical section.
+ *
+ * A state tracks its changes so that a release only sends them instead of the
+ * whole state (see StateReplica). The changes made since the last call to
+ * writeChanges() are those of the current critical section; the changes read
+ * from another application are not tracked.
+ */
+public interface SharedState {
+
+   /**
+    * Write the whole state.
+    *
+    * @param out the output to write to
+    * @throws IOException if the state cannot be written
+    */
+   public void writeSnapshot(DataOutput out) throws IOException;
+
+   /**
+    * Replace the whole state by a snapshot written by writeSnapshot(), and
+    * forget the changes not written yet.
+    *
+    * @param in the input to read from
+    * @throws IOException if the snapshot cannot be read or is malformed
+    */
+   public void readSnapshot(DataInput in) throws IOException;
+
+   /**
+    * Write the changes made since the last call, and forget them.
+    *
+    * @param out the output to write to
+    * @throws IOException if the changes cannot be written
+    */
+   public void writeChanges(DataOutput out) throws IOException;
+
+   /**
+    * Apply changes written by writeChanges(). They are not tracked as changes
+    * of this state.
+    *
+    * @param in the input to read from
+    * @throws IOException if the changes cannot be read or are malformed
+    */
+   public void readChanges(DataInput in) throws IOException;
+}
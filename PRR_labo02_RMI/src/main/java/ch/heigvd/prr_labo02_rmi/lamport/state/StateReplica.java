@@ -0,0 +1,362 @@
+/**
+ * File: StateReplica.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.state;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.MessageCodec;
+import ch.heigvd.prr_labo02_rmi.lamport.message.StateUpdate;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The StateReplica class holds the copy of a shared state (see SharedState)
+ * of a Lamport application, and decides what to send of it to the other
+ * applications so that the bandwidth of a release follows the size of its
+ * changes rather than the size of the state.
+ *
+ * The state is versioned like the shared value: by the time stamp and the
+ * id of the application of the release that produced it. The versions form
+ * a single chain, since the releases are done in mutual exclusion. The
+ * replica keeps the changes of the last releases it made or received, and a
+ * lower bound of the version of each other application: the last version it
+ * sent to it, or heard it had. An application is then sent the changes from
+ * its known version, which it applies in order (skipping those it already
+ * has), or a snapshot of the whole state if it is known to be behind the
+ * oldest changes kept. A snapshot comes with the changes kept by its sender,
+ * so that its receiver can still send changes to the applications behind.
+ */
+public class StateReplica {
+
+   // The default number of releases whose changes are kept
+   public static final int DEFAULT_HISTORY = 32;
+
+   // The shared state
+   private final SharedState state;
+
+   // The version of the state (time stamp and sender of its release)
+   private long timeStamp;
+   private int sender;
+
+   // The changes of the last releases, the oldest first
+   private final ArrayDeque<Change> changes;
+   private final int history;
+
+   // A lower bound of the version of the state of each application
+   private final long[] knownTimeStamps;
+   private final int[] knownSenders;
+
+   // The snapshot of the current version, null until needed
+   private byte[] snapshot;
+
+   /**
+    * Constructor. The changes of the last DEFAULT_HISTORY releases are kept.
+    *
+    * @param state the shared state, as in every application
+    * @param numberOfApplications the number of Lamport application in use
+    */
+   public StateReplica(SharedState state, int numberOfApplications) {
+      this(state, numberOfApplications, DEFAULT_HISTORY);
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param state the shared state, as in every application
+    * @param numberOfApplications the number of Lamport application in use
+    * @param history the number of releases whose changes are kept
+    */
+   public StateReplica(SharedState state, int numberOfApplications, int history) {
+      this.state = state;
+      this.history = history;
+      changes = new ArrayDeque<>();
+      knownTimeStamps = new long[numberOfApplications];
+      knownSenders = new int[numberOfApplications];
+   }
+
+   /**
+    * @return the shared state
+    */
+   public SharedState getState() {
+      return state;
+   }
+
+   /**
+    * Give the changes made in critical section a new version, when the
+    * critical section is released.
+    *
+    * @param timeStamp the time stamp of the release
+    * @param sender the id of the application releasing the critical section
+    */
+   public synchronized void release(long timeStamp, int sender) {
+      try {
+         ByteArrayOutputStream data = new ByteArrayOutputStream();
+         state.writeChanges(new DataOutputStream(data));
+         record(new Change(this.timeStamp, this.sender, timeStamp, sender,
+                 data.toByteArray()));
+      } catch (IOException ex) {
+         // The other applications will get a snapshot
+         Logger.getLogger(StateReplica.class.getName()).log(Level.SEVERE, null, ex);
+         changes.clear();
+      }
+      setVersion(timeStamp, sender);
+   }
+
+   /**
+    * Get what an application needs to get the current version of the state,
+    * which it is then known to have.
+    *
+    * @param other the id of the application
+    * @return the changes from its known version, a snapshot if they are not
+    * kept anymore, or null if the application is known to have the current
+    * version
+    */
+   public synchronized StateUpdate updateFor(int other) {
+      if (!isNewer(timeStamp, sender, knownTimeStamps[other], knownSenders[other])) {
+         return null;
+      }
+
+      // The number of changes from the known version, if they are kept
+      int count = 0;
+      boolean kept = false;
+      for (Iterator<Change> it = changes.descendingIterator(); it.hasNext() && !kept; ) {
+         Change change = it.next();
+         ++count;
+         kept = change.baseTimeStamp == knownTimeStamps[other]
+                 && change.baseSender == knownSenders[other];
+      }
+
+      StateUpdate update;
+      try {
+         ByteArrayOutputStream data = new ByteArrayOutputStream();
+         DataOutputStream out = new DataOutputStream(data);
+         if (kept) {
+            writeChanges(out, count);
+         } else {
+            // The snapshot comes with the changes we keep, so that the
+            // application can send them to the ones behind it in turn
+            byte[] snapshot = snapshot();
+            MessageCodec.writeVarLong(out, snapshot.length);
+            out.write(snapshot);
+            writeChanges(out, changes.size());
+         }
+         update = new StateUpdate(!kept, data.toByteArray());
+      } catch (IOException ex) {
+         Logger.getLogger(StateReplica.class.getName()).log(Level.SEVERE, null, ex);
+         return null;
+      }
+
+      knownTimeStamps[other] = timeStamp;
+      knownSenders[other] = sender;
+      return update;
+   }
+
+   /**
+    * Bring the state to a more recent version.
+    *
+    * @param update the changes or the snapshot received, null if none
+    * @param timeStamp the time stamp of the version
+    * @param sender the id of the application of the release of the version
+    * @return true if the state has the version (or a more recent one), false
+    * if the update does not lead to it
+    */
+   public synchronized boolean apply(StateUpdate update, long timeStamp, int sender) {
+      if (!isNewer(timeStamp, sender, this.timeStamp, this.sender)) {
+         return true;
+      }
+      if (update == null) {
+         return false;
+      }
+
+      try {
+         DataInputStream in = new DataInputStream(
+                 new ByteArrayInputStream(update.getData()));
+
+         if (update.isSnapshot()) {
+            byte[] snapshot = new byte[(int) MessageCodec.readVarLong(in)];
+            in.readFully(snapshot);
+            state.readSnapshot(new DataInputStream(new ByteArrayInputStream(snapshot)));
+            setVersion(timeStamp, sender);
+            this.snapshot = snapshot;
+
+            // Keep the changes that led to the snapshot
+            changes.clear();
+            readChanges(in, false);
+            if (!changes.isEmpty() && (changes.getLast().timeStamp != timeStamp
+                    || changes.getLast().sender != sender)) {
+               changes.clear();
+            }
+            return true;
+         }
+
+         readChanges(in, true);
+      } catch (IOException ex) {
+         Logger.getLogger(StateReplica.class.getName()).log(Level.SEVERE, null, ex);
+         return false;
+      }
+
+      return !isNewer(timeStamp, sender, this.timeStamp, this.sender);
+   }
+
+   /**
+    * Learn that an application has a version of the state.
+    *
+    * @param other the id of the application
+    * @param timeStamp the time stamp of the version
+    * @param sender the id of the application of the release of the version
+    */
+   public synchronized void heard(int other, long timeStamp, int sender) {
+      if (isNewer(timeStamp, sender, knownTimeStamps[other], knownSenders[other])) {
+         knownTimeStamps[other] = timeStamp;
+         knownSenders[other] = sender;
+      }
+   }
+
+   /**
+    * Forget the version of an application, which may have missed an update.
+    * It will be sent a snapshot, unless the changes of every version are
+    * still kept.
+    *
+    * @param other the id of the application
+    */
+   public synchronized void forget(int other) {
+      knownTimeStamps[other] = 0;
+      knownSenders[other] = 0;
+   }
+
+   /**
+    * Write the last changes kept: their number, the version the first one
+    * applies to, then the version and the data of each of them.
+    *
+    * @param out the output to write to
+    * @param count the number of changes
+    * @throws IOException if the changes cannot be written
+    */
+   private void writeChanges(DataOutput out, int count) throws IOException {
+      MessageCodec.writeVarLong(out, count);
+
+      Iterator<Change> it = changes.iterator();
+      for (int skip = changes.size() - count; skip > 0; --skip) {
+         it.next();
+      }
+      for (boolean first = true; it.hasNext(); first = false) {
+         Change change = it.next();
+         if (first) {
+            MessageCodec.writeVarLong(out, change.baseTimeStamp);
+            MessageCodec.writeVarLong(out, change.baseSender);
+         }
+         MessageCodec.writeVarLong(out, change.timeStamp);
+         MessageCodec.writeVarLong(out, change.sender);
+         MessageCodec.writeVarLong(out, change.data.length);
+         out.write(change.data);
+      }
+   }
+
+   /**
+    * Read changes written by writeChanges(), and keep those following our
+    * version. They are applied to the state, unless the state already has
+    * them (the changes sent with a snapshot).
+    *
+    * @param in the input to read from
+    * @param apply whether to apply the changes to the state
+    * @throws IOException if the changes cannot be read or are malformed
+    */
+   private void readChanges(DataInput in, boolean apply) throws IOException {
+      long count = MessageCodec.readVarLong(in);
+      if (count == 0) {
+         return;
+      }
+
+      long baseTimeStamp = MessageCodec.readVarLong(in);
+      int baseSender = (int) MessageCodec.readVarLong(in);
+      for (long i = 0; i < count; ++i) {
+         long changeTimeStamp = MessageCodec.readVarLong(in);
+         int changeSender = (int) MessageCodec.readVarLong(in);
+         byte[] data = new byte[(int) MessageCodec.readVarLong(in)];
+         in.readFully(data);
+
+         if (!apply) {
+            record(new Change(baseTimeStamp, baseSender, changeTimeStamp,
+                    changeSender, data));
+         } else if (baseTimeStamp == timeStamp && baseSender == sender) {
+            state.readChanges(new DataInputStream(new ByteArrayInputStream(data)));
+            record(new Change(baseTimeStamp, baseSender, changeTimeStamp,
+                    changeSender, data));
+            setVersion(changeTimeStamp, changeSender);
+         }
+
+         baseTimeStamp = changeTimeStamp;
+         baseSender = changeSender;
+      }
+   }
+
+   /**
+    * Get the snapshot of the current version, written once per version.
+    */
+   private byte[] snapshot() throws IOException {
+      if (snapshot == null) {
+         ByteArrayOutputStream data = new ByteArrayOutputStream();
+         state.writeSnapshot(new DataOutputStream(data));
+         snapshot = data.toByteArray();
+      }
+      return snapshot;
+   }
+
+   /**
+    * Keep the changes of a release, forgetting the oldest ones.
+    */
+   private void record(Change change) {
+      changes.addLast(change);
+      if (changes.size() > history) {
+         changes.removeFirst();
+      }
+   }
+
+   private void setVersion(long timeStamp, int sender) {
+      this.timeStamp = timeStamp;
+      this.sender = sender;
+      snapshot = null;
+   }
+
+   /**
+    * Check if a version is more recent than another one (see
+    * VersionedValue.isNewerThan()).
+    */
+   private static boolean isNewer(long timeStamp, int sender, long otherTimeStamp,
+           int otherSender) {
+      return timeStamp > otherTimeStamp
+              || (timeStamp == otherTimeStamp && sender > otherSender);
+   }
+
+   /**
+    * The changes of a release, from the version they apply to.
+    */
+   private static class Change {
+
+      private final long baseTimeStamp;
+      private final int baseSender;
+      private final long timeStamp;
+      private final int sender;
+      private final byte[] data;
+
+      Change(long baseTimeStamp, int baseSender, long timeStamp, int sender,
+              byte[] data) {
+         this.baseTimeStamp = baseTimeStamp;
+         this.baseSender = baseSender;
+         this.timeStamp = timeStamp;
+         this.sender = sender;
+         this.data = data;
+      }
+   }
+}
@@ -6,37 +6,43 @@
 
 package ch.heigvd.prr_labo02_rmi.lamport.time;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * The LogicalClock class represents a logical clock allowing
  * to have time stamps that increase each time the getTime() method
  * is called.
  * 
- * The clock starts at 0.
+ * The clock starts at 0. It is lock-free: the threads receiving the messages
+ * of different applications update it at the same time without waiting for
+ * each other.
  */
 public class LogicalClock {
    
-   private long time;
+   private final AtomicLong time;
    
    /**
     * Start a logical clock at 1.
     */
    public LogicalClock() {
-      time = 0;
+      time = new AtomicLong(0);
    }
    
    /**
     * Get the time.
     * @return the logical time
     */
-   public synchronized long getTime() {
-      return time;
+   public long getTime() {
+      return time.get();
    }
    
    /**
     * Tick the clock to increment the time. Increments the time by 1.
+    * 
+    * @return the new time
     */
-   public synchronized void tick() {
-      ++time;
+   public long tick() {
+      return time.incrementAndGet();
    }
    
    /**
@@ -45,8 +51,15 @@ public class LogicalClock {
     * time and the given time of the other logical clock plus one.
     * 
     * @param otherTime the time of another logical clock
+    * @return the new time
     */
-   public synchronized void update(long otherTime) {
-      time = Math.max(time, otherTime) + 1;
+   public long update(long otherTime) {
+      long current;
+      long updated;
+      do {
+         current = time.get();
+         updated = Math.max(current, otherTime) + 1;
+      } while (!time.compareAndSet(current, updated));
+      return updated;
    }
 }
@@ -0,0 +1,97 @@
+/**
+ * File: CountingTransport.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.transport;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.message.MessageCodec;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The CountingTransport class counts the messages exchanged through another
+ * transport: every message sent, and every response that is a message (a
+ * RECEIPT returned on the call, for instance). It also counts their bytes,
+ * as written by the MessageCodec, whatever the transport.
+ */
+public class CountingTransport implements Transport {
+
+   // The transport actually sending the messages
+   private final Transport transport;
+
+   // The number of messages exchanged
+   private final LongAdder messages;
+
+   // The number of bytes of the messages exchanged
+   private final LongAdder bytes;
+
+   /**
+    * Constructor.
+    *
+    * @param transport the transport actually sending the messages
+    */
+   public CountingTransport(Transport transport) {
+      this(transport, new LongAdder(), new LongAdder());
+   }
+
+   private CountingTransport(Transport transport, LongAdder messages,
+           LongAdder bytes) {
+      this.transport = transport;
+      this.messages = messages;
+      this.bytes = bytes;
+   }
+
+   @Override
+   public CompletableFuture<LamportMessage> send(int other, LamportMessage message) {
+      messages.increment();
+      bytes.add(MessageCodec.size(message));
+      return transport.send(other, message).whenComplete((response, ex) -> {
+         if (response != null) {
+            messages.increment();
+            bytes.add(MessageCodec.size(response));
+         }
+      });
+   }
+
+   /**
+    * The lane counts its messages and bytes with those of this transport.
+    */
+   @Override
+   public Transport lane() {
+      return new CountingTransport(transport.lane(), messages, bytes);
+   }
+
+   /**
+    * @return the transport actually sending the messages
+    */
+   public Transport getTransport() {
+      return transport;
+   }
+
+   /**
+    * @return the number of messages exchanged since the creation or the last
+    * reset
+    */
+   public long getMessages() {
+      return messages.sum();
+   }
+
+   /**
+    * @return the number of bytes of the messages exchanged since the creation
+    * or the last reset
+    */
+   public long getBytes() {
+      return bytes.sum();
+   }
+
+   /**
+    * Start counting from 0 again.
+    */
+   public void reset() {
+      messages.reset();
+      bytes.reset();
+   }
+}
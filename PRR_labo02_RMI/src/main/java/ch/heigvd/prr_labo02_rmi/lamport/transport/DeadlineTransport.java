@@ -0,0 +1,94 @@
+/**
+ * File: DeadlineTransport.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.transport;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import java.rmi.RemoteException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DeadlineTransport class gives every call to another application,
+ * through another transport, a deadline: the call fails with a
+ * RemoteException if the application hasn't answered in time, as if it could
+ * not be reached. A stalled application then no longer blocks its callers
+ * forever. The call itself is not interrupted, its late response is ignored.
+ */
+public class DeadlineTransport implements Transport {
+
+   // The thread failing the calls whose deadline has passed, shared by every
+   // transport and only alive while in use
+   private static final ScheduledThreadPoolExecutor TIMER;
+
+   static {
+      TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+         Thread thread = new Thread(runnable, "lamport-deadlines");
+         thread.setDaemon(true);
+         return thread;
+      });
+      TIMER.setKeepAliveTime(1, TimeUnit.SECONDS);
+      TIMER.allowCoreThreadTimeOut(true);
+      TIMER.setRemoveOnCancelPolicy(true);
+   }
+
+   // The transport actually sending the messages
+   private final Transport transport;
+
+   // The time each application has to answer, in milliseconds
+   private final long deadline;
+
+   /**
+    * Constructor.
+    *
+    * @param transport the transport actually sending the messages
+    * @param deadline the time each application has to answer a call, in
+    * milliseconds
+    */
+   public DeadlineTransport(Transport transport, long deadline) {
+      if (deadline <= 0) {
+         throw new IllegalArgumentException("The deadline must be positive");
+      }
+      this.transport = transport;
+      this.deadline = deadline;
+   }
+
+   @Override
+   public CompletableFuture<LamportMessage> send(int other, LamportMessage message) {
+      CompletableFuture<LamportMessage> response = new CompletableFuture<>();
+      ScheduledFuture<?> expiry = TIMER.schedule(() -> response.completeExceptionally(
+              new RemoteException("The application " + other + " did not answer within "
+                      + deadline + " ms")),
+              deadline, TimeUnit.MILLISECONDS);
+
+      transport.send(other, message).whenComplete((result, ex) -> {
+         expiry.cancel(false);
+         if (ex != null) {
+            response.completeExceptionally(ex);
+         } else {
+            response.complete(result);
+         }
+      });
+      return response;
+   }
+
+   /**
+    * The lane has the same deadline as this transport.
+    */
+   @Override
+   public Transport lane() {
+      return new DeadlineTransport(transport.lane(), deadline);
+   }
+
+   /**
+    * @return the transport actually sending the messages
+    */
+   public Transport getTransport() {
+      return transport;
+   }
+}
@@ -0,0 +1,140 @@
+/**
+ * File: DelayingTransport.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.transport;
+
+import ch.heigvd.prr_labo02_rmi.lamport.concurrent.SerialExecutor;
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The DelayingTransport class delays the messages sent to chosen
+ * applications through another transport, so that a slow or stalled
+ * application can be stood in for on a single machine (tests, benchmarks).
+ *
+ * Each message is handed to the transport once its delay has passed since
+ * it was sent, in emission order: the messages to an application keep their
+ * order and are not delayed by each other. An application can be stalled
+ * altogether (its messages are held until its delay is lowered again).
+ */
+public class DelayingTransport implements Transport {
+
+   // The delay of a stalled application
+   public static final long STALLED = Long.MAX_VALUE;
+
+   // The transport actually sending the messages
+   private final Transport transport;
+
+   // The delay of the messages to each application, in milliseconds
+   private final AtomicLongArray delays;
+
+   // One ordered channel per application, holding its delayed messages
+   private final SerialExecutor[] channels;
+
+   /**
+    * Constructor. No application is delayed at first.
+    *
+    * @param transport the transport actually sending the messages
+    * @param numberOfApplications the number of Lamport applications
+    */
+   public DelayingTransport(Transport transport, int numberOfApplications) {
+      this(transport, new AtomicLongArray(numberOfApplications));
+   }
+
+   private DelayingTransport(Transport transport, AtomicLongArray delays) {
+      this.transport = transport;
+      this.delays = delays;
+
+      Executor executor = Executors.newCachedThreadPool(runnable -> {
+         Thread thread = new Thread(runnable, "lamport-delays");
+         thread.setDaemon(true);
+         return thread;
+      });
+      channels = new SerialExecutor[delays.length()];
+      for (int i = 0; i < channels.length; ++i) {
+         channels[i] = new SerialExecutor(executor);
+      }
+   }
+
+   /**
+    * Delay the messages to an application, from now on. The messages already
+    * held follow the new delay as well.
+    *
+    * @param other the id of the application
+    * @param delay the delay in milliseconds, 0 for none, STALLED to hold
+    * them until the delay is lowered
+    */
+   public void setDelay(int other, long delay) {
+      delays.set(other, delay);
+      synchronized(delays) {
+         delays.notifyAll();
+      }
+   }
+
+   @Override
+   public CompletableFuture<LamportMessage> send(int other, LamportMessage message) {
+      if (delays.get(other) == 0) {
+         return transport.send(other, message);
+      }
+
+      long sentAt = System.nanoTime();
+      CompletableFuture<LamportMessage> response = new CompletableFuture<>();
+      channels[other].execute(() -> {
+         awaitDelay(other, sentAt);
+         transport.send(other, message).whenComplete((result, ex) -> {
+            if (ex != null) {
+               response.completeExceptionally(ex);
+            } else {
+               response.complete(result);
+            }
+         });
+      });
+      return response;
+   }
+
+   /**
+    * The lane shares the delays of this transport.
+    */
+   @Override
+   public Transport lane() {
+      return new DelayingTransport(transport.lane(), delays);
+   }
+
+   /**
+    * Wait until the delay of a message has passed.
+    *
+    * @param other the id of the application the message is sent to
+    * @param sentAt the time the message was sent at, from System.nanoTime()
+    */
+   private void awaitDelay(int other, long sentAt) {
+      synchronized(delays) {
+         while (true) {
+            long delay = delays.get(other);
+            if (delay == 0) {
+               return;
+            }
+
+            long remaining = delay == STALLED ? Long.MAX_VALUE
+                    : sentAt + TimeUnit.MILLISECONDS.toNanos(delay) - System.nanoTime();
+            if (remaining <= 0) {
+               return;
+            }
+
+            try {
+               TimeUnit.NANOSECONDS.timedWait(delays, remaining);
+            } catch (InterruptedException ex) {
+               Logger.getLogger(DelayingTransport.class.getName()).log(Level.SEVERE, null, ex);
+            }
+         }
+      }
+   }
+}
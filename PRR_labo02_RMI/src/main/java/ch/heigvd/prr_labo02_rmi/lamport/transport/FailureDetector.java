@@ -0,0 +1,130 @@
+/**
+ * File: FailureDetector.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.transport;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The FailureDetector class suspects the Lamport applications we haven't
+ * heard from for a while: no message and no response for longer than the
+ * timeout. An application is heard from again as soon as it answers, and is
+ * then no longer suspected. To hear from the idle applications as well, a
+ * HEARTBEAT should be sent to the applications we haven't heard from for a
+ * quarter of the timeout (see needsHeartbeat).
+ *
+ * A suspicion may be wrong: the application may only be slow. An algorithm
+ * going on without the suspected applications therefore trades the safety of
+ * the mutual exclusion for its liveness, and the timeout must be well above
+ * the usual round trip time.
+ *
+ * Hearing from an application takes no lock and allocates nothing.
+ */
+public class FailureDetector {
+
+   // The id of our application
+   private final int id;
+
+   // The time after which a silent application is suspected, in nanoseconds
+   private final long timeout;
+
+   // The last time each application was heard from, from System.nanoTime()
+   private final AtomicLongArray lastHeard;
+
+   // Whether each application was suspected at the last check
+   private final AtomicIntegerArray suspected;
+
+   /**
+    * Constructor. Every application is considered as heard from at the
+    * creation of the detector.
+    *
+    * @param numberOfApplications the number of Lamport applications
+    * @param id the id of our application
+    * @param timeout the time after which a silent application is suspected,
+    * in milliseconds
+    */
+   public FailureDetector(int numberOfApplications, int id, long timeout) {
+      if (timeout <= 0) {
+         throw new IllegalArgumentException("The timeout must be positive");
+      }
+      this.id = id;
+      this.timeout = TimeUnit.MILLISECONDS.toNanos(timeout);
+
+      lastHeard = new AtomicLongArray(numberOfApplications);
+      suspected = new AtomicIntegerArray(numberOfApplications);
+      long now = System.nanoTime();
+      for (int i = 0; i < numberOfApplications; ++i) {
+         lastHeard.set(i, now);
+      }
+   }
+
+   /**
+    * @return the time between two checks of the applications, and between
+    * two HEARTBEATs to a silent application, in milliseconds
+    */
+   public long getPeriod() {
+      return Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout) / 4);
+   }
+
+   /**
+    * Remember that we heard from an application: a message or a response.
+    *
+    * @param other the id of the application
+    */
+   public void heard(int other) {
+      lastHeard.set(other, System.nanoTime());
+   }
+
+   /**
+    * Suspect an application right away, because a call to it failed.
+    *
+    * @param other the id of the application
+    */
+   public void suspect(int other) {
+      if (other != id) {
+         lastHeard.set(other, System.nanoTime() - timeout - 1);
+      }
+   }
+
+   /**
+    * Check if an application is suspected.
+    *
+    * @param other the id of the application
+    * @return true if we haven't heard from it for longer than the timeout
+    */
+   public boolean isSuspected(int other) {
+      return other != id && System.nanoTime() - lastHeard.get(other) > timeout;
+   }
+
+   /**
+    * Check if an application became suspected since the last check. An
+    * application heard from again may become suspected again later.
+    *
+    * @param other the id of the application
+    * @return true if the application is suspected and was not at the last
+    * check
+    */
+   public boolean newlySuspected(int other) {
+      if (isSuspected(other)) {
+         return suspected.compareAndSet(other, 0, 1);
+      }
+      suspected.set(other, 0);
+      return false;
+   }
+
+   /**
+    * Check if a HEARTBEAT should be sent to an application, so that we hear
+    * from it before the timeout.
+    *
+    * @param other the id of the application
+    * @return true if we haven't heard from it for a quarter of the timeout
+    */
+   public boolean needsHeartbeat(int other) {
+      return other != id && System.nanoTime() - lastHeard.get(other) > timeout / 4;
+   }
+}
@@ -0,0 +1,483 @@
+/**
+ * File: NioTransport.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.transport;
+
+import ch.heigvd.prr_labo02_rmi.lamport.concurrent.SerialExecutor;
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.message.MessageCodec;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.Lamport;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The NioTransport class sends the messages between the Lamport applications
+ * over plain TCP connections handled with non-blocking sockets, without the
+ * RMI stack.
+ *
+ * Each application listens on its own port, and opens one persistent
+ * connection to each application it sends messages to. The messages are
+ * written one after the other on the connection without waiting for the
+ * responses (pipelining). The receiving application handles the messages of
+ * a connection in order and writes the responses back in the same order, so
+ * the responses are matched to the messages by their position.
+ *
+ * A frame is made of its length (4 bytes) followed by the message encoded by
+ * the MessageCodec. An empty frame is a null response. A frame longer than
+ * MAX_FRAME is malformed: the connection is closed rather than the memory
+ * exhausted by a corrupted length.
+ *
+ * A single thread owns the sockets. The other threads give it their work
+ * through a queue, and the messages are handled (and the responses given)
+ * on the executor so that this thread never waits for a Lamport object.
+ */
+public class NioTransport implements Transport, Closeable {
+
+   // The longest frame sent or received, in bytes
+   public static final int MAX_FRAME = 16 * 1024 * 1024;
+
+   // The id of our application and the addresses of every application
+   private final int id;
+   private final InetSocketAddress[] addresses;
+
+   // The executor handling the messages and the responses
+   private final Executor executor;
+
+   // The selector of the sockets and the work to do on its thread
+   private final Selector selector;
+   private final Queue<Runnable> tasks;
+
+   // Our connection to each application, null if not opened yet
+   private final Connection[] connections;
+
+   // The Lamport object handling the messages we receive
+   private Lamport local;
+
+   private volatile boolean running;
+
+   /**
+    * Constructor.
+    *
+    * @param id the id of our application
+    * @param addresses the address of each application, ours included
+    * @param executor the executor handling the messages and the responses
+    * @throws IOException if the selector cannot be opened
+    */
+   public NioTransport(int id, InetSocketAddress[] addresses, Executor executor)
+           throws IOException {
+      this.id = id;
+      this.addresses = addresses;
+      this.executor = executor;
+      selector = Selector.open();
+      tasks = new ConcurrentLinkedQueue<>();
+      connections = new Connection[addresses.length];
+   }
+
+   /**
+    * Give the addresses of the applications running on the same host, the
+    * application i listening on the port basePort + i.
+    *
+    * @param host the host of the applications
+    * @param basePort the port of the application 0
+    * @param numberOfApplications the number of applications
+    * @return the addresses of the applications
+    */
+   public static InetSocketAddress[] addresses(String host, int basePort,
+           int numberOfApplications) {
+      InetSocketAddress[] addresses = new InetSocketAddress[numberOfApplications];
+      for (int i = 0; i < addresses.length; ++i) {
+         addresses[i] = new InetSocketAddress(host, basePort + i);
+      }
+      return addresses;
+   }
+
+   /**
+    * Start listening for the messages of the other applications.
+    *
+    * @param local the Lamport object handling the messages
+    * @throws IOException if our port cannot be opened
+    */
+   public void start(Lamport local) throws IOException {
+      this.local = local;
+
+      ServerSocketChannel server = ServerSocketChannel.open();
+      server.configureBlocking(false);
+      server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+      server.bind(new InetSocketAddress(addresses[id].getPort()));
+      server.register(selector, SelectionKey.OP_ACCEPT);
+
+      running = true;
+      Thread thread = new Thread(this::run, "lamport-" + id + "-nio");
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+   @Override
+   public CompletableFuture<LamportMessage> send(int other, LamportMessage message) {
+      CompletableFuture<LamportMessage> response = new CompletableFuture<>();
+
+      ByteBuffer frame;
+      try {
+         frame = frame(message);
+      } catch (IOException ex) {
+         response.completeExceptionally(ex);
+         return response;
+      }
+
+      execute(() -> {
+         try {
+            Connection connection = connect(other);
+            connection.responses.add(response);
+            connection.write(frame);
+         } catch (IOException ex) {
+            response.completeExceptionally(ex);
+         }
+      });
+
+      return response;
+   }
+
+   /**
+    * Stop the transport and close every connection.
+    */
+   @Override
+   public void close() {
+      running = false;
+      selector.wakeup();
+   }
+
+   /**
+    * Give some work to the thread owning the sockets.
+    *
+    * @param task the work to do
+    */
+   private void execute(Runnable task) {
+      tasks.add(task);
+      selector.wakeup();
+   }
+
+   /**
+    * The loop of the thread owning the sockets.
+    */
+   private void run() {
+      while (running) {
+         try {
+            selector.select();
+         } catch (IOException ex) {
+            Logger.getLogger(NioTransport.class.getName()).log(Level.SEVERE, null, ex);
+            break;
+         }
+
+         Runnable task;
+         while ((task = tasks.poll()) != null) {
+            task.run();
+         }
+
+         Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+         while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (key.isValid()) {
+               handle(key);
+            }
+         }
+      }
+
+      // Close everything once stopped
+      for (SelectionKey key : selector.keys()) {
+         if (key.attachment() instanceof Connection) {
+            ((Connection) key.attachment()).fail(new EOFException("Transport closed"));
+         } else {
+            closeQuietly(key.channel());
+         }
+      }
+      closeQuietly(selector);
+   }
+
+   /**
+    * Handle a socket ready for some operation.
+    *
+    * @param key the key of the socket
+    */
+   private void handle(SelectionKey key) {
+      if (key.isAcceptable()) {
+         try {
+            SocketChannel channel = ((ServerSocketChannel) key.channel()).accept();
+            if (channel != null) {
+               channel.configureBlocking(false);
+               channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+               new Connection(channel, -1).register(SelectionKey.OP_READ);
+            }
+         } catch (IOException ex) {
+            Logger.getLogger(NioTransport.class.getName()).log(Level.SEVERE, null, ex);
+         }
+         return;
+      }
+
+      Connection connection = (Connection) key.attachment();
+      try {
+         if (key.isConnectable()) {
+            connection.finishConnect();
+         }
+         if (key.isValid() && key.isReadable()) {
+            connection.read();
+         }
+         if (key.isValid() && key.isWritable()) {
+            connection.flush();
+         }
+      } catch (IOException ex) {
+         connection.fail(ex);
+      }
+   }
+
+   /**
+    * Get our connection to an application, opening it if needed. Must be
+    * called from the thread owning the sockets.
+    *
+    * @param other the id of the application
+    * @return the connection
+    * @throws IOException if the connection cannot be opened
+    */
+   private Connection connect(int other) throws IOException {
+      if (connections[other] == null) {
+         SocketChannel channel = SocketChannel.open();
+         try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel, other);
+            if (channel.connect(addresses[other])) {
+               connection.register(SelectionKey.OP_READ);
+            } else {
+               connection.register(SelectionKey.OP_CONNECT);
+            }
+            connections[other] = connection;
+         } catch (IOException ex) {
+            closeQuietly(channel);
+            throw ex;
+         }
+      }
+      return connections[other];
+   }
+
+   /**
+    * Handle a message received from another application, and write the
+    * response back on the same connection.
+    *
+    * @param connection the connection the message came from
+    * @param message the message
+    */
+   private void receive(Connection connection, LamportMessage message) {
+      connection.serial.execute(() -> {
+         try {
+            ByteBuffer frame = frame(local.receive(message));
+            execute(() -> {
+               try {
+                  connection.write(frame);
+               } catch (IOException ex) {
+                  connection.fail(ex);
+               }
+            });
+         } catch (IOException ex) {
+            Logger.getLogger(NioTransport.class.getName()).log(Level.SEVERE, null, ex);
+            execute(() -> connection.fail(ex));
+         }
+      });
+   }
+
+   /**
+    * Create the frame of a message.
+    *
+    * @param message the message, null for an empty frame
+    * @return the frame, ready to be written
+    * @throws IOException if the message cannot be encoded
+    */
+   private static ByteBuffer frame(LamportMessage message) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(0);
+      if (message != null) {
+         MessageCodec.write(message, out);
+      }
+      out.flush();
+      if (bytes.size() - 4 > MAX_FRAME) {
+         throw new IOException("The message is too long: " + (bytes.size() - 4) + " bytes");
+      }
+
+      ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+      frame.putInt(0, frame.remaining() - 4);
+      return frame;
+   }
+
+   private static void closeQuietly(Closeable closeable) {
+      try {
+         closeable.close();
+      } catch (IOException ex) {
+         Logger.getLogger(NioTransport.class.getName()).log(Level.FINE, null, ex);
+      }
+   }
+
+   /**
+    * A connection with another application. Except for its serial executor,
+    * it is only used from the thread owning the sockets.
+    */
+   private class Connection {
+
+      private final SocketChannel channel;
+
+      // The id of the application we opened the connection to, -1 if the
+      // connection was opened by the other application
+      private final int other;
+
+      // The frames waiting to be written and the bytes read so far
+      private final ArrayDeque<ByteBuffer> writes;
+      private ByteBuffer reads;
+
+      // The responses expected for the messages we sent, in order
+      private final ArrayDeque<CompletableFuture<LamportMessage>> responses;
+
+      // The channel handling the messages or the responses in order
+      private final SerialExecutor serial;
+
+      private SelectionKey key;
+
+      Connection(SocketChannel channel, int other) {
+         this.channel = channel;
+         this.other = other;
+         writes = new ArrayDeque<>();
+         reads = ByteBuffer.allocate(256);
+         responses = new ArrayDeque<>();
+         serial = new SerialExecutor(executor);
+      }
+
+      void register(int operations) throws IOException {
+         key = channel.register(selector, operations, this);
+      }
+
+      void finishConnect() throws IOException {
+         channel.finishConnect();
+         key.interestOps(writes.isEmpty()
+                 ? SelectionKey.OP_READ
+                 : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+      }
+
+      /**
+       * Write a frame, or keep it until the socket is ready.
+       */
+      void write(ByteBuffer frame) throws IOException {
+         writes.add(frame);
+         if (channel.isConnected()) {
+            flush();
+         }
+      }
+
+      void flush() throws IOException {
+         while (!writes.isEmpty()) {
+            channel.write(writes.peek());
+            if (writes.peek().hasRemaining()) {
+               // Wait for the socket to be ready again
+               key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+               return;
+            }
+            writes.poll();
+         }
+         key.interestOps(SelectionKey.OP_READ);
+      }
+
+      void read() throws IOException {
+         if (channel.read(reads) < 0) {
+            throw new EOFException("Connection closed by the other application");
+         }
+
+         reads.flip();
+         while (reads.remaining() >= 4) {
+            int length = reads.getInt(reads.position());
+            if (length < 0 || length > MAX_FRAME) {
+               throw new StreamCorruptedException("Malformed frame length " + length);
+            }
+            if (reads.remaining() < 4 + length) {
+               break;
+            }
+
+            reads.getInt();
+            byte[] body = new byte[length];
+            reads.get(body);
+            frameReceived(body);
+         }
+         reads.compact();
+
+         // Make room for a frame larger than the buffer
+         if (!reads.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(reads.capacity() * 2);
+            reads.flip();
+            larger.put(reads);
+            reads = larger;
+         }
+      }
+
+      void frameReceived(byte[] body) throws IOException {
+         LamportMessage message = body.length == 0
+                 ? null
+                 : MessageCodec.read(new DataInputStream(new ByteArrayInputStream(body)));
+
+         if (other < 0) {
+            if (message == null) {
+               throw new StreamCorruptedException("Empty message");
+            }
+            receive(this, message);
+         } else {
+            CompletableFuture<LamportMessage> response = responses.poll();
+            if (response == null) {
+               throw new StreamCorruptedException("Unexpected response");
+            }
+            serial.execute(() -> response.complete(message));
+         }
+      }
+
+      /**
+       * Close the connection and fail the responses still expected. The next
+       * message to the application opens a new connection.
+       */
+      void fail(IOException ex) {
+         if (other >= 0 && connections[other] == this) {
+            connections[other] = null;
+         }
+         if (key != null) {
+            key.cancel();
+         }
+         closeQuietly(channel);
+
+         RemoteException failure = new RemoteException(
+                 "The connection to the Lamport application failed", ex);
+         CompletableFuture<LamportMessage> response;
+         while ((response = responses.poll()) != null) {
+            CompletableFuture<LamportMessage> failed = response;
+            serial.execute(() -> failed.completeExceptionally(failure));
+         }
+      }
+   }
+}
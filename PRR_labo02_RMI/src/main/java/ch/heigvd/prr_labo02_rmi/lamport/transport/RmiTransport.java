@@ -0,0 +1,229 @@
+/**
+ * File: RmiTransport.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.transport;
+
+import ch.heigvd.prr_labo02_rmi.lamport.concurrent.SerialExecutor;
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.Lamport;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The RmiTransport class sends the messages by calling the receive() method
+ * of the distant Lamport objects found in the RMI registry.
+ *
+ * Each distant application has its own channel (a SerialExecutor) so that the
+ * messages it receives from us keep their emission order, while the messages
+ * sent to different applications are delivered at the same time. A lane
+ * shares the stubs but has its own channels, an RMI call of a lane does not
+ * wait for the calls of the others.
+ *
+ * The stubs of the distant applications are looked up once and kept. The
+ * application can look them all up at startup (see awaitApplications()) so
+ * that its first critical section doesn't pay for the lookups. When a call
+ * fails, the stub is dropped and looked up again in the background until
+ * the application answers, so the next message finds a fresh stub.
+ */
+public class RmiTransport implements Transport {
+
+   // RMI registry address
+   private final String rmiAddress;
+
+   // The delays between two lookups of an application that doesn't answer
+   private static final long FIRST_RETRY_DELAY = 50;
+   private static final long MAX_RETRY_DELAY = 2000;
+
+   // Array of Lamport applications to communicate with, null until looked up
+   private final AtomicReferenceArray<Lamport> lamportApplications;
+
+   // Whether each application is being looked up again in the background
+   private final boolean[] resolving;
+
+   // The thread looking the applications up again
+   private final ScheduledExecutorService resolver;
+
+   // The executor running the RMI calls
+   private final Executor executor;
+
+   // One ordered channel per Lamport application to send the messages
+   private final SerialExecutor[] channels;
+
+   /**
+    * Constructor.
+    *
+    * @param rmiAddress the RMI registry address
+    * @param numberOfApplications the number of Lamport application in use
+    * @param executor the executor running the RMI calls
+    */
+   public RmiTransport(String rmiAddress, int numberOfApplications, Executor executor) {
+      this.rmiAddress = rmiAddress;
+
+      // Create the array of RMI distant Lamport objects
+      lamportApplications = new AtomicReferenceArray<>(numberOfApplications);
+      resolving = new boolean[numberOfApplications];
+      resolver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+         Thread thread = new Thread(runnable, "lamport-rmi-resolver");
+         thread.setDaemon(true);
+         return thread;
+      });
+
+      this.executor = executor;
+      channels = createChannels(numberOfApplications, executor);
+   }
+
+   /**
+    * Constructor of a lane.
+    *
+    * @param shared the transport whose stubs are shared
+    */
+   private RmiTransport(RmiTransport shared) {
+      rmiAddress = shared.rmiAddress;
+      lamportApplications = shared.lamportApplications;
+      resolving = shared.resolving;
+      resolver = shared.resolver;
+      executor = shared.executor;
+      channels = createChannels(lamportApplications.length(), executor);
+   }
+
+   /**
+    * Create one ordered channel per Lamport application.
+    *
+    * @param numberOfApplications the number of Lamport application in use
+    * @param executor the executor running the RMI calls
+    * @return the channels
+    */
+   private static SerialExecutor[] createChannels(int numberOfApplications,
+           Executor executor) {
+      SerialExecutor[] channels = new SerialExecutor[numberOfApplications];
+      for (int i = 0; i < channels.length; ++i) {
+         channels[i] = new SerialExecutor(executor);
+      }
+      return channels;
+   }
+
+   /**
+    * Look every Lamport application up and call it once, so that the stubs
+    * and their connections are ready. Waits until every application is
+    * registered and answers.
+    *
+    * @throws InterruptedException if interrupted while waiting
+    */
+   public void awaitApplications() throws InterruptedException {
+      for (int i = 0; i < lamportApplications.length(); ++i) {
+         awaitApplication(i);
+      }
+   }
+
+   /**
+    * Look a Lamport application up and call it once, waiting until it is
+    * registered and answers: with dynamic members, only the members are
+    * awaited.
+    *
+    * @param other the id of the application
+    * @throws InterruptedException if interrupted while waiting
+    */
+   public void awaitApplication(int other) throws InterruptedException {
+      long delay = FIRST_RETRY_DELAY;
+      while (!tryResolve(other)) {
+         Thread.sleep(delay);
+         delay = Math.min(delay * 2, MAX_RETRY_DELAY);
+      }
+   }
+
+   @Override
+   public CompletableFuture<LamportMessage> send(int other, LamportMessage message) {
+      return CompletableFuture.supplyAsync(() -> {
+         Lamport lamport = lamportApplications.get(other);
+         try {
+            // If we haven't asked the RMI registry for this Lamport application
+            if (lamport == null) {
+               lamport = getLamportRmi(other);
+               lamportApplications.set(other, lamport);
+            }
+
+            return lamport.receive(message);
+         } catch (RemoteException | NotBoundException ex) {
+            // The stub may be outdated, look the application up again
+            lamportApplications.compareAndSet(other, lamport, null);
+            resolveLater(other, FIRST_RETRY_DELAY);
+            throw new CompletionException(ex);
+         }
+      }, channels[other]);
+   }
+
+   @Override
+   public Transport lane() {
+      return new RmiTransport(this);
+   }
+
+   /**
+    * Look an application up in the background, again and again until it
+    * answers, unless it is already being looked up.
+    *
+    * @param other the id of the application
+    * @param delay the delay before the lookup, in milliseconds
+    */
+   private void resolveLater(int other, long delay) {
+      synchronized(resolving) {
+         if (resolving[other]) {
+            return;
+         }
+         resolving[other] = true;
+      }
+
+      resolver.schedule(() -> retryResolve(other, delay), delay, TimeUnit.MILLISECONDS);
+   }
+
+   private void retryResolve(int other, long delay) {
+      if (lamportApplications.get(other) != null || tryResolve(other)) {
+         synchronized(resolving) {
+            resolving[other] = false;
+         }
+      } else {
+         long next = Math.min(delay * 2, MAX_RETRY_DELAY);
+         resolver.schedule(() -> retryResolve(other, next), next, TimeUnit.MILLISECONDS);
+      }
+   }
+
+   /**
+    * Look an application up and call it once to check that it answers.
+    *
+    * @param other the id of the application
+    * @return true if the application answered
+    */
+   private boolean tryResolve(int other) {
+      try {
+         Lamport lamport = getLamportRmi(other);
+         lamport.ping();
+         lamportApplications.set(other, lamport);
+         return true;
+      } catch (RemoteException | NotBoundException ex) {
+         return false;
+      }
+   }
+
+   /**
+    * Get a Lamport RMI by id
+    *
+    * @param id the id of the Lamport application we want to get RMI for
+    * @return the corresponding Lamport
+    * @throws RemoteException
+    * @throws NotBoundException
+    */
+   private Lamport getLamportRmi(int id) throws RemoteException, NotBoundException {
+      return (Lamport) LocateRegistry.getRegistry(rmiAddress)
+              .lookup("lamport-" + id);
+   }
+}
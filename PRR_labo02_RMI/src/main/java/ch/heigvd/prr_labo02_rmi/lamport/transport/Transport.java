@@ -0,0 +1,45 @@
+/**
+ * File: Transport.java
+ * Authors: Sathiya Kirushnapillai & Mathieu Monteverde
+ * Date: 18.10.2026
+ */
+
+package ch.heigvd.prr_labo02_rmi.lamport.transport;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The Transport interface represents the way the Lamport applications send
+ * their messages to each other. The user applications always use RMI, but the
+ * messages between Lamport applications may travel differently.
+ *
+ * A transport must deliver the messages sent to a given application in the
+ * order they were sent, and only give the response to a message once the
+ * distant application has handled it.
+ */
+public interface Transport {
+
+   /**
+    * Send a message to another Lamport application, which handles it with
+    * its receive() method.
+    *
+    * @param other the id of the application to send the message to
+    * @param message the message to send
+    * @return the future response of the application, completed exceptionally
+    * if the message could not be delivered
+    */
+   public CompletableFuture<LamportMessage> send(int other, LamportMessage message);
+
+   /**
+    * Get a transport sharing the connections of this one, whose messages are
+    * only ordered with each other. The messages of independent critical
+    * sections (see KeyedLamportImpl) then do not wait for each other. By
+    * default, the messages of the lane stay ordered with all the others.
+    *
+    * @return the transport of the lane
+    */
+   public default Transport lane() {
+      return this;
+   }
+}
@@ -0,0 +1,104 @@
+package ch.heigvd.prr_labo02_rmi.lamport.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the rejections of the SerialExecutor class, on top of an
+ * executor of a single thread and without any queue
+ */
+public class SerialExecutorTest {
+
+   public SerialExecutorTest() {
+   }
+
+   private ThreadPoolExecutor executor;
+
+   @Before
+   public void setUp() {
+      executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+              new SynchronousQueue<>());
+   }
+
+   @After
+   public void tearDown() {
+      executor.shutdownNow();
+   }
+
+   /**
+    * Test of execute method, of class SerialExecutor.
+    */
+   @Test(timeout = 5000)
+   public void tasksRejectedAfterAnotherOneShouldStillRun() throws InterruptedException {
+      SerialExecutor serial = new SerialExecutor(executor);
+      List<String> runs = Collections.synchronizedList(new ArrayList<>());
+      CountDownLatch release = new CountDownLatch(1);
+      CountDownLatch done = new CountDownLatch(1);
+
+      serial.execute(() -> {
+         try {
+            release.await();
+         } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+         }
+         runs.add("first");
+      });
+      serial.execute(() -> runs.add("second"));
+      serial.execute(() -> {
+         runs.add("third");
+         done.countDown();
+      });
+
+      // The only thread of the executor is busy when the first task ends
+      release.countDown();
+      done.await();
+      assertEquals(Arrays.asList("first", "second", "third"), runs);
+   }
+
+   /**
+    * Test of execute method, of class SerialExecutor.
+    */
+   @Test(timeout = 5000)
+   public void taskRejectedWhenSubmittedShouldNotBlockTheNextOnes()
+           throws InterruptedException {
+      SerialExecutor serial = new SerialExecutor(executor);
+      CountDownLatch release = new CountDownLatch(1);
+      executor.execute(() -> {
+         try {
+            release.await();
+         } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+         }
+      });
+
+      try {
+         serial.execute(() -> fail("The task was rejected"));
+         fail("The executor is saturated");
+      } catch (RejectedExecutionException ex) {
+         // Expected
+      }
+
+      release.countDown();
+      CountDownLatch done = new CountDownLatch(1);
+      while (done.getCount() > 0) {
+         try {
+            serial.execute(done::countDown);
+            done.await();
+         } catch (RejectedExecutionException ex) {
+            // The thread of the executor is not back yet
+            Thread.sleep(10);
+         }
+      }
+   }
+}
@@ -0,0 +1,87 @@
+package ch.heigvd.prr_labo02_rmi.lamport.journal;
+
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.LamportImpl;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the recovery of the Journal class
+ */
+public class JournalTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   public JournalTest() {
+   }
+
+   private Path path() {
+      return folder.getRoot().toPath().resolve("lamport-0.journal");
+   }
+
+   /**
+    * Test of released and clockUsed methods, of class Journal.
+    */
+   @Test
+   public void latestValueAndClockShouldBeRecovered() throws IOException {
+      Journal journal = new Journal(path());
+      assertEquals(0, journal.getValueTimeStamp());
+      assertEquals(0, journal.getClockLimit());
+
+      journal.released(5, 3, 1);
+      journal.released(7, 9, 0);
+      journal.clockUsed(10);
+
+      Journal recovered = new Journal(path());
+      assertEquals(7, recovered.getValue());
+      assertEquals(9, recovered.getValueTimeStamp());
+      assertEquals(0, recovered.getValueSender());
+      assertTrue(recovered.getClockLimit() > 10);
+   }
+
+   /**
+    * Test of compact method, of class Journal.
+    */
+   @Test
+   public void recoveryShouldFollowTheCompactions() throws IOException {
+      // Room for 4 records, hence several compactions
+      Journal journal = new Journal(path(), 4 * Journal.RECORD_SIZE);
+      for (int i = 1; i <= 10; ++i) {
+         journal.released(i, i, 0);
+      }
+
+      Journal recovered = new Journal(path(), 4 * Journal.RECORD_SIZE);
+      assertEquals(10, recovered.getValue());
+      assertEquals(10, recovered.getValueTimeStamp());
+
+      // The records of the previous epochs are not replayed again
+      recovered.released(11, 11, 0);
+      assertEquals(11, new Journal(path(), 4 * Journal.RECORD_SIZE).getValue());
+   }
+
+   /**
+    * Test of clockUsed method, of class Journal, with releases sending no
+    * message.
+    */
+   @Test(timeout = 5000)
+   public void clockOfTheStickyReleasesShouldBeRecovered() throws Exception {
+      LamportImpl lamport = new LamportImpl(1, 0,
+              (other, message) -> CompletableFuture.completedFuture(null),
+              Runnable::run, true);
+      lamport.setJournal(new Journal(path()));
+
+      // Only the first lock sends a message, the others keep the ownership
+      for (int i = 0; i < 2 * Journal.CLOCK_STEP; ++i) {
+         lamport.addAndGet(1);
+      }
+
+      Journal recovered = new Journal(path());
+      assertEquals(2 * Journal.CLOCK_STEP, recovered.getValue());
+      assertTrue(recovered.getClockLimit() > recovered.getValueTimeStamp());
+   }
+}
@@ -0,0 +1,237 @@
+package ch.heigvd.prr_labo02_rmi.lamport.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the compact serialization of the Lamport messages
+ */
+public class MessageCodecTest {
+
+   public MessageCodecTest() {
+   }
+
+   /**
+    * The fields of a LamportMessage with the default Java serialization, as
+    * the messages were sent before the MessageCodec.
+    */
+   private static class DefaultMessage implements Serializable {
+      private static final long serialVersionUID = 1L;
+
+      private final LamportMessage.Type type;
+      private final long timeStamp;
+      private final int sender;
+      private final int sharedValue;
+      private final long valueTimeStamp;
+      private final int valueSender;
+
+      DefaultMessage(LamportMessage message) {
+         type = message.getType();
+         timeStamp = message.getTimeStamp();
+         sender = message.getSender();
+         sharedValue = message.getSharedValue();
+         valueTimeStamp = message.getValueTimeStamp();
+         valueSender = message.getValueSender();
+      }
+   }
+
+   private static byte[] serialize(Object object) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+         out.writeObject(object);
+      }
+      return bytes.toByteArray();
+   }
+
+   private static Object deserialize(byte[] bytes) throws IOException,
+           ClassNotFoundException {
+      try (ObjectInputStream in = new ObjectInputStream(
+              new ByteArrayInputStream(bytes))) {
+         return in.readObject();
+      }
+   }
+
+   private static void assertSameMessage(LamportMessage expected,
+           LamportMessage actual) {
+      assertEquals(expected.getClass(), actual.getClass());
+      assertEquals(expected.getType(), actual.getType());
+      assertEquals(expected.getTimeStamp(), actual.getTimeStamp());
+      assertEquals(expected.getSender(), actual.getSender());
+      assertEquals(expected.getSharedValue(), actual.getSharedValue());
+      assertEquals(expected.getValueTimeStamp(), actual.getValueTimeStamp());
+      assertEquals(expected.getValueSender(), actual.getValueSender());
+   }
+
+   /**
+    * Test of the serialization of every type of message, with extreme values.
+    */
+   @Test
+   public void messagesShouldBeTheSameOnceDeserialized() throws Exception {
+      long[] timeStamps = {0, 1, 127, 128, 300000, Long.MAX_VALUE};
+      int[] values = {0, -1, 63, -64, Integer.MIN_VALUE, Integer.MAX_VALUE};
+
+      for (LamportMessage.Type type : LamportMessage.Type.values()) {
+         // A TOKEN is always read as a TokenMessage, and the members as a
+         // MembershipMessage
+         if (type == LamportMessage.Type.TOKEN
+                 || type == LamportMessage.Type.MEMBERS) {
+            continue;
+         }
+
+         for (long timeStamp : timeStamps) {
+            for (int value : values) {
+               LamportMessage message = new LamportMessage(type, timeStamp,
+                       7, value);
+               assertSameMessage(message,
+                       (LamportMessage) deserialize(serialize(message)));
+
+               // A value released by another application, before or after
+               message = new LamportMessage(type, timeStamp, 7, value,
+                       timeStamp / 2, 1000);
+               assertSameMessage(message,
+                       (LamportMessage) deserialize(serialize(message)));
+               message = new LamportMessage(type, timeStamp / 2, 7, value,
+                       timeStamp, 3);
+               assertSameMessage(message,
+                       (LamportMessage) deserialize(serialize(message)));
+            }
+         }
+      }
+   }
+
+   /**
+    * Test of the serialization of the token.
+    */
+   @Test
+   public void tokenShouldBeTheSameOnceDeserialized() throws Exception {
+      TokenMessage token = new TokenMessage(
+              new LamportMessage(LamportMessage.Type.TOKEN, 42, 2, -5, 40, 1),
+              new long[] {3, 0, 42, Long.MAX_VALUE},
+              new int[] {3, 0},
+              300
+      );
+
+      TokenMessage read = (TokenMessage) deserialize(serialize(token));
+
+      assertSameMessage(token, read);
+      assertArrayEquals(token.getLastServedRequests(), read.getLastServedRequests());
+      assertArrayEquals(token.getQueue(), read.getQueue());
+      assertEquals(token.getSequence(), read.getSequence());
+   }
+
+   /**
+    * Test of the serialization of the members.
+    */
+   @Test
+   public void membersShouldBeTheSameOnceDeserialized() throws Exception {
+      MembershipMessage members = new MembershipMessage(
+              new LamportMessage(LamportMessage.Type.MEMBERS, 42, 2, -5, 40, 1),
+              new int[] {0, 2, 300});
+
+      MembershipMessage read = (MembershipMessage) deserialize(serialize(members));
+
+      assertSameMessage(members, read);
+      assertArrayEquals(members.getMembers(), read.getMembers());
+   }
+
+   /**
+    * Test of the serialization of a receipt answering a request.
+    */
+   @Test
+   public void receiptShouldBeTheSameOnceDeserialized() throws Exception {
+      ReceiptMessage receipt = new ReceiptMessage(
+              new LamportMessage(LamportMessage.Type.RECEIPT, 42, 2, -5, 40, 1), 17);
+
+      ReceiptMessage read = (ReceiptMessage) deserialize(serialize(receipt));
+
+      assertSameMessage(receipt, read);
+      assertEquals(17, read.getRequestTimeStamp());
+   }
+
+   /**
+    * Test of the serialization of a keyed message.
+    */
+   @Test
+   public void keyedMessageShouldBeTheSameOnceDeserialized() throws Exception {
+      for (String key : new String[] {"", "account-42", "\u00e9t\u00e9"}) {
+         KeyedMessage message = new KeyedMessage(key,
+                 new LamportMessage(LamportMessage.Type.RELEASE, 42, 2, -5, 40, 1));
+
+         KeyedMessage read = (KeyedMessage) deserialize(serialize(message));
+
+         assertSameMessage(message, read);
+         assertEquals(key, read.getKey());
+      }
+   }
+
+   /**
+    * Test of the serialization of a message carrying a shared state.
+    */
+   @Test
+   public void stateShouldBeTheSameOnceDeserialized() throws Exception {
+      for (boolean snapshot : new boolean[] {true, false}) {
+         LamportMessage message = new LamportMessage(LamportMessage.Type.RELEASE,
+                 42, 2, -5).withState(new StateUpdate(snapshot, new byte[] {1, 2, 3}));
+
+         LamportMessage read = (LamportMessage) deserialize(serialize(message));
+
+         assertSameMessage(message, read);
+         assertEquals(snapshot, read.getState().isSnapshot());
+         assertArrayEquals(new byte[] {1, 2, 3}, read.getState().getData());
+      }
+
+      LamportMessage keyed = new KeyedMessage("key",
+              new LamportMessage(LamportMessage.Type.RELEASE, 42, 2, -5))
+              .withState(new StateUpdate(false, new byte[0]));
+      assertArrayEquals(new byte[0],
+              ((KeyedMessage) deserialize(serialize(keyed))).getState().getData());
+   }
+
+   /**
+    * Test of the size of a serialized message, compared to the default
+    * serialization.
+    */
+   @Test
+   public void messagesShouldBeMuchSmallerThanWithTheDefaultSerialization()
+           throws Exception {
+      LamportMessage message = new LamportMessage(
+              LamportMessage.Type.RELEASE, 123456, 3, 1000);
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+         MessageCodec.write(message, out);
+      }
+
+      assertTrue(bytes.size() <= 8);
+      assertTrue(serialize(message).length * 3
+              < serialize(new DefaultMessage(message)).length);
+   }
+
+   /**
+    * Test of read method, of class MessageCodec, with a malformed length.
+    */
+   @Test(expected = StreamCorruptedException.class)
+   public void hugeMembersShouldBeRejected() throws Exception {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      MessageCodec.write(new MembershipMessage(
+              new LamportMessage(LamportMessage.Type.MEMBERS, 42, 2, 0), new int[0]), out);
+
+      // Replace the number of members, the last byte
+      byte[] message = bytes.toByteArray();
+      bytes.reset();
+      out.write(message, 0, message.length - 1);
+      MessageCodec.writeVarLong(out, Integer.MAX_VALUE);
+
+      MessageCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+   }
+}
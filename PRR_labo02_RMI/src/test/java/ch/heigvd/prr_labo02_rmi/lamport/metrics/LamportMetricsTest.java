@@ -0,0 +1,83 @@
+package ch.heigvd.prr_labo02_rmi.lamport.metrics;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the LamportMetrics and LatencyHistogram classes
+ */
+public class LamportMetricsTest {
+
+   public LamportMetricsTest() {
+   }
+
+   /**
+    * Test of snapshot method, of class LatencyHistogram.
+    */
+   @Test
+   public void percentilesShouldBeWithinTheirRange() {
+      LatencyHistogram histogram = new LatencyHistogram();
+      for (long micros = 1; micros <= 1000; ++micros) {
+         histogram.record(micros * 1000);
+      }
+
+      HistogramSnapshot snapshot = histogram.snapshot();
+      assertEquals(1000, snapshot.getCount());
+      assertEquals(500.5, snapshot.getMean(), 0.01);
+      assertEquals(1000, snapshot.getMax(), 0.01);
+      assertTrue(snapshot.getP50() >= 500 && snapshot.getP50() <= 500 * 1.25);
+      assertTrue(snapshot.getP90() >= 900 && snapshot.getP90() <= 900 * 1.25);
+      assertTrue(snapshot.getP99() >= 990 && snapshot.getP99() <= 1000);
+
+      histogram.reset();
+      assertEquals(0, histogram.snapshot().getCount());
+      assertEquals(0, histogram.snapshot().getP99(), 0);
+   }
+
+   /**
+    * Test of register method, of class LamportMetrics.
+    */
+   @Test
+   public void metricsShouldBeShownByJmx() throws Exception {
+      LamportMetrics metrics = new LamportMetrics(3, () -> 42, () -> 2, () -> 1);
+      metrics.sent(LamportMessage.Type.REQUEST);
+      metrics.sent(LamportMessage.Type.REQUEST);
+      metrics.received(LamportMessage.Type.RECEIPT);
+      metrics.roundTrip(2, 150000);
+      metrics.lockWait(1000);
+
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(LamportMetrics.DOMAIN + ":type=Lamport,id=99");
+      metrics.register(99);
+      try {
+         assertEquals(42L, server.getAttribute(name, "LogicalClock"));
+         assertEquals(2, server.getAttribute(name, "QueueDepth"));
+         assertEquals(1, server.getAttribute(name, "Owner"));
+
+         TabularData sent = (TabularData) server.getAttribute(name, "MessagesSent");
+         assertEquals(2L, sent.get(new Object[] {"REQUEST"}).get("value"));
+
+         TabularData roundTrips = (TabularData) server.getAttribute(name, "RoundTrips");
+         CompositeData toSecond = (CompositeData) roundTrips.get(new Object[] {2})
+                 .get("value");
+         assertEquals(1L, toSecond.get("count"));
+         assertEquals(150.0, (Double) toSecond.get("max"), 0.01);
+
+         CompositeData wait = (CompositeData) server.getAttribute(name, "LockWait");
+         assertEquals(1L, wait.get("count"));
+
+         server.invoke(name, "reset", null, null);
+         Map<String, Long> received = metrics.getMessagesReceived();
+         assertEquals(Long.valueOf(0), received.get("RECEIPT"));
+      } finally {
+         server.unregisterMBean(name);
+      }
+   }
+}
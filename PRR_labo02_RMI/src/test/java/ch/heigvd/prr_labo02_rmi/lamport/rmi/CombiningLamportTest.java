@@ -0,0 +1,202 @@
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the combining of the local users of the CombiningLamport
+ * class
+ */
+public class CombiningLamportTest {
+
+   // The number of times the critical section was locked and unlocked with
+   // the other applications
+   private final AtomicInteger locks = new AtomicInteger();
+   private final AtomicInteger unlocks = new AtomicInteger();
+
+   public CombiningLamportTest() {
+   }
+
+   /**
+    * Create a CombiningLamport over the only Lamport application, counting
+    * its locks and unlocks.
+    */
+   private CombiningLamport lamport(int batch) {
+      return lamport(batch, 1);
+   }
+
+   /**
+    * Create a CombiningLamport over the only Lamport application, counting
+    * its locks and unlocks, with a pipeline of requests.
+    */
+   private CombiningLamport lamport(int batch, int pipeline) {
+      return new CombiningLamport(new LamportImpl(1, 0,
+              (other, message) -> CompletableFuture.completedFuture(null),
+              Runnable::run, false) {
+         @Override
+         public void lock() throws RemoteException {
+            locks.incrementAndGet();
+            super.lock();
+         }
+
+         @Override
+         public CompletableFuture<Void> lockAsync() {
+            locks.incrementAndGet();
+            return super.lockAsync();
+         }
+
+         @Override
+         public void unlock() throws RemoteException {
+            unlocks.incrementAndGet();
+            super.unlock();
+         }
+      }, batch, pipeline);
+   }
+
+   /**
+    * Start a user incrementing the value, and wait until it waits for its turn.
+    */
+   private static Thread waitingUser(Lamport lamport) throws InterruptedException {
+      Thread user = new Thread(() -> {
+         try {
+            lamport.addAndGet(1);
+         } catch (RemoteException ex) {
+            throw new IllegalStateException(ex);
+         }
+      });
+      user.start();
+      while (user.getState() != Thread.State.WAITING) {
+         Thread.sleep(1);
+      }
+      return user;
+   }
+
+   /**
+    * Test of lock and unlock methods, of class CombiningLamport.
+    */
+   @Test
+   public void waitingUsersShouldShareTheCriticalSection() throws Exception {
+      CombiningLamport lamport = lamport(CombiningLamport.DEFAULT_BATCH);
+
+      lamport.lock();
+      Thread first = waitingUser(lamport);
+      Thread second = waitingUser(lamport);
+      lamport.unlock();
+      first.join();
+      second.join();
+
+      assertEquals(2, lamport.getSharedValue());
+      assertEquals(1, locks.get());
+      assertEquals(1, unlocks.get());
+   }
+
+   /**
+    * Test of lock and unlock methods, of class CombiningLamport.
+    */
+   @Test
+   public void theCriticalSectionShouldBeReleasedAfterABatch() throws Exception {
+      CombiningLamport lamport = lamport(2);
+
+      lamport.lock();
+      Thread first = waitingUser(lamport);
+      Thread second = waitingUser(lamport);
+      lamport.unlock();
+      first.join();
+      second.join();
+
+      assertEquals(2, lamport.getSharedValue());
+      assertEquals(2, locks.get());
+      assertEquals(2, unlocks.get());
+   }
+
+   /**
+    * Test of lock and unlock methods, of class CombiningLamport.
+    */
+   @Test
+   public void pipelinedUsersShouldRequestAtOnce() throws Exception {
+      CombiningLamport lamport = lamport(CombiningLamport.DEFAULT_BATCH, 2);
+
+      // The waiting user requested the critical section already
+      lamport.lock();
+      Thread user = waitingUser(lamport);
+      assertEquals(2, locks.get());
+
+      lamport.unlock();
+      user.join();
+      assertEquals(1, lamport.getSharedValue());
+      assertEquals(2, unlocks.get());
+   }
+
+   /**
+    * Test of unlock method, of class CombiningLamport.
+    */
+   @Test(expected = IllegalMonitorStateException.class)
+   public void unlockShouldNeedTheCriticalSection() throws RemoteException {
+      lamport(1).unlock();
+   }
+
+   /**
+    * Test of requestLock method, of class CombiningLamport.
+    */
+   @Test(timeout = 5000)
+   public void listenersShouldBeCalledBackInTurn() throws Exception {
+      CombiningLamport lamport = lamport(CombiningLamport.DEFAULT_BATCH);
+      CompletableFuture<Void> first = new CompletableFuture<>();
+      CompletableFuture<Void> second = new CompletableFuture<>();
+
+      lamport.lock();
+      lamport.requestLock(listener(first));
+      lamport.requestLock(listener(second));
+      assertFalse(first.isDone());
+
+      lamport.unlock();
+      first.get();
+      assertFalse(second.isDone());
+      lamport.unlock();
+      second.get();
+      lamport.unlock();
+
+      // The requests shared the critical section of the first lock
+      assertEquals(1, locks.get());
+      assertEquals(1, unlocks.get());
+   }
+
+   /**
+    * Create a listener completing a future, without exporting it.
+    */
+   private static LockListener listener(CompletableFuture<Void> granted) {
+      return new LockListener() {
+         @Override
+         public void lockGranted() {
+            granted.complete(null);
+         }
+
+         @Override
+         public void lockFailed(RemoteException cause) {
+            granted.completeExceptionally(cause);
+         }
+      };
+   }
+
+   /**
+    * Test of leave method, of class CombiningLamport.
+    */
+   @Test(timeout = 5000)
+   public void leaveShouldGiveUpAfterTheTimeout() throws RemoteException {
+      CombiningLamport lamport = lamport(1);
+      lamport.lock();
+
+      // The critical section is held by another local user
+      assertFalse(lamport.leave(50));
+      lamport.unlock();
+
+      // The abandoned lock is released, and we are still a member
+      assertTrue(lamport.lock(1000));
+      lamport.unlock();
+      assertTrue(lamport.leave(1000));
+      assertEquals(0, lamport.getLamport().getMembers().length);
+   }
+}
@@ -0,0 +1,70 @@
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import java.rmi.RemoteException;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the critical sections of the keys of the KeyedLamportImpl
+ * class
+ */
+public class KeyedLamportImplTest {
+
+   // Two applications delivering their messages to each other at once
+   private KeyedLamportImpl[] applications;
+
+   public KeyedLamportImplTest() {
+   }
+
+   @Before
+   public void setUp() {
+      applications = new KeyedLamportImpl[2];
+      for (int i = 0; i < applications.length; ++i) {
+         applications[i] = new KeyedLamportImpl(applications.length, i,
+                 (other, message) -> {
+                    try {
+                       return CompletableFuture.completedFuture(
+                               applications[other].receive(message));
+                    } catch (RemoteException ex) {
+                       CompletableFuture<LamportMessage> failed = new CompletableFuture<>();
+                       failed.completeExceptionally(ex);
+                       return failed;
+                    }
+                 },
+                 Runnable::run, false, CombiningLamport.DEFAULT_BATCH);
+      }
+   }
+
+   /**
+    * Test of lock method, of class KeyedLamportImpl.
+    */
+   @Test(timeout = 5000)
+   public void differentKeysShouldBeLockedAtTheSameTime() throws RemoteException {
+      applications[0].lock("x");
+
+      // Would wait forever if the keys shared the critical section
+      applications[1].lock("y");
+      applications[1].set("y", 5);
+      applications[1].unlock("y");
+
+      applications[0].set("x", 3);
+      applications[0].unlock("x");
+
+      assertEquals(5, applications[0].addAndGet("y", 0));
+      assertEquals(4, applications[1].addAndGet("x", 1));
+      assertEquals(0, applications[1].addAndGet("z", 0));
+   }
+
+   /**
+    * Test of the Lamport methods, of class KeyedLamportImpl.
+    */
+   @Test(timeout = 5000)
+   public void lamportInterfaceShouldUseTheDefaultKey() throws RemoteException {
+      applications[0].addAndGet(2);
+      assertEquals(2, applications[1].addAndGet(KeyedLamport.DEFAULT_KEY, 0));
+      assertEquals(0, applications[1].addAndGet("x", 0));
+   }
+}
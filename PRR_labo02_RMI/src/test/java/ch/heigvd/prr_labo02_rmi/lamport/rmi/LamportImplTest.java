@@ -0,0 +1,548 @@
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import ch.heigvd.prr_labo02_rmi.lamport.concurrent.SerialExecutor;
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.metrics.LamportMetrics;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the permission to enter the critical section of the
+ * LamportImpl class
+ */
+public class LamportImplTest {
+
+   public LamportImplTest() {
+   }
+
+   /**
+    * Create a LamportImpl whose messages are never delivered.
+    */
+   private static LamportImpl lamport(int numberOfApplications, int id) {
+      return new LamportImpl(numberOfApplications, id,
+              (other, message) -> CompletableFuture.completedFuture(null),
+              Runnable::run, false);
+   }
+
+   /**
+    * Create LamportImpl objects delivering their messages to each other at
+    * once.
+    */
+   private static LamportImpl[] applications(int numberOfApplications) {
+      return applications(numberOfApplications, false);
+   }
+
+   /**
+    * Create LamportImpl objects delivering their messages to each other at
+    * once, in sticky mode or not.
+    */
+   private static LamportImpl[] applications(int numberOfApplications, boolean sticky) {
+      LamportImpl[] applications = new LamportImpl[numberOfApplications];
+      for (int i = 0; i < numberOfApplications; ++i) {
+         applications[i] = new LamportImpl(numberOfApplications, i,
+                 (other, message) -> {
+                    CompletableFuture<LamportMessage> response = new CompletableFuture<>();
+                    try {
+                       response.complete(applications[other].receive(message));
+                    } catch (RemoteException ex) {
+                       response.completeExceptionally(ex);
+                    }
+                    return response;
+                 },
+                 Runnable::run, sticky);
+      }
+      return applications;
+   }
+
+   /**
+    * Create LamportImpl objects delivering their messages to each other on
+    * the threads of an executor, in order for each pair of applications.
+    */
+   private static LamportImpl[] applications(int numberOfApplications,
+           ExecutorService executor) {
+      LamportImpl[] applications = new LamportImpl[numberOfApplications];
+      for (int i = 0; i < numberOfApplications; ++i) {
+         SerialExecutor[] channels = new SerialExecutor[numberOfApplications];
+         for (int j = 0; j < numberOfApplications; ++j) {
+            channels[j] = new SerialExecutor(executor);
+         }
+
+         applications[i] = new LamportImpl(numberOfApplications, i,
+                 (other, message) -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                       return applications[other].receive(message);
+                    } catch (RemoteException ex) {
+                       throw new CompletionException(ex);
+                    }
+                 }, channels[other]),
+                 executor, false);
+      }
+      return applications;
+   }
+
+   private static LamportMessage message(LamportMessage.Type type, long timeStamp,
+           int sender) {
+      return new LamportMessage(type, timeStamp, sender, 0);
+   }
+
+   /**
+    * Test of criticalSectionPermission method, of class LamportImpl.
+    */
+   @Test
+   public void permissionShouldNeedAMoreRecentMessageFromEveryApplication()
+           throws RemoteException {
+      LamportImpl lamport = lamport(3, 0);
+      assertFalse(lamport.criticalSectionPermission());
+
+      // Our request has the time stamp 1
+      lamport.requestCriticalSection();
+      assertFalse(lamport.criticalSectionPermission());
+
+      lamport.receive(message(LamportMessage.Type.RECEIPT, 2, 1));
+      lamport.receive(message(LamportMessage.Type.RECEIPT, 3, 1));
+      assertFalse(lamport.criticalSectionPermission());
+
+      lamport.receive(message(LamportMessage.Type.RECEIPT, 4, 2));
+      assertTrue(lamport.criticalSectionPermission());
+
+      lamport.releaseCriticalSection();
+      assertFalse(lamport.criticalSectionPermission());
+   }
+
+   /**
+    * Test of criticalSectionPermission method, of class LamportImpl.
+    */
+   @Test
+   public void olderRequestShouldBeServedFirst() throws RemoteException {
+      LamportImpl lamport = lamport(3, 0);
+      lamport.receive(message(LamportMessage.Type.REQUEST, 1, 2));
+
+      // Our request has the time stamp 3, after the REQUEST and our RECEIPT
+      lamport.requestCriticalSection();
+      lamport.receive(message(LamportMessage.Type.RECEIPT, 4, 1));
+      lamport.receive(message(LamportMessage.Type.RECEIPT, 4, 2));
+      assertFalse(lamport.criticalSectionPermission());
+
+      lamport.receive(message(LamportMessage.Type.RELEASE, 5, 2));
+      assertTrue(lamport.criticalSectionPermission());
+   }
+
+   /**
+    * Test of criticalSectionPermission method, of class LamportImpl.
+    */
+   @Test
+   public void requestsWithTheSameTimeStampShouldBeOrderedById()
+           throws RemoteException {
+      LamportImpl first = lamport(2, 0);
+      LamportImpl second = lamport(2, 1);
+
+      first.requestCriticalSection();
+      second.requestCriticalSection();
+      first.receive(message(LamportMessage.Type.REQUEST, 1, 1));
+      second.receive(message(LamportMessage.Type.REQUEST, 1, 0));
+
+      assertTrue(first.criticalSectionPermission());
+      assertFalse(second.criticalSectionPermission());
+   }
+
+   /**
+    * Test of criticalSectionPermission method, of class LamportImpl.
+    */
+   @Test
+   public void messagesOfAPreviousRequestShouldNotCount() throws RemoteException {
+      LamportImpl lamport = lamport(3, 0);
+      lamport.requestCriticalSection();
+      lamport.receive(message(LamportMessage.Type.RECEIPT, 2, 1));
+      lamport.receive(message(LamportMessage.Type.RECEIPT, 2, 2));
+      assertTrue(lamport.criticalSectionPermission());
+      lamport.releaseCriticalSection();
+
+      // Our new request has the time stamp 6, the application 1 is heard
+      // from twice
+      lamport.requestCriticalSection();
+      lamport.receive(message(LamportMessage.Type.RECEIPT, 7, 1));
+      lamport.receive(message(LamportMessage.Type.RELEASE, 8, 1));
+      assertFalse(lamport.criticalSectionPermission());
+
+      lamport.receive(message(LamportMessage.Type.RECEIPT, 9, 2));
+      assertTrue(lamport.criticalSectionPermission());
+   }
+
+   /**
+    * Test of receive method, of class LamportImpl.
+    */
+   @Test
+   public void pendingRequestShouldBeSentAgainToARestartedApplication()
+           throws RemoteException {
+      List<LamportMessage> sent = new ArrayList<>();
+      LamportImpl lamport = new LamportImpl(2, 1, (other, message) -> {
+         sent.add(message);
+         return CompletableFuture.completedFuture(null);
+      }, Runnable::run, false);
+      assertEquals(LamportMessage.Type.RECEIPT,
+              lamport.receive(message(LamportMessage.Type.REQUEST, 1, 0)).getType());
+      lamport.receive(message(LamportMessage.Type.RELEASE, 2, 0));
+
+      // Our request stands for the RECEIPT
+      lamport.requestCriticalSection();
+      assertNull(lamport.receive(message(LamportMessage.Type.REQUEST, 10, 0)));
+      assertEquals(1, lamport.getMetrics().getReceiptsSuppressed());
+
+      // The application 0 restarted and doesn't know our request anymore
+      sent.clear();
+      lamport.receive(message(LamportMessage.Type.REJOIN, 20, 0));
+      assertEquals(1, sent.size());
+      assertEquals(LamportMessage.Type.REQUEST, sent.get(0).getType());
+   }
+
+   /**
+    * Test of criticalSectionPermission method, of class LamportImpl.
+    */
+   @Test
+   public void queuedRequestShouldWaitForTheRelease() throws RemoteException {
+      LamportImpl lamport = lamport(3, 0);
+      lamport.receive(message(LamportMessage.Type.REQUEST, 1, 2));
+      lamport.receive(message(LamportMessage.Type.REQUEST, 3, 2));
+
+      // Our request has the time stamp 5, between the two REQUESTs of the
+      // application 2 and after the second one
+      lamport.requestCriticalSection();
+      lamport.receive(message(LamportMessage.Type.RECEIPT, 6, 1));
+      lamport.receive(message(LamportMessage.Type.RECEIPT, 6, 2));
+      assertFalse(lamport.criticalSectionPermission());
+
+      // The first RELEASE only releases the first REQUEST
+      lamport.receive(message(LamportMessage.Type.RELEASE, 7, 2));
+      assertFalse(lamport.criticalSectionPermission());
+
+      lamport.receive(message(LamportMessage.Type.RELEASE, 8, 2));
+      assertTrue(lamport.criticalSectionPermission());
+   }
+
+   /**
+    * Test of lockAsync method, of class LamportImpl.
+    */
+   @Test(timeout = 5000)
+   public void pipelinedRequestsShouldBeServedInOrder() throws RemoteException {
+      LamportImpl[] applications = applications(2);
+
+      // The second request of the application 0 comes after the request of
+      // the application 1, sent while the first one was pending
+      CompletableFuture<Void> first = applications[0].lockAsync();
+      CompletableFuture<Void> other = applications[1].lockAsync();
+      CompletableFuture<Void> second = applications[0].lockAsync();
+      assertTrue(first.isDone());
+      assertFalse(other.isDone());
+      assertFalse(second.isDone());
+
+      applications[0].unlock();
+      assertTrue(other.isDone());
+      assertFalse(second.isDone());
+
+      applications[1].unlock();
+      assertTrue(second.isDone());
+      applications[0].unlock();
+      assertEquals(0, applications[1].queueDepth());
+   }
+
+   /**
+    * Test of setReleaseLinger method, of class LamportImpl.
+    */
+   @Test(timeout = 5000)
+   public void nextRequestShouldReleaseTheCriticalSection() throws RemoteException {
+      LamportImpl[] applications = applications(2);
+      applications[0].setReleaseLinger(1000000);
+      applications[1].setReleaseLinger(1000000);
+      LamportMetrics metrics = applications[0].getMetrics();
+
+      // The REQUEST of the second increment carries the first one
+      applications[0].addAndGet(1);
+      applications[0].addAndGet(1);
+      assertEquals(0, metrics.getSent(LamportMessage.Type.RELEASE));
+      assertEquals(1, metrics.getReleasesCoalesced());
+      assertEquals(1, applications[1].getVersionedValue().getValue());
+
+      // The REQUEST of another application gets the RELEASE at once
+      applications[1].lock();
+      assertEquals(1, metrics.getSent(LamportMessage.Type.RELEASE));
+      assertEquals(2, applications[1].getSharedValue());
+      applications[1].unlock();
+   }
+
+   /**
+    * Test of lock method, of class LamportImpl, in sticky mode.
+    */
+   @Test(timeout = 5000)
+   public void stickyOwnerShouldEnterAgainWithoutAnyMessage() throws RemoteException {
+      LamportImpl[] applications = applications(2, true);
+      LamportMetrics metrics = applications[0].getMetrics();
+
+      for (int i = 0; i < 3; ++i) {
+         applications[0].addAndGet(1);
+      }
+      assertEquals(1, metrics.getSent(LamportMessage.Type.REQUEST));
+      assertEquals(0, metrics.getSent(LamportMessage.Type.RELEASE));
+      assertEquals(0, applications[0].owner());
+      assertEquals(3, applications[0].getVersionedValue().getValue());
+   }
+
+   /**
+    * Test of receive method, of class LamportImpl, in sticky mode.
+    */
+   @Test(timeout = 5000)
+   public void stickyOwnershipShouldBeGivenUpOnRequest() throws RemoteException {
+      LamportImpl[] applications = applications(2, true);
+      LamportMetrics metrics = applications[0].getMetrics();
+      applications[0].addAndGet(3);
+
+      // The REQUEST of another application gets the RELEASE with the value
+      applications[1].lock();
+      assertEquals(1, metrics.getSent(LamportMessage.Type.RELEASE));
+      assertEquals(1, applications[0].owner());
+      assertEquals(3, applications[1].getSharedValue());
+      applications[1].setSharedValue(4);
+      applications[1].unlock();
+
+      // The other application kept the ownership in turn, it is requested
+      // back
+      applications[0].lock();
+      assertEquals(4, applications[0].getSharedValue());
+      assertEquals(2, metrics.getSent(LamportMessage.Type.REQUEST));
+      applications[0].unlock();
+   }
+
+   /**
+    * Test of getVersionedValue method, of class LamportImpl.
+    */
+   @Test(timeout = 5000)
+   public void versionedValueShouldOnlyChangeOnRelease() throws RemoteException {
+      LamportImpl lamport = lamport(1, 0);
+
+      lamport.lock();
+      lamport.setSharedValue(5);
+      assertEquals(0, lamport.getVersionedValue().getValue());
+      lamport.unlock();
+
+      VersionedValue value = lamport.getVersionedValue();
+      assertEquals(5, value.getValue());
+      assertEquals(0, value.getSender());
+      assertTrue(value.isNewerThan(0, 0));
+   }
+
+   /**
+    * Test of awaitVersion method, of class LamportImpl.
+    */
+   @Test(timeout = 5000)
+   public void awaitVersionShouldGiveTheReleasedValue() throws RemoteException {
+      LamportImpl[] applications = applications(2);
+
+      applications[0].addAndGet(7);
+      VersionedValue released = applications[0].getVersionedValue();
+
+      VersionedValue value = applications[1].awaitVersion(released, 1000);
+      assertEquals(7, value.getValue());
+      assertTrue(value.isAtLeast(released));
+
+      // A version that never comes
+      VersionedValue future = new VersionedValue(0, released.getTimeStamp() + 100, 0);
+      value = applications[1].awaitVersion(future, 50);
+      assertEquals(7, value.getValue());
+      assertFalse(value.isAtLeast(future));
+   }
+
+   /**
+    * Test of the metrics of class LamportImpl.
+    */
+   @Test(timeout = 5000)
+   public void metricsShouldFollowTheCriticalSection() throws RemoteException {
+      LamportImpl[] applications = applications(2);
+      LamportMetrics first = applications[0].getMetrics();
+      LamportMetrics second = applications[1].getMetrics();
+
+      applications[0].lock();
+      assertEquals(1, first.getSent(LamportMessage.Type.REQUEST));
+      assertEquals(1, second.getReceived(LamportMessage.Type.REQUEST));
+      assertEquals(1, second.getSent(LamportMessage.Type.RECEIPT));
+      assertEquals(1, first.getReceived(LamportMessage.Type.RECEIPT));
+      assertEquals(0, first.getOwner());
+      assertEquals(0, second.getOwner());
+      assertEquals(1, second.getQueueDepth());
+      assertEquals(1, first.getLockWait().getCount());
+      assertEquals(1, first.getRoundTrips().get(1).getCount());
+
+      applications[0].unlock();
+      assertEquals(1, second.getReceived(LamportMessage.Type.RELEASE));
+      assertEquals(-1, second.getOwner());
+      assertEquals(0, second.getQueueDepth());
+      assertEquals(1, first.getLockHold().getCount());
+      assertTrue(second.getLogicalClock() >= first.getLogicalClock());
+   }
+
+   /**
+    * Test of lockAsync method, of class LamportImpl.
+    */
+   @Test(timeout = 5000)
+   public void lockAsyncShouldCompleteOnPermission() throws Exception {
+      LamportImpl[] applications = applications(2);
+
+      applications[1].lock();
+      CompletableFuture<Void> lock = applications[0].lockAsync();
+      assertFalse(lock.isDone());
+
+      // The RELEASE of the application 1 gives us the permission
+      applications[1].unlock();
+      lock.get();
+      assertEquals(0, applications[1].getMetrics().getOwner());
+      applications[0].unlock();
+   }
+
+   /**
+    * Test of lock method with a timeout, of class LamportImpl.
+    */
+   @Test(timeout = 5000)
+   public void abandonedLockShouldBeReleased() throws Exception {
+      LamportImpl[] applications = applications(2);
+
+      applications[1].lock();
+      assertFalse(applications[0].lock(50));
+
+      // The application 0 releases the critical section it no longer waits
+      // for, the messages being delivered by the thread sending them
+      applications[1].unlock();
+      while (applications[1].queueDepth() != 0) {
+         Thread.sleep(1);
+      }
+      applications[1].lock();
+      applications[1].unlock();
+   }
+
+   /**
+    * Test of detectFailures method, of class LamportImpl.
+    */
+   @Test(timeout = 5000)
+   public void suspectedApplicationShouldNotHoldTheCriticalSectionBack()
+           throws RemoteException {
+      assertFalse(stalled().lock(100));
+
+      LamportImpl lamport = stalled();
+      lamport.detectFailures(50);
+      assertTrue(lamport.lock(2000));
+      lamport.setSharedValue(5);
+      lamport.unlock();
+      assertArrayEquals(new int[]{0}, lamport.getMembers());
+
+      // A late release of the application would overwrite ours
+      try {
+         lamport.receive(new LamportMessage(LamportMessage.Type.RELEASE, 1000, 1, 42,
+                 1000, 1, null));
+         fail("The application was dropped from the members");
+      } catch (RemoteException ex) {
+         // Expected
+      }
+      assertEquals(5, lamport.getSharedValue());
+   }
+
+   /**
+    * Test of admit and leave methods, of class LamportImpl.
+    */
+   @Test(timeout = 5000)
+   public void admittedApplicationShouldWaitForTheOlderRequests() throws Exception {
+      LamportImpl[] applications = applications(3);
+      applications[0].setMembers(new int[]{0, 1});
+      applications[1].setMembers(new int[]{0, 1});
+      applications[2].setMembers(new int[0]);
+
+      applications[0].addAndGet(7);
+      applications[0].lock();
+      CompletableFuture<Void> first = applications[1].lockAsync();
+
+      // The new member gets the released value from its sponsor alone
+      applications[0].admit(2).get();
+      assertArrayEquals(new int[]{0, 1, 2}, applications[1].getMembers());
+      assertEquals(7, applications[2].getVersionedValue().getValue());
+
+      // The request of the new member comes after the pending ones
+      CompletableFuture<Void> second = applications[2].lockAsync();
+      applications[0].unlock();
+      first.get();
+      assertFalse(second.isDone());
+      applications[1].unlock();
+      second.get();
+
+      // The member leaving is no longer waited for
+      applications[2].leave().get();
+      assertArrayEquals(new int[]{0, 1}, applications[0].getMembers());
+      assertTrue(applications[2].lockAsync().isCompletedExceptionally());
+      applications[0].lock();
+      applications[0].unlock();
+   }
+
+   /**
+    * Test of addAndGet method, of class AbstractLamport.
+    */
+   @Test(timeout = 10000)
+   public void concurrentAdditionsShouldAllBeCounted() throws Exception {
+      ExecutorService executor = Executors.newCachedThreadPool();
+      try {
+         LamportImpl[] applications = applications(3, executor);
+
+         // Every application adds its id + 1, 20 times, at the same time
+         List<CompletableFuture<List<Integer>>> users = new ArrayList<>();
+         for (LamportImpl application : applications) {
+            users.add(CompletableFuture.supplyAsync(() -> {
+               List<Integer> values = new ArrayList<>();
+               try {
+                  for (int i = 0; i < 20; ++i) {
+                     values.add(application.addAndGet(application.id + 1));
+                  }
+               } catch (RemoteException ex) {
+                  throw new CompletionException(ex);
+               }
+               return values;
+            }, executor));
+         }
+
+         // Each addition saw the value left by the previous one
+         Set<Integer> values = new HashSet<>();
+         for (CompletableFuture<List<Integer>> user : users) {
+            values.addAll(user.get());
+         }
+         assertEquals(60, values.size());
+         assertEquals(20 * (1 + 2 + 3), applications[1].addAndGet(0, 0));
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   /**
+    * Test of compareAndSet method, of class AbstractLamport.
+    */
+   @Test(timeout = 5000)
+   public void compareAndSetShouldOnlySetTheExpectedValue() throws RemoteException {
+      LamportImpl[] applications = applications(2);
+
+      assertTrue(applications[0].compareAndSet(0, 5));
+      assertFalse(applications[1].compareAndSet(0, 7));
+      assertEquals(5, applications[1].getSharedValue());
+
+      assertTrue(applications[1].compareAndSet(5, 7));
+      assertEquals(7, applications[0].addAndGet(0));
+   }
+
+   /**
+    * Create a LamportImpl whose application 1 never answers.
+    */
+   private static LamportImpl stalled() {
+      return new LamportImpl(2, 0, (other, message) -> new CompletableFuture<>(),
+              Runnable::run, false);
+   }
+}
@@ -0,0 +1,254 @@
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.message.ReceiptMessage;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the quorums and the votes of the MaekawaImpl class
+ */
+public class MaekawaImplTest {
+   
+   public MaekawaImplTest() {
+   }
+
+   // The messages sent to the other applications, as type then destination
+   private final List<String> sent = new ArrayList<>();
+
+   // The last REQUEST sent
+   private LamportMessage request;
+
+   // The applications the messages cannot be sent to, and the ones whose
+   // calls are left pending
+   private final Set<Integer> unreachable = new HashSet<>();
+   private final Set<Integer> slow = new HashSet<>();
+   private final List<CompletableFuture<LamportMessage>> pending = new ArrayList<>();
+
+   /**
+    * Create one of 4 MaekawaImpl objects, whose messages are kept. The
+    * quorum of the application 0 is made of 0, 1 and 2.
+    */
+   private MaekawaImpl application(int id) {
+      return new MaekawaImpl(4, id, (other, message) -> {
+         sent.add(message.getType() + " " + other);
+         if (message.getType() == LamportMessage.Type.REQUEST) {
+            request = message;
+         }
+
+         CompletableFuture<LamportMessage> response = new CompletableFuture<>();
+         if (unreachable.contains(other)) {
+            response.completeExceptionally(new RemoteException("Unreachable"));
+         } else if (slow.contains(other)) {
+            pending.add(response);
+         } else {
+            response.complete(null);
+         }
+         return response;
+      }, Runnable::run);
+   }
+
+   private static LamportMessage message(LamportMessage.Type type, long timeStamp,
+           int sender) {
+      return new LamportMessage(type, timeStamp, sender, 0);
+   }
+
+   /**
+    * Create a RECEIPT, FAILED or INQUIRE about a request.
+    */
+   private static LamportMessage answer(LamportMessage.Type type, long timeStamp,
+           int sender, LamportMessage request) {
+      return new ReceiptMessage(message(type, timeStamp, sender), request.getTimeStamp());
+   }
+
+   /**
+    * Get the messages sent since the last call.
+    */
+   private List<String> takeSent() {
+      List<String> taken = new ArrayList<>(sent);
+      sent.clear();
+      return taken;
+   }
+
+   /**
+    * Test of gridQuorum method, of class MaekawaImpl.
+    */
+   @Test
+   public void everyTwoQuorumsShouldIntersect() {
+      for (int n = 1; n <= 40; ++n) {
+         for (int i = 0; i < n; ++i) {
+            Set<Integer> quorum = new HashSet<>();
+            for (int member : MaekawaImpl.gridQuorum(n, i)) {
+               quorum.add(member);
+            }
+            
+            for (int j = 0; j < n; ++j) {
+               boolean intersect = false;
+               for (int member : MaekawaImpl.gridQuorum(n, j)) {
+                  intersect = intersect || quorum.contains(member);
+               }
+               assertTrue("Quorums of " + i + " and " + j + " for " + n, intersect);
+            }
+         }
+      }
+   }
+
+   /**
+    * Test of gridQuorum method, of class MaekawaImpl.
+    */
+   @Test
+   public void quorumShouldContainItselfOnceAndGrowAsSquareRoot() {
+      int[] quorum = MaekawaImpl.gridQuorum(100, 42);
+      
+      Set<Integer> members = new HashSet<>();
+      for (int member : quorum) {
+         assertTrue(members.add(member));
+      }
+      assertTrue(members.contains(42));
+      assertEquals(19, quorum.length);
+   }
+   
+   /**
+    * Test of receive method, of class MaekawaImpl, as a voter.
+    */
+   @Test
+   public void voteShouldBeAskedBackForAnOlderRequest() throws Exception {
+      MaekawaImpl voter = application(0);
+
+      voter.receive(message(LamportMessage.Type.REQUEST, 5, 1));
+      assertEquals(Arrays.asList("RECEIPT 1"), takeSent());
+
+      // An older request asks our vote back, a younger one is refused
+      voter.receive(message(LamportMessage.Type.REQUEST, 3, 2));
+      assertEquals(Arrays.asList("INQUIRE 1"), takeSent());
+      voter.receive(message(LamportMessage.Type.REQUEST, 9, 3));
+      assertEquals(Arrays.asList("FAILED 3"), takeSent());
+      assertEquals(3, voter.queueDepth());
+
+      // The vote given back goes to the oldest request
+      voter.receive(message(LamportMessage.Type.YIELD, 10, 1));
+      assertEquals(Arrays.asList("RECEIPT 2"), takeSent());
+      assertEquals(2, voter.owner());
+
+      // Then to the others in order, on release
+      voter.receive(message(LamportMessage.Type.RELEASE, 12, 2));
+      assertEquals(Arrays.asList("RECEIPT 1"), takeSent());
+      voter.receive(message(LamportMessage.Type.RELEASE, 14, 1));
+      assertEquals(Arrays.asList("RECEIPT 3"), takeSent());
+      voter.receive(message(LamportMessage.Type.RELEASE, 16, 3));
+      assertEquals(0, voter.queueDepth());
+   }
+
+   /**
+    * Test of lockAsync method, of class MaekawaImpl, as a requester.
+    */
+   @Test
+   public void voteShouldBeYieldedOnceARefusalIsKnown() throws Exception {
+      MaekawaImpl requester = application(0);
+      CompletableFuture<Void> lock = requester.lockAsync();
+      assertEquals(Arrays.asList("REQUEST 1", "REQUEST 2"), takeSent());
+
+      // The inquiry waits until we know we cannot get every vote
+      requester.receive(answer(LamportMessage.Type.RECEIPT, 3, 1, request));
+      requester.receive(answer(LamportMessage.Type.INQUIRE, 4, 1, request));
+      assertTrue(takeSent().isEmpty());
+      requester.receive(answer(LamportMessage.Type.FAILED, 4, 2, request));
+      assertEquals(Arrays.asList("YIELD 1"), takeSent());
+
+      // The vote given back is needed again
+      requester.receive(answer(LamportMessage.Type.RECEIPT, 6, 2, request));
+      assertFalse(lock.isDone());
+      requester.receive(answer(LamportMessage.Type.RECEIPT, 7, 1, request));
+      lock.get();
+      assertEquals(0, requester.owner());
+
+      // The votes are freed on release
+      requester.unlock();
+      assertEquals(Arrays.asList("RELEASE 1", "RELEASE 2"), takeSent());
+      assertEquals(-1, requester.owner());
+   }
+
+   /**
+    * Test of receive method, of class MaekawaImpl, as a requester.
+    */
+   @Test
+   public void inquiryShouldBeIgnoredOnceEveryVoteIsThere() throws Exception {
+      MaekawaImpl requester = application(0);
+      CompletableFuture<Void> lock = requester.lockAsync();
+      requester.receive(answer(LamportMessage.Type.RECEIPT, 3, 1, request));
+      requester.receive(answer(LamportMessage.Type.RECEIPT, 3, 2, request));
+      lock.get();
+      takeSent();
+
+      requester.receive(answer(LamportMessage.Type.FAILED, 4, 2, request));
+      requester.receive(answer(LamportMessage.Type.INQUIRE, 5, 1, request));
+      assertTrue(takeSent().isEmpty());
+      requester.unlock();
+   }
+
+   /**
+    * Test of receive method, of class MaekawaImpl, as a requester.
+    */
+   @Test
+   public void answersToARequestGivenUpShouldBeIgnored() throws Exception {
+      MaekawaImpl requester = application(0);
+
+      // The first request cannot be sent to the application 2
+      unreachable.add(2);
+      CompletableFuture<Void> first = requester.lockAsync();
+      LamportMessage firstRequest = request;
+      assertTrue(first.isCompletedExceptionally());
+
+      unreachable.clear();
+      CompletableFuture<Void> second = requester.lockAsync();
+      LamportMessage secondRequest = request;
+      takeSent();
+
+      // The late vote for the first request is not counted
+      requester.receive(answer(LamportMessage.Type.RECEIPT, 5, 1, firstRequest));
+      requester.receive(answer(LamportMessage.Type.RECEIPT, 5, 2, secondRequest));
+      assertFalse(second.isDone());
+
+      // Nor the late refusal: the inquiry is kept for later
+      requester.receive(answer(LamportMessage.Type.FAILED, 6, 1, firstRequest));
+      requester.receive(answer(LamportMessage.Type.INQUIRE, 6, 2, secondRequest));
+      assertTrue(takeSent().isEmpty());
+
+      requester.receive(answer(LamportMessage.Type.RECEIPT, 7, 1, secondRequest));
+      second.get();
+      requester.unlock();
+   }
+
+   /**
+    * Test of lockAsync method, of class MaekawaImpl.
+    */
+   @Test
+   public void lateFailureOfARequestGivenUpShouldNotFailTheNextOne() throws Exception {
+      MaekawaImpl requester = application(0);
+
+      // The first request fails while its call to the application 1 is slow
+      slow.add(1);
+      unreachable.add(2);
+      CompletableFuture<Void> first = requester.lockAsync();
+      assertTrue(first.isCompletedExceptionally());
+
+      slow.clear();
+      unreachable.clear();
+      CompletableFuture<Void> second = requester.lockAsync();
+      pending.get(0).completeExceptionally(new RemoteException("Late"));
+      assertFalse(second.isDone());
+
+      requester.receive(answer(LamportMessage.Type.RECEIPT, 5, 1, request));
+      requester.receive(answer(LamportMessage.Type.RECEIPT, 5, 2, request));
+      second.get();
+      requester.unlock();
+   }
+
+}
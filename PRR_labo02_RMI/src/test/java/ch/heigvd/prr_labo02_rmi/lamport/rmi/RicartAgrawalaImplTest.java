@@ -0,0 +1,143 @@
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.message.ReceiptMessage;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the RECEIPTs of the RicartAgrawalaImpl class
+ */
+public class RicartAgrawalaImplTest {
+
+   public RicartAgrawalaImplTest() {
+   }
+
+   // The messages sent, their destinations and their responses
+   private final List<LamportMessage> sent = new ArrayList<>();
+   private final List<Integer> destinations = new ArrayList<>();
+   private final List<CompletableFuture<LamportMessage>> responses = new ArrayList<>();
+
+   /**
+    * Create a RicartAgrawalaImpl whose messages are kept, the test answering
+    * them.
+    */
+   private RicartAgrawalaImpl application(int numberOfApplications, int id) {
+      return new RicartAgrawalaImpl(numberOfApplications, id, (other, message) -> {
+         CompletableFuture<LamportMessage> response = new CompletableFuture<>();
+         sent.add(message);
+         destinations.add(other);
+         responses.add(response);
+         return response;
+      }, Runnable::run);
+   }
+
+   /**
+    * Get the last message sent to an application.
+    */
+   private LamportMessage lastSentTo(int other) {
+      for (int i = sent.size() - 1; i >= 0; --i) {
+         if (destinations.get(i) == other) {
+            return sent.get(i);
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Fail the last message sent to an application.
+    */
+   private void failLastSentTo(int other) {
+      for (int i = sent.size() - 1; i >= 0; --i) {
+         if (destinations.get(i) == other) {
+            responses.get(i).completeExceptionally(new RemoteException("Unreachable"));
+            return;
+         }
+      }
+   }
+
+   private static LamportMessage receipt(long timeStamp, int sender, long request) {
+      return new ReceiptMessage(
+              new LamportMessage(LamportMessage.Type.RECEIPT, timeStamp, sender, 0),
+              request);
+   }
+
+   /**
+    * Test of receive method, of class RicartAgrawalaImpl.
+    */
+   @Test
+   public void youngerRequestShouldBeAnsweredOnRelease() throws Exception {
+      RicartAgrawalaImpl application = application(3, 0);
+      CompletableFuture<Void> lock = application.lockAsync();
+      long request = lastSentTo(1).getTimeStamp();
+
+      // Our request is older: the RECEIPT is deferred
+      application.receive(new LamportMessage(LamportMessage.Type.REQUEST,
+              request + 5, 1, 0));
+      assertEquals(LamportMessage.Type.REQUEST, lastSentTo(1).getType());
+      assertEquals(2, application.queueDepth());
+
+      application.receive(receipt(request + 1, 1, request));
+      assertFalse(lock.isDone());
+      application.receive(receipt(request + 1, 2, request));
+      lock.get();
+
+      // The release answers the deferred request
+      application.unlock();
+      ReceiptMessage answer = (ReceiptMessage) lastSentTo(1);
+      assertEquals(request + 5, answer.getRequestTimeStamp());
+      assertEquals(0, application.queueDepth());
+   }
+
+   /**
+    * Test of receive method, of class RicartAgrawalaImpl.
+    */
+   @Test
+   public void olderRequestShouldBeAnsweredAtOnce() throws Exception {
+      RicartAgrawalaImpl application = application(3, 0);
+      CompletableFuture<Void> lock = application.lockAsync();
+      long request = lastSentTo(1).getTimeStamp();
+
+      application.receive(new LamportMessage(LamportMessage.Type.REQUEST,
+              request - 1, 2, 0));
+      ReceiptMessage answer = (ReceiptMessage) lastSentTo(2);
+      assertEquals(request - 1, answer.getRequestTimeStamp());
+      assertFalse(lock.isDone());
+   }
+
+   /**
+    * Test of lockAsync method, of class RicartAgrawalaImpl.
+    */
+   @Test
+   public void receiptsOfAFailedRequestShouldNotCountForTheNextOne()
+           throws Exception {
+      RicartAgrawalaImpl application = application(3, 0);
+      CompletableFuture<Void> first = application.lockAsync();
+      long firstRequest = lastSentTo(1).getTimeStamp();
+      int firstToOne = sent.size() - 2;
+
+      // The application 2 cannot be reached, the application 1 answered
+      application.receive(receipt(firstRequest + 1, 1, firstRequest));
+      failLastSentTo(2);
+      assertTrue(first.isCompletedExceptionally());
+
+      // The retry gets the late answers of the first request
+      CompletableFuture<Void> second = application.lockAsync();
+      long secondRequest = lastSentTo(1).getTimeStamp();
+      assertTrue(secondRequest > firstRequest);
+
+      application.receive(receipt(secondRequest + 1, 2, firstRequest));
+      responses.get(firstToOne).completeExceptionally(new RemoteException("Late"));
+      application.receive(receipt(secondRequest + 2, 2, secondRequest));
+      assertFalse(second.isDone());
+
+      // Only the application 1 answering the retry gives the permission
+      application.receive(receipt(secondRequest + 3, 1, secondRequest));
+      second.get();
+      application.unlock();
+   }
+}
@@ -0,0 +1,176 @@
+package ch.heigvd.prr_labo02_rmi.lamport.rmi;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import java.rmi.RemoteException;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the token of the SuzukiKasamiImpl class
+ */
+public class SuzukiKasamiImplTest {
+
+   public SuzukiKasamiImplTest() {
+   }
+
+   /**
+    * Create SuzukiKasamiImpl objects delivering their messages to each other
+    * at once, except to the unreachable ones.
+    */
+   private static SuzukiKasamiImpl[] applications(int numberOfApplications,
+           boolean[] unreachable) {
+      return applications(numberOfApplications, unreachable,
+              new boolean[numberOfApplications]);
+   }
+
+   /**
+    * Create SuzukiKasamiImpl objects delivering their messages to each other
+    * at once, except to the unreachable ones, the calls to some of them
+    * failing once the message is delivered.
+    */
+   private static SuzukiKasamiImpl[] applications(int numberOfApplications,
+           boolean[] unreachable, boolean[] failing) {
+      SuzukiKasamiImpl[] applications = new SuzukiKasamiImpl[numberOfApplications];
+      for (int i = 0; i < numberOfApplications; ++i) {
+         applications[i] = new SuzukiKasamiImpl(numberOfApplications, i,
+                 (other, message) -> {
+                    CompletableFuture<LamportMessage> response = new CompletableFuture<>();
+                    try {
+                       if (unreachable[other]) {
+                          throw new RemoteException("Unreachable");
+                       }
+                       LamportMessage result = applications[other].receive(message);
+                       if (failing[other]) {
+                          throw new RemoteException("Lost response");
+                       }
+                       response.complete(result);
+                    } catch (RemoteException ex) {
+                       response.completeExceptionally(ex);
+                    }
+                    return response;
+                 },
+                 Runnable::run);
+      }
+      return applications;
+   }
+
+   /**
+    * Test of lock method, of class SuzukiKasamiImpl.
+    */
+   @Test(timeout = 5000)
+   public void holderShouldEnterAgainWithoutAnyMessage() throws RemoteException {
+      SuzukiKasamiImpl[] applications = applications(3, new boolean[3]);
+
+      for (int i = 0; i < 3; ++i) {
+         applications[0].lock();
+         applications[0].setSharedValue(i);
+         applications[0].unlock();
+      }
+      assertEquals(0, applications[0].getMetrics().getSent(LamportMessage.Type.REQUEST));
+      assertEquals(0, applications[0].getMetrics().getSent(LamportMessage.Type.TOKEN));
+      assertEquals(0, applications[0].owner());
+   }
+
+   /**
+    * Test of lock method, of class SuzukiKasamiImpl.
+    */
+   @Test(timeout = 5000)
+   public void idleHolderShouldGiveTheTokenAway() throws RemoteException {
+      SuzukiKasamiImpl[] applications = applications(3, new boolean[3]);
+      applications[0].addAndGet(5);
+
+      // The token comes back while it is requested
+      applications[1].lock();
+      assertEquals(1, applications[1].owner());
+      assertEquals(-1, applications[0].owner());
+      assertEquals(5, applications[1].getSharedValue());
+      applications[1].unlock();
+
+      // The token stays with its last user, which requested it once from
+      // the 2 other applications
+      applications[1].lock();
+      applications[1].unlock();
+      assertEquals(2, applications[1].getMetrics().getSent(LamportMessage.Type.REQUEST));
+   }
+
+   /**
+    * Test of unlock method, of class SuzukiKasamiImpl.
+    */
+   @Test(timeout = 5000)
+   public void waitingApplicationsShouldBeServedInOrder() throws Exception {
+      SuzukiKasamiImpl[] applications = applications(3, new boolean[3]);
+
+      // Both requests arrive while the holder is in critical section
+      applications[0].lock();
+      CompletableFuture<Void> first = applications[1].lockAsync();
+      CompletableFuture<Void> second = applications[2].lockAsync();
+      assertEquals(2, applications[0].queueDepth());
+
+      applications[0].unlock();
+      first.get();
+      assertFalse(second.isDone());
+      assertEquals(2, applications[1].queueDepth());
+
+      applications[1].unlock();
+      second.get();
+      applications[2].unlock();
+      assertEquals(0, applications[2].queueDepth());
+
+      // A request already served arriving late doesn't take the token away
+      applications[2].receive(new LamportMessage(LamportMessage.Type.REQUEST, 1, 1, 0));
+      assertEquals(2, applications[2].owner());
+   }
+
+   /**
+    * Test of unlock method, of class SuzukiKasamiImpl.
+    */
+   @Test(timeout = 5000)
+   public void undeliveredTokenShouldBeSentAgain() throws Exception {
+      boolean[] unreachable = new boolean[3];
+      SuzukiKasamiImpl[] applications = applications(3, unreachable);
+
+      // The application 1 asks for the token, which cannot be sent to it
+      unreachable[1] = true;
+      CompletableFuture<Void> lock = applications[1].lockAsync();
+      assertFalse(lock.isDone());
+
+      // The token is not taken back, it may have been delivered
+      assertEquals(-1, applications[0].owner());
+
+      // It is delivered once the application can be reached
+      unreachable[1] = false;
+      lock.get();
+      assertEquals(1, applications[1].owner());
+      applications[1].unlock();
+   }
+
+   /**
+    * Test of receive method, of class SuzukiKasamiImpl.
+    */
+   @Test(timeout = 5000)
+   public void tokenSentAgainShouldBeIgnored() throws Exception {
+      boolean[] failing = new boolean[3];
+      SuzukiKasamiImpl[] applications = applications(3, new boolean[3], failing);
+
+      // The token reaches the application 1, but the call fails
+      failing[1] = true;
+      CompletableFuture<Void> first = applications[1].lockAsync();
+      failing[1] = false;
+      first.get();
+      assertEquals(-1, applications[0].owner());
+
+      // The token goes on to the application 2
+      CompletableFuture<Void> second = applications[2].lockAsync();
+      applications[1].unlock();
+      second.get();
+
+      // The token sent again reaches the application 1, which ignores it
+      while (applications[1].getMetrics().getReceived(LamportMessage.Type.TOKEN) < 2) {
+         Thread.sleep(10);
+      }
+      assertEquals(-1, applications[1].owner());
+      assertEquals(2, applications[2].owner());
+      applications[2].unlock();
+   }
+}
@@ -0,0 +1,165 @@
+package ch.heigvd.prr_labo02_rmi.lamport.simulation;
+
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.AbstractLamport;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.LamportImpl;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.MaekawaImpl;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.RicartAgrawalaImpl;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.SuzukiKasamiImpl;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the virtual time of the Simulation class and the
+ * applications running on a SimulatedNetwork
+ */
+public class SimulationTest {
+
+   public SimulationTest() {
+   }
+
+   /**
+    * Test of run method, of class Simulation.
+    */
+   @Test
+   public void eventsShouldRunInTimeThenSchedulingOrder() {
+      Simulation simulation = new Simulation(1);
+      List<String> order = new ArrayList<>();
+
+      simulation.schedule(() -> order.add("late"), 20, TimeUnit.NANOSECONDS);
+      simulation.execute(() -> order.add("first"));
+      simulation.scheduleAt(() -> order.add("second"), 10);
+      simulation.schedule(() -> order.add("third"), 10, TimeUnit.NANOSECONDS);
+      ScheduledFuture<?> cancelled = simulation.schedule(() -> order.add("cancelled"),
+              15, TimeUnit.NANOSECONDS);
+      cancelled.cancel(false);
+
+      // An event scheduled by another one runs after those of the same time
+      simulation.scheduleAt(() -> simulation.execute(() -> order.add("fourth")), 10);
+
+      assertFalse(simulation.run(10));
+      assertEquals(10, simulation.now());
+      assertEquals(Arrays.asList("first", "second", "third", "fourth"), order);
+
+      assertTrue(simulation.run(Long.MAX_VALUE));
+      assertEquals(20, simulation.now());
+      assertEquals(6, simulation.getEventsRun());
+      assertEquals(Arrays.asList("first", "second", "third", "fourth", "late"), order);
+   }
+
+   /**
+    * Test of run method, of class Simulation, with many events.
+    */
+   @Test
+   public void manyEventsShouldRunInTimeOrder() {
+      Simulation simulation = new Simulation(1);
+      Random random = new Random(42);
+      List<Long> times = new ArrayList<>();
+
+      for (int i = 0; i < 10000; ++i) {
+         simulation.scheduleAt(() -> times.add(simulation.now()), random.nextInt(1000));
+      }
+      simulation.run();
+
+      assertEquals(10000, times.size());
+      for (int i = 1; i < times.size(); ++i) {
+         assertTrue(times.get(i - 1) <= times.get(i));
+      }
+   }
+
+   /**
+    * Test of the SimulatedNetwork class, with algorithms requesting the
+    * critical section without waiting for it.
+    */
+   @Test
+   public void sameSeedShouldGiveSameCriticalSections() {
+      for (String algorithm : Arrays.asList("lamport", "ricart-agrawala", "maekawa",
+              "suzuki-kasami")) {
+         List<Long> first = criticalSections(algorithm, 3);
+         assertEquals(8 * 5, first.size());
+         assertEquals(first, criticalSections(algorithm, 3));
+         assertNotEquals(first, criticalSections(algorithm, 4));
+      }
+   }
+
+   /**
+    * Simulate 8 applications each incrementing the value 5 times, and check
+    * the mutual exclusion and the value.
+    *
+    * @return the virtual time and the application of every critical section
+    */
+   private static List<Long> criticalSections(String algorithm, long seed) {
+      Simulation simulation = new Simulation(seed);
+      SimulatedNetwork network = new SimulatedNetwork(simulation, 8,
+              DelayDistribution.exponential(100));
+      List<Long> sections = new ArrayList<>();
+
+      // The number of applications in critical section, the last value
+      // written and the errors seen
+      int[] inside = {0};
+      int[] value = {0};
+      int[] errors = {0};
+
+      for (int id = 0; id < 8; ++id) {
+         AbstractLamport application = application(algorithm, id, network, simulation);
+         network.attach(id, application);
+
+         int self = id;
+         int[] remaining = {5};
+         Runnable[] next = new Runnable[1];
+         next[0] = () -> application.lockAsync().thenRun(() -> {
+            sections.add(simulation.now() * 8 + self);
+            try {
+               if (++inside[0] > 1 || application.getSharedValue() != value[0]) {
+                  ++errors[0];
+               }
+               application.setSharedValue(++value[0]);
+            } catch (RemoteException ex) {
+               ++errors[0];
+            }
+
+            simulation.schedule(() -> {
+               --inside[0];
+               try {
+                  application.unlock();
+               } catch (RemoteException ex) {
+                  ++errors[0];
+               }
+               if (--remaining[0] > 0) {
+                  simulation.schedule(next[0], 50, TimeUnit.MICROSECONDS);
+               }
+            }, 10, TimeUnit.MICROSECONDS);
+         });
+         simulation.execute(next[0]);
+      }
+      simulation.run();
+
+      assertEquals(0, errors[0]);
+      return sections;
+   }
+
+   /**
+    * Create one of 8 applications of an algorithm on the simulated network.
+    */
+   private static AbstractLamport application(String algorithm, int id,
+           SimulatedNetwork network, Simulation simulation) {
+      switch (algorithm) {
+         case "lamport":
+            return new LamportImpl(8, id, network.createTransport(), simulation, false);
+         case "ricart-agrawala":
+            return new RicartAgrawalaImpl(8, id, network.createTransport(), simulation);
+         case "maekawa":
+            return new MaekawaImpl(8, id, network.createTransport(), simulation);
+         case "suzuki-kasami":
+            return new SuzukiKasamiImpl(8, id, network.createTransport(), simulation);
+         default:
+            throw new IllegalArgumentException(algorithm);
+      }
+   }
+}
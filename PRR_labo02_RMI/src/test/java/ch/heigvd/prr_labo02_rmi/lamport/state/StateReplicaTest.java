@@ -0,0 +1,147 @@
+package ch.heigvd.prr_labo02_rmi.lamport.state;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.StateUpdate;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the replication of the shared state by the StateReplica class
+ */
+public class StateReplicaTest {
+
+   public StateReplicaTest() {
+   }
+
+   /**
+    * Create the replicas of three applications with a state of 64 KiB.
+    */
+   private static StateReplica[] replicas(int history) {
+      StateReplica[] replicas = new StateReplica[3];
+      for (int i = 0; i < replicas.length; ++i) {
+         replicas[i] = new StateReplica(new ByteArrayState(65536), replicas.length,
+                 history);
+      }
+      return replicas;
+   }
+
+   private static ByteArrayState state(StateReplica replica) {
+      return (ByteArrayState) replica.getState();
+   }
+
+   /**
+    * Test of updateFor and apply methods, of class StateReplica.
+    */
+   @Test
+   public void onlyTheChangesShouldBeSent() {
+      StateReplica[] replicas = replicas(StateReplica.DEFAULT_HISTORY);
+
+      state(replicas[0]).putInt(1000, 42);
+      replicas[0].release(1, 0);
+
+      StateUpdate update = replicas[0].updateFor(1);
+      assertFalse(update.isSnapshot());
+      assertTrue(update.getData().length < 100);
+      assertTrue(replicas[1].apply(update, 1, 0));
+      assertEquals(42, state(replicas[1]).getInt(1000));
+
+      // The application is now known to have the version
+      assertNull(replicas[0].updateFor(1));
+   }
+
+   /**
+    * Test of updateFor and apply methods, of class StateReplica.
+    */
+   @Test
+   public void changesAlreadyAppliedShouldBeSkipped() {
+      StateReplica[] replicas = replicas(StateReplica.DEFAULT_HISTORY);
+
+      state(replicas[0]).putInt(0, 1);
+      replicas[0].release(1, 0);
+      assertTrue(replicas[1].apply(replicas[0].updateFor(1), 1, 0));
+
+      // The application 2 gets both changes from the application 1, which
+      // does not know that the application 0 already has the first one
+      state(replicas[1]).putInt(0, 2);
+      replicas[1].release(2, 1);
+      assertTrue(replicas[2].apply(replicas[1].updateFor(2), 2, 1));
+      assertTrue(replicas[0].apply(replicas[1].updateFor(0), 2, 1));
+
+      assertEquals(2, state(replicas[0]).getInt(0));
+      assertEquals(2, state(replicas[2]).getInt(0));
+   }
+
+   /**
+    * Test of updateFor and apply methods, of class StateReplica.
+    */
+   @Test
+   public void aSnapshotShouldBeSentToAnApplicationTooFarBehind() {
+      StateReplica[] replicas = replicas(2);
+
+      state(replicas[0]).putInt(0, 1);
+      replicas[0].release(1, 0);
+      assertTrue(replicas[2].apply(replicas[0].updateFor(2), 1, 0));
+
+      for (int version = 2; version <= 3; ++version) {
+         state(replicas[0]).putInt(0, version);
+         replicas[0].release(version, 0);
+      }
+
+      // The application 1 missed the change of the version 1, not kept
+      StateUpdate update = replicas[0].updateFor(1);
+      assertTrue(update.isSnapshot());
+      assertTrue(replicas[1].apply(update, 3, 0));
+      assertEquals(3, state(replicas[1]).getInt(0));
+
+      // The snapshot came with the changes since the version 1
+      replicas[1].heard(2, 1, 0);
+      update = replicas[1].updateFor(2);
+      assertFalse(update.isSnapshot());
+      assertTrue(replicas[2].apply(update, 3, 0));
+      assertEquals(3, state(replicas[2]).getInt(0));
+   }
+
+   /**
+    * Test of apply method, of class StateReplica.
+    */
+   @Test
+   public void missingChangesShouldNotBeApplied() {
+      StateReplica[] replicas = replicas(StateReplica.DEFAULT_HISTORY);
+
+      state(replicas[0]).putInt(0, 1);
+      replicas[0].release(1, 0);
+      replicas[0].updateFor(1);
+      state(replicas[0]).putInt(0, 2);
+      replicas[0].release(2, 0);
+
+      // Only the change of the version 2 is sent, the version 1 is lost
+      assertFalse(replicas[1].apply(replicas[0].updateFor(1), 2, 0));
+      assertFalse(replicas[1].apply(null, 2, 0));
+      assertEquals(0, state(replicas[1]).getInt(0));
+   }
+
+   /**
+    * Test of the changes of the CounterMapState class.
+    */
+   @Test
+   public void counterChangesShouldBeReplicated() {
+      StateReplica[] replicas = new StateReplica[2];
+      for (int i = 0; i < replicas.length; ++i) {
+         replicas[i] = new StateReplica(new CounterMapState(), replicas.length);
+      }
+      CounterMapState first = (CounterMapState) replicas[0].getState();
+      CounterMapState second = (CounterMapState) replicas[1].getState();
+
+      first.set("a", 5);
+      first.addAndGet("b", -3);
+      replicas[0].release(1, 0);
+      assertTrue(replicas[1].apply(replicas[0].updateFor(1), 1, 0));
+
+      first.remove("a");
+      replicas[0].release(2, 0);
+      assertTrue(replicas[1].apply(replicas[0].updateFor(1), 2, 0));
+
+      assertEquals(0, second.get("a"));
+      assertEquals(-3, second.get("b"));
+      assertEquals(first.names(), second.names());
+   }
+}
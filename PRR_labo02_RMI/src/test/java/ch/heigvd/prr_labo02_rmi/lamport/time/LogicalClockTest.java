@@ -64,4 +64,42 @@ public class LogicalClockTest {
       
    }
    
+   /**
+    * Test of tick and update methods called by several threads at the same
+    * time, of class LogicalClock.
+    */
+   @Test
+   public void concurrentTicksAndUpdatesShouldNotBeLost() throws InterruptedException {
+      int threads = 4;
+      int ticks = 10000;
+      Thread[] tickers = new Thread[threads];
+      for (int i = 0; i < threads; ++i) {
+         tickers[i] = new Thread(() -> {
+            for (int j = 0; j < ticks; ++j) {
+               // An update with an old time increments the time by one
+               if (j % 2 == 0) {
+                  clock.tick();
+               } else {
+                  clock.update(0);
+               }
+            }
+         });
+         tickers[i].start();
+      }
+      for (Thread ticker : tickers) {
+         ticker.join();
+      }
+      assertEquals(threads * ticks, clock.getTime());
+   }
+   
+   /**
+    * Test of tick and update return values, of class LogicalClock.
+    */
+   @Test
+   public void tickAndUpdateShouldReturnTheNewTime() {
+      assertEquals(1, clock.tick());
+      assertEquals(11, clock.update(10));
+      assertEquals(12, clock.update(0));
+      assertEquals(12, clock.getTime());
+   }
 }
@@ -0,0 +1,253 @@
+package ch.heigvd.prr_labo02_rmi.lamport.transport;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.message.MessageCodec;
+import ch.heigvd.prr_labo02_rmi.lamport.message.StateUpdate;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.Lamport;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the framing and the connections of the NioTransport class,
+ * over the loopback interface
+ */
+public class NioTransportTest {
+
+   public NioTransportTest() {
+   }
+
+   private ExecutorService executor;
+   private InetSocketAddress[] addresses;
+   private final List<NioTransport> transports = new ArrayList<>();
+
+   @Before
+   public void setUp() throws IOException {
+      // The selector threads of the closed transports may still hand it work
+      executor = Executors.newCachedThreadPool(runnable -> {
+         Thread thread = new Thread(runnable);
+         thread.setDaemon(true);
+         return thread;
+      });
+      addresses = new InetSocketAddress[] {
+         new InetSocketAddress("localhost", freePort()),
+         new InetSocketAddress("localhost", freePort())
+      };
+   }
+
+   @After
+   public void tearDown() {
+      for (NioTransport transport : transports) {
+         transport.close();
+      }
+   }
+
+   /**
+    * Find a port nobody listens on.
+    */
+   private static int freePort() throws IOException {
+      try (ServerSocket socket = new ServerSocket(0)) {
+         return socket.getLocalPort();
+      }
+   }
+
+   /**
+    * Start the transport of an application handling the messages it
+    * receives with a function.
+    */
+   private NioTransport start(int id, Function<LamportMessage, LamportMessage> handler)
+           throws IOException {
+      Lamport local = (Lamport) Proxy.newProxyInstance(Lamport.class.getClassLoader(),
+              new Class<?>[] {Lamport.class}, (proxy, method, args) -> {
+                 if (!method.getName().equals("receive")) {
+                    throw new UnsupportedOperationException(method.getName());
+                 }
+                 return handler.apply((LamportMessage) args[0]);
+              });
+
+      NioTransport transport = new NioTransport(id, addresses, executor);
+      transport.start(local);
+      transports.add(transport);
+      return transport;
+   }
+
+   /**
+    * Answer a message with a RECEIPT carrying its value, or with no response
+    * for a negative value.
+    */
+   private static LamportMessage echo(LamportMessage message) {
+      if (message.getSharedValue() < 0) {
+         return null;
+      }
+      return new LamportMessage(LamportMessage.Type.RECEIPT, message.getTimeStamp() + 1,
+              1, message.getSharedValue(), message.getValueTimeStamp(),
+              message.getValueSender(), message.getState());
+   }
+
+   private static LamportMessage request(int value) {
+      return new LamportMessage(LamportMessage.Type.REQUEST, value + 1, 0, value);
+   }
+
+   private static byte[] frame(LamportMessage message) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      MessageCodec.write(message, new DataOutputStream(body));
+      out.writeInt(body.size());
+      body.writeTo(out);
+      return bytes.toByteArray();
+   }
+
+   /**
+    * Test of send method, of class NioTransport.
+    */
+   @Test(timeout = 10000)
+   public void pipelinedResponsesShouldBeMatchedInOrder() throws Exception {
+      NioTransport first = start(0, NioTransportTest::echo);
+      start(1, NioTransportTest::echo);
+
+      // Every message is written before any response is read
+      List<CompletableFuture<LamportMessage>> responses = new ArrayList<>();
+      for (int i = 0; i < 200; ++i) {
+         responses.add(first.send(1, request(i % 7 == 3 ? -i : i)));
+      }
+
+      for (int i = 0; i < 200; ++i) {
+         LamportMessage response = responses.get(i).get();
+         if (i % 7 == 3) {
+            assertNull(response);
+         } else {
+            assertEquals(i, response.getSharedValue());
+         }
+      }
+   }
+
+   /**
+    * Test of send method, of class NioTransport, with a frame larger than
+    * the read buffer.
+    */
+   @Test(timeout = 10000)
+   public void largeFrameShouldBeReceivedWhole() throws Exception {
+      NioTransport first = start(0, NioTransportTest::echo);
+      start(1, NioTransportTest::echo);
+
+      byte[] data = new byte[100000];
+      for (int i = 0; i < data.length; ++i) {
+         data[i] = (byte) i;
+      }
+      LamportMessage message = new LamportMessage(LamportMessage.Type.RELEASE, 5, 0, 3,
+              5, 0, new StateUpdate(true, data));
+
+      LamportMessage response = first.send(1, message).get();
+      assertEquals(3, response.getSharedValue());
+      assertArrayEquals(data, response.getState().getData());
+   }
+
+   /**
+    * Test of the reading of the frames, of class NioTransport, with frames
+    * split across several reads.
+    */
+   @Test(timeout = 10000)
+   public void splitFramesShouldBeReassembled() throws Exception {
+      start(1, NioTransportTest::echo);
+
+      byte[] frames = new byte[0];
+      for (int i = 1; i <= 3; ++i) {
+         byte[] frame = frame(request(i));
+         frames = Arrays.copyOf(frames, frames.length + frame.length);
+         System.arraycopy(frame, 0, frames, frames.length - frame.length, frame.length);
+      }
+
+      try (Socket socket = new Socket(addresses[1].getAddress(), addresses[1].getPort())) {
+         socket.setTcpNoDelay(true);
+         OutputStream out = socket.getOutputStream();
+
+         // A byte at a time, the length prefix being split as well
+         for (byte b : frames) {
+            out.write(b);
+            out.flush();
+            Thread.sleep(1);
+         }
+
+         DataInputStream in = new DataInputStream(socket.getInputStream());
+         for (int i = 1; i <= 3; ++i) {
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            LamportMessage response = MessageCodec.read(
+                    new DataInputStream(new ByteArrayInputStream(body)));
+            assertEquals(i, response.getSharedValue());
+         }
+      }
+   }
+
+   /**
+    * Test of the reading of the frames, of class NioTransport, with a
+    * corrupted length.
+    */
+   @Test(timeout = 10000)
+   public void hugeFrameLengthShouldCloseTheConnection() throws Exception {
+      start(1, NioTransportTest::echo);
+
+      try (Socket socket = new Socket(addresses[1].getAddress(), addresses[1].getPort())) {
+         DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+         out.writeInt(Integer.MAX_VALUE);
+         out.flush();
+
+         InputStream in = socket.getInputStream();
+         assertEquals(-1, in.read());
+      }
+   }
+
+   /**
+    * Test of send method, of class NioTransport, once the other application
+    * dropped and came back.
+    */
+   @Test(timeout = 10000)
+   public void connectionShouldBeOpenedAgainAfterADrop() throws Exception {
+      NioTransport first = start(0, NioTransportTest::echo);
+      NioTransport second = start(1, NioTransportTest::echo);
+      assertEquals(1, first.send(1, request(1)).get().getSharedValue());
+
+      // The messages sent while the application is down fail
+      second.close();
+      try {
+         first.send(1, request(2)).get(5, TimeUnit.SECONDS);
+         fail("The application is down");
+      } catch (ExecutionException ex) {
+         // Expected
+      }
+
+      // The application comes back on the same port
+      while (true) {
+         try {
+            start(1, NioTransportTest::echo);
+            break;
+         } catch (BindException ex) {
+            Thread.sleep(10);
+         }
+      }
+      assertEquals(3, first.send(1, request(3)).get().getSharedValue());
+   }
+}
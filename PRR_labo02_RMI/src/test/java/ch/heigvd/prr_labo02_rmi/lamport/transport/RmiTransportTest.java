@@ -0,0 +1,107 @@
+package ch.heigvd.prr_labo02_rmi.lamport.transport;
+
+import ch.heigvd.prr_labo02_rmi.lamport.message.LamportMessage;
+import ch.heigvd.prr_labo02_rmi.lamport.rmi.Lamport;
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.ExportException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the lookups of the RmiTransport class, with a registry on the
+ * port 1099
+ */
+public class RmiTransportTest {
+
+   public RmiTransportTest() {
+   }
+
+   private ExecutorService executor;
+   private Registry registry;
+
+   @Before
+   public void setUp() throws RemoteException {
+      executor = Executors.newCachedThreadPool();
+      try {
+         registry = LocateRegistry.createRegistry(Registry.REGISTRY_PORT);
+      } catch (ExportException ex) {
+         // Another test of this JVM created it
+         registry = LocateRegistry.getRegistry(Registry.REGISTRY_PORT);
+      }
+   }
+
+   @After
+   public void tearDown() {
+      executor.shutdownNow();
+   }
+
+   /**
+    * Create a Lamport application answering every message with its value,
+    * keeping the names of the methods called.
+    */
+   private static Lamport application(int value, List<String> calls) {
+      return (Lamport) Proxy.newProxyInstance(Lamport.class.getClassLoader(),
+              new Class<?>[] {Lamport.class}, (proxy, method, args) -> {
+                 calls.add(method.getName());
+                 if (method.getName().equals("receive")) {
+                    LamportMessage message = (LamportMessage) args[0];
+                    return new LamportMessage(LamportMessage.Type.RECEIPT,
+                            message.getTimeStamp() + 1, 0, value);
+                 }
+                 return null;
+              });
+   }
+
+   /**
+    * Test of send method, of class RmiTransport, once the other application
+    * restarted.
+    */
+   @Test(timeout = 10000)
+   public void stubShouldBeLookedUpAgainInTheBackground() throws Exception {
+      List<String> firstCalls = new CopyOnWriteArrayList<>();
+      Lamport first = application(1, firstCalls);
+      registry.rebind("lamport-0", UnicastRemoteObject.exportObject(first, 0));
+
+      RmiTransport transport = new RmiTransport("localhost", 1, executor);
+      LamportMessage request = new LamportMessage(LamportMessage.Type.REQUEST, 1, 0, 0);
+      try {
+         assertEquals(1, transport.send(0, request).get().getSharedValue());
+
+         // The application goes down: the call fails with the old stub
+         registry.unbind("lamport-0");
+         UnicastRemoteObject.unexportObject(first, true);
+         try {
+            transport.send(0, request).get();
+            fail("The application is down");
+         } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RemoteException);
+         }
+
+         // It comes back, and is pinged without any message sent to it
+         List<String> secondCalls = new CopyOnWriteArrayList<>();
+         Lamport second = application(2, secondCalls);
+         registry.rebind("lamport-0", UnicastRemoteObject.exportObject(second, 0));
+         while (!secondCalls.contains("ping")) {
+            Thread.sleep(10);
+         }
+
+         assertEquals(2, transport.send(0, request).get().getSharedValue());
+         assertFalse(secondCalls.contains("getSharedValue"));
+         assertEquals(1, secondCalls.stream().filter("receive"::equals).count());
+         UnicastRemoteObject.unexportObject(second, true);
+      } finally {
+         registry.unbind("lamport-0");
+      }
+   }
+}